@@ -2,6 +2,7 @@ package com.eventbooking;
 
 import com.eventbooking.facade.BookingSystemFacade;
 import com.eventbooking.factory.BookingSystemFactory;
+import com.eventbooking.inventory.SeatMapSnapshot;
 import com.eventbooking.model.*;
 
 import java.math.BigDecimal;
@@ -52,7 +53,11 @@ public class BookingSystemApplication {
                 "10001",
                 "USA"
             );
-            Venue venue = new Venue("Madison Square Garden", venueAddress, 20000, "Parking, Food Court");
+            Venue venue = new Venue("Madison Square Garden", venueAddress, 20000, "Parking, Food Court",
+                                    new GeoPoint(40.750504, -73.993439));
+            venue.addSection(new VenueSection("FLOOR", 2, 50));
+            venue.addSection(new VenueSection("LOWER", 5, 100));
+            venue.addSection(new VenueSection("UPPER", 50, 200));
             
             Event event = bookingSystem.createEvent(
                 "Rock Concert 2026",
@@ -100,6 +105,13 @@ public class BookingSystemApplication {
             for (TicketType tt : updatedEvent.getTicketTypes()) {
                 System.out.println("  - " + tt);
             }
+            
+            // VIP sits on the floor, general admission in the lower bowl
+            bookingSystem.assignSeating(event.getEventId(),
+                updatedEvent.getTicketTypes().get(0).getTicketTypeId(), "FLOOR");
+            bookingSystem.assignSeating(event.getEventId(),
+                updatedEvent.getTicketTypes().get(1).getTicketTypeId(), "LOWER");
+            System.out.println("Assigned seating: VIP -> FLOOR, General Admission -> LOWER");
             System.out.println();
             
             // Demo 5: Browse Events
@@ -177,6 +189,16 @@ public class BookingSystemApplication {
                 System.out.println();
             }
             
+            // Demo 12: Seat Map
+            System.out.println("--- Demo 12: VIP Seat Map ---");
+            SeatMapSnapshot seatMap = bookingSystem.getSeatMap(
+                event.getEventId(), vipTicket.getTicketTypeId());
+            SeatMapSnapshot.SectionView floor = seatMap.getSections().get(0);
+            System.out.println("VIP seats available: " + seatMap.getAvailableSeats() + 
+                             "/" + seatMap.getTotalSeats());
+            System.out.println("Floor row 1: " + floor.renderRow(1));
+            System.out.println();
+            
             System.out.println("=== Demo Completed Successfully ===");
             
         } catch (Exception e) {
@@ -0,0 +1,242 @@
+package com.eventbooking.admission;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * FIFO admission queue for a single event
+ * Users draw increasing sequence numbers on arrival. A lazily refilled
+ * token bucket moves the admission frontier forward at the configured rate,
+ * but never further than remaining inventory leaves room for: each buyer
+ * admitted and still shopping holds back the most tickets one buyer may
+ * book. Admitted buyers who neither book nor leave within the admission
+ * window lose their place and stop holding tickets back. No background
+ * thread and no per-check allocation.
+ */
+class AdmissionQueue {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double admissionsPerSecond;
+    private final int ticketsPerBuyer;
+    private final long admissionWindowNanos;
+    private final IntSupplier remainingInventory;
+    private final Map<String, Long> sequences = new ConcurrentHashMap<>();
+    // Users still holding a place, by sequence, so lapsed admissions can be found
+    private final NavigableMap<Long, String> holders = new ConcurrentSkipListMap<>();
+    // Frontier moves in the order they happened, kept until the admission window closes on them
+    private final Queue<Admission> admissions = new ConcurrentLinkedQueue<>();
+    private final AtomicLong lastIssued = new AtomicLong();
+    private final AtomicLong admittedThrough = new AtomicLong();
+    // Admitted buyers who left, so no longer hold back admissions
+    private final AtomicLong finished = new AtomicLong();
+    // Sequences that left while still waiting; they finish once the frontier passes them
+    private final NavigableSet<Long> abandoned = new ConcurrentSkipListSet<>();
+    private final AtomicLong lastRefillNanos = new AtomicLong(System.nanoTime());
+
+    AdmissionQueue(double admissionsPerSecond, int ticketsPerBuyer, Duration admissionWindow,
+                   IntSupplier remainingInventory) {
+        if (admissionsPerSecond <= 0) {
+            throw new IllegalArgumentException("Admission rate must be positive");
+        }
+        if (ticketsPerBuyer <= 0) {
+            throw new IllegalArgumentException("Tickets per buyer must be positive");
+        }
+        if (admissionWindow.isNegative() || admissionWindow.isZero()) {
+            throw new IllegalArgumentException("Admission window must be positive");
+        }
+        this.admissionsPerSecond = admissionsPerSecond;
+        this.ticketsPerBuyer = ticketsPerBuyer;
+        this.admissionWindowNanos = admissionWindow.toNanos();
+        this.remainingInventory = remainingInventory;
+    }
+
+    QueuePosition join(String userId) {
+        int remaining = remainingInventory.getAsInt();
+        if (remaining <= 0) {
+            return soldOut();
+        }
+        long sequence = sequences.computeIfAbsent(userId, this::issue);
+        return positionOf(sequence, remaining);
+    }
+
+    int getTicketsPerBuyer() {
+        return ticketsPerBuyer;
+    }
+
+    /**
+     * @return Position, or null if the user has not joined
+     */
+    QueuePosition getPosition(String userId) {
+        Long sequence = sequences.get(userId);
+        if (sequence == null) {
+            return null;
+        }
+        int remaining = remainingInventory.getAsInt();
+        return remaining <= 0 ? soldOut() : positionOf(sequence, remaining);
+    }
+
+    boolean isAdmitted(String userId) {
+        Long sequence = sequences.get(userId);
+        if (sequence == null) {
+            return false;
+        }
+        int remaining = remainingInventory.getAsInt();
+        if (remaining <= 0) {
+            return false;
+        }
+        advance(remaining);
+        return sequence <= admittedThrough.get();
+    }
+
+    /**
+     * The user finished shopping or gave up their place
+     */
+    void leave(String userId) {
+        Long sequence = sequences.remove(userId);
+        if (sequence == null) {
+            return;
+        }
+        holders.remove(sequence);
+        if (sequence <= admittedThrough.get()) {
+            finished.incrementAndGet();
+        } else {
+            abandoned.add(sequence);
+            // The frontier may have passed it since the check
+            settleAbandoned();
+        }
+    }
+
+    int getWaitingCount() {
+        return (int) Math.max(0, lastIssued.get() - admittedThrough.get());
+    }
+
+    private QueuePosition positionOf(long sequence, int remaining) {
+        advance(remaining);
+        long ahead = sequence - admittedThrough.get();
+        if (ahead <= 0) {
+            return new QueuePosition(QueuePosition.Status.ADMITTED, 0, Duration.ZERO);
+        }
+        return new QueuePosition(QueuePosition.Status.WAITING, ahead, estimateWait(ahead, remaining));
+    }
+
+    /**
+     * Places free now open at the configured rate; past them a place opens
+     * only as a shopping buyer finishes, which by Little's law is at most
+     * one buyer slot per admission window
+     */
+    private Duration estimateWait(long ahead, int remaining) {
+        long slots = buyerSlots(remaining);
+        long free = Math.max(0, slots - (admittedThrough.get() - finished.get()));
+        double seconds = Math.min(ahead, free) / admissionsPerSecond;
+        if (ahead > free) {
+            double throttled = Math.min(admissionsPerSecond,
+                    slots * (double) NANOS_PER_SECOND / admissionWindowNanos);
+            seconds += (ahead - free) / throttled;
+        }
+        return Duration.ofMillis((long) Math.ceil(seconds * 1000));
+    }
+
+    private void advance(int remaining) {
+        long now = System.nanoTime();
+        expire(now);
+        long last = lastRefillNanos.get();
+        long permits = (long) ((now - last) * admissionsPerSecond / NANOS_PER_SECOND);
+        if (permits <= 0 || !lastRefillNanos.compareAndSet(last, now)) {
+            return;
+        }
+        long budget = permits;
+        while (budget > 0) {
+            long current = admittedThrough.get();
+            long shopping = current - finished.get();
+            long headroom = Math.max(0, buyerSlots(remaining) - shopping);
+            long next = Math.min(lastIssued.get(), current + Math.min(budget, headroom));
+            if (next == current) {
+                // Passing abandoned places frees headroom, so keep going with what is left
+                if (settleAbandoned() == 0) {
+                    return;
+                }
+            } else if (admittedThrough.compareAndSet(current, next)) {
+                admissions.add(new Admission(next, now));
+                budget -= next - current;
+                settleAbandoned();
+            }
+        }
+    }
+
+    /**
+     * Give up the places of buyers admitted a whole window ago who are still
+     * holding them, counting them as finished
+     */
+    private void expire(long now) {
+        Admission oldest;
+        while ((oldest = admissions.peek()) != null && now - oldest.atNanos >= admissionWindowNanos) {
+            if (!admissions.remove(oldest)) {
+                continue;
+            }
+            for (Map.Entry<Long, String> holder : holders.headMap(oldest.through, true).entrySet()) {
+                if (sequences.remove(holder.getValue(), holder.getKey())) {
+                    holders.remove(holder.getKey(), holder.getValue());
+                    finished.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Buyers that can shop at once without together booking more than remains
+     */
+    private long buyerSlots(int remaining) {
+        return ((long) remaining + ticketsPerBuyer - 1) / ticketsPerBuyer;
+    }
+
+    private long issue(String userId) {
+        long sequence = lastIssued.incrementAndGet();
+        holders.put(sequence, userId);
+        return sequence;
+    }
+
+    /**
+     * Count abandoned places the frontier has passed as finished
+     * @return Number of places settled
+     */
+    private int settleAbandoned() {
+        int settled = 0;
+        // Sequences start at 1; ceiling returns null rather than throwing when empty
+        Long first = abandoned.ceiling(0L);
+        while (first != null && first <= admittedThrough.get()) {
+            if (abandoned.remove(first)) {
+                finished.incrementAndGet();
+                settled++;
+            }
+            first = abandoned.ceiling(0L);
+        }
+        return settled;
+    }
+
+    private static QueuePosition soldOut() {
+        return new QueuePosition(QueuePosition.Status.SOLD_OUT, 0, Duration.ZERO);
+    }
+
+    /**
+     * The frontier reached a sequence at a time
+     */
+    private static final class Admission {
+        private final long through;
+        private final long atNanos;
+
+        Admission(long through, long atNanos) {
+            this.through = through;
+            this.atNanos = atNanos;
+        }
+    }
+}
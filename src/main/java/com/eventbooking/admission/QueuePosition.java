@@ -0,0 +1,50 @@
+package com.eventbooking.admission;
+
+import java.time.Duration;
+
+/**
+ * Where a user stands in an event's waiting room
+ */
+public class QueuePosition {
+
+    public enum Status {
+        WAITING,
+        ADMITTED,
+        SOLD_OUT
+    }
+
+    private final Status status;
+    private final long position;
+    private final Duration estimatedWait;
+
+    QueuePosition(Status status, long position, Duration estimatedWait) {
+        this.status = status;
+        this.position = position;
+        this.estimatedWait = estimatedWait;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Number of users ahead in the queue; zero once admitted
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    public Duration getEstimatedWait() {
+        return estimatedWait;
+    }
+
+    public boolean isAdmitted() {
+        return status == Status.ADMITTED;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueuePosition{status=%s, position=%d, estimatedWait=%ds}",
+                status, position, estimatedWait.getSeconds());
+    }
+}
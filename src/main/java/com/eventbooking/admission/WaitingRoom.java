@@ -0,0 +1,100 @@
+package com.eventbooking.admission;
+
+import com.eventbooking.exception.NotAdmittedException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+/**
+ * Virtual waiting room in front of booking
+ * Events with a waiting room only accept bookings from users the queue has
+ * admitted; everyone else is turned away before any booking work is done.
+ * An admitted user may book up to a set number of tickets and must do so
+ * within the admission window, or rejoin at the back. Events without one
+ * are not affected.
+ */
+public class WaitingRoom {
+
+    public static final int DEFAULT_TICKETS_PER_BUYER = 8;
+    public static final Duration DEFAULT_ADMISSION_WINDOW = Duration.ofMinutes(10);
+
+    private final Map<String, AdmissionQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Put an event behind a waiting room
+     * @param admissionsPerSecond Maximum rate at which buyers are let in
+     * @param ticketsPerBuyer Most tickets one admitted buyer may book
+     * @param admissionWindow How long an admitted buyer keeps their place
+     * @param remainingInventory Live count of tickets left; admission stops at zero
+     */
+    public void enable(String eventId, double admissionsPerSecond, int ticketsPerBuyer,
+                       Duration admissionWindow, IntSupplier remainingInventory) {
+        queues.put(eventId, new AdmissionQueue(admissionsPerSecond, ticketsPerBuyer, admissionWindow,
+                remainingInventory));
+    }
+
+    public void disable(String eventId) {
+        queues.remove(eventId);
+    }
+
+    public boolean isEnabled(String eventId) {
+        return queues.containsKey(eventId);
+    }
+
+    /**
+     * Join an event's queue; joining again keeps the original place
+     */
+    public QueuePosition join(String eventId, String userId) {
+        return getQueue(eventId).join(userId);
+    }
+
+    public QueuePosition getPosition(String eventId, String userId) {
+        QueuePosition position = getQueue(eventId).getPosition(userId);
+        if (position == null) {
+            throw new IllegalArgumentException("User is not in the waiting room");
+        }
+        return position;
+    }
+
+    /**
+     * Reject the caller unless the event is open or the user has been admitted
+     * and asks for no more tickets than an admitted buyer may book
+     */
+    public void checkAdmitted(String eventId, String userId, int tickets) {
+        AdmissionQueue queue = queues.get(eventId);
+        if (queue == null) {
+            return;
+        }
+        if (!queue.isAdmitted(userId)) {
+            throw new NotAdmittedException("Not yet admitted from the waiting room");
+        }
+        if (tickets > queue.getTicketsPerBuyer()) {
+            throw new NotAdmittedException("Admitted buyers may book at most "
+                    + queue.getTicketsPerBuyer() + " tickets");
+        }
+    }
+
+    /**
+     * Release the user's place, freeing room for the next buyer
+     */
+    public void leave(String eventId, String userId) {
+        AdmissionQueue queue = queues.get(eventId);
+        if (queue != null) {
+            queue.leave(userId);
+        }
+    }
+
+    public int getWaitingCount(String eventId) {
+        return getQueue(eventId).getWaitingCount();
+    }
+
+    private AdmissionQueue getQueue(String eventId) {
+        AdmissionQueue queue = queues.get(eventId);
+        if (queue == null) {
+            throw new IllegalStateException("Event has no waiting room");
+        }
+        return queue;
+    }
+}
@@ -0,0 +1,307 @@
+package com.eventbooking.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Field encodings shared by the domain codec
+ * Every reader consumes exactly what the matching writer produced, starting
+ * at the buffer's position. Nulls are encoded in-band: a tag, a sentinel or
+ * an out-of-range ordinal, never a separate presence byte.
+ */
+final class BinaryFields {
+
+    private static final byte ID_NULL = 0;
+    // Canonical lowercase UUID text, as generated for most entities: 16 bytes
+    private static final byte ID_UUID = 1;
+    // Text ending in -XXXXXXXX with eight uppercase hex digits, like TKT-1A2B3C4D
+    private static final byte ID_HEX_SUFFIX = 2;
+    private static final byte ID_TEXT = 3;
+
+    private static final int HEX_SUFFIX_LENGTH = 8;
+    private static final long NULL_MICROS = Long.MIN_VALUE;
+    private static final byte NULL_SCALE = Byte.MIN_VALUE;
+    // Unscaled values too wide for a long, or scales outside a byte
+    private static final byte WIDE_DECIMAL = Byte.MIN_VALUE + 1;
+    private static final char[] LOWER_HEX = "0123456789abcdef".toCharArray();
+    private static final char[] UPPER_HEX = "0123456789ABCDEF".toCharArray();
+
+    private BinaryFields() {
+    }
+
+    static void putId(ByteBuffer buffer, String id) {
+        if (id == null) {
+            buffer.put(ID_NULL);
+        } else if (isUuid(id)) {
+            buffer.put(ID_UUID);
+            buffer.putLong(hexBits(id, 0, 8) << 32 | hexBits(id, 9, 4) << 16 | hexBits(id, 14, 4));
+            buffer.putLong(hexBits(id, 19, 4) << 48 | hexBits(id, 24, 12));
+        } else if (hasHexSuffix(id)) {
+            int prefixLength = id.length() - HEX_SUFFIX_LENGTH;
+            buffer.put(ID_HEX_SUFFIX);
+            putVarInt(buffer, prefixLength);
+            for (int i = 0; i < prefixLength; i++) {
+                buffer.put((byte) id.charAt(i));
+            }
+            buffer.putInt((int) hexBits(id, prefixLength, HEX_SUFFIX_LENGTH));
+        } else {
+            buffer.put(ID_TEXT);
+            putString(buffer, id);
+        }
+    }
+
+    static String getId(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case ID_NULL:
+                return null;
+            case ID_UUID: {
+                long high = buffer.getLong();
+                long low = buffer.getLong();
+                char[] text = new char[36];
+                hex(text, 0, high >>> 32, 8, LOWER_HEX);
+                text[8] = '-';
+                hex(text, 9, high >>> 16, 4, LOWER_HEX);
+                text[13] = '-';
+                hex(text, 14, high, 4, LOWER_HEX);
+                text[18] = '-';
+                hex(text, 19, low >>> 48, 4, LOWER_HEX);
+                text[23] = '-';
+                hex(text, 24, low, 12, LOWER_HEX);
+                return new String(text);
+            }
+            case ID_HEX_SUFFIX: {
+                int prefixLength = getVarInt(buffer);
+                char[] text = new char[prefixLength + HEX_SUFFIX_LENGTH];
+                for (int i = 0; i < prefixLength; i++) {
+                    text[i] = (char) (buffer.get() & 0xFF);
+                }
+                hex(text, prefixLength, buffer.getInt() & 0xFFFFFFFFL, HEX_SUFFIX_LENGTH, UPPER_HEX);
+                return new String(text);
+            }
+            case ID_TEXT:
+                return getString(buffer);
+            default:
+                throw new IllegalStateException("Unknown ID encoding " + tag);
+        }
+    }
+
+    /**
+     * Length in UTF-8 bytes plus one, so zero can stand for null, then the bytes
+     */
+    static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            putVarInt(buffer, 0);
+            return;
+        }
+        int length = value.length();
+        int ascii = 0;
+        while (ascii < length && value.charAt(ascii) < 0x80) {
+            ascii++;
+        }
+        if (ascii == length) {
+            putVarInt(buffer, length + 1);
+            for (int i = 0; i < length; i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarInt(buffer, bytes.length + 1);
+            buffer.put(bytes);
+        }
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = getVarInt(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalStateException("String of " + length + " bytes overruns the record");
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    /**
+     * Epoch microseconds in UTC; finer precision is dropped
+     * @throws ArithmeticException for dates more than 290,000 years from 1970
+     */
+    static void putDateTime(ByteBuffer buffer, LocalDateTime value) {
+        buffer.putLong(value == null ? NULL_MICROS : EpochMicros.toMicros(value));
+    }
+
+    static LocalDateTime getDateTime(ByteBuffer buffer) {
+        long micros = buffer.getLong();
+        if (micros == NULL_MICROS) {
+            return null;
+        }
+        return EpochMicros.fromMicros(micros);
+    }
+
+    /**
+     * Scale as a byte and the unscaled value as a variable-length long, which
+     * covers every price and amount in a few bytes; anything wider falls back
+     * to the two's-complement bytes
+     */
+    static void putDecimal(ByteBuffer buffer, BigDecimal value) {
+        if (value == null) {
+            buffer.put(NULL_SCALE);
+            return;
+        }
+        int scale = value.scale();
+        BigInteger unscaled = value.unscaledValue();
+        if (scale > WIDE_DECIMAL && scale <= Byte.MAX_VALUE && unscaled.bitLength() < Long.SIZE) {
+            buffer.put((byte) scale);
+            putVarLong(buffer, unscaled.longValue());
+        } else {
+            byte[] bytes = unscaled.toByteArray();
+            buffer.put(WIDE_DECIMAL);
+            buffer.putInt(scale);
+            putVarInt(buffer, bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    static BigDecimal getDecimal(ByteBuffer buffer) {
+        byte scale = buffer.get();
+        if (scale == NULL_SCALE) {
+            return null;
+        }
+        if (scale != WIDE_DECIMAL) {
+            return BigDecimal.valueOf(getVarLong(buffer), scale);
+        }
+        int wideScale = buffer.getInt();
+        byte[] bytes = new byte[getVarInt(buffer)];
+        buffer.get(bytes);
+        return new BigDecimal(new BigInteger(bytes), wideScale);
+    }
+
+    /**
+     * Ordinal as a byte, with -1 for null
+     */
+    static void putEnum(ByteBuffer buffer, Enum<?> value) {
+        buffer.put((byte) (value != null ? value.ordinal() : -1));
+    }
+
+    static <E extends Enum<E>> E getEnum(ByteBuffer buffer, E[] values) {
+        int ordinal = buffer.get();
+        if (ordinal < 0) {
+            return null;
+        }
+        if (ordinal >= values.length) {
+            throw new IllegalStateException("Unknown " + values.getClass().getComponentType().getSimpleName()
+                    + " ordinal " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    /**
+     * Unsigned LEB128: seven bits per byte, low bits first
+     */
+    static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed variable-length integer");
+    }
+
+    /**
+     * Zigzag-mapped so small negative values stay short too, then seven bits per byte
+     */
+    static void putVarLong(ByteBuffer buffer, long value) {
+        long bits = value << 1 ^ value >> 63;
+        while ((bits & ~0x7FL) != 0) {
+            buffer.put((byte) (bits & 0x7F | 0x80));
+            bits >>>= 7;
+        }
+        buffer.put((byte) bits);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long bits = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = buffer.get();
+            bits |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return bits >>> 1 ^ -(bits & 1);
+            }
+        }
+        throw new IllegalStateException("Malformed variable-length long");
+    }
+
+    private static boolean isUuid(String id) {
+        if (id.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            boolean ok = i == 8 || i == 13 || i == 18 || i == 23
+                    ? c == '-'
+                    : c >= '0' && c <= '9' || c >= 'a' && c <= 'f';
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasHexSuffix(String id) {
+        int prefixLength = id.length() - HEX_SUFFIX_LENGTH;
+        if (prefixLength < 1 || id.charAt(prefixLength - 1) != '-') {
+            return false;
+        }
+        for (int i = 0; i < prefixLength; i++) {
+            if (id.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        for (int i = prefixLength; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'A' && c <= 'F')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hexBits(String text, int start, int digits) {
+        long bits = 0;
+        for (int i = start; i < start + digits; i++) {
+            bits = bits << 4 | Character.digit(text.charAt(i), 16);
+        }
+        return bits;
+    }
+
+    private static void hex(char[] text, int start, long bits, int digits, char[] alphabet) {
+        for (int i = start + digits - 1; i >= start; i--) {
+            text[i] = alphabet[(int) (bits & 0xF)];
+            bits >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package com.eventbooking.codec;
+
+import com.eventbooking.inventory.SeatMap;
+import com.eventbooking.model.Address;
+import com.eventbooking.model.Booking;
+import com.eventbooking.model.BookingStatus;
+import com.eventbooking.model.Event;
+import com.eventbooking.model.EventCategory;
+import com.eventbooking.model.EventStatus;
+import com.eventbooking.model.GeoPoint;
+import com.eventbooking.model.Payment;
+import com.eventbooking.model.PaymentMethod;
+import com.eventbooking.model.PaymentStatus;
+import com.eventbooking.model.Ticket;
+import com.eventbooking.model.TicketStatus;
+import com.eventbooking.model.TicketTier;
+import com.eventbooking.model.TicketType;
+import com.eventbooking.model.User;
+import com.eventbooking.model.UserRole;
+import com.eventbooking.model.Venue;
+import com.eventbooking.model.VenueSection;
+
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static com.eventbooking.codec.BinaryFields.*;
+
+/**
+ * Compact binary encoding of the domain model
+ * Records encode into and decode from caller-owned ByteBuffers, so a
+ * buffer can be reused for every record of a stream. Each record starts
+ * with its type and schema version; decoders accept any version up to
+ * SCHEMA_VERSION and reject newer ones, so readers can be upgraded before
+ * writers. IDs of generated shapes take fixed width, dates are epoch
+ * micros, money is a scaled variable-length long and enums are ordinals.
+ * Entities refer to each other by ID and are resolved on decode through
+ * lookups; an event carries its venue and ticket types, and a booking its
+ * tickets and payment. The journal and cold storage both store entities
+ * in this form. Ticket inventory is not encoded: it is rebuilt from the
+ * bookings that hold it.
+ */
+public final class DomainCodec {
+
+    public static final byte SCHEMA_VERSION = 1;
+
+    public static final byte USER = 1;
+    public static final byte EVENT = 2;
+    public static final byte BOOKING = 3;
+    public static final byte TICKET = 4;
+    public static final byte PAYMENT = 5;
+
+    // values() copies its array on every call
+    private static final UserRole[] USER_ROLES = UserRole.values();
+    private static final EventCategory[] EVENT_CATEGORIES = EventCategory.values();
+    private static final EventStatus[] EVENT_STATUSES = EventStatus.values();
+    private static final TicketTier[] TICKET_TIERS = TicketTier.values();
+    private static final BookingStatus[] BOOKING_STATUSES = BookingStatus.values();
+    private static final TicketStatus[] TICKET_STATUSES = TicketStatus.values();
+    private static final PaymentMethod[] PAYMENT_METHODS = PaymentMethod.values();
+    private static final PaymentStatus[] PAYMENT_STATUSES = PaymentStatus.values();
+
+    private DomainCodec() {
+    }
+
+    /**
+     * Record type at the buffer's position, without consuming it
+     */
+    public static byte peekType(ByteBuffer buffer) {
+        return buffer.get(buffer.position());
+    }
+
+    /**
+     * Append a user record at the buffer's position
+     * @throws BufferOverflowException if it does not fit; the position is left unchanged
+     */
+    public static void encodeUser(User user, ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            putHeader(buffer, USER);
+            putId(buffer, user.getUserId());
+            putVarLong(buffer, user.getVersion());
+            putString(buffer, user.getEmail());
+            putString(buffer, user.getPassword());
+            putString(buffer, user.getFirstName());
+            putString(buffer, user.getLastName());
+            putString(buffer, user.getPhoneNumber());
+            putEnum(buffer, user.getRole());
+            putDateTime(buffer, user.getRegisteredAt());
+            buffer.put((byte) (user.isActive() ? 1 : 0));
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            throw e;
+        }
+    }
+
+    public static User decodeUser(ByteBuffer buffer) {
+        header(buffer, USER);
+        String userId = getId(buffer);
+        long version = getVarLong(buffer);
+        return new User(userId, getString(buffer), getString(buffer), getString(buffer), getString(buffer),
+                getString(buffer), getEnum(buffer, USER_ROLES), getDateTime(buffer),
+                buffer.get() != 0, version);
+    }
+
+    /**
+     * @throws BufferOverflowException if it does not fit; the position is left unchanged
+     */
+    public static void encodeEvent(Event event, ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            putHeader(buffer, EVENT);
+            putId(buffer, event.getEventId());
+            putVarLong(buffer, event.getVersion());
+            putString(buffer, event.getName());
+            putString(buffer, event.getDescription());
+            putDateTime(buffer, event.getEventDateTime());
+            putEnum(buffer, event.getCategory());
+            putEnum(buffer, event.getStatus());
+            buffer.putInt(event.getTotalCapacity());
+            putVenue(buffer, event.getVenue());
+            List<TicketType> ticketTypes = event.getTicketTypes();
+            putVarInt(buffer, ticketTypes.size());
+            for (TicketType ticketType : ticketTypes) {
+                putId(buffer, ticketType.getTicketTypeId());
+                putString(buffer, ticketType.getName());
+                putString(buffer, ticketType.getDescription());
+                putDecimal(buffer, ticketType.getPrice());
+                buffer.putInt(ticketType.getTotalQuantity());
+                putEnum(buffer, ticketType.getTier());
+                SeatMap seatMap = ticketType.getSeatMap();
+                if (seatMap == null) {
+                    putVarInt(buffer, 0);
+                } else {
+                    // Section count plus one, so zero can stand for no seat map
+                    List<String> sections = seatMap.getSectionNames();
+                    putVarInt(buffer, sections.size() + 1);
+                    for (String section : sections) {
+                        putString(buffer, section);
+                    }
+                }
+            }
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            throw e;
+        }
+    }
+
+    /**
+     * @param venues Venues decoded so far by ID, so events at one venue share
+     *               it; must be thread-safe if decoding runs in parallel
+     */
+    public static Event decodeEvent(ByteBuffer buffer, Map<String, Venue> venues) {
+        header(buffer, EVENT);
+        String eventId = getId(buffer);
+        long version = getVarLong(buffer);
+        String name = getString(buffer);
+        String description = getString(buffer);
+        LocalDateTime dateTime = getDateTime(buffer);
+        EventCategory category = getEnum(buffer, EVENT_CATEGORIES);
+        EventStatus status = getEnum(buffer, EVENT_STATUSES);
+        int totalCapacity = buffer.getInt();
+        Venue venue = getVenue(buffer, venues);
+        Event event = new Event(eventId, name, description, dateTime, venue, category, status,
+                totalCapacity, version);
+
+        int ticketTypeCount = getVarInt(buffer);
+        for (int i = 0; i < ticketTypeCount; i++) {
+            TicketType ticketType = new TicketType(getId(buffer), getString(buffer), getString(buffer),
+                    getDecimal(buffer), buffer.getInt(), getEnum(buffer, TICKET_TIERS));
+            int sectionCount = getVarInt(buffer) - 1;
+            if (sectionCount >= 0) {
+                List<VenueSection> layout = new ArrayList<>(sectionCount);
+                for (int s = 0; s < sectionCount; s++) {
+                    String section = getString(buffer);
+                    layout.add((venue != null ? venue.findSection(section) : Optional.<VenueSection>empty())
+                            .orElseThrow(() -> new IllegalStateException("Seat map uses unknown section "
+                                    + section + " of event " + eventId)));
+                }
+                ticketType.setSeatMap(new SeatMap(layout));
+            }
+            event.addTicketType(ticketType);
+        }
+        return event;
+    }
+
+    /**
+     * @throws BufferOverflowException if it does not fit; the position is left unchanged
+     */
+    public static void encodeBooking(Booking booking, ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            putHeader(buffer, BOOKING);
+            putId(buffer, booking.getBookingId());
+            putVarLong(buffer, booking.getVersion());
+            putId(buffer, booking.getUser().getUserId());
+            putId(buffer, booking.getEvent().getEventId());
+            putEnum(buffer, booking.getStatus());
+            putDateTime(buffer, booking.getBookingDateTime());
+            List<Ticket> tickets = booking.getTickets();
+            putVarInt(buffer, tickets.size());
+            for (Ticket ticket : tickets) {
+                putTicketState(buffer, ticket);
+            }
+            Payment payment = booking.getPayment();
+            buffer.put((byte) (payment != null ? 1 : 0));
+            if (payment != null) {
+                putPaymentState(buffer, payment);
+            }
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            throw e;
+        }
+    }
+
+    /**
+     * @param users Resolves the booking's user by ID
+     * @param events Resolves the booking's event by ID; its ticket types resolve the tickets
+     */
+    public static Booking decodeBooking(ByteBuffer buffer, Function<String, User> users,
+                                        Function<String, Event> events) {
+        header(buffer, BOOKING);
+        String bookingId = getId(buffer);
+        long version = getVarLong(buffer);
+        User user = resolve(users, getId(buffer), "user", bookingId);
+        Event event = resolve(events, getId(buffer), "event", bookingId);
+        Booking booking = new Booking(bookingId, user, event, getEnum(buffer, BOOKING_STATUSES),
+                getDateTime(buffer), version);
+        int ticketCount = getVarInt(buffer);
+        for (int i = 0; i < ticketCount; i++) {
+            booking.addTicket(getTicketState(buffer, event, true));
+        }
+        if (buffer.get() != 0) {
+            booking.setPayment(getPaymentState(buffer, booking));
+        }
+        return booking;
+    }
+
+    /**
+     * A ticket on its own, referring to its event by ID
+     * @throws BufferOverflowException if it does not fit; the position is left unchanged
+     */
+    public static void encodeTicket(Ticket ticket, ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            putHeader(buffer, TICKET);
+            putId(buffer, ticket.getEvent().getEventId());
+            putTicketState(buffer, ticket);
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            throw e;
+        }
+    }
+
+    public static Ticket decodeTicket(ByteBuffer buffer, Function<String, Event> events) {
+        header(buffer, TICKET);
+        String eventId = getId(buffer);
+        Event event = events.apply(eventId);
+        if (event == null) {
+            throw new IllegalStateException("Ticket refers to unknown event " + eventId);
+        }
+        return getTicketState(buffer, event, false);
+    }
+
+    /**
+     * A payment on its own, referring to its booking by ID
+     * @throws BufferOverflowException if it does not fit; the position is left unchanged
+     */
+    public static void encodePayment(Payment payment, ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            putHeader(buffer, PAYMENT);
+            putId(buffer, payment.getBooking() != null ? payment.getBooking().getBookingId() : null);
+            putPaymentState(buffer, payment);
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            throw e;
+        }
+    }
+
+    public static Payment decodePayment(ByteBuffer buffer, Function<String, Booking> bookings) {
+        header(buffer, PAYMENT);
+        String bookingId = getId(buffer);
+        Booking booking = bookingId != null ? bookings.apply(bookingId) : null;
+        if (bookingId != null && booking == null) {
+            throw new IllegalStateException("Payment refers to unknown booking " + bookingId);
+        }
+        return getPaymentState(buffer, booking);
+    }
+
+    private static void putTicketState(ByteBuffer buffer, Ticket ticket) {
+        putId(buffer, ticket.getTicketId());
+        putId(buffer, ticket.getTicketType().getTicketTypeId());
+        putString(buffer, ticket.getSeatNumber());
+        putEnum(buffer, ticket.getStatus());
+        putDateTime(buffer, ticket.getIssuedAt());
+        putDecimal(buffer, ticket.getPricePaid());
+    }
+
+    /**
+     * Tickets of a decoded booking go to the event's columnar store when it has
+     * one; a ticket decoded on its own is not owned by a booking and stays on heap
+     */
+    private static Ticket getTicketState(ByteBuffer buffer, Event event, boolean owned) {
+        String ticketId = getId(buffer);
+        String ticketTypeId = getId(buffer);
+        TicketType ticketType = event.findTicketType(ticketTypeId).orElseThrow(() ->
+                new IllegalStateException("Ticket " + ticketId + " refers to unknown ticket type "
+                        + ticketTypeId + " of event " + event.getEventId()));
+        String seatNumber = getString(buffer);
+        TicketStatus status = getEnum(buffer, TICKET_STATUSES);
+        LocalDateTime issuedAt = getDateTime(buffer);
+        BigDecimal pricePaid = getDecimal(buffer);
+        return owned
+                ? event.restoreTicket(ticketId, ticketType, seatNumber, status, issuedAt, pricePaid)
+                : new Ticket(ticketId, event, ticketType, seatNumber, status, issuedAt, pricePaid);
+    }
+
+    private static void putPaymentState(ByteBuffer buffer, Payment payment) {
+        putId(buffer, payment.getPaymentId());
+        putDecimal(buffer, payment.getAmount());
+        putEnum(buffer, payment.getPaymentMethod());
+        putEnum(buffer, payment.getStatus());
+        putDateTime(buffer, payment.getCreatedAt());
+        putDateTime(buffer, payment.getCompletedAt());
+        putString(buffer, payment.getTransactionReference());
+    }
+
+    private static Payment getPaymentState(ByteBuffer buffer, Booking booking) {
+        return new Payment(getId(buffer), booking, getDecimal(buffer), getEnum(buffer, PAYMENT_METHODS),
+                getEnum(buffer, PAYMENT_STATUSES), getDateTime(buffer), getDateTime(buffer),
+                getString(buffer));
+    }
+
+    private static void putVenue(ByteBuffer buffer, Venue venue) {
+        buffer.put((byte) (venue != null ? 1 : 0));
+        if (venue == null) {
+            return;
+        }
+        putId(buffer, venue.getVenueId());
+        putString(buffer, venue.getName());
+        Address address = venue.getAddress();
+        buffer.put((byte) (address != null ? 1 : 0));
+        if (address != null) {
+            putString(buffer, address.getStreet());
+            putString(buffer, address.getCity());
+            putString(buffer, address.getState());
+            putString(buffer, address.getZipCode());
+            putString(buffer, address.getCountry());
+        }
+        buffer.putInt(venue.getCapacity());
+        putString(buffer, venue.getFacilities());
+        GeoPoint location = venue.getLocation();
+        buffer.put((byte) (location != null ? 1 : 0));
+        if (location != null) {
+            buffer.putDouble(location.getLatitude());
+            buffer.putDouble(location.getLongitude());
+        }
+        List<VenueSection> sections = venue.getSections();
+        putVarInt(buffer, sections.size());
+        for (VenueSection section : sections) {
+            putString(buffer, section.getName());
+            putVarInt(buffer, section.getRows());
+            putVarInt(buffer, section.getSeatsPerRow());
+        }
+    }
+
+    private static Venue getVenue(ByteBuffer buffer, Map<String, Venue> venues) {
+        if (buffer.get() == 0) {
+            return null;
+        }
+        String venueId = getId(buffer);
+        String name = getString(buffer);
+        Address address = buffer.get() != 0
+                ? new Address(getString(buffer), getString(buffer), getString(buffer), getString(buffer),
+                              getString(buffer))
+                : null;
+        int capacity = buffer.getInt();
+        String facilities = getString(buffer);
+        GeoPoint location = buffer.get() != 0 ? new GeoPoint(buffer.getDouble(), buffer.getDouble()) : null;
+        int sectionCount = getVarInt(buffer);
+        Venue shared = venues.get(venueId);
+        if (shared != null) {
+            // Already decoded: skip this copy's sections
+            for (int i = 0; i < sectionCount; i++) {
+                getString(buffer);
+                getVarInt(buffer);
+                getVarInt(buffer);
+            }
+            return shared;
+        }
+        Venue venue = new Venue(venueId, name, address, capacity, facilities, location);
+        for (int i = 0; i < sectionCount; i++) {
+            venue.addSection(new VenueSection(getString(buffer), getVarInt(buffer), getVarInt(buffer)));
+        }
+        shared = venues.putIfAbsent(venueId, venue);
+        return shared != null ? shared : venue;
+    }
+
+    private static void putHeader(ByteBuffer buffer, byte type) {
+        buffer.put(type);
+        buffer.put(SCHEMA_VERSION);
+    }
+
+    private static void header(ByteBuffer buffer, byte expectedType) {
+        byte type = buffer.get();
+        if (type != expectedType) {
+            throw new IllegalStateException("Expected record type " + expectedType + " but found " + type);
+        }
+        byte version = buffer.get();
+        if (version < 1 || version > SCHEMA_VERSION) {
+            throw new IllegalStateException("Unsupported schema version " + version
+                    + "; this reader supports up to " + SCHEMA_VERSION);
+        }
+    }
+
+    private static <T> T resolve(Function<String, T> lookup, String id, String kind, String bookingId) {
+        T entity = lookup.apply(id);
+        if (entity == null) {
+            throw new IllegalStateException("Booking " + bookingId + " refers to unknown " + kind + " " + id);
+        }
+        return entity;
+    }
+}
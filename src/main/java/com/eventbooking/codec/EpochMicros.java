@@ -0,0 +1,45 @@
+package com.eventbooking.codec;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Date-times as microseconds since the epoch in UTC
+ * The one stored form of a date across the binary codec, the JDBC columns
+ * and the columnar ticket store. Finer precision than a microsecond is
+ * dropped.
+ */
+public final class EpochMicros {
+
+    public static final long MICROS_PER_SECOND = 1_000_000L;
+
+    private EpochMicros() {
+    }
+
+    /**
+     * @throws ArithmeticException for dates more than 290,000 years from 1970
+     */
+    public static long toMicros(LocalDateTime value) {
+        return Math.addExact(Math.multiplyExact(value.toEpochSecond(ZoneOffset.UTC), MICROS_PER_SECOND),
+                value.getNano() / 1000);
+    }
+
+    /**
+     * Microseconds for a range bound, saturating for bounds like LocalDateTime.MAX
+     */
+    public static long toBoundMicros(LocalDateTime value) {
+        long seconds = value.toEpochSecond(ZoneOffset.UTC);
+        if (seconds >= Long.MAX_VALUE / MICROS_PER_SECOND) {
+            return Long.MAX_VALUE;
+        }
+        if (seconds <= Long.MIN_VALUE / MICROS_PER_SECOND) {
+            return Long.MIN_VALUE;
+        }
+        return seconds * MICROS_PER_SECOND + value.getNano() / 1000;
+    }
+
+    public static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, MICROS_PER_SECOND),
+                (int) Math.floorMod(micros, MICROS_PER_SECOND) * 1000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,16 @@
+package com.eventbooking.exception;
+
+/**
+ * Thrown when a repository's backing store fails, e.g. a SQL error
+ */
+public class DataAccessException extends BookingSystemException {
+    private static final long serialVersionUID = 1L;
+    
+    public DataAccessException(String message) {
+        super(message);
+    }
+    
+    public DataAccessException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,9 @@
+package com.eventbooking.exception;
+
+public class NotAdmittedException extends BookingSystemException {
+    private static final long serialVersionUID = 1L;
+
+    public NotAdmittedException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.eventbooking.exception;
+
+/**
+ * Thrown when a versioned write finds the entity was changed since it was read
+ */
+public class OptimisticLockException extends BookingSystemException {
+    private static final long serialVersionUID = 1L;
+    
+    private final String entityId;
+    private final long expectedVersion;
+    private final long actualVersion;
+    
+    public OptimisticLockException(String entityId, long expectedVersion, long actualVersion) {
+        super(String.format("Stale version of %s: expected %d but found %d",
+                entityId, expectedVersion, actualVersion));
+        this.entityId = entityId;
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+    
+    public String getEntityId() {
+        return entityId;
+    }
+    
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+    
+    public long getActualVersion() {
+        return actualVersion;
+    }
+}
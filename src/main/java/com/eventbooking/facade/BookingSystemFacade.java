@@ -1,32 +1,111 @@
 package com.eventbooking.facade;
 
+import com.eventbooking.admission.QueuePosition;
+import com.eventbooking.admission.WaitingRoom;
+import com.eventbooking.exception.NotAdmittedException;
+import com.eventbooking.inventory.SeatMapSnapshot;
+import com.eventbooking.inventory.WaitlistEntry;
+import com.eventbooking.ledger.projection.BookingProjections;
+import com.eventbooking.ledger.projection.BookingSummary;
+import com.eventbooking.ledger.projection.EventRevenue;
+import com.eventbooking.ledger.projection.ManifestEntry;
 import com.eventbooking.model.*;
+import com.eventbooking.pipeline.BookingPipeline;
+import com.eventbooking.query.Query;
+import com.eventbooking.query.QueryPlan;
+import com.eventbooking.repository.EventFilter;
+import com.eventbooking.repository.Page;
+import com.eventbooking.service.BookingRequest;
+import com.eventbooking.service.BookingResult;
 import com.eventbooking.service.BookingService;
 import com.eventbooking.service.EventService;
+import com.eventbooking.service.ShardedBookingService;
 import com.eventbooking.service.UserService;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Facade pattern implementation
  * Provides a simplified interface to the booking system
  */
-public class BookingSystemFacade {
+public class BookingSystemFacade implements AutoCloseable {
     
     private final UserService userService;
     private final EventService eventService;
     private final BookingService bookingService;
+    private final WaitingRoom waitingRoom;
+    private final ShardedBookingService shardedBookingService;
+    private final BookingProjections projections;
+    private final List<AutoCloseable> resources;
+    private boolean closed;
     
     public BookingSystemFacade(UserService userService, 
                               EventService eventService,
                               BookingService bookingService) {
+        this(userService, eventService, bookingService, new WaitingRoom());
+    }
+    
+    public BookingSystemFacade(UserService userService, 
+                              EventService eventService,
+                              BookingService bookingService,
+                              WaitingRoom waitingRoom) {
+        this(userService, eventService, bookingService, waitingRoom, null);
+    }
+    
+    /**
+     * @param shardedBookingService Enables the async booking operations and runs
+     *                              the synchronous ones on its shards; may be null
+     */
+    public BookingSystemFacade(UserService userService, 
+                              EventService eventService,
+                              BookingService bookingService,
+                              WaitingRoom waitingRoom,
+                              ShardedBookingService shardedBookingService) {
+        this(userService, eventService, bookingService, waitingRoom, shardedBookingService, null);
+    }
+    
+    /**
+     * @param projections Read models fed by the booking ledger, enabling the
+     *                    read model operations; may be null
+     */
+    public BookingSystemFacade(UserService userService, 
+                              EventService eventService,
+                              BookingService bookingService,
+                              WaitingRoom waitingRoom,
+                              ShardedBookingService shardedBookingService,
+                              BookingProjections projections) {
+        this(userService, eventService, bookingService, waitingRoom, shardedBookingService, projections, null);
+    }
+    
+    /**
+     * @param resources Closed in order by close(), after the services stop,
+     *                  e.g. a journal or connection pool; may be null
+     */
+    public BookingSystemFacade(UserService userService, 
+                              EventService eventService,
+                              BookingService bookingService,
+                              WaitingRoom waitingRoom,
+                              ShardedBookingService shardedBookingService,
+                              BookingProjections projections,
+                              List<AutoCloseable> resources) {
         this.userService = userService;
         this.eventService = eventService;
         this.bookingService = bookingService;
+        this.waitingRoom = waitingRoom;
+        this.shardedBookingService = shardedBookingService;
+        this.projections = projections;
+        this.resources = resources != null ? new ArrayList<>(resources) : new ArrayList<>();
     }
     
     // ===== User Operations =====
@@ -44,6 +123,10 @@ public class BookingSystemFacade {
         return userService.getUserById(userId);
     }
     
+    public User updateUserProfile(String userId, long expectedVersion, Consumer<? super User> change) {
+        return userService.updateUser(userId, expectedVersion, change);
+    }
+    
     // ===== Event Operations =====
     
     public Event createEvent(String name, String description, LocalDateTime eventDateTime,
@@ -58,18 +141,70 @@ public class BookingSystemFacade {
         eventService.addTicketType(eventId, ticketType);
     }
     
+    public void assignSeating(String eventId, String ticketTypeId, String... sectionNames) {
+        eventService.assignSeating(eventId, ticketTypeId, Arrays.asList(sectionNames));
+    }
+    
+    public SeatMapSnapshot getSeatMap(String eventId, String ticketTypeId) {
+        return eventService.getSeatMap(eventId, ticketTypeId);
+    }
+    
     public List<Event> browseUpcomingEvents() {
         return eventService.getUpcomingEvents();
     }
     
+    public List<Event> browseUpcomingEvents(int limit) {
+        return eventService.getUpcomingEvents(limit);
+    }
+    
     public List<Event> searchEvents(String keyword) {
         return eventService.searchEvents(keyword);
     }
     
+    public List<Event> searchEvents(String keyword, int limit) {
+        return eventService.searchEvents(keyword, limit);
+    }
+    
+    public List<String> autocompleteSearch(String prefix, int limit) {
+        return eventService.suggestSearchTerms(prefix, limit);
+    }
+    
     public List<Event> getEventsByCategory(EventCategory category) {
         return eventService.getEventsByCategory(category);
     }
     
+    public List<Event> findEvents(EventFilter filter) {
+        return eventService.findEvents(filter);
+    }
+    
+    public List<Event> findEventsNear(GeoPoint location, double radiusKm, EventFilter filter) {
+        return eventService.findEventsNear(location, radiusKm, filter);
+    }
+    
+    public List<Event> findEventsInArea(GeoPoint southWest, GeoPoint northEast, EventFilter filter) {
+        return eventService.findEventsInArea(southWest, northEast, filter);
+    }
+    
+    public List<Event> findNearestEvents(GeoPoint location, int limit, EventFilter filter) {
+        return eventService.findNearestEvents(location, limit, filter);
+    }
+    
+    public List<Event> queryEvents(Query<Event> query) {
+        return eventService.queryEvents(query);
+    }
+    
+    public QueryPlan explainEventQuery(Query<Event> query) {
+        return eventService.explainEventQuery(query);
+    }
+    
+    public List<Booking> queryBookings(Query<Booking> query) {
+        return bookingService.queryBookings(query);
+    }
+    
+    public QueryPlan explainBookingQuery(Query<Booking> query) {
+        return bookingService.explainBookingQuery(query);
+    }
+    
     public Event getEventDetails(String eventId) {
         return eventService.getEventById(eventId);
     }
@@ -78,26 +213,141 @@ public class BookingSystemFacade {
         return eventService.getAvailableCapacity(eventId);
     }
     
+    public EventAvailability getEventAvailability(String eventId) {
+        return eventService.getAvailability(eventId);
+    }
+    
     // ===== Booking Operations =====
     
     public Booking bookTickets(String userId, String eventId, 
                               Map<String, Integer> ticketRequests) {
-        return bookingService.createBooking(userId, eventId, ticketRequests);
+        // Cheap rejection before any lookups or allocation
+        waitingRoom.checkAdmitted(eventId, userId, ticketCount(ticketRequests));
+        // A failed attempt keeps the buyer's place so they can retry
+        Booking booking = shardedBookingService != null
+            ? await(shardedBookingService.createBooking(userId, eventId, ticketRequests))
+            : bookingService.createBooking(userId, eventId, ticketRequests);
+        waitingRoom.leave(eventId, userId);
+        return booking;
+    }
+    
+    /**
+     * Book many requests at once, e.g. for group and corporate sales
+     * Requests not admitted by an event's waiting room fail individually;
+     * only requests that booked give up their place in it
+     * @return One result per request, in request order
+     */
+    public List<BookingResult> bookTicketsBatch(List<BookingRequest> requests) {
+        List<BookingRequest> admitted = new ArrayList<>(requests.size());
+        BookingResult[] results = new BookingResult[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            BookingRequest request = requests.get(i);
+            try {
+                waitingRoom.checkAdmitted(request.getEventId(), request.getUserId(),
+                        ticketCount(request.getTicketRequests()));
+                admitted.add(request);
+            } catch (NotAdmittedException e) {
+                results[i] = BookingResult.failure(request, e.getMessage());
+            }
+        }
+        
+        List<BookingResult> booked = shardedBookingService != null
+            ? await(shardedBookingService.createBookings(admitted))
+            : bookingService.createBookings(admitted);
+        for (int i = 0, next = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = booked.get(next++);
+                if (results[i].isSuccessful()) {
+                    waitingRoom.leave(requests.get(i).getEventId(), requests.get(i).getUserId());
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+    
+    /**
+     * Book on the event's shard thread; requires a sharded booking system
+     */
+    public CompletableFuture<Booking> bookTicketsAsync(String userId, String eventId,
+                                                       Map<String, Integer> ticketRequests) {
+        waitingRoom.checkAdmitted(eventId, userId, ticketCount(ticketRequests));
+        return getShardedBookingService().createBooking(userId, eventId, ticketRequests)
+                .thenApply(booking -> {
+                    waitingRoom.leave(eventId, userId);
+                    return booking;
+                });
+    }
+    
+    public CompletableFuture<Void> makePaymentAsync(String bookingId, PaymentMethod paymentMethod) {
+        return getShardedBookingService().processPayment(bookingId, paymentMethod);
+    }
+    
+    public CompletableFuture<Void> cancelBookingAsync(String bookingId) {
+        return getShardedBookingService().cancelBooking(bookingId);
+    }
+    
+    /**
+     * Start a ring-buffer booking pipeline sharing this system's services
+     * Callers own the pipeline and must shut it down. Not available on a
+     * sharded system, where each event's shard owns its inventory.
+     */
+    public BookingPipeline startBookingPipeline(int bufferSize) {
+        if (shardedBookingService != null) {
+            throw new IllegalStateException("The booking pipeline would bypass the booking shards");
+        }
+        BookingPipeline pipeline = new BookingPipeline(bufferSize, userService, eventService, bookingService);
+        pipeline.start();
+        return pipeline;
+    }
+    
+    /**
+     * Wait for a sold-out ticket type; check the entry for the promoted booking
+     */
+    public WaitlistEntry joinWaitlist(String userId, String eventId, String ticketTypeId, int quantity) {
+        return shardedBookingService != null
+            ? await(shardedBookingService.joinWaitlist(userId, eventId, ticketTypeId, quantity))
+            : bookingService.joinWaitlist(userId, eventId, ticketTypeId, quantity);
+    }
+    
+    public boolean leaveWaitlist(WaitlistEntry entry) {
+        return entry.cancel();
     }
     
     public void makePayment(String bookingId, PaymentMethod paymentMethod) {
-        bookingService.processPayment(bookingId, paymentMethod);
+        if (shardedBookingService != null) {
+            await(shardedBookingService.processPayment(bookingId, paymentMethod));
+        } else {
+            bookingService.processPayment(bookingId, paymentMethod);
+        }
     }
     
     public void cancelBooking(String bookingId) {
-        bookingService.cancelBooking(bookingId);
+        if (shardedBookingService != null) {
+            await(shardedBookingService.cancelBooking(bookingId));
+        } else {
+            bookingService.cancelBooking(bookingId);
+        }
     }
     
+    /**
+     * A user's bookings; in event-sourced mode listed by the user history
+     * projection, oldest first, so it trails writes by a moment
+     */
     public List<Booking> getUserBookingHistory(String userId) {
+        if (projections != null) {
+            return bookingsListed(projections.userHistory().getHistory(userId));
+        }
         return bookingService.getUserBookings(userId);
     }
     
+    /**
+     * A user's confirmed bookings; in event-sourced mode listed by the user
+     * history projection, so it trails writes by a moment
+     */
     public List<Booking> getUpcomingBookings(String userId) {
+        if (projections != null) {
+            return bookingsListed(projections.userHistory().getHistory(userId, BookingStatus.CONFIRMED));
+        }
         return bookingService.getConfirmedBookings(userId);
     }
     
@@ -105,17 +355,216 @@ public class BookingSystemFacade {
         return bookingService.getBookingById(bookingId);
     }
     
+    // ===== Read Model Operations =====
+    // Served from the ledger projections, which trail writes by a moment
+    
+    public List<BookingSummary> getUserBookingSummaries(String userId) {
+        return getProjections().userHistory().getHistory(userId);
+    }
+    
+    public List<BookingSummary> getUpcomingBookingSummaries(String userId) {
+        return getProjections().userHistory().getHistory(userId, BookingStatus.CONFIRMED);
+    }
+    
+    public List<ManifestEntry> getEventManifest(String eventId) {
+        return getProjections().eventManifests().getManifest(eventId);
+    }
+    
+    public EventRevenue getEventRevenue(String eventId) {
+        return getProjections().revenue().getEventRevenue(eventId);
+    }
+    
+    public EventRevenue getTotalRevenue() {
+        return getProjections().revenue().getTotalRevenue();
+    }
+    
+    /**
+     * Wait until the read models reflect every write made before the call
+     * @return false if the timeout passed first
+     */
+    public boolean awaitReadModels(Duration timeout) {
+        return getProjections().awaitCaughtUp(timeout);
+    }
+    
+    /**
+     * Rebuild every read model from the ledger, in parallel, in the background
+     */
+    public void rebuildReadModels() {
+        getProjections().rebuild();
+    }
+    
+    // ===== Waiting Room Operations =====
+    
+    public QueuePosition joinWaitingRoom(String userId, String eventId) {
+        return waitingRoom.join(eventId, userId);
+    }
+    
+    public QueuePosition getWaitingRoomPosition(String userId, String eventId) {
+        return waitingRoom.getPosition(eventId, userId);
+    }
+    
+    /**
+     * Give up a place in the waiting room, e.g. after abandoning checkout
+     * Booking successfully gives it up automatically.
+     */
+    public void leaveWaitingRoom(String userId, String eventId) {
+        waitingRoom.leave(eventId, userId);
+    }
+    
     // ===== Admin Operations =====
     
+    /**
+     * Queue buyers for an event and admit them at most admissionsPerSecond,
+     * throttled further by remaining capacity
+     */
+    public void enableWaitingRoom(String eventId, double admissionsPerSecond) {
+        enableWaitingRoom(eventId, admissionsPerSecond, WaitingRoom.DEFAULT_TICKETS_PER_BUYER,
+                WaitingRoom.DEFAULT_ADMISSION_WINDOW);
+    }
+    
+    /**
+     * Queue buyers for an event, admitting only as many as remaining capacity
+     * can serve at ticketsPerBuyer each and for admissionWindow at a time
+     */
+    public void enableWaitingRoom(String eventId, double admissionsPerSecond, int ticketsPerBuyer,
+                                  Duration admissionWindow) {
+        Event event = eventService.getEventById(eventId);
+        waitingRoom.enable(eventId, admissionsPerSecond, ticketsPerBuyer, admissionWindow,
+                event::getAvailableCapacity);
+    }
+    
+    public void disableWaitingRoom(String eventId) {
+        waitingRoom.disable(eventId);
+    }
+    
     public void cancelEvent(String eventId) {
         eventService.cancelEvent(eventId);
     }
     
+    /**
+     * Apply an admin edit made against the event version shown to the admin
+     * Fails with OptimisticLockException if someone else saved the event since
+     */
+    public Event updateEvent(String eventId, long expectedVersion, Consumer<? super Event> change) {
+        return eventService.updateEvent(eventId, expectedVersion, change);
+    }
+    
+    /**
+     * An event's bookings; in event-sourced mode listed by the event bookings
+     * projection, oldest first, so it trails writes by a moment
+     */
     public List<Booking> getEventBookings(String eventId) {
+        if (projections != null) {
+            return bookingService.getBookingsById(projections.eventBookings().getBookingIds(eventId));
+        }
         return bookingService.getEventBookings(eventId);
     }
     
     public List<Event> getAllEvents() {
         return eventService.getAllEvents();
     }
+    
+    public Page<Event, String> listEvents(String after, int limit) {
+        return eventService.getEventsPage(after, limit);
+    }
+    
+    public Page<Booking, String> listBookings(String after, int limit) {
+        return bookingService.getBookingsPage(after, limit);
+    }
+    
+    public Stream<Booking> exportEventBookings(String eventId) {
+        return bookingService.streamEventBookings(eventId);
+    }
+    
+    // ===== Lifecycle =====
+    
+    /**
+     * Finish queued shard commands, stop the background threads and close
+     * the resources this system was built on
+     * Every step runs even if an earlier one fails; the first failure is
+     * rethrown with the others suppressed. Closing again does nothing.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        List<AutoCloseable> steps = new ArrayList<>();
+        if (shardedBookingService != null) {
+            steps.add(shardedBookingService::shutdown);
+        }
+        steps.add(bookingService::shutdown);
+        if (projections != null) {
+            steps.add(projections);
+        }
+        steps.addAll(resources);
+        
+        RuntimeException failure = null;
+        for (AutoCloseable step : steps) {
+            try {
+                step.close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e instanceof RuntimeException
+                        ? (RuntimeException) e
+                        : new IllegalStateException("Cannot close booking system", e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    /**
+     * The bookings a projection lists, in its order
+     */
+    private List<Booking> bookingsListed(List<BookingSummary> summaries) {
+        List<String> bookingIds = new ArrayList<>(summaries.size());
+        summaries.forEach(summary -> bookingIds.add(summary.getBookingId()));
+        return bookingService.getBookingsById(bookingIds);
+    }
+    
+    private BookingProjections getProjections() {
+        if (projections == null) {
+            throw new IllegalStateException("Event-sourced read models are not enabled");
+        }
+        return projections;
+    }
+    
+    /**
+     * Wait for a shard command, rethrowing its failure as the direct call would
+     */
+    private static <T> T await(CompletableFuture<T> command) {
+        try {
+            return command.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    private static int ticketCount(Map<String, Integer> ticketRequests) {
+        int tickets = 0;
+        for (Integer quantity : ticketRequests.values()) {
+            if (quantity != null && quantity > 0) {
+                tickets += quantity;
+            }
+        }
+        return tickets;
+    }
+    
+    private ShardedBookingService getShardedBookingService() {
+        if (shardedBookingService == null) {
+            throw new IllegalStateException("Sharded booking execution is not enabled");
+        }
+        return shardedBookingService;
+    }
 }
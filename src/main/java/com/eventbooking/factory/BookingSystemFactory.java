@@ -1,16 +1,33 @@
 package com.eventbooking.factory;
 
+import com.eventbooking.admission.WaitingRoom;
 import com.eventbooking.facade.BookingSystemFacade;
+import com.eventbooking.journal.Journal;
+import com.eventbooking.ledger.BookingLedger;
+import com.eventbooking.ledger.projection.BookingProjections;
 import com.eventbooking.repository.BookingRepository;
 import com.eventbooking.repository.EventRepository;
 import com.eventbooking.repository.UserRepository;
 import com.eventbooking.repository.impl.BookingRepositoryImpl;
 import com.eventbooking.repository.impl.EventRepositoryImpl;
 import com.eventbooking.repository.impl.UserRepositoryImpl;
+import com.eventbooking.repository.jdbc.ConnectionPool;
+import com.eventbooking.repository.jdbc.JdbcBookingRepository;
+import com.eventbooking.repository.jdbc.JdbcEventRepository;
+import com.eventbooking.repository.jdbc.JdbcSchema;
+import com.eventbooking.repository.jdbc.JdbcUserRepository;
+import com.eventbooking.repository.jdbc.SqlDialect;
 import com.eventbooking.service.BookingService;
 import com.eventbooking.service.EventService;
 import com.eventbooking.service.PaymentService;
+import com.eventbooking.service.ShardedBookingService;
 import com.eventbooking.service.UserService;
+import com.eventbooking.tiering.ColdStorage;
+import com.eventbooking.tiering.EventArchiver;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 
 /**
  * Factory class for creating and wiring system components
@@ -22,19 +39,198 @@ public class BookingSystemFactory {
      * Create a fully configured BookingSystemFacade
      */
     public static BookingSystemFacade createBookingSystem() {
+        return createBookingSystem(0);
+    }
+    
+    /**
+     * Create a BookingSystemFacade whose async booking operations run on
+     * per-event shard threads
+     * @param shardCount Number of shard threads; 0 disables sharded execution
+     */
+    public static BookingSystemFacade createBookingSystem(int shardCount) {
         // Create repositories
         UserRepository userRepository = new UserRepositoryImpl();
         EventRepository eventRepository = new EventRepositoryImpl();
         BookingRepository bookingRepository = new BookingRepositoryImpl();
         
+        return assemble(userRepository, eventRepository, bookingRepository, shardCount, false, null, null);
+    }
+    
+    /**
+     * Create a BookingSystemFacade in event-sourced mode
+     * Every booking state change is appended to a BookingLedger as a domain
+     * event before it is applied, and only then stored in the booking
+     * repository. The facade's booking lists and read model operations are
+     * served by projections that background threads build from the ledger,
+     * so they trail writes by a moment. The ledger is in memory and
+     * cannot be rebuilt from a journal, so this mode uses in-memory
+     * repositories rather than the durable ones.
+     * @param shardCount Number of shard threads; 0 disables sharded execution
+     */
+    public static BookingSystemFacade createEventSourcedBookingSystem(int shardCount) {
+        UserRepository userRepository = new UserRepositoryImpl();
+        EventRepository eventRepository = new EventRepositoryImpl();
+        BookingRepository bookingRepository = new BookingRepositoryImpl();
+        
+        return assemble(userRepository, eventRepository, bookingRepository, shardCount, false,
+                        new BookingLedger(), null);
+    }
+    
+    /**
+     * Create a BookingSystemFacade whose repositories journal every write to
+     * a write-ahead log, restoring whatever the journal already holds
+     * Writes return once they are synced to disk, so no separate shutdown
+     * step is needed to keep them; close the facade to stop its threads and
+     * release the journal directory.
+     * @param journalDirectory Directory of log segments and snapshots; created if it does not exist
+     * @param commitDelay Group commit latency budget: how long a write may wait
+     *                    for others to share its fsync
+     * @param shardCount Number of shard threads; 0 disables sharded execution
+     */
+    public static BookingSystemFacade createDurableBookingSystem(Path journalDirectory, Duration commitDelay,
+                                                                 int shardCount) {
+        return createDurableBookingSystem(journalDirectory, commitDelay, null, shardCount);
+    }
+    
+    /**
+     * Create a durable BookingSystemFacade that boots from the latest snapshot
+     * in the journal directory and replays only the log written after it
+     * @param snapshotInterval How often to write a new snapshot in the background;
+     *                         null takes none, so the log grows until restarted with one
+     */
+    public static BookingSystemFacade createDurableBookingSystem(Path journalDirectory, Duration commitDelay,
+                                                                 Duration snapshotInterval, int shardCount) {
+        Journal journal = new Journal(journalDirectory, commitDelay);
+        try {
+            UserRepository userRepository = new UserRepositoryImpl(journal.users());
+            EventRepository eventRepository = new EventRepositoryImpl(journal.events());
+            BookingRepository bookingRepository = new BookingRepositoryImpl(journal.bookings());
+            journal.recover(userRepository, eventRepository, bookingRepository);
+            if (snapshotInterval != null) {
+                journal.scheduleSnapshots(snapshotInterval);
+            }
+            
+            return assemble(userRepository, eventRepository, bookingRepository, shardCount, true, null,
+                            List.of(journal));
+        } catch (RuntimeException e) {
+            throw closeAfterFailure(journal, e);
+        }
+    }
+    
+    /**
+     * Create a durable BookingSystemFacade that moves ended events, with their
+     * bookings, to compressed segment files once they are past a retention period
+     * Lookups by ID and booking history still find archived records, loading
+     * them on demand, so the heap grows with the live events rather than with
+     * all history. Close the facade to stop archiving and close the journal.
+     * @param coldStorageDirectory Directory of archived segments; created if it does not exist
+     * @param retention How long after its date a completed or cancelled event stays live
+     * @param archiveInterval How often to look for events to archive
+     */
+    public static BookingSystemFacade createTieredBookingSystem(Path journalDirectory, Duration commitDelay,
+                                                                Duration snapshotInterval,
+                                                                Path coldStorageDirectory, Duration retention,
+                                                                Duration archiveInterval, int shardCount) {
+        Journal journal = new Journal(journalDirectory, commitDelay);
+        EventArchiver archiver = null;
+        try {
+            UserRepository userRepository = new UserRepositoryImpl(journal.users());
+            ColdStorage coldStorage = new ColdStorage(coldStorageDirectory, userRepository);
+            EventRepository eventRepository = new EventRepositoryImpl(journal.events(), coldStorage);
+            BookingRepository bookingRepository = new BookingRepositoryImpl(journal.bookings(), coldStorage);
+            journal.recover(userRepository, eventRepository, bookingRepository);
+            if (snapshotInterval != null) {
+                journal.scheduleSnapshots(snapshotInterval);
+            }
+            archiver = new EventArchiver(eventRepository, bookingRepository, coldStorage, retention);
+            archiver.scheduleArchiving(archiveInterval);
+            
+            // The archiver stops before the journal it writes through
+            return assemble(userRepository, eventRepository, bookingRepository, shardCount, true, null,
+                            List.of(archiver, journal));
+        } catch (RuntimeException e) {
+            if (archiver != null) {
+                closeAfterFailure(archiver, e);
+            }
+            throw closeAfterFailure(journal, e);
+        }
+    }
+    
+    /**
+     * Create a BookingSystemFacade whose repositories keep their data in a
+     * relational database, creating the schema if it does not exist yet
+     * Close the facade to close the connection pool.
+     * @param url JDBC URL of an H2 or SQLite database
+     * @param shardCount Number of shard threads; 0 disables sharded execution
+     */
+    public static BookingSystemFacade createJdbcBookingSystem(String url, String user, String password,
+                                                              int shardCount) {
+        return createJdbcBookingSystem(url, user, password, ConnectionPool.DEFAULT_POOL_SIZE, shardCount);
+    }
+    
+    /**
+     * @param poolSize Maximum number of open connections
+     */
+    public static BookingSystemFacade createJdbcBookingSystem(String url, String user, String password,
+                                                              int poolSize, int shardCount) {
+        SqlDialect dialect = SqlDialect.forUrl(url);
+        ConnectionPool pool = new ConnectionPool(url, user, password, poolSize,
+                                                 ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+        try {
+            JdbcSchema.create(pool);
+            UserRepository userRepository = new JdbcUserRepository(pool, dialect);
+            EventRepository eventRepository = new JdbcEventRepository(pool, dialect);
+            BookingRepository bookingRepository = new JdbcBookingRepository(pool, dialect,
+                                                                            userRepository, eventRepository);
+            
+            return assemble(userRepository, eventRepository, bookingRepository, shardCount, true, null,
+                            List.of(pool));
+        } catch (RuntimeException e) {
+            throw closeAfterFailure(pool, e);
+        }
+    }
+    
+    /**
+     * Close what a half-built system opened, keeping the original failure
+     */
+    private static RuntimeException closeAfterFailure(AutoCloseable resource, RuntimeException failure) {
+        try {
+            resource.close();
+        } catch (Exception e) {
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
+    
+    private static BookingSystemFacade assemble(UserRepository userRepository,
+                                                EventRepository eventRepository,
+                                                BookingRepository bookingRepository,
+                                                int shardCount, boolean restored,
+                                                BookingLedger ledger, List<AutoCloseable> resources) {
         // Create services
         UserService userService = new UserService(userRepository);
         EventService eventService = new EventService(eventRepository);
         PaymentService paymentService = new PaymentService();
         BookingService bookingService = new BookingService(
-            bookingRepository, eventService, userService, paymentService);
+            bookingRepository, eventService, userService, paymentService,
+            BookingService.DEFAULT_HOLD_TIMEOUT, ledger);
+        if (restored) {
+            bookingService.resumeHolds();
+        }
+        
+        ShardedBookingService shardedBookingService = shardCount > 0
+            ? new ShardedBookingService(bookingService, eventService, shardCount)
+            : null;
+        
+        // Read side of the event-sourced mode
+        BookingProjections projections = null;
+        if (ledger != null) {
+            projections = new BookingProjections(ledger);
+            projections.start();
+        }
         
         // Create facade
-        return new BookingSystemFacade(userService, eventService, bookingService);
+        return new BookingSystemFacade(userService, eventService, bookingService,
+                                       new WaitingRoom(), shardedBookingService, projections, resources);
     }
 }
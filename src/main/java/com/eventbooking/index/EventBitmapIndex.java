@@ -0,0 +1,295 @@
+package com.eventbooking.index;
+
+import com.eventbooking.model.Event;
+import com.eventbooking.model.EventCategory;
+import com.eventbooking.model.EventChangeListener;
+import com.eventbooking.model.EventStatus;
+import com.eventbooking.model.Venue;
+import com.eventbooking.repository.EventFilter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap indexes over event category, status, venue city and event day
+ * Every indexed event gets a dense ordinal (freed ordinals are reused) and
+ * each indexed value keeps a CompressedBitmap of the ordinals that have it.
+ * Filters OR the bitmaps within a dimension and AND across dimensions,
+ * smallest first, so only matching rows are ever resolved to events.
+ * Follows category, status, venue and date changes through EventChangeListener.
+ */
+public class EventBitmapIndex implements EventChangeListener {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<Row> rows = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final CompressedBitmap live = new CompressedBitmap();
+    private final Map<EventCategory, CompressedBitmap> byCategory = new EnumMap<>(EventCategory.class);
+    private final Map<EventStatus, CompressedBitmap> byStatus = new EnumMap<>(EventStatus.class);
+    private final Map<String, CompressedBitmap> byCity = new HashMap<>();
+    private final NavigableMap<LocalDate, CompressedBitmap> byDay = new TreeMap<>();
+
+    public void add(Event event) {
+        // Indexed properties change under the event's monitor
+        synchronized (event) {
+            event.addChangeListener(this);
+            lock.writeLock().lock();
+            try {
+                Integer existing = ordinals.get(event.getEventId());
+                if (existing != null) {
+                    unindexRow(existing);
+                }
+                int ordinal = existing != null ? existing : nextOrdinal();
+                ordinals.put(event.getEventId(), ordinal);
+                indexRow(ordinal, new Row(event));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public void remove(Event event) {
+        synchronized (event) {
+            event.removeChangeListener(this);
+            lock.writeLock().lock();
+            try {
+                Integer ordinal = ordinals.remove(event.getEventId());
+                if (ordinal != null) {
+                    unindexRow(ordinal);
+                    rows.set(ordinal, null);
+                    freeOrdinals.push(ordinal);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Events matching every dimension of the filter, in ordinal order
+     */
+    public List<Event> find(EventFilter filter) {
+        lock.readLock().lock();
+        try {
+            return resolve(evaluate(filter));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of events matching the filter, without resolving them
+     */
+    public int count(EventFilter filter) {
+        lock.readLock().lock();
+        try {
+            return evaluate(filter).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Event> findByCategory(EventCategory category) {
+        return find(new EventFilter().withCategory(category));
+    }
+
+    public List<Event> findByStatus(EventStatus status) {
+        return find(new EventFilter().withStatus(status));
+    }
+
+    @Override
+    public void onCategoryChanged(Event event, EventCategory oldCategory, EventCategory newCategory) {
+        reindex(event);
+    }
+
+    @Override
+    public void onVenueChanged(Event event, Venue oldVenue, Venue newVenue) {
+        reindex(event);
+    }
+
+    @Override
+    public void onStatusChanged(Event event, EventStatus oldStatus, EventStatus newStatus) {
+        reindex(event);
+    }
+
+    @Override
+    public void onDateTimeChanged(Event event, LocalDateTime oldDateTime, LocalDateTime newDateTime) {
+        reindex(event);
+    }
+
+    private void reindex(Event event) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(event.getEventId());
+            if (ordinal != null) {
+                unindexRow(ordinal);
+                indexRow(ordinal, new Row(event));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int nextOrdinal() {
+        if (!freeOrdinals.isEmpty()) {
+            return freeOrdinals.pop();
+        }
+        rows.add(null);
+        return rows.size() - 1;
+    }
+
+    private void indexRow(int ordinal, Row row) {
+        rows.set(ordinal, row);
+        live.add(ordinal);
+        if (row.category != null) {
+            byCategory.computeIfAbsent(row.category, c -> new CompressedBitmap()).add(ordinal);
+        }
+        if (row.status != null) {
+            byStatus.computeIfAbsent(row.status, s -> new CompressedBitmap()).add(ordinal);
+        }
+        if (row.city != null) {
+            byCity.computeIfAbsent(row.city, c -> new CompressedBitmap()).add(ordinal);
+        }
+        if (row.day != null) {
+            byDay.computeIfAbsent(row.day, d -> new CompressedBitmap()).add(ordinal);
+        }
+    }
+
+    private void unindexRow(int ordinal) {
+        Row row = rows.get(ordinal);
+        live.remove(ordinal);
+        removeFrom(byCategory, row.category, ordinal);
+        removeFrom(byStatus, row.status, ordinal);
+        removeFrom(byCity, row.city, ordinal);
+        removeFrom(byDay, row.day, ordinal);
+    }
+
+    private static <K> void removeFrom(Map<K, CompressedBitmap> index, K key, int ordinal) {
+        if (key == null) {
+            return;
+        }
+        CompressedBitmap bitmap = index.get(key);
+        if (bitmap != null) {
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @return Matching ordinals; may be an index bitmap itself, so callers only read it
+     */
+    private CompressedBitmap evaluate(EventFilter filter) {
+        List<CompressedBitmap> dimensions = new ArrayList<>(3);
+        if (!filter.getCategories().isEmpty()) {
+            dimensions.add(union(filter.getCategories().stream().map(byCategory::get).toList()));
+        }
+        if (!filter.getStatuses().isEmpty()) {
+            dimensions.add(union(filter.getStatuses().stream().map(byStatus::get).toList()));
+        }
+        if (!filter.getCities().isEmpty()) {
+            dimensions.add(union(filter.getCities().stream().map(city -> byCity.get(cityKey(city))).toList()));
+        }
+        Collection<CompressedBitmap> days = filter.hasDateRange()
+                ? daysBetween(filter.getFromDate(), filter.getToDate()).values()
+                : null;
+        if (dimensions.isEmpty()) {
+            return days != null ? union(days) : live;
+        }
+
+        dimensions.sort(Comparator.comparingInt(CompressedBitmap::cardinality));
+        CompressedBitmap result = dimensions.get(0);
+        for (int i = 1; i < dimensions.size() && !result.isEmpty(); i++) {
+            result = result.and(dimensions.get(i));
+        }
+        if (days == null || result.isEmpty()) {
+            return result;
+        }
+
+        int inRangeCount = 0;
+        for (CompressedBitmap day : days) {
+            inRangeCount += day.cardinality();
+        }
+        if (inRangeCount < result.cardinality()) {
+            return result.and(union(days));
+        }
+
+        // Fewer narrowed rows than dated rows: check each row's day directly
+        LocalDate from = filter.getFromDate();
+        LocalDate to = filter.getToDate();
+        CompressedBitmap inRange = new CompressedBitmap();
+        result.forEach(ordinal -> {
+            LocalDate day = rows.get(ordinal).day;
+            if (day != null && (from == null || !day.isBefore(from)) && (to == null || !day.isAfter(to))) {
+                inRange.add(ordinal);
+            }
+        });
+        return inRange;
+    }
+
+    private NavigableMap<LocalDate, CompressedBitmap> daysBetween(LocalDate from, LocalDate to) {
+        if (from == null) {
+            return byDay.headMap(to, true);
+        }
+        if (to == null) {
+            return byDay.tailMap(from, true);
+        }
+        return byDay.subMap(from, true, to, true);
+    }
+
+    private static CompressedBitmap union(Collection<CompressedBitmap> bitmaps) {
+        CompressedBitmap result = null;
+        for (CompressedBitmap bitmap : bitmaps) {
+            if (bitmap != null) {
+                result = result == null ? bitmap : result.or(bitmap);
+            }
+        }
+        return result != null ? result : new CompressedBitmap();
+    }
+
+    private List<Event> resolve(CompressedBitmap matches) {
+        List<Event> result = new ArrayList<>(matches.cardinality());
+        matches.forEach(ordinal -> result.add(rows.get(ordinal).event));
+        return result;
+    }
+
+    private static String cityKey(String city) {
+        return city == null ? null : city.trim().toLowerCase();
+    }
+
+    /**
+     * Indexed values of one event, kept so they can be unindexed after a change
+     */
+    private static final class Row {
+        private final Event event;
+        private final EventCategory category;
+        private final EventStatus status;
+        private final String city;
+        private final LocalDate day;
+
+        Row(Event event) {
+            this.event = event;
+            this.category = event.getCategory();
+            this.status = event.getStatus();
+            Venue venue = event.getVenue();
+            this.city = venue != null && venue.getAddress() != null
+                    ? cityKey(venue.getAddress().getCity()) : null;
+            this.day = event.getEventDateTime() != null ? event.getEventDateTime().toLocalDate() : null;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.eventbooking.index;
+
+import com.eventbooking.model.Event;
+import com.eventbooking.model.EventChangeListener;
+import com.eventbooking.model.GeoPoint;
+import com.eventbooking.model.Venue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+/**
+ * Geohash index over the venue locations of events
+ * Entries sit in a skip list ordered by (geohash, eventId). A box query
+ * picks a cell size from the box span, range-scans the few cells covering
+ * it and checks each candidate exactly; radius queries run the enclosing
+ * box and sort by great-circle distance, and nearest-k queries grow the
+ * radius until enough matches are found. Events without a venue location
+ * are not indexed. The position is captured when the event is saved or
+ * moves venue, so events at a venue whose location changes must be updated.
+ */
+public class EventGeoIndex implements EventChangeListener {
+
+    private static final double INITIAL_NEAREST_RADIUS_KM = 10;
+
+    private final ConcurrentSkipListMap<GeoKey, Entry> byHash = new ConcurrentSkipListMap<>();
+    private final Map<String, GeoKey> keys = new ConcurrentHashMap<>();
+
+    public void add(Event event) {
+        // Venue changes are serialized on the event's monitor
+        synchronized (event) {
+            event.addChangeListener(this);
+            reindex(event);
+        }
+    }
+
+    public void remove(Event event) {
+        synchronized (event) {
+            event.removeChangeListener(this);
+            unindex(event.getEventId());
+        }
+    }
+
+    /**
+     * Matching events within the box, unordered
+     * A box whose west edge is east of its east edge crosses the antimeridian
+     */
+    public List<Event> findWithinBox(GeoPoint southWest, GeoPoint northEast, Predicate<Event> filter) {
+        List<Entry> hits = new ArrayList<>();
+        scanBox(southWest.getLatitude(), southWest.getLongitude(),
+                northEast.getLatitude(), northEast.getLongitude(), filter, hits);
+        List<Event> result = new ArrayList<>(hits.size());
+        hits.forEach(entry -> result.add(entry.event));
+        return result;
+    }
+
+    /**
+     * Matching events within the radius, nearest first
+     */
+    public List<Event> findWithinRadius(GeoPoint center, double radiusKm, Predicate<Event> filter) {
+        if (radiusKm < 0) {
+            throw new IllegalArgumentException("Radius must not be negative");
+        }
+        return byDistance(withinRadius(center, radiusKm, filter), Integer.MAX_VALUE);
+    }
+
+    /**
+     * The k matching events nearest to the center, nearest first
+     */
+    public List<Event> findNearest(GeoPoint center, int k, Predicate<Event> filter) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        double radiusKm = INITIAL_NEAREST_RADIUS_KM;
+        while (true) {
+            List<Hit> hits = withinRadius(center, radiusKm, filter);
+            if (hits.size() >= k || radiusKm >= GeoPoint.HALF_CIRCUMFERENCE_KM) {
+                return byDistance(hits, k);
+            }
+            radiusKm = Math.min(GeoPoint.HALF_CIRCUMFERENCE_KM, radiusKm * 4);
+        }
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    @Override
+    public void onVenueChanged(Event event, Venue oldVenue, Venue newVenue) {
+        reindex(event);
+    }
+
+    private void reindex(Event event) {
+        unindex(event.getEventId());
+        Venue venue = event.getVenue();
+        GeoPoint location = venue != null ? venue.getLocation() : null;
+        if (location == null) {
+            return;
+        }
+        GeoKey key = new GeoKey(GeoHash.encode(location.getLatitude(), location.getLongitude()), event.getEventId());
+        byHash.put(key, new Entry(event, location));
+        keys.put(event.getEventId(), key);
+    }
+
+    private void unindex(String eventId) {
+        GeoKey key = keys.remove(eventId);
+        if (key != null) {
+            byHash.remove(key);
+        }
+    }
+
+    private List<Hit> withinRadius(GeoPoint center, double radiusKm, Predicate<Event> filter) {
+        double latDelta = Math.toDegrees(radiusKm / GeoPoint.EARTH_RADIUS_KM);
+        double minLat = center.getLatitude() - latDelta;
+        double maxLat = center.getLatitude() + latDelta;
+        double minLon;
+        double maxLon;
+        double lonDelta = Math.toDegrees(Math.asin(
+                Math.sin(radiusKm / GeoPoint.EARTH_RADIUS_KM) / Math.cos(Math.toRadians(center.getLatitude()))));
+        if (minLat <= -90 || maxLat >= 90 || radiusKm >= GeoPoint.HALF_CIRCUMFERENCE_KM / 2
+                || Double.isNaN(lonDelta)) {
+            // Reaches a pole: every longitude is in range
+            minLat = Math.max(-90, minLat);
+            maxLat = Math.min(90, maxLat);
+            minLon = -180;
+            maxLon = 180;
+        } else {
+            minLon = GeoPoint.wrapLongitude(center.getLongitude() - lonDelta);
+            maxLon = GeoPoint.wrapLongitude(center.getLongitude() + lonDelta);
+        }
+
+        List<Entry> inBox = new ArrayList<>();
+        scanBox(minLat, minLon, maxLat, maxLon, filter, inBox);
+        List<Hit> hits = new ArrayList<>(inBox.size());
+        for (Entry entry : inBox) {
+            double distanceKm = entry.location.distanceKm(center);
+            if (distanceKm <= radiusKm) {
+                hits.add(new Hit(entry.event, distanceKm));
+            }
+        }
+        return hits;
+    }
+
+    private void scanBox(double minLat, double minLon, double maxLat, double maxLon,
+                         Predicate<Event> filter, List<Entry> hits) {
+        if (minLon > maxLon) {
+            scanBox(minLat, minLon, maxLat, 180, filter, hits);
+            scanBox(minLat, -180, maxLat, maxLon, filter, hits);
+            return;
+        }
+        int precision = GeoHash.precisionFor(maxLon - minLon, maxLat - minLat);
+        int x0 = GeoHash.lonIndex(minLon, precision);
+        int x1 = GeoHash.lonIndex(maxLon, precision);
+        int y0 = GeoHash.latIndex(minLat, precision);
+        int y1 = GeoHash.latIndex(maxLat, precision);
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                GeoKey from = GeoKey.lowest(GeoHash.rangeStart(x, y, precision));
+                GeoKey to = GeoKey.lowest(GeoHash.rangeEnd(x, y, precision));
+                for (Entry entry : byHash.subMap(from, true, to, false).values()) {
+                    GeoPoint point = entry.location;
+                    if (point.getLatitude() >= minLat && point.getLatitude() <= maxLat
+                            && point.getLongitude() >= minLon && point.getLongitude() <= maxLon
+                            && (filter == null || filter.test(entry.event))) {
+                        hits.add(entry);
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<Event> byDistance(List<Hit> hits, int limit) {
+        hits.sort(Comparator.comparingDouble(hit -> hit.distanceKm));
+        List<Event> result = new ArrayList<>(Math.min(limit, hits.size()));
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            result.add(hits.get(i).event);
+        }
+        return result;
+    }
+
+    private static final class Entry {
+        private final Event event;
+        private final GeoPoint location;
+
+        Entry(Event event, GeoPoint location) {
+            this.event = event;
+            this.location = location;
+        }
+    }
+
+    private static final class Hit {
+        private final Event event;
+        private final double distanceKm;
+
+        Hit(Event event, double distanceKm) {
+            this.event = event;
+            this.distanceKm = distanceKm;
+        }
+    }
+
+    private static final class GeoKey implements Comparable<GeoKey> {
+        private final long hash;
+        private final String eventId;
+
+        GeoKey(long hash, String eventId) {
+            this.hash = hash;
+            this.eventId = eventId;
+        }
+
+        /**
+         * Sorts before every real entry with the same hash
+         */
+        static GeoKey lowest(long hash) {
+            return new GeoKey(hash, "");
+        }
+
+        @Override
+        public int compareTo(GeoKey other) {
+            int byHash = Long.compare(hash, other.hash);
+            return byHash != 0 ? byHash : eventId.compareTo(other.eventId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof GeoKey)) return false;
+            GeoKey other = (GeoKey) o;
+            return hash == other.hash && eventId.equals(other.eventId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(hash) + eventId.hashCode();
+        }
+    }
+}
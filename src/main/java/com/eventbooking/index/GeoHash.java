@@ -0,0 +1,82 @@
+package com.eventbooking.index;
+
+/**
+ * Numeric geohash: longitude and latitude quantized to 26 bits each and
+ * bit-interleaved (longitude first) into a 52-bit Morton code
+ * Truncating a hash to its top 2p bits gives the enclosing cell at precision
+ * p, and every point inside a cell falls in one contiguous hash range, so a
+ * sorted map can answer a cell lookup with a single range scan.
+ */
+final class GeoHash {
+
+    static final int MAX_PRECISION = 26;
+    static final int BITS = MAX_PRECISION * 2;
+
+    private GeoHash() {
+    }
+
+    static long encode(double latitude, double longitude) {
+        return interleave(lonIndex(longitude, MAX_PRECISION), latIndex(latitude, MAX_PRECISION));
+    }
+
+    /**
+     * Cell column of a longitude at the given precision (bits per axis)
+     */
+    static int lonIndex(double longitude, int precision) {
+        return quantize((longitude + 180.0) / 360.0, precision);
+    }
+
+    static int latIndex(double latitude, int precision) {
+        return quantize((latitude + 90.0) / 180.0, precision);
+    }
+
+    /**
+     * First hash of the cell; the cell covers [rangeStart, rangeEnd)
+     */
+    static long rangeStart(int lonIndex, int latIndex, int precision) {
+        return interleave(lonIndex, latIndex) << (BITS - 2 * precision);
+    }
+
+    static long rangeEnd(int lonIndex, int latIndex, int precision) {
+        return (interleave(lonIndex, latIndex) + 1) << (BITS - 2 * precision);
+    }
+
+    /**
+     * Precision whose cells are about a quarter of the wider span, so a box is
+     * covered by at most five cells per axis
+     */
+    static int precisionFor(double lonSpanDegrees, double latSpanDegrees) {
+        int precision = Math.min(bitsFor(360.0, lonSpanDegrees), bitsFor(180.0, latSpanDegrees)) + 2;
+        return Math.max(1, Math.min(MAX_PRECISION, precision));
+    }
+
+    private static int bitsFor(double range, double span) {
+        if (span <= 0) {
+            return MAX_PRECISION;
+        }
+        return (int) Math.floor(Math.log(range / span) / Math.log(2));
+    }
+
+    private static int quantize(double fraction, int precision) {
+        int cells = 1 << precision;
+        int index = (int) (fraction * cells);
+        return Math.max(0, Math.min(cells - 1, index));
+    }
+
+    private static long interleave(int lonIndex, int latIndex) {
+        return (spread(lonIndex) << 1) | spread(latIndex);
+    }
+
+    /**
+     * Insert a zero bit between each of the low 26 bits
+     */
+    private static long spread(int value) {
+        long x = value & 0x3FFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+}
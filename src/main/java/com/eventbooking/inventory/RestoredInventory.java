@@ -0,0 +1,70 @@
+package com.eventbooking.inventory;
+
+import com.eventbooking.model.BookingStatus;
+import com.eventbooking.model.Event;
+import com.eventbooking.model.TicketStatus;
+import com.eventbooking.model.TicketType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inventory of one event held by tickets read back from storage
+ * Active bookings hold all their tickets; ended ones only the tickets
+ * already used. Seats are taken as tickets are added and the tier and
+ * capacity counts all at once by reserve. Every admission number seen is
+ * passed to its ticket type, held or not, so new ones never repeat it.
+ */
+public final class RestoredInventory {
+
+    private final Event event;
+    private final Map<TicketType, Integer> quantities = new HashMap<>();
+
+    public RestoredInventory(Event event) {
+        this.event = event;
+    }
+
+    /**
+     * Count one stored ticket of a booking
+     * @throws IllegalStateException if its seat is already taken
+     */
+    public void add(TicketType ticketType, String seatNumber, BookingStatus bookingStatus,
+                    TicketStatus ticketStatus) {
+        SeatMap seatMap = ticketType.getSeatMap();
+        if (seatMap == null) {
+            advanceAdmissionNumber(ticketType, seatNumber);
+        }
+        boolean active = bookingStatus == BookingStatus.PENDING || bookingStatus == BookingStatus.CONFIRMED;
+        if (active || ticketStatus == TicketStatus.USED) {
+            quantities.merge(ticketType, 1, Integer::sum);
+            if (seatMap != null && !seatMap.hold(seatNumber)) {
+                throw new IllegalStateException("Stored tickets seat " + seatNumber
+                        + " twice for event " + event.getEventId());
+            }
+        }
+    }
+
+    /**
+     * Take the counted tickets from their tiers and the event's capacity
+     * @throws IllegalStateException if they exceed what the event has left
+     */
+    public void reserve() {
+        if (!quantities.isEmpty() && !TierReservation.reserve(event, quantities).isSuccessful()) {
+            throw new IllegalStateException("Stored bookings exceed the inventory of event " + event.getEventId());
+        }
+    }
+
+    /**
+     * Admission numbers look like TIER-n
+     */
+    private static void advanceAdmissionNumber(TicketType ticketType, String seatNumber) {
+        int dash = seatNumber != null ? seatNumber.lastIndexOf('-') : -1;
+        if (dash >= 0) {
+            try {
+                ticketType.advanceAdmissionNumber(Integer.parseInt(seatNumber.substring(dash + 1)));
+            } catch (NumberFormatException ignored) {
+                // Not an admission number
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.eventbooking.inventory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A run of adjacent seats in one row of a section
+ * Rows and seats are numbered from 1
+ */
+public class SeatBlock {
+    private final String section;
+    private final int row;
+    private final int firstSeat;
+    private final int count;
+
+    public SeatBlock(String section, int row, int firstSeat, int count) {
+        this.section = section;
+        this.row = row;
+        this.firstSeat = firstSeat;
+        this.count = count;
+    }
+
+    /**
+     * Seat label in the form SECTION-ROW-SEAT
+     */
+    public static String label(String section, int row, int seat) {
+        return section + "-" + row + "-" + seat;
+    }
+
+    /**
+     * Parse a label produced by {@link #label(String, int, int)} into a single-seat block
+     * @return null if the label is not a seat map label
+     */
+    public static SeatBlock parse(String label) {
+        if (label == null) {
+            return null;
+        }
+        int seatDash = label.lastIndexOf('-');
+        int rowDash = seatDash > 0 ? label.lastIndexOf('-', seatDash - 1) : -1;
+        if (rowDash <= 0) {
+            return null;
+        }
+        try {
+            int row = Integer.parseInt(label.substring(rowDash + 1, seatDash));
+            int seat = Integer.parseInt(label.substring(seatDash + 1));
+            return new SeatBlock(label.substring(0, rowDash), row, seat, 1);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public List<String> getSeatLabels() {
+        List<String> labels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            labels.add(label(section, row, firstSeat + i));
+        }
+        return labels;
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getFirstSeat() {
+        return firstSeat;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SeatBlock that = (SeatBlock) o;
+        return row == that.row && firstSeat == that.firstSeat && count == that.count &&
+               Objects.equals(section, that.section);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(section, row, firstSeat, count);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SeatBlock{section='%s', row=%d, seats=%d-%d}",
+                section, row, firstSeat, firstSeat + count - 1);
+    }
+}
@@ -0,0 +1,297 @@
+package com.eventbooking.inventory;
+
+import com.eventbooking.model.VenueSection;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Seat allocation engine for one ticket type of an event
+ * Each row is a bitset (one bit per seat, set = taken) guarded by its own
+ * monitor, so holds on different rows never contend. Best-available search
+ * walks sections best-first and rows front-to-back, skipping rows whose free
+ * count is too small, and picks the free run closest to the row's centre.
+ */
+public class SeatMap {
+
+    private final Map<String, Section> sections = new LinkedHashMap<>();
+    private final AtomicInteger availableSeats = new AtomicInteger();
+    private final int totalSeats;
+
+    public SeatMap(List<VenueSection> layout) {
+        if (layout == null || layout.isEmpty()) {
+            throw new IllegalArgumentException("Seat map needs at least one section");
+        }
+        int seats = 0;
+        for (VenueSection venueSection : layout) {
+            if (sections.containsKey(venueSection.getName())) {
+                throw new IllegalArgumentException("Duplicate section: " + venueSection.getName());
+            }
+            sections.put(venueSection.getName(), new Section(venueSection));
+            seats += venueSection.getCapacity();
+        }
+        this.totalSeats = seats;
+        this.availableSeats.set(seats);
+    }
+
+    /**
+     * Atomically hold the best block of adjacent seats
+     * @return Held block, or empty if no row has that many seats together
+     */
+    public Optional<SeatBlock> holdBestAvailable(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Seat count must be positive");
+        }
+        if (availableSeats.get() < count) {
+            return Optional.empty();
+        }
+        for (Section section : sections.values()) {
+            if (count > section.seatsPerRow) {
+                continue;
+            }
+            for (int r = 0; r < section.rows.length; r++) {
+                Row row = section.rows[r];
+                if (row.free < count) {
+                    continue;
+                }
+                int start = row.holdRun(count);
+                if (start >= 0) {
+                    availableSeats.addAndGet(-count);
+                    return Optional.of(new SeatBlock(section.name, r + 1, start + 1, count));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Hold seats for a party, together if possible, otherwise the best singles
+     * All-or-nothing: partial holds are released before returning empty
+     */
+    public Optional<List<SeatBlock>> holdSeats(int count) {
+        Optional<SeatBlock> together = holdBestAvailable(count);
+        if (together.isPresent()) {
+            return Optional.of(List.of(together.get()));
+        }
+        List<SeatBlock> singles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Optional<SeatBlock> seat = holdBestAvailable(1);
+            if (seat.isEmpty()) {
+                singles.forEach(this::release);
+                return Optional.empty();
+            }
+            singles.add(seat.get());
+        }
+        return Optional.of(singles);
+    }
+
+    /**
+     * Release a held block; seats already free are ignored
+     */
+    public void release(SeatBlock block) {
+        Section section = sections.get(block.getSection());
+        if (section == null || block.getRow() < 1 || block.getRow() > section.rows.length) {
+            throw new IllegalArgumentException("Seat block is not part of this map: " + block);
+        }
+        int released = section.rows[block.getRow() - 1]
+                .release(block.getFirstSeat() - 1, block.getCount());
+        availableSeats.addAndGet(released);
+    }
+
+    /**
+     * Release a seat by its SECTION-ROW-SEAT label
+     * @return false if the label does not belong to this map
+     */
+    public boolean release(String seatLabel) {
+        SeatBlock seat = SeatBlock.parse(seatLabel);
+        if (seat == null || !sections.containsKey(seat.getSection())) {
+            return false;
+        }
+        release(seat);
+        return true;
+    }
+
+    /**
+     * Take one particular seat by its SECTION-ROW-SEAT label
+     * @return false if the seat is already taken or not part of this map
+     */
+    public boolean hold(String seatLabel) {
+        SeatBlock seat = SeatBlock.parse(seatLabel);
+        Section section = seat != null ? sections.get(seat.getSection()) : null;
+        if (section == null || seat.getRow() < 1 || seat.getRow() > section.rows.length
+                || seat.getFirstSeat() < 1 || seat.getFirstSeat() > section.seatsPerRow) {
+            return false;
+        }
+        if (!section.rows[seat.getRow() - 1].hold(seat.getFirstSeat() - 1)) {
+            return false;
+        }
+        availableSeats.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Names of the venue sections this map was built from, best-first
+     */
+    public List<String> getSectionNames() {
+        return new ArrayList<>(sections.keySet());
+    }
+
+    public int getAvailableSeats() {
+        return availableSeats.get();
+    }
+
+    public int getTotalSeats() {
+        return totalSeats;
+    }
+
+    /**
+     * Copy of the occupancy bitsets, taken row by row
+     */
+    public SeatMapSnapshot snapshot() {
+        List<SeatMapSnapshot.SectionView> views = new ArrayList<>(sections.size());
+        for (Section section : sections.values()) {
+            long[][] rows = new long[section.rows.length][];
+            for (int r = 0; r < rows.length; r++) {
+                rows[r] = section.rows[r].copyBits();
+            }
+            views.add(new SeatMapSnapshot.SectionView(section.name, section.seatsPerRow, rows));
+        }
+        return new SeatMapSnapshot(views);
+    }
+
+    private static final class Section {
+        private final String name;
+        private final int seatsPerRow;
+        private final Row[] rows;
+
+        Section(VenueSection layout) {
+            this.name = layout.getName();
+            this.seatsPerRow = layout.getSeatsPerRow();
+            this.rows = new Row[layout.getRows()];
+            for (int r = 0; r < rows.length; r++) {
+                rows[r] = new Row(seatsPerRow);
+            }
+        }
+    }
+
+    private static final class Row {
+        private final long[] bits;
+        private final int length;
+        private volatile int free;
+
+        Row(int length) {
+            this.length = length;
+            this.bits = new long[(length + 63) >>> 6];
+            this.free = length;
+        }
+
+        /**
+         * Find and take the free run of the given size closest to the centre
+         * @return Zero-based first seat, or -1 if none
+         */
+        synchronized int holdRun(int count) {
+            if (free < count) {
+                return -1;
+            }
+            int ideal = (length - count) / 2;
+            int best = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            int start = nextClear(0);
+            while (start >= 0 && start + count <= length) {
+                int end = nextSet(start);
+                if (end - start >= count) {
+                    int candidate = Math.max(start, Math.min(ideal, end - count));
+                    int distance = Math.abs(candidate - ideal);
+                    if (distance < bestDistance) {
+                        best = candidate;
+                        bestDistance = distance;
+                    }
+                    if (candidate == ideal || start > ideal) {
+                        break; // Runs further right only move away from the centre
+                    }
+                }
+                start = nextClear(end);
+            }
+            if (best >= 0) {
+                setRange(best, count);
+                free -= count;
+            }
+            return best;
+        }
+
+        synchronized boolean hold(int seat) {
+            long mask = 1L << seat;
+            int word = seat >>> 6;
+            if ((bits[word] & mask) != 0) {
+                return false;
+            }
+            bits[word] |= mask;
+            free--;
+            return true;
+        }
+
+        synchronized int release(int first, int count) {
+            int released = 0;
+            int last = Math.min(length, first + count);
+            for (int seat = Math.max(0, first); seat < last; seat++) {
+                long mask = 1L << seat;
+                int word = seat >>> 6;
+                if ((bits[word] & mask) != 0) {
+                    bits[word] &= ~mask;
+                    released++;
+                }
+            }
+            free += released;
+            return released;
+        }
+
+        synchronized long[] copyBits() {
+            return bits.clone();
+        }
+
+        private void setRange(int first, int count) {
+            for (int seat = first; seat < first + count; seat++) {
+                bits[seat >>> 6] |= 1L << seat;
+            }
+        }
+
+        private int nextClear(int from) {
+            if (from >= length) {
+                return -1;
+            }
+            int word = from >>> 6;
+            long inverted = ~bits[word] & (-1L << from);
+            while (true) {
+                if (inverted != 0) {
+                    int seat = (word << 6) + Long.numberOfTrailingZeros(inverted);
+                    return seat < length ? seat : -1;
+                }
+                if (++word == bits.length) {
+                    return -1;
+                }
+                inverted = ~bits[word];
+            }
+        }
+
+        private int nextSet(int from) {
+            if (from >= length) {
+                return length;
+            }
+            int word = from >>> 6;
+            long current = bits[word] & (-1L << from);
+            while (true) {
+                if (current != 0) {
+                    return Math.min(length, (word << 6) + Long.numberOfTrailingZeros(current));
+                }
+                if (++word == bits.length) {
+                    return length;
+                }
+                current = bits[word];
+            }
+        }
+    }
+}
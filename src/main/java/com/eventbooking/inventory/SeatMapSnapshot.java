@@ -0,0 +1,95 @@
+package com.eventbooking.inventory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Point-in-time, read-only copy of a seat map
+ * Each row is copied under its own lock, so a row is always internally consistent
+ */
+public class SeatMapSnapshot {
+    private final List<SectionView> sections;
+
+    SeatMapSnapshot(List<SectionView> sections) {
+        this.sections = sections;
+    }
+
+    public List<SectionView> getSections() {
+        return new ArrayList<>(sections);
+    }
+
+    public int getAvailableSeats() {
+        return sections.stream().mapToInt(SectionView::getAvailableSeats).sum();
+    }
+
+    public int getTotalSeats() {
+        return sections.stream().mapToInt(SectionView::getTotalSeats).sum();
+    }
+
+    /**
+     * Occupancy of one section
+     */
+    public static class SectionView {
+        private final String name;
+        private final int seatsPerRow;
+        private final long[][] rows;
+
+        SectionView(String name, int seatsPerRow, long[][] rows) {
+            this.name = name;
+            this.seatsPerRow = seatsPerRow;
+            this.rows = rows;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getRowCount() {
+            return rows.length;
+        }
+
+        public int getSeatsPerRow() {
+            return seatsPerRow;
+        }
+
+        /**
+         * @param row Row number, starting at 1
+         * @param seat Seat number, starting at 1
+         */
+        public boolean isTaken(int row, int seat) {
+            int index = seat - 1;
+            return (rows[row - 1][index >>> 6] & (1L << index)) != 0;
+        }
+
+        public int getAvailableSeats(int row) {
+            int taken = 0;
+            for (long word : rows[row - 1]) {
+                taken += Long.bitCount(word);
+            }
+            return seatsPerRow - taken;
+        }
+
+        public int getAvailableSeats() {
+            int available = 0;
+            for (int row = 1; row <= rows.length; row++) {
+                available += getAvailableSeats(row);
+            }
+            return available;
+        }
+
+        public int getTotalSeats() {
+            return rows.length * seatsPerRow;
+        }
+
+        /**
+         * Render a row as a string of 'X' (taken) and '.' (free)
+         */
+        public String renderRow(int row) {
+            StringBuilder sb = new StringBuilder(seatsPerRow);
+            for (int seat = 1; seat <= seatsPerRow; seat++) {
+                sb.append(isTaken(row, seat) ? 'X' : '.');
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.eventbooking.inventory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free inventory counter backing a TicketType
+ * Small inventories use a single CAS-updated pool; large inventories are
+ * split into striped sub-pools so concurrent buyers rarely touch the same
+ * cache line. Each stripe packs its available and booked counts into one
+ * long, so taking and returning tickets move both in a single CAS and a
+ * release can never return more than was booked. A buyer whose stripe
+ * runs dry falls back to a locked slow path that gathers from the other
+ * stripes and refills its own. Stock only moves between stripes under
+ * that lock, and the lock-free reads wait out a move in progress, so
+ * "sold out" is never reported while stock is in transit. An owner that
+ * applies every reservation on one thread can collapse the stripes into
+ * one pool, so its reservations never take that lock.
+ */
+public class TicketInventory {
+
+    /** Inventories at or above this size are striped */
+    public static final int STRIPING_THRESHOLD = 4096;
+
+    private static final int MAX_STRIPES = 64;
+    // Longs per stripe slot, so each stripe sits on its own 64-byte cache line
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray pools;
+    private final int stripeCount;
+    private volatile int capacity;
+    // Bookings beyond capacity after a shrink; releases pay it off before restocking
+    private final AtomicInteger deficit = new AtomicInteger();
+    // Odd while the slow path or a collapse has stock off its stripes; only changed under the lock
+    private volatile int moves;
+    // Once set, all stock and bookings live in the first stripe
+    private volatile boolean collapsed;
+
+    public TicketInventory(int capacity) {
+        this(capacity, stripesFor(capacity));
+    }
+
+    public TicketInventory(int capacity, int stripeCount) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        if (stripeCount < 1 || stripeCount > MAX_STRIPES) {
+            throw new IllegalArgumentException("Stripe count must be between 1 and " + MAX_STRIPES);
+        }
+        this.stripeCount = stripeCount;
+        this.capacity = capacity;
+        this.pools = new AtomicLongArray(stripeCount * PADDING);
+        spread(capacity);
+    }
+
+    /**
+     * Reserve tickets without blocking while the buyer's own stripe has stock
+     * @return true if all requested tickets were taken
+     */
+    public boolean reserve(int quantity) {
+        if (quantity <= 0) {
+            return quantity == 0;
+        }
+        if (stripeCount == 1 || collapsed) {
+            return tryTake(0, quantity);
+        }
+        int home = homeStripe();
+        return tryTake(home, quantity) || gather(home, quantity);
+    }
+
+    /**
+     * Return tickets to the pool
+     * Only tickets that are booked can come back, so availability never
+     * exceeds capacity; after a shrink, returned tickets first cover the
+     * bookings the smaller capacity no longer has room for
+     */
+    public void release(int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        int start = stripeCount == 1 || collapsed ? 0 : homeStripe();
+        int remaining = quantity;
+        while (true) {
+            int before = moves;
+            remaining = releaseFrom(start, remaining);
+            // Bookings in transit between stripes were missed; look again once they land
+            if (remaining == 0 || (before & 1) == 0 && moves == before) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Tickets still available; a lock-free read across all stripes
+     */
+    public int getAvailable() {
+        return sum(false);
+    }
+
+    public int getBooked() {
+        return sum(true);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getStripeCount() {
+        return stripeCount;
+    }
+
+    /**
+     * Move all stock and bookings into one pool, for an owner that applies
+     * every reservation on a single thread
+     * Striping only pays off when buyers on many threads contend; a single
+     * writer would drain its own stripe and keep falling back to the
+     * locked slow path. Afterwards every reservation is one CAS on the
+     * pool. Cannot be undone; calling it again does nothing.
+     */
+    public synchronized void collapseStripes() {
+        if (stripeCount == 1 || collapsed) {
+            return;
+        }
+        moves++;
+        try {
+            int target = slot(0);
+            for (int i = 1; i < stripeCount; i++) {
+                long moved = pools.getAndSet(slot(i), 0L);
+                while (true) {
+                    long current = pools.get(target);
+                    if (pools.compareAndSet(target, current, pack(available(current) + available(moved),
+                            booked(current) + booked(moved)))) {
+                        break;
+                    }
+                }
+            }
+            collapsed = true;
+        } finally {
+            moves++;
+        }
+    }
+
+    /**
+     * Grow or shrink capacity, keeping existing bookings intact
+     * Added stock is spread over the stripes and removed stock drained from
+     * them; if bookings exceed the new capacity, availability drops to zero
+     * and the excess is absorbed by later releases.
+     */
+    public synchronized void resize(int newCapacity) {
+        if (newCapacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        int delta = newCapacity - capacity;
+        capacity = newCapacity;
+        if (delta > 0) {
+            spread(delta - payDeficit(delta));
+            return;
+        }
+        int needed = -delta;
+        for (int i = 0; i < stripeCount && needed > 0; i++) {
+            int index = slot(i);
+            while (needed > 0) {
+                long current = pools.get(index);
+                int drained = Math.min(needed, available(current));
+                if (drained <= 0) {
+                    break;
+                }
+                if (pools.compareAndSet(index, current, pack(available(current) - drained, booked(current)))) {
+                    needed -= drained;
+                }
+            }
+        }
+        if (needed > 0) {
+            deficit.addAndGet(needed);
+        }
+    }
+
+    /**
+     * @return How many of the tickets found nothing booked to go back against
+     */
+    private int releaseFrom(int start, int remaining) {
+        for (int n = 0; n < stripeCount && remaining > 0; n++) {
+            int stripe = (start + n) % stripeCount;
+            int index = slot(stripe);
+            while (remaining > 0) {
+                long current = pools.get(index);
+                int returned = Math.min(remaining, booked(current));
+                if (returned <= 0) {
+                    break;
+                }
+                int restocked = returned - payDeficit(returned);
+                if (pools.compareAndSet(index, current,
+                        pack(available(current) + restocked, booked(current) - returned))) {
+                    remaining -= returned;
+                } else if (restocked < returned) {
+                    deficit.addAndGet(returned - restocked);
+                }
+            }
+        }
+        return remaining;
+    }
+
+    private boolean tryTake(int stripe, int quantity) {
+        int index = slot(stripe);
+        while (true) {
+            long current = pools.get(index);
+            if (available(current) < quantity) {
+                return false;
+            }
+            if (pools.compareAndSet(index, current,
+                    pack(available(current) - quantity, booked(current) + quantity))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Slow path: take what every stripe has until the order is filled, then
+     * move half of the richest stripe's stock to the home stripe so the next
+     * buyers there stay on the fast path
+     * Concurrent fast-path buyers and releases may still change stripes, so
+     * passes repeat until the order is filled or a whole pass finds nothing.
+     */
+    private synchronized boolean gather(int home, int quantity) {
+        moves++;
+        try {
+            return gatherMoving(home, quantity);
+        } finally {
+            moves++;
+        }
+    }
+
+    private boolean gatherMoving(int home, int quantity) {
+        int[] taken = new int[stripeCount];
+        int needed = quantity;
+        boolean progress = true;
+        while (needed > 0 && progress) {
+            progress = false;
+            for (int n = 0; n < stripeCount && needed > 0; n++) {
+                int stripe = (home + n) % stripeCount;
+                int index = slot(stripe);
+                while (needed > 0) {
+                    long current = pools.get(index);
+                    int amount = Math.min(available(current), needed);
+                    if (amount <= 0) {
+                        break;
+                    }
+                    if (pools.compareAndSet(index, current,
+                            pack(available(current) - amount, booked(current) + amount))) {
+                        taken[stripe] += amount;
+                        needed -= amount;
+                        progress = true;
+                    }
+                }
+            }
+        }
+        if (needed > 0) {
+            for (int i = 0; i < stripeCount; i++) {
+                if (taken[i] > 0) {
+                    untake(i, taken[i]);
+                }
+            }
+            return false;
+        }
+        refill(home);
+        return true;
+    }
+
+    /**
+     * Sum one count over the stripes, retrying while the slow path moves stock
+     * so the total never counts stock that is between two stripes
+     */
+    private int sum(boolean booked) {
+        while (true) {
+            int before = moves;
+            if ((before & 1) == 0) {
+                int total = 0;
+                for (int i = 0; i < stripeCount; i++) {
+                    long pool = pools.get(slot(i));
+                    total += booked ? booked(pool) : available(pool);
+                }
+                if (moves == before) {
+                    return total;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private void untake(int stripe, int quantity) {
+        int index = slot(stripe);
+        while (true) {
+            long current = pools.get(index);
+            if (pools.compareAndSet(index, current,
+                    pack(available(current) + quantity, booked(current) - quantity))) {
+                return;
+            }
+        }
+    }
+
+    private void refill(int home) {
+        int richest = -1;
+        int richestCount = 0;
+        for (int i = 0; i < stripeCount; i++) {
+            int count = available(pools.get(slot(i)));
+            if (i != home && count > richestCount) {
+                richest = i;
+                richestCount = count;
+            }
+        }
+        if (richest < 0) {
+            return;
+        }
+        int index = slot(richest);
+        while (true) {
+            long current = pools.get(index);
+            int moved = (available(current) + 1) / 2;
+            if (moved <= 0) {
+                return;
+            }
+            if (pools.compareAndSet(index, current, pack(available(current) - moved, booked(current)))) {
+                int homeIndex = slot(home);
+                while (true) {
+                    long target = pools.get(homeIndex);
+                    if (pools.compareAndSet(homeIndex, target,
+                            pack(available(target) + moved, booked(target)))) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Add stock evenly over the stripes
+     */
+    private void spread(int amount) {
+        int stripeCount = collapsed ? 1 : this.stripeCount;
+        int share = amount / stripeCount;
+        int remainder = amount % stripeCount;
+        for (int i = 0; i < stripeCount; i++) {
+            int added = share + (i < remainder ? 1 : 0);
+            int index = slot(i);
+            while (added > 0) {
+                long current = pools.get(index);
+                if (pools.compareAndSet(index, current, pack(available(current) + added, booked(current)))) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return How much of the amount went to paying off the deficit
+     */
+    private int payDeficit(int amount) {
+        while (true) {
+            int owed = deficit.get();
+            if (owed == 0) {
+                return 0;
+            }
+            int paid = Math.min(owed, amount);
+            if (deficit.compareAndSet(owed, owed - paid)) {
+                return paid;
+            }
+        }
+    }
+
+    private static long pack(int available, int booked) {
+        return (long) booked << 32 | available & 0xFFFFFFFFL;
+    }
+
+    private static int available(long pool) {
+        return (int) pool;
+    }
+
+    private static int booked(long pool) {
+        return (int) (pool >>> 32);
+    }
+
+    // Sticky per thread so a buyer thread keeps hitting the same cache line
+    private int homeStripe() {
+        int h = Long.hashCode(Thread.currentThread().getId()) * 0x9E3779B9;
+        return (h >>> 16) % stripeCount;
+    }
+
+    private static int slot(int stripe) {
+        return stripe * PADDING;
+    }
+
+    private static int stripesFor(int capacity) {
+        if (capacity < STRIPING_THRESHOLD) {
+            return 1;
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        int stripes = Integer.highestOneBit(Math.max(1, cores - 1) << 1);
+        return Math.min(MAX_STRIPES, Math.min(stripes, capacity / (STRIPING_THRESHOLD / 4)));
+    }
+}
@@ -0,0 +1,90 @@
+package com.eventbooking.inventory;
+
+import com.eventbooking.model.TicketType;
+
+import java.util.Arrays;
+
+/**
+ * Reusable ticket quantities per tier, kept in reservation order
+ * Lets callers that reserve in a loop, like the booking pipeline, go
+ * through TierReservation without building maps for every request. Not
+ * thread-safe; keep one per thread or ring slot and clear it between uses.
+ */
+public final class TierLines {
+
+    private TicketType[] ticketTypes = new TicketType[2];
+    private int[] quantities = new int[2];
+    private int size;
+    private int totalQuantity;
+    private TicketType shortfall;
+    private boolean capacityExceeded;
+
+    /**
+     * Add to a tier's quantity; non-positive quantities are ignored
+     */
+    public void add(TicketType ticketType, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        totalQuantity += quantity;
+        String ticketTypeId = ticketType.getTicketTypeId();
+        int i = 0;
+        while (i < size && ticketTypes[i].getTicketTypeId().compareTo(ticketTypeId) < 0) {
+            i++;
+        }
+        if (i < size && ticketTypes[i].equals(ticketType)) {
+            quantities[i] += quantity;
+            return;
+        }
+        if (size == ticketTypes.length) {
+            ticketTypes = Arrays.copyOf(ticketTypes, size * 2);
+            quantities = Arrays.copyOf(quantities, size * 2);
+        }
+        System.arraycopy(ticketTypes, i, ticketTypes, i + 1, size - i);
+        System.arraycopy(quantities, i, quantities, i + 1, size - i);
+        ticketTypes[i] = ticketType;
+        quantities[i] = quantity;
+        size++;
+    }
+
+    public void clear() {
+        Arrays.fill(ticketTypes, 0, size, null);
+        size = 0;
+        totalQuantity = 0;
+        shortfall = null;
+        capacityExceeded = false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TicketType getTicketType(int line) {
+        return ticketTypes[line];
+    }
+
+    public int getQuantity(int line) {
+        return quantities[line];
+    }
+
+    public int getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    /**
+     * Ticket type that ran out in the last reservation, or null if it
+     * succeeded or failed on event capacity
+     */
+    public TicketType getShortfall() {
+        return shortfall;
+    }
+
+    public boolean isCapacityExceeded() {
+        return capacityExceeded;
+    }
+
+    void recordOutcome(TicketType shortfall, boolean capacityExceeded) {
+        this.shortfall = shortfall;
+        this.capacityExceeded = capacityExceeded;
+    }
+}
@@ -0,0 +1,162 @@
+package com.eventbooking.inventory;
+
+import com.eventbooking.model.Event;
+import com.eventbooking.model.TicketType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All-or-nothing reservation across several ticket types of one event
+ * Event capacity is claimed first, then each tier in ticketTypeId order.
+ * Every step is a non-blocking CAS, so the fixed ordering cannot deadlock;
+ * an abort hands back only the tiers already taken, costing O(tiers).
+ */
+public class TierReservation {
+
+    private static final Comparator<TicketType> RESERVATION_ORDER =
+            Comparator.comparing(TicketType::getTicketTypeId);
+
+    private final Event event;
+    private final Map<TicketType, Integer> quantities;
+    private final int totalQuantity;
+    private final TicketType shortfall;
+    private final boolean capacityExceeded;
+
+    private TierReservation(Event event, Map<TicketType, Integer> quantities, int totalQuantity,
+                            TicketType shortfall, boolean capacityExceeded) {
+        this.event = event;
+        this.quantities = quantities;
+        this.totalQuantity = totalQuantity;
+        this.shortfall = shortfall;
+        this.capacityExceeded = capacityExceeded;
+    }
+
+    /**
+     * Reserve every requested ticket type of an event as a unit
+     * @param quantities Map of TicketType to quantity; non-positive entries are ignored
+     * @return Reservation whose isSuccessful() tells whether anything was taken
+     */
+    public static TierReservation reserve(Event event, Map<TicketType, Integer> quantities) {
+        Map<TicketType, Integer> ordered = normalize(quantities);
+        int total = ordered.values().stream().mapToInt(Integer::intValue).sum();
+
+        if (!event.reserveCapacity(total)) {
+            return new TierReservation(event, ordered, total, null, true);
+        }
+
+        List<TicketType> taken = new ArrayList<>(ordered.size());
+        for (Map.Entry<TicketType, Integer> line : ordered.entrySet()) {
+            if (!line.getKey().reserveTickets(line.getValue())) {
+                for (int i = taken.size() - 1; i >= 0; i--) {
+                    TicketType ticketType = taken.get(i);
+                    ticketType.releaseTickets(ordered.get(ticketType));
+                }
+                event.releaseCapacity(total);
+                return new TierReservation(event, ordered, total, line.getKey(), false);
+            }
+            taken.add(line.getKey());
+        }
+        return new TierReservation(event, ordered, total, null, false);
+    }
+
+    /**
+     * Reserve every line as a unit, like reserve(Event, Map), without allocating
+     * @return Whether everything was taken; if not, nothing was and the lines
+     *         tell what ran out
+     */
+    public static boolean reserve(Event event, TierLines lines) {
+        lines.recordOutcome(null, false);
+        if (!event.reserveCapacity(lines.getTotalQuantity())) {
+            lines.recordOutcome(null, true);
+            return false;
+        }
+        for (int i = 0; i < lines.size(); i++) {
+            if (!lines.getTicketType(i).reserveTickets(lines.getQuantity(i))) {
+                for (int taken = i - 1; taken >= 0; taken--) {
+                    lines.getTicketType(taken).releaseTickets(lines.getQuantity(taken));
+                }
+                event.releaseCapacity(lines.getTotalQuantity());
+                lines.recordOutcome(lines.getTicketType(i), false);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Give back lines taken by reserve(Event, TierLines)
+     */
+    public static void release(Event event, TierLines lines) {
+        for (int i = 0; i < lines.size(); i++) {
+            lines.getTicketType(i).releaseTickets(lines.getQuantity(i));
+        }
+        event.releaseCapacity(lines.getTotalQuantity());
+    }
+
+    /**
+     * Give tickets back to their tiers and the event in one pass per tier
+     */
+    public static void release(Event event, Map<TicketType, Integer> quantities) {
+        Map<TicketType, Integer> ordered = normalize(quantities);
+        int total = 0;
+        for (Map.Entry<TicketType, Integer> line : ordered.entrySet()) {
+            line.getKey().releaseTickets(line.getValue());
+            total += line.getValue();
+        }
+        event.releaseCapacity(total);
+    }
+
+    /**
+     * Undo a successful reservation
+     */
+    public void release() {
+        if (isSuccessful()) {
+            release(event, quantities);
+        }
+    }
+
+    public boolean isSuccessful() {
+        return shortfall == null && !capacityExceeded;
+    }
+
+    /**
+     * Ticket type that ran out, or null if the reservation succeeded
+     * or failed on event capacity
+     */
+    public TicketType getShortfall() {
+        return shortfall;
+    }
+
+    public boolean isCapacityExceeded() {
+        return capacityExceeded;
+    }
+
+    public Event getEvent() {
+        return event;
+    }
+
+    public Map<TicketType, Integer> getQuantities() {
+        return Collections.unmodifiableMap(quantities);
+    }
+
+    public int getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    private static Map<TicketType, Integer> normalize(Map<TicketType, Integer> quantities) {
+        List<Map.Entry<TicketType, Integer>> lines = new ArrayList<>(quantities.entrySet());
+        lines.sort(Map.Entry.comparingByKey(RESERVATION_ORDER));
+        Map<TicketType, Integer> ordered = new LinkedHashMap<>();
+        for (Map.Entry<TicketType, Integer> line : lines) {
+            if (line.getValue() != null && line.getValue() > 0) {
+                ordered.merge(line.getKey(), line.getValue(), Integer::sum);
+            }
+        }
+        return ordered;
+    }
+}
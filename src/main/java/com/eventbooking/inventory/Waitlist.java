@@ -0,0 +1,72 @@
+package com.eventbooking.inventory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * FIFO waitlist for a ticket type, built on a lock-free queue
+ * Released tickets are handed to waiting users from the head only, so a
+ * promotion pass touches just the entries it serves. Withdrawn entries
+ * stay queued and are skipped when they reach the head.
+ */
+public class Waitlist {
+
+    private final Queue<WaitlistEntry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicBoolean promoting = new AtomicBoolean();
+    private final AtomicBoolean promotionRequested = new AtomicBoolean();
+
+    public WaitlistEntry join(String userId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        WaitlistEntry entry = new WaitlistEntry(userId, quantity);
+        queue.add(entry);
+        waiting.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Promote waiting entries in FIFO order until the head cannot be served
+     * Never blocks: if another thread is already promoting, it is asked to
+     * run one more pass instead, so released tickets are never missed.
+     * @param promoter Serves an entry and returns true, or returns false if
+     *                 there is not enough inventory for it
+     * @return Number of entries taken off the waitlist by this call
+     */
+    public int promote(Predicate<WaitlistEntry> promoter) {
+        int removed = 0;
+        promotionRequested.set(true);
+        while (promotionRequested.get() && promoting.compareAndSet(false, true)) {
+            promotionRequested.set(false);
+            try {
+                WaitlistEntry head;
+                while ((head = queue.peek()) != null) {
+                    if (head.isWaiting() && !promoter.test(head)) {
+                        break;
+                    }
+                    queue.poll();
+                    waiting.decrementAndGet();
+                    removed++;
+                }
+            } finally {
+                promoting.set(false);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Entries still queued, including withdrawn ones not yet skipped
+     */
+    public int size() {
+        return waiting.get();
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+}
@@ -0,0 +1,97 @@
+package com.eventbooking.inventory;
+
+import com.eventbooking.model.Booking;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A user's place on a ticket type's waitlist
+ * Leaving and promotion race through a single CAS on the status,
+ * so an entry is promoted at most once and never after it was withdrawn.
+ */
+public class WaitlistEntry {
+
+    public enum Status {
+        WAITING,
+        PROMOTED,
+        CANCELLED,
+        FAILED
+    }
+
+    private final String userId;
+    private final int quantity;
+    private final LocalDateTime joinedAt;
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.WAITING);
+    private volatile Booking booking;
+
+    WaitlistEntry(String userId, int quantity) {
+        this.userId = userId;
+        this.quantity = quantity;
+        this.joinedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Withdraw from the waitlist
+     * @return false if the entry was already promoted
+     */
+    public boolean cancel() {
+        return status.compareAndSet(Status.WAITING, Status.CANCELLED) ||
+               status.get() == Status.CANCELLED;
+    }
+
+    /**
+     * Claim the entry for promotion
+     * @return false if the user withdrew first
+     */
+    public boolean claim() {
+        return status.compareAndSet(Status.WAITING, Status.PROMOTED);
+    }
+
+    /**
+     * Attach the booking created for a claimed entry
+     */
+    public void complete(Booking booking) {
+        this.booking = booking;
+    }
+
+    /**
+     * A claimed entry could not be turned into a booking
+     */
+    public void fail() {
+        status.set(Status.FAILED);
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public LocalDateTime getJoinedAt() {
+        return joinedAt;
+    }
+
+    public Status getStatus() {
+        return status.get();
+    }
+
+    public boolean isWaiting() {
+        return status.get() == Status.WAITING;
+    }
+
+    /**
+     * PENDING booking created on promotion, or null while waiting
+     */
+    public Booking getBooking() {
+        return booking;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WaitlistEntry{userId='%s', quantity=%d, status=%s}",
+                userId, quantity, status.get());
+    }
+}
@@ -0,0 +1,29 @@
+package com.eventbooking.journal;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Makes file creations, renames and deletions in a directory durable
+ * A file's own fsync covers its contents but not its directory entry, so
+ * anything that publishes a file by renaming it into place syncs the
+ * directory afterwards.
+ */
+public final class DirectorySync {
+
+    private DirectorySync() {
+    }
+
+    /**
+     * Flush the directory's entries to disk, where the platform allows it
+     */
+    public static void sync(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // Not every platform can sync a directory; renames are then only as durable as the OS makes them
+        }
+    }
+}
@@ -0,0 +1,633 @@
+package com.eventbooking.journal;
+
+import com.eventbooking.inventory.RestoredInventory;
+import com.eventbooking.model.Booking;
+import com.eventbooking.model.Event;
+import com.eventbooking.model.Ticket;
+import com.eventbooking.model.User;
+import com.eventbooking.model.Venue;
+import com.eventbooking.repository.BookingRepository;
+import com.eventbooking.repository.EventRepository;
+import com.eventbooking.repository.RepositoryJournal;
+import com.eventbooking.repository.UserRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Durable journal for the in-memory repositories
+ * Hands each repository a RepositoryJournal that appends the entity's state
+ * after every write to a WriteAheadLog and waits for its group commit.
+ * The journal lives in a directory of numbered log segments and snapshots:
+ * snapshot N holds the state of every record in the segments before N, so
+ * opening the journal reads only the segments from the latest snapshot on
+ * and keeps the latest record of each entity. recover() then loads the
+ * snapshot, applies those records over it and re-reserves the inventory
+ * held by bookings.
+ */
+public class Journal implements AutoCloseable {
+
+    private static final System.Logger LOG = System.getLogger(Journal.class.getName());
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String LOCK_FILE = "LOCK";
+    private static final String USERS = "users";
+    private static final String EVENTS = "events";
+    private static final String BOOKINGS = "bookings";
+    /** Files per entity type in a snapshot, so a large snapshot loads on several threads */
+    private static final int SNAPSHOT_PARTITIONS =
+            Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    private final Path directory;
+    private final FileChannel lockChannel;
+    private final WriteAheadLog log;
+    private final Path baseSnapshot;
+    private long segment;
+    private final RepositoryJournal<User, String> userJournal =
+            new EntityJournal<>(JournalCodec::encodeUser, JournalCodec.DELETE_USER);
+    private final RepositoryJournal<Event, String> eventJournal =
+            new EntityJournal<>(JournalCodec::encodeEvent, JournalCodec.DELETE_EVENT);
+    private final RepositoryJournal<Booking, String> bookingJournal =
+            new EntityJournal<>(JournalCodec::encodeBooking, JournalCodec.DELETE_BOOKING);
+
+    // Records read from the log segments after the snapshot, held until recover() consumes them
+    private Tail users = new Tail();
+    private Tail events = new Tail();
+    private Tail bookings = new Tail();
+    private volatile boolean recovering;
+
+    private UserRepository userRepository;
+    private EventRepository eventRepository;
+    private BookingRepository bookingRepository;
+    private ScheduledExecutorService snapshotScheduler;
+
+    /**
+     * Open or create the journal directory and read back the log after the latest snapshot
+     * @param commitDelay Group commit latency budget; see WriteAheadLog
+     */
+    public Journal(Path directory, Duration commitDelay) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            this.lockChannel = lock(directory.resolve(LOCK_FILE));
+            deleteIncompleteSnapshots();
+            List<Long> snapshots = numbered(SNAPSHOT_PREFIX, "");
+            long covered = snapshots.isEmpty() ? 1 : snapshots.get(snapshots.size() - 1);
+            this.baseSnapshot = snapshots.isEmpty() ? null : snapshotPath(covered);
+            deleteCoveredBy(covered);
+
+            List<Long> segments = numbered(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            if (segments.isEmpty()) {
+                segments.add(covered);
+            }
+            for (Long closed : segments.subList(0, segments.size() - 1)) {
+                WriteAheadLog.replay(segmentPath(closed), this::collect);
+            }
+            this.segment = segments.get(segments.size() - 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal directory " + directory, e);
+        }
+        this.log = new WriteAheadLog(segmentPath(segment), commitDelay, this::collect);
+    }
+
+    public RepositoryJournal<User, String> users() {
+        return userJournal;
+    }
+
+    public RepositoryJournal<Event, String> events() {
+        return eventJournal;
+    }
+
+    public RepositoryJournal<Booking, String> bookings() {
+        return bookingJournal;
+    }
+
+    /**
+     * Rebuild the journaled state into empty repositories
+     * Must run once, before the repositories are used; the writes it makes
+     * are not journaled again. Snapshot files are decoded in parallel:
+     * users and events first, then bookings, whose files are partitioned by
+     * user so each user's history is rebuilt on one thread.
+     * @return Number of bookings restored
+     */
+    public int recover(UserRepository userRepository, EventRepository eventRepository,
+                       BookingRepository bookingRepository) {
+        if (users == null) {
+            throw new IllegalStateException("Journal has already been recovered");
+        }
+        Tail userTail = users;
+        Tail eventTail = events;
+        Tail bookingTail = bookings;
+        recovering = true;
+        try {
+            // Deleted users and events, still needed to rebuild bookings that refer to them
+            Map<String, User> retiredUsers = new ConcurrentHashMap<>();
+            Map<String, Event> retiredEvents = new ConcurrentHashMap<>();
+            Map<String, Venue> venues = new ConcurrentHashMap<>();
+
+            List<Runnable> loads = new ArrayList<>();
+            for (Path file : snapshotFiles(USERS)) {
+                loads.add(() -> SnapshotFile.read(file, record -> {
+                    String id = readHeader(record);
+                    if (userTail.removed.contains(id)) {
+                        retiredUsers.put(id, decode(record, JournalCodec::decodeUser));
+                    } else if (!userTail.live.containsKey(id)) {
+                        userRepository.save(decode(record, JournalCodec::decodeUser));
+                    }
+                }));
+            }
+            for (Path file : snapshotFiles(EVENTS)) {
+                loads.add(() -> SnapshotFile.read(file, record -> {
+                    String id = readHeader(record);
+                    if (eventTail.removed.contains(id)) {
+                        retiredEvents.put(id, decode(record, body -> JournalCodec.decodeEvent(body, venues)));
+                    } else if (!eventTail.live.containsKey(id)) {
+                        eventRepository.save(decode(record, body -> JournalCodec.decodeEvent(body, venues)));
+                    }
+                }));
+            }
+            runInParallel(loads);
+            userTail.live.forEach((id, record) ->
+                    userRepository.save(decode(record, JournalCodec::decodeUser)));
+            eventTail.live.forEach((id, record) ->
+                    eventRepository.save(decode(record, body -> JournalCodec.decodeEvent(body, venues))));
+
+            Function<String, User> userLookup = id -> userRepository.findById(id).orElseGet(() ->
+                    retiredUsers.computeIfAbsent(id, deleted -> userTail.deleted.containsKey(deleted)
+                            ? decode(userTail.deleted.get(deleted), JournalCodec::decodeUser)
+                            : null));
+            Function<String, Event> eventLookup = id -> eventRepository.findById(id).orElseGet(() ->
+                    retiredEvents.computeIfAbsent(id, deleted -> eventTail.deleted.containsKey(deleted)
+                            ? decode(eventTail.deleted.get(deleted), body -> JournalCodec.decodeEvent(body, venues))
+                            : null));
+
+            List<Path> bookingFiles = snapshotFiles(BOOKINGS);
+            int partitionCount = Math.max(1, bookingFiles.size());
+            List<List<Booking>> partitions = new ArrayList<>(partitionCount);
+            for (int i = 0; i < partitionCount; i++) {
+                partitions.add(new ArrayList<>());
+            }
+            bookingTail.live.forEach((id, record) -> {
+                Booking booking = decode(record, body ->
+                        JournalCodec.decodeBooking(body, userLookup, eventLookup));
+                partitions.get(partition(booking.getUser().getUserId(), partitionCount)).add(booking);
+            });
+            loads.clear();
+            for (int i = 0; i < partitionCount; i++) {
+                List<Booking> partition = partitions.get(i);
+                Path file = i < bookingFiles.size() ? bookingFiles.get(i) : null;
+                loads.add(() -> {
+                    if (file != null) {
+                        SnapshotFile.read(file, record -> {
+                            String id = readHeader(record);
+                            if (!bookingTail.overrides(id)) {
+                                partition.add(decode(record, body ->
+                                        JournalCodec.decodeBooking(body, userLookup, eventLookup)));
+                            }
+                        });
+                    }
+                    restore(partition, bookingRepository);
+                });
+            }
+            runInParallel(loads);
+
+            this.userRepository = userRepository;
+            this.eventRepository = eventRepository;
+            this.bookingRepository = bookingRepository;
+            return partitions.stream().mapToInt(List::size).sum();
+        } finally {
+            recovering = false;
+            users = null;
+            events = null;
+            bookings = null;
+        }
+    }
+
+    /**
+     * Write a snapshot of the recovered repositories and drop the log segments it covers
+     * Runs alongside normal traffic rather than pausing it. The log is rotated
+     * first, then each entity is encoded under its own monitor, so the
+     * snapshot is consistent per entity though not across entities. That is
+     * enough because every record is a full after-image: replaying the
+     * segments from the rotation on brings anything written while the
+     * snapshot ran up to date.
+     * @return Directory of the new snapshot
+     */
+    public synchronized Path snapshot() {
+        if (userRepository == null) {
+            throw new IllegalStateException("Journal must be recovered before taking a snapshot");
+        }
+        long number = segment + 1;
+        log.rotate(segmentPath(number));
+        segment = number;
+
+        Path target = snapshotPath(number);
+        Path temp = directory.resolve(target.getFileName() + TEMP_SUFFIX);
+        try {
+            Files.createDirectory(temp);
+            runInParallel(Arrays.asList(
+                    () -> writeSnapshot(temp, USERS, userRepository.stream(),
+                            JournalCodec::encodeUser, User::getUserId),
+                    () -> writeSnapshot(temp, EVENTS, eventRepository.stream(),
+                            JournalCodec::encodeEvent, Event::getEventId),
+                    () -> writeSnapshot(temp, BOOKINGS, bookingRepository.stream(),
+                            JournalCodec::encodeBooking, booking -> booking.getUser().getUserId())));
+            DirectorySync.sync(temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            DirectorySync.sync(directory);
+            deleteCoveredBy(number);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + target, e);
+        }
+        return target;
+    }
+
+    /**
+     * Take a snapshot every interval on a background thread until the journal is closed
+     */
+    public synchronized void scheduleSnapshots(Duration interval) {
+        if (interval == null || interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        if (snapshotScheduler != null) {
+            throw new IllegalStateException("Snapshots are already scheduled");
+        }
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "journal-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        snapshotScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (RuntimeException e) {
+                // Keep the schedule; the log still holds everything since the last snapshot
+                LOG.log(System.Logger.Level.ERROR, "Journal snapshot failed", e);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The snapshot recovery started from, or null if the journal had none
+     */
+    public Path getBaseSnapshot() {
+        return baseSnapshot;
+    }
+
+    /**
+     * Size of the current log segment
+     */
+    public long size() {
+        return log.size();
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService scheduler;
+        synchronized (this) {
+            scheduler = snapshotScheduler;
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        // Waits for a snapshot in progress
+        synchronized (this) {
+            log.close();
+        }
+        try {
+            lockChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Keep a second journal from rotating and deleting segments under this one
+     */
+    private static FileChannel lock(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (channel.tryLock() != null) {
+                return channel;
+            }
+        } catch (OverlappingFileLockException e) {
+            // Held elsewhere in this process
+        }
+        channel.close();
+        throw new IllegalStateException("Journal directory " + file.getParent() + " is already open");
+    }
+
+    private void collect(ByteBuffer payload) {
+        byte[] record = payload.array();
+        ByteBufferInput in = new ByteBufferInput(ByteBuffer.wrap(record));
+        try {
+            byte type = in.readByte();
+            String id = in.readUTF();
+            switch (type) {
+                case JournalCodec.PUT_USER:
+                    users.put(id, record);
+                    break;
+                case JournalCodec.PUT_EVENT:
+                    events.put(id, record);
+                    break;
+                case JournalCodec.PUT_BOOKING:
+                    bookings.put(id, record);
+                    break;
+                case JournalCodec.DELETE_USER:
+                    users.delete(id);
+                    break;
+                case JournalCodec.DELETE_EVENT:
+                    events.delete(id);
+                    break;
+                case JournalCodec.DELETE_BOOKING:
+                    bookings.delete(id);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown journal record type " + type);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt journal record", e);
+        }
+    }
+
+    /**
+     * Sort a partition's bookings into history order, reserve their inventory and store them
+     */
+    private static void restore(List<Booking> bookings, BookingRepository bookingRepository) {
+        bookings.sort(Comparator.comparing(Booking::getBookingDateTime));
+        for (Booking booking : bookings) {
+            reserveInventory(booking);
+            booking.getUser().addBooking(booking);
+        }
+        bookingRepository.saveAll(bookings);
+    }
+
+    private static <T> void writeSnapshot(Path snapshot, String type, Stream<T> entities,
+                                          Function<T, byte[]> encoder, Function<T, String> partitionKey) {
+        SnapshotFile.Writer[] writers = new SnapshotFile.Writer[SNAPSHOT_PARTITIONS];
+        try (Stream<T> all = entities) {
+            for (int i = 0; i < writers.length; i++) {
+                writers[i] = new SnapshotFile.Writer(snapshot.resolve(snapshotFileName(type, i)));
+            }
+            all.forEach(entity -> {
+                byte[] record;
+                synchronized (entity) {
+                    record = encoder.apply(entity);
+                }
+                writers[partition(partitionKey.apply(entity), writers.length)].append(record);
+            });
+            for (SnapshotFile.Writer writer : writers) {
+                writer.finish();
+            }
+        } finally {
+            for (SnapshotFile.Writer writer : writers) {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+    }
+
+    private List<Path> snapshotFiles(String type) {
+        List<Path> files = new ArrayList<>();
+        if (baseSnapshot == null) {
+            return files;
+        }
+        for (int i = 0; Files.exists(baseSnapshot.resolve(snapshotFileName(type, i))); i++) {
+            files.add(baseSnapshot.resolve(snapshotFileName(type, i)));
+        }
+        if (files.isEmpty()) {
+            throw new IllegalStateException("Snapshot " + baseSnapshot + " has no " + type + " files");
+        }
+        return files;
+    }
+
+    private static String snapshotFileName(String type, int partition) {
+        return type + "-" + partition + ".snap";
+    }
+
+    private static int partition(String key, int partitions) {
+        return Math.floorMod(key.hashCode(), partitions);
+    }
+
+    private static void runInParallel(List<Runnable> tasks) {
+        tasks.parallelStream().forEach(Runnable::run);
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private Path snapshotPath(long number) {
+        return directory.resolve(String.format("%s%020d", SNAPSHOT_PREFIX, number));
+    }
+
+    /**
+     * Numbers of the directory entries named prefix + number + suffix, ascending
+     */
+    private List<Long> numbered(String prefix, String suffix) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(directory)) {
+            entries.map(entry -> entry.getFileName().toString())
+                   .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                   .forEach(name -> {
+                       try {
+                           numbers.add(Long.parseLong(
+                                   name.substring(prefix.length(), name.length() - suffix.length())));
+                       } catch (NumberFormatException ignored) {
+                           // Not one of ours
+                       }
+                   });
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    /**
+     * Drop the segments and older snapshots made redundant by snapshot number
+     */
+    private void deleteCoveredBy(long number) throws IOException {
+        for (Long old : numbered(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (old < number) {
+                Files.deleteIfExists(segmentPath(old));
+            }
+        }
+        for (Long old : numbered(SNAPSHOT_PREFIX, "")) {
+            if (old < number) {
+                deleteRecursively(snapshotPath(old));
+            }
+        }
+    }
+
+    private void deleteIncompleteSnapshots() throws IOException {
+        List<Path> incomplete = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(directory)) {
+            entries.filter(entry -> entry.getFileName().toString().endsWith(TEMP_SUFFIX))
+                   .forEach(incomplete::add);
+        }
+        for (Path path : incomplete) {
+            deleteRecursively(path);
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            List<Path> children = new ArrayList<>();
+            try (Stream<Path> entries = Files.list(path)) {
+                entries.forEach(children::add);
+            }
+            for (Path child : children) {
+                deleteRecursively(child);
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Take back the tickets, seats and capacity a restored booking still holds
+     */
+    private static void reserveInventory(Booking booking) {
+        RestoredInventory inventory = new RestoredInventory(booking.getEvent());
+        for (Ticket ticket : booking.getTickets()) {
+            inventory.add(ticket.getTicketType(), ticket.getSeatNumber(), booking.getStatus(), ticket.getStatus());
+        }
+        inventory.reserve();
+    }
+
+    /**
+     * Read a record's entity ID, leaving the buffer at the record's body
+     */
+    private static String readHeader(ByteBuffer record) {
+        ByteBufferInput in = new ByteBufferInput(record);
+        try {
+            in.readByte();
+            return in.readUTF();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt journal record", e);
+        }
+    }
+
+    private static <T> T decode(byte[] record, Function<ByteBuffer, T> decoder) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        readHeader(buffer);
+        return decode(buffer, decoder);
+    }
+
+    /**
+     * @param body Positioned after the record's header
+     */
+    private static <T> T decode(ByteBuffer body, Function<ByteBuffer, T> decoder) {
+        try {
+            return decoder.apply(body);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalStateException("Truncated journal record", e);
+        }
+    }
+
+    /**
+     * Latest record per entity in the log segments after the snapshot
+     */
+    private static final class Tail {
+        private final Map<String, byte[]> live = new LinkedHashMap<>();
+        // State before deletion, for entities whose put record is in the tail too
+        private final Map<String, byte[]> deleted = new HashMap<>();
+        private final Set<String> removed = new HashSet<>();
+
+        void put(String id, byte[] record) {
+            live.put(id, record);
+            deleted.remove(id);
+            removed.remove(id);
+        }
+
+        void delete(String id) {
+            byte[] record = live.remove(id);
+            if (record != null) {
+                deleted.put(id, record);
+            }
+            removed.add(id);
+        }
+
+        /**
+         * Whether the tail replaces whatever the snapshot holds for the entity
+         */
+        boolean overrides(String id) {
+            return live.containsKey(id) || removed.contains(id);
+        }
+    }
+
+    /**
+     * Appends an entity's state under its monitor, so records of one entity
+     * reach the log in the order its writes happened, then waits outside it
+     */
+    private final class EntityJournal<T> implements RepositoryJournal<T, String> {
+        private final Function<T, byte[]> encoder;
+        private final byte deleteType;
+
+        EntityJournal(Function<T, byte[]> encoder, byte deleteType) {
+            this.encoder = encoder;
+            this.deleteType = deleteType;
+        }
+
+        @Override
+        public void written(T entity) {
+            if (!recovering) {
+                log.awaitDurable(append(entity));
+            }
+        }
+
+        @Override
+        public void writtenAll(Collection<? extends T> entities) {
+            if (recovering || entities.isEmpty()) {
+                return;
+            }
+            long last = 0;
+            for (T entity : entities) {
+                last = append(entity);
+            }
+            log.awaitDurable(last);
+        }
+
+        @Override
+        public void deleted(String id) {
+            if (!recovering) {
+                log.awaitDurable(log.append(JournalCodec.encodeDelete(deleteType, id)));
+            }
+        }
+
+        private long append(T entity) {
+            synchronized (entity) {
+                return log.append(encoder.apply(entity));
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.eventbooking.journal;
+
+import com.eventbooking.codec.DomainCodec;
+import com.eventbooking.model.Booking;
+import com.eventbooking.model.Event;
+import com.eventbooking.model.User;
+import com.eventbooking.model.Venue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Framing of journal records around DomainCodec records
+ * A record is [type][entity id] followed, for puts, by the DomainCodec
+ * record of the entity's full state after the write, so replay only needs
+ * the last record per ID and reads the ID without decoding the entity.
+ * Ticket inventory is not stored: it is rebuilt from the bookings that
+ * hold it.
+ */
+final class JournalCodec {
+
+    static final byte PUT_USER = 1;
+    static final byte PUT_EVENT = 2;
+    static final byte PUT_BOOKING = 3;
+    static final byte DELETE_USER = 4;
+    static final byte DELETE_EVENT = 5;
+    static final byte DELETE_BOOKING = 6;
+
+    private static final int INITIAL_RECORD_BYTES = 1024;
+    // Grown and kept when a record does not fit
+    private static final ThreadLocal<ByteBuffer> SCRATCH =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(INITIAL_RECORD_BYTES));
+
+    private JournalCodec() {
+    }
+
+    static byte[] encodeUser(User user) {
+        return encode(PUT_USER, user.getUserId(), user, DomainCodec::encodeUser);
+    }
+
+    static byte[] encodeEvent(Event event) {
+        return encode(PUT_EVENT, event.getEventId(), event, DomainCodec::encodeEvent);
+    }
+
+    static byte[] encodeBooking(Booking booking) {
+        return encode(PUT_BOOKING, booking.getBookingId(), booking, DomainCodec::encodeBooking);
+    }
+
+    static byte[] encodeDelete(byte type, String id) {
+        return header(type, id);
+    }
+
+    /**
+     * @param body Positioned after the record's header
+     */
+    static User decodeUser(ByteBuffer body) {
+        return DomainCodec.decodeUser(body);
+    }
+
+    /**
+     * @param venues Venues decoded so far by ID, so events at one venue share it
+     */
+    static Event decodeEvent(ByteBuffer body, Map<String, Venue> venues) {
+        return DomainCodec.decodeEvent(body, venues);
+    }
+
+    static Booking decodeBooking(ByteBuffer body, Function<String, User> users, Function<String, Event> events) {
+        return DomainCodec.decodeBooking(body, users, events);
+    }
+
+    private interface Encoder<T> {
+        void encode(T entity, ByteBuffer buffer);
+    }
+
+    private static <T> byte[] encode(byte type, String id, T entity, Encoder<T> encoder) {
+        byte[] header = header(type, id);
+        ByteBuffer buffer = SCRATCH.get();
+        while (true) {
+            buffer.clear();
+            try {
+                encoder.encode(entity, buffer);
+                break;
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                SCRATCH.set(buffer);
+            }
+        }
+        byte[] record = Arrays.copyOf(header, header.length + buffer.position());
+        System.arraycopy(buffer.array(), 0, record, header.length, buffer.position());
+        return record;
+    }
+
+    private static byte[] header(byte type, String id) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(type);
+            out.writeUTF(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
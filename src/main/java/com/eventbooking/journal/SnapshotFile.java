@@ -0,0 +1,167 @@
+package com.eventbooking.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * One file of a snapshot, written and read through memory mappings
+ * Layout is [magic][format][record count] followed by records framed like
+ * the write-ahead log, [length][crc32][payload]. Files are mapped a window
+ * at a time, so they may grow past what one mapping can address; a record
+ * never straddles two windows.
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x45425350;
+    private static final int FORMAT = 2;
+    private static final int HEADER_BYTES = 16;
+    private static final int FRAME_BYTES = 8;
+    private static final long WRITE_WINDOW_BYTES = 64L * 1024 * 1024;
+    private static final long READ_WINDOW_BYTES = 1024L * 1024 * 1024;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Pass each record's payload, in file order, to the handler
+     * The payload is a view of the mapping and is only valid during the call.
+     * @return Number of records read
+     * @throws IllegalStateException if the file is not a complete snapshot file
+     */
+    static long read(Path file, Consumer<ByteBuffer> handler) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IllegalStateException("Truncated snapshot file " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT) {
+                throw new IllegalStateException("Not a snapshot file: " + file);
+            }
+            long count = header.getLong(8);
+
+            CRC32 crc = new CRC32();
+            MappedByteBuffer window = null;
+            long windowStart = 0;
+            long position = HEADER_BYTES;
+            for (long i = 0; i < count; i++) {
+                if (window == null || position + FRAME_BYTES > windowStart + window.limit()) {
+                    windowStart = position;
+                    window = map(channel, position, size, FRAME_BYTES, file);
+                }
+                int offset = (int) (position - windowStart);
+                int length = window.getInt(offset);
+                int checksum = window.getInt(offset + 4);
+                if (length < 0 || position + FRAME_BYTES + length > size) {
+                    throw new IllegalStateException("Corrupt snapshot file " + file);
+                }
+                if (position + FRAME_BYTES + length > windowStart + window.limit()) {
+                    windowStart = position;
+                    window = map(channel, position, size, FRAME_BYTES + length, file);
+                    offset = 0;
+                }
+                ByteBuffer payload = window.duplicate();
+                payload.limit(offset + FRAME_BYTES + length).position(offset + FRAME_BYTES);
+                payload = payload.slice();
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    throw new IllegalStateException("Corrupt snapshot file " + file);
+                }
+                handler.accept(payload);
+                position += FRAME_BYTES + length;
+            }
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read snapshot file " + file, e);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size, int needed, Path file)
+            throws IOException {
+        if (position + needed > size) {
+            throw new IllegalStateException("Truncated snapshot file " + file);
+        }
+        long length = Math.max(needed, Math.min(READ_WINDOW_BYTES, size - position));
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    /**
+     * Appends records to a new file through a sliding writable mapping
+     */
+    static final class Writer implements AutoCloseable {
+        private final Path file;
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private MappedByteBuffer window;
+        private long position = HEADER_BYTES;
+        private long count;
+
+        Writer(Path file) {
+            this.file = file;
+            try {
+                this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create snapshot file " + file, e);
+            }
+        }
+
+        void append(byte[] payload) {
+            crc.reset();
+            crc.update(payload);
+            try {
+                ensureWindow(FRAME_BYTES + payload.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write snapshot file " + file, e);
+            }
+            window.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            position += FRAME_BYTES + payload.length;
+            count++;
+        }
+
+        /**
+         * Write the header, trim the file to its records and sync it
+         */
+        void finish() {
+            try {
+                if (window != null) {
+                    window.force();
+                }
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+                header.putInt(MAGIC).putInt(FORMAT).putLong(count);
+                header.force();
+                channel.truncate(position);
+                channel.force(true);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write snapshot file " + file, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void ensureWindow(int bytes) throws IOException {
+            if (window == null || window.remaining() < bytes) {
+                if (window != null) {
+                    window.force();
+                }
+                window = channel.map(FileChannel.MapMode.READ_WRITE, position,
+                        Math.max(WRITE_WINDOW_BYTES, bytes));
+            }
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.eventbooking.journal;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log file of binary records with group commit
+ * Each record is framed as [length][crc32][payload]. Writers copy their
+ * frame into a shared buffer and wait; a single flusher thread writes
+ * whatever has accumulated and fsyncs once for the whole batch, so
+ * concurrent writers share the cost of a sync. The commit delay is the
+ * latency budget: how long the flusher lingers after the first record of
+ * a batch to let others join. Opening the log replays every intact record
+ * and cuts off a torn tail left by a crash mid-write. The log can be
+ * rotated to a new segment file so older segments can be dropped once a
+ * snapshot covers them.
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+    /** A batch this large is flushed without waiting out the commit delay */
+    private static final int MAX_BATCH_BYTES = 1024 * 1024;
+
+    private volatile FileChannel channel;
+    private final long commitDelayNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasRecords = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Thread flusher;
+
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private long appendedSequence;
+    private long durableSequence;
+    private Rotation rotation;
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Open or create a log, passing each intact record's payload to the replay handler in order
+     * @param commitDelay Longest a write waits for others to share its sync; zero syncs as soon as possible
+     */
+    public WriteAheadLog(Path file, Duration commitDelay, Consumer<ByteBuffer> replayHandler) {
+        if (commitDelay == null || commitDelay.isNegative()) {
+            throw new IllegalArgumentException("Commit delay cannot be negative");
+        }
+        this.commitDelayNanos = commitDelay.toNanos();
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long end = replay(channel, replayHandler);
+            if (end < channel.size()) {
+                channel.truncate(end);
+                channel.force(true);
+            }
+            channel.position(end);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal " + file, e);
+        }
+        this.flusher = new Thread(this::runFlusher, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queue a record for the next group commit
+     * @return Sequence number to pass to awaitDurable
+     */
+    public long append(byte[] payload) {
+        if (payload.length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Journal record too large: " + payload.length + " bytes");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        lock.lock();
+        try {
+            checkWritable();
+            ensureCapacity(HEADER_BYTES + payload.length);
+            pending.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            hasRecords.signal();
+            return ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Block until the record with the given sequence number has been synced to disk
+     * @throws UncheckedIOException if the log could not be written
+     */
+    public void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Journal write failed", failure);
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Read the intact records of a closed segment without opening it for writing
+     */
+    public static void replay(Path file, Consumer<ByteBuffer> handler) {
+        try (FileChannel segment = FileChannel.open(file, StandardOpenOption.READ)) {
+            replay(segment, handler);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read journal segment " + file, e);
+        }
+    }
+
+    /**
+     * Switch appends to a new segment file
+     * Records appended before the call end up in the old segment, which is
+     * synced and closed; later records go to the new one.
+     */
+    public void rotate(Path next) {
+        FileChannel nextChannel;
+        try {
+            nextChannel = FileChannel.open(next, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal segment " + next, e);
+        }
+        lock.lock();
+        try {
+            checkWritable();
+            if (rotation != null) {
+                throw new IllegalStateException("Journal is already rotating");
+            }
+            Rotation requested = new Rotation(nextChannel, pending.position());
+            rotation = requested;
+            hasRecords.signal();
+            while (rotation == requested && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            checkWritable();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sequence number of the last record appended so far
+     */
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long size() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flush anything queued and close the file
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            hasRecords.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long replay(FileChannel channel, Consumer<ByteBuffer> handler) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            int length = header.getInt(0);
+            int checksum = header.getInt(4);
+            if (length < 0 || length > MAX_RECORD_BYTES || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, position + HEADER_BYTES);
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            payload.flip();
+            handler.accept(payload);
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            ByteBuffer batch;
+            long batchSequence;
+            Rotation rotate;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && rotation == null && !closed) {
+                    hasRecords.awaitUninterruptibly();
+                }
+                if (pending.position() == 0 && rotation == null) {
+                    return;
+                }
+                if (rotation == null) {
+                    lingerForBatch();
+                }
+                batch = pending;
+                pending = spare;
+                batchSequence = appendedSequence;
+                rotate = rotation;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = rotate != null ? writeAndRotate(batch, rotate) : write(batch);
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSequence = batchSequence;
+                }
+                if (rotate != null) {
+                    rotation = null;
+                }
+                batch.clear();
+                spare = batch;
+                flushed.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Wait out the commit delay, unless the batch fills up or the log is closing
+     */
+    private void lingerForBatch() {
+        long remaining = commitDelayNanos;
+        while (remaining > 0 && pending.position() < MAX_BATCH_BYTES && !closed) {
+            try {
+                remaining = hasRecords.awaitNanos(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private IOException write(ByteBuffer batch) {
+        batch.flip();
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+            return null;
+        } catch (IOException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Finish the old segment with the records queued before the rotation, then switch
+     */
+    private IOException writeAndRotate(ByteBuffer batch, Rotation rotate) {
+        batch.flip();
+        ByteBuffer tail = batch.duplicate();
+        batch.limit(rotate.offset);
+        tail.position(rotate.offset);
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+            channel.close();
+            channel = rotate.next;
+            while (tail.hasRemaining()) {
+                channel.write(tail);
+            }
+            channel.force(true);
+            return null;
+        } catch (IOException e) {
+            return e;
+        }
+    }
+
+    private void checkWritable() {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Journal write failed", failure);
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() < bytes) {
+            int capacity = Math.max(pending.capacity() * 2, pending.position() + bytes);
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+    }
+
+    private static final class Rotation {
+        private final FileChannel next;
+        private final int offset;
+
+        Rotation(FileChannel next, int offset) {
+            this.next = next;
+            this.offset = offset;
+        }
+    }
+}
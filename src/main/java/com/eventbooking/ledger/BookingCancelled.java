@@ -0,0 +1,42 @@
+package com.eventbooking.ledger;
+
+import com.eventbooking.model.Booking;
+
+import java.time.LocalDateTime;
+
+/**
+ * A booking was cancelled and released its tickets
+ */
+public final class BookingCancelled extends LedgerEvent {
+    
+    public enum Reason {
+        /** Cancelled by the customer */
+        CUSTOMER,
+        /** Payment hold ran out */
+        HOLD_EXPIRED,
+        /** Reserved, but could not be stored */
+        ABANDONED
+    }
+    
+    private final Reason reason;
+    
+    public BookingCancelled(String bookingId, String userId, String eventId, LocalDateTime occurredAt,
+                            Reason reason) {
+        super(bookingId, userId, eventId, occurredAt);
+        this.reason = reason;
+    }
+    
+    public static BookingCancelled of(Booking booking, Reason reason) {
+        return new BookingCancelled(booking.getBookingId(), booking.getUser().getUserId(),
+                                    booking.getEvent().getEventId(), LocalDateTime.now(), reason);
+    }
+    
+    @Override
+    public void applyTo(Projection projection) {
+        projection.onBookingCancelled(this);
+    }
+    
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,128 @@
+package com.eventbooking.ledger;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only ledger of booking domain events, the write path of the
+ * event-sourced mode and the source of the projected read models
+ * BookingService appends an event before it applies the change it
+ * describes, so the booking repository only holds state recorded here.
+ * The ledger lives in memory and starts empty on every run.
+ * Events are stored in fixed-size chunks that are never moved, so readers
+ * copy them out without locking: an event is written into its slot before
+ * the size that covers it is published. Appends are serialized; each
+ * event's position in the ledger is its sequence number, starting at 0.
+ */
+public class BookingLedger {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private volatile LedgerEvent[][] chunks = new LedgerEvent[16][];
+    private volatile long size;
+
+    /**
+     * Append one event
+     * @return Sequence number of the event
+     */
+    public long append(LedgerEvent event) {
+        lock.lock();
+        try {
+            long sequence = size;
+            store(sequence, event);
+            size = sequence + 1;
+            appended.signalAll();
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Append events as one contiguous run
+     * @return Sequence number of the last event, or -1 if there were none
+     */
+    public long appendAll(List<? extends LedgerEvent> events) {
+        if (events.isEmpty()) {
+            return -1;
+        }
+        lock.lock();
+        try {
+            long sequence = size;
+            for (LedgerEvent event : events) {
+                store(sequence++, event);
+            }
+            size = sequence;
+            appended.signalAll();
+            return sequence - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of events appended so far, which is also the next sequence number
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Copy events starting at a sequence number into a buffer
+     * @return Number of events copied; 0 if nothing has been appended from there yet
+     */
+    public int read(long from, LedgerEvent[] buffer) {
+        long end = size;
+        LedgerEvent[][] current = chunks;
+        int count = (int) Math.max(0, Math.min(buffer.length, end - from));
+        for (int i = 0; i < count; i++) {
+            long sequence = from + i;
+            buffer[i] = current[(int) (sequence >>> CHUNK_BITS)][(int) (sequence & CHUNK_MASK)];
+        }
+        return count;
+    }
+
+    /**
+     * Wait until the ledger holds more than the given number of events
+     * @return Current size, which may still be the old one if the wait timed out
+     */
+    public long awaitAppended(long knownSize, long timeout, TimeUnit unit) throws InterruptedException {
+        if (size > knownSize) {
+            return size;
+        }
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (size <= knownSize && remaining > 0) {
+                remaining = appended.awaitNanos(remaining);
+            }
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(long sequence, LedgerEvent event) {
+        if (event == null) {
+            throw new IllegalArgumentException("Ledger event must not be null");
+        }
+        int chunk = (int) (sequence >>> CHUNK_BITS);
+        LedgerEvent[][] current = chunks;
+        if (chunk == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        if (current[chunk] == null) {
+            current[chunk] = new LedgerEvent[CHUNK_SIZE];
+        }
+        current[chunk][(int) (sequence & CHUNK_MASK)] = event;
+        // Published by the size write that follows
+        chunks = current;
+    }
+}
@@ -0,0 +1,43 @@
+package com.eventbooking.ledger;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable fact appended to the BookingLedger
+ * Every event names the booking, user and event it concerns, so a
+ * projection can file it without looking anything up.
+ */
+public abstract class LedgerEvent {
+    private final String bookingId;
+    private final String userId;
+    private final String eventId;
+    private final LocalDateTime occurredAt;
+    
+    protected LedgerEvent(String bookingId, String userId, String eventId, LocalDateTime occurredAt) {
+        this.bookingId = bookingId;
+        this.userId = userId;
+        this.eventId = eventId;
+        this.occurredAt = occurredAt;
+    }
+    
+    /**
+     * Hand this event to the matching Projection callback
+     */
+    public abstract void applyTo(Projection projection);
+    
+    public String getBookingId() {
+        return bookingId;
+    }
+    
+    public String getUserId() {
+        return userId;
+    }
+    
+    public String getEventId() {
+        return eventId;
+    }
+    
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+}
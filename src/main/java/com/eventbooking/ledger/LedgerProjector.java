@@ -0,0 +1,122 @@
+package com.eventbooking.ledger;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps one Projection up to date on its own thread
+ * Tails the ledger from the projection's position, applying whatever has
+ * been appended in batches, so projections lag writers slightly and never
+ * slow them down. A rebuild resets the projection and replays the ledger
+ * from the start on the same thread; several projectors rebuild in parallel.
+ */
+public class LedgerProjector {
+
+    private static final int BATCH_SIZE = 512;
+    private static final long IDLE_WAIT_MILLIS = 50;
+    private static final System.Logger LOG = System.getLogger(LedgerProjector.class.getName());
+
+    private final BookingLedger ledger;
+    private final Projection projection;
+    private final Thread thread;
+    private volatile long position;
+    private volatile boolean rebuildRequested;
+    private volatile boolean running;
+
+    public LedgerProjector(String name, BookingLedger ledger, Projection projection) {
+        this.ledger = ledger;
+        this.projection = projection;
+        this.thread = new Thread(this::run, "ledger-projector-" + name);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stop after the batch in progress
+     */
+    public void stop() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reset the projection and replay the ledger into it from the start
+     * Returns at once; queries see a partial view until the projector has
+     * caught up again.
+     */
+    public void rebuild() {
+        rebuildRequested = true;
+        thread.interrupt();
+    }
+
+    /**
+     * Number of ledger events applied to the projection so far
+     */
+    public long getPosition() {
+        return rebuildRequested ? 0 : position;
+    }
+
+    /**
+     * Wait until the projection reflects the ledger up to the given size
+     * @return false if the timeout passed first
+     */
+    public boolean awaitPosition(long ledgerSize, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (getPosition() < ledgerSize) {
+            if (System.nanoTime() - deadline >= 0 || !running) {
+                return false;
+            }
+            LockSupport.parkNanos(100_000);
+        }
+        return true;
+    }
+
+    public Projection getProjection() {
+        return projection;
+    }
+
+    private void run() {
+        LedgerEvent[] batch = new LedgerEvent[BATCH_SIZE];
+        while (running) {
+            if (rebuildRequested) {
+                Thread.interrupted();
+                position = 0;
+                projection.reset();
+                rebuildRequested = false;
+            }
+            int count = ledger.read(position, batch);
+            if (count == 0) {
+                try {
+                    ledger.awaitAppended(position, IDLE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    // Woken for a rebuild or stop
+                }
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                apply(batch[i], position + i);
+                batch[i] = null;
+            }
+            position += count;
+        }
+    }
+
+    private void apply(LedgerEvent event, long sequence) {
+        try {
+            event.applyTo(projection);
+        } catch (RuntimeException e) {
+            // One bad event must not stall the read model behind it
+            LOG.log(System.Logger.Level.ERROR, thread.getName() + " skipped ledger event " + sequence, e);
+        }
+    }
+}
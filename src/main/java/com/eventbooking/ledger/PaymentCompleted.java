@@ -0,0 +1,70 @@
+package com.eventbooking.ledger;
+
+import com.eventbooking.model.Booking;
+import com.eventbooking.model.Payment;
+import com.eventbooking.model.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A booking's payment went through and the booking is confirmed
+ */
+public final class PaymentCompleted extends LedgerEvent {
+    private final String paymentId;
+    private final BigDecimal amount;
+    private final PaymentMethod paymentMethod;
+    private final String transactionReference;
+    private final int ticketCount;
+    
+    public PaymentCompleted(String bookingId, String userId, String eventId, LocalDateTime occurredAt,
+                            String paymentId, BigDecimal amount, PaymentMethod paymentMethod,
+                            String transactionReference, int ticketCount) {
+        super(bookingId, userId, eventId, occurredAt);
+        this.paymentId = paymentId;
+        this.amount = amount;
+        this.paymentMethod = paymentMethod;
+        this.transactionReference = transactionReference;
+        this.ticketCount = ticketCount;
+    }
+    
+    public static PaymentCompleted of(Booking booking) {
+        return of(booking, booking.getPayment());
+    }
+    
+    /**
+     * For a payment not yet set on the booking, so the event can be appended first
+     */
+    public static PaymentCompleted of(Booking booking, Payment payment) {
+        return new PaymentCompleted(booking.getBookingId(), booking.getUser().getUserId(),
+                                    booking.getEvent().getEventId(), payment.getCompletedAt(),
+                                    payment.getPaymentId(), payment.getAmount(),
+                                    payment.getPaymentMethod(), payment.getTransactionReference(),
+                                    booking.getTotalTickets());
+    }
+    
+    @Override
+    public void applyTo(Projection projection) {
+        projection.onPaymentCompleted(this);
+    }
+    
+    public String getPaymentId() {
+        return paymentId;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+    
+    public String getTransactionReference() {
+        return transactionReference;
+    }
+    
+    public int getTicketCount() {
+        return ticketCount;
+    }
+}
@@ -0,0 +1,48 @@
+package com.eventbooking.ledger;
+
+import com.eventbooking.model.Booking;
+import com.eventbooking.model.Payment;
+import com.eventbooking.model.PaymentMethod;
+
+import java.time.LocalDateTime;
+
+/**
+ * A booking's payment was declined; the booking failed and released its tickets
+ */
+public final class PaymentFailed extends LedgerEvent {
+    private final String paymentId;
+    private final PaymentMethod paymentMethod;
+    
+    public PaymentFailed(String bookingId, String userId, String eventId, LocalDateTime occurredAt,
+                         String paymentId, PaymentMethod paymentMethod) {
+        super(bookingId, userId, eventId, occurredAt);
+        this.paymentId = paymentId;
+        this.paymentMethod = paymentMethod;
+    }
+    
+    public static PaymentFailed of(Booking booking) {
+        return of(booking, booking.getPayment());
+    }
+    
+    /**
+     * For a payment not yet set on the booking, so the event can be appended first
+     */
+    public static PaymentFailed of(Booking booking, Payment payment) {
+        return new PaymentFailed(booking.getBookingId(), booking.getUser().getUserId(),
+                                 booking.getEvent().getEventId(), LocalDateTime.now(),
+                                 payment.getPaymentId(), payment.getPaymentMethod());
+    }
+    
+    @Override
+    public void applyTo(Projection projection) {
+        projection.onPaymentFailed(this);
+    }
+    
+    public String getPaymentId() {
+        return paymentId;
+    }
+    
+    public PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+}
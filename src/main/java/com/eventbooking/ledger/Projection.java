@@ -0,0 +1,29 @@
+package com.eventbooking.ledger;
+
+/**
+ * Read model maintained from the BookingLedger by a LedgerProjector
+ * Callbacks run on the projector's thread, one event at a time in ledger
+ * order; queries may run concurrently from any thread.
+ */
+public interface Projection {
+    
+    default void onTicketsReserved(TicketsReserved event) {
+    }
+    
+    default void onPaymentCompleted(PaymentCompleted event) {
+    }
+    
+    default void onPaymentFailed(PaymentFailed event) {
+    }
+    
+    default void onBookingCancelled(BookingCancelled event) {
+    }
+    
+    default void onRefunded(Refunded event) {
+    }
+    
+    /**
+     * Drop all state so the projection can be rebuilt from the start of the ledger
+     */
+    void reset();
+}
@@ -0,0 +1,48 @@
+package com.eventbooking.ledger;
+
+import com.eventbooking.model.Booking;
+import com.eventbooking.model.Payment;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A cancelled booking's payment was refunded; always follows its BookingCancelled
+ */
+public final class Refunded extends LedgerEvent {
+    private final String paymentId;
+    private final BigDecimal amount;
+    private final int ticketCount;
+    
+    public Refunded(String bookingId, String userId, String eventId, LocalDateTime occurredAt,
+                    String paymentId, BigDecimal amount, int ticketCount) {
+        super(bookingId, userId, eventId, occurredAt);
+        this.paymentId = paymentId;
+        this.amount = amount;
+        this.ticketCount = ticketCount;
+    }
+    
+    public static Refunded of(Booking booking) {
+        Payment payment = booking.getPayment();
+        return new Refunded(booking.getBookingId(), booking.getUser().getUserId(),
+                            booking.getEvent().getEventId(), LocalDateTime.now(),
+                            payment.getPaymentId(), payment.getAmount(), booking.getTotalTickets());
+    }
+    
+    @Override
+    public void applyTo(Projection projection) {
+        projection.onRefunded(this);
+    }
+    
+    public String getPaymentId() {
+        return paymentId;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public int getTicketCount() {
+        return ticketCount;
+    }
+}
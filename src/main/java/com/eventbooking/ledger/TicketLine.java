@@ -0,0 +1,57 @@
+package com.eventbooking.ledger;
+
+import com.eventbooking.model.Ticket;
+
+import java.math.BigDecimal;
+
+/**
+ * One ticket of a TicketsReserved event, flattened to plain values
+ */
+public final class TicketLine {
+    private final String ticketId;
+    private final String ticketTypeId;
+    private final String ticketTypeName;
+    private final String seatNumber;
+    private final BigDecimal price;
+    
+    public TicketLine(String ticketId, String ticketTypeId, String ticketTypeName,
+                      String seatNumber, BigDecimal price) {
+        this.ticketId = ticketId;
+        this.ticketTypeId = ticketTypeId;
+        this.ticketTypeName = ticketTypeName;
+        this.seatNumber = seatNumber;
+        this.price = price;
+    }
+    
+    static TicketLine of(Ticket ticket) {
+        return new TicketLine(ticket.getTicketId(), ticket.getTicketType().getTicketTypeId(),
+                              ticket.getTicketType().getName(), ticket.getSeatNumber(),
+                              ticket.getPricePaid());
+    }
+    
+    public String getTicketId() {
+        return ticketId;
+    }
+    
+    public String getTicketTypeId() {
+        return ticketTypeId;
+    }
+    
+    public String getTicketTypeName() {
+        return ticketTypeName;
+    }
+    
+    public String getSeatNumber() {
+        return seatNumber;
+    }
+    
+    public BigDecimal getPrice() {
+        return price;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("TicketLine{id='%s', type='%s', seat='%s', price=%s}",
+                ticketId, ticketTypeName, seatNumber, price);
+    }
+}
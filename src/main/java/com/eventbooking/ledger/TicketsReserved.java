@@ -0,0 +1,45 @@
+package com.eventbooking.ledger;
+
+import com.eventbooking.model.Booking;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A booking was created and holds its tickets pending payment
+ */
+public final class TicketsReserved extends LedgerEvent {
+    private final List<TicketLine> tickets;
+    private final BigDecimal totalAmount;
+    
+    public TicketsReserved(String bookingId, String userId, String eventId, LocalDateTime occurredAt,
+                           List<TicketLine> tickets, BigDecimal totalAmount) {
+        super(bookingId, userId, eventId, occurredAt);
+        this.tickets = Collections.unmodifiableList(new ArrayList<>(tickets));
+        this.totalAmount = totalAmount;
+    }
+    
+    public static TicketsReserved of(Booking booking) {
+        List<TicketLine> lines = new ArrayList<>(booking.getTotalTickets());
+        booking.getTickets().forEach(ticket -> lines.add(TicketLine.of(ticket)));
+        return new TicketsReserved(booking.getBookingId(), booking.getUser().getUserId(),
+                                   booking.getEvent().getEventId(), booking.getBookingDateTime(),
+                                   lines, booking.getTotalAmount());
+    }
+    
+    @Override
+    public void applyTo(Projection projection) {
+        projection.onTicketsReserved(this);
+    }
+    
+    public List<TicketLine> getTickets() {
+        return tickets;
+    }
+    
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+}
@@ -0,0 +1,83 @@
+package com.eventbooking.ledger.projection;
+
+import com.eventbooking.ledger.BookingLedger;
+import com.eventbooking.ledger.LedgerProjector;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The read side of the event-sourced booking system
+ * Runs the user history, event bookings, event manifest and revenue
+ * projections, each on its own projector thread, so they keep up with the ledger and rebuild
+ * independently of each other and of the writers.
+ */
+public class BookingProjections implements AutoCloseable {
+
+    private final BookingLedger ledger;
+    private final UserHistoryProjection userHistory = new UserHistoryProjection();
+    private final EventBookingsProjection eventBookings = new EventBookingsProjection();
+    private final EventManifestProjection eventManifests = new EventManifestProjection();
+    private final RevenueProjection revenue = new RevenueProjection();
+    private final List<LedgerProjector> projectors;
+
+    public BookingProjections(BookingLedger ledger) {
+        this.ledger = ledger;
+        this.projectors = Arrays.asList(
+                new LedgerProjector("user-history", ledger, userHistory),
+                new LedgerProjector("event-bookings", ledger, eventBookings),
+                new LedgerProjector("event-manifest", ledger, eventManifests),
+                new LedgerProjector("revenue", ledger, revenue));
+    }
+
+    public void start() {
+        projectors.forEach(LedgerProjector::start);
+    }
+
+    public UserHistoryProjection userHistory() {
+        return userHistory;
+    }
+
+    public EventBookingsProjection eventBookings() {
+        return eventBookings;
+    }
+
+    public EventManifestProjection eventManifests() {
+        return eventManifests;
+    }
+
+    public RevenueProjection revenue() {
+        return revenue;
+    }
+
+    /**
+     * Wait until every projection reflects all events appended before the call
+     * Gives a caller read-your-writes after its own appends.
+     * @return false if the timeout passed first
+     */
+    public boolean awaitCaughtUp(Duration timeout) {
+        long target = ledger.size();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (LedgerProjector projector : projectors) {
+            Duration remaining = Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+            if (!projector.awaitPosition(target, remaining)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rebuild every projection from the start of the ledger, all in parallel
+     * Returns at once; use awaitCaughtUp to wait for the rebuild to finish.
+     */
+    public void rebuild() {
+        projectors.forEach(LedgerProjector::rebuild);
+    }
+
+    @Override
+    public void close() {
+        projectors.forEach(LedgerProjector::stop);
+    }
+}
@@ -0,0 +1,68 @@
+package com.eventbooking.ledger.projection;
+
+import com.eventbooking.model.BookingStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read-optimized view of one booking in a user's history
+ */
+public final class BookingSummary {
+    private final String bookingId;
+    private final String userId;
+    private final String eventId;
+    private final LocalDateTime bookedAt;
+    private final int ticketCount;
+    private final BigDecimal totalAmount;
+    private final BookingStatus status;
+    
+    BookingSummary(String bookingId, String userId, String eventId, LocalDateTime bookedAt,
+                   int ticketCount, BigDecimal totalAmount, BookingStatus status) {
+        this.bookingId = bookingId;
+        this.userId = userId;
+        this.eventId = eventId;
+        this.bookedAt = bookedAt;
+        this.ticketCount = ticketCount;
+        this.totalAmount = totalAmount;
+        this.status = status;
+    }
+    
+    BookingSummary withStatus(BookingStatus newStatus) {
+        return new BookingSummary(bookingId, userId, eventId, bookedAt, ticketCount, totalAmount, newStatus);
+    }
+    
+    public String getBookingId() {
+        return bookingId;
+    }
+    
+    public String getUserId() {
+        return userId;
+    }
+    
+    public String getEventId() {
+        return eventId;
+    }
+    
+    public LocalDateTime getBookedAt() {
+        return bookedAt;
+    }
+    
+    public int getTicketCount() {
+        return ticketCount;
+    }
+    
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+    
+    public BookingStatus getStatus() {
+        return status;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("BookingSummary{id='%s', event='%s', tickets=%d, amount=%s, status=%s}",
+                bookingId, eventId, ticketCount, totalAmount, status);
+    }
+}
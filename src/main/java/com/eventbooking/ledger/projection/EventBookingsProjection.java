@@ -0,0 +1,41 @@
+package com.eventbooking.ledger.projection;
+
+import com.eventbooking.ledger.Projection;
+import com.eventbooking.ledger.TicketsReserved;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Each event's bookings in the order they were made, whatever their status
+ * An event's list is immutable and replaced on every new booking, as in
+ * UserHistoryProjection.
+ */
+public class EventBookingsProjection implements Projection {
+    
+    private final Map<String, List<String>> bookingIdsByEvent = new ConcurrentHashMap<>();
+    
+    @Override
+    public void onTicketsReserved(TicketsReserved event) {
+        bookingIdsByEvent.compute(event.getEventId(), (eventId, ids) -> {
+            List<String> next = ids == null ? new ArrayList<>(1) : new ArrayList<>(ids);
+            next.add(event.getBookingId());
+            return Collections.unmodifiableList(next);
+        });
+    }
+    
+    @Override
+    public void reset() {
+        bookingIdsByEvent.clear();
+    }
+    
+    /**
+     * IDs of an event's bookings, oldest first
+     */
+    public List<String> getBookingIds(String eventId) {
+        return bookingIdsByEvent.getOrDefault(eventId, Collections.emptyList());
+    }
+}
@@ -0,0 +1,97 @@
+package com.eventbooking.ledger.projection;
+
+import com.eventbooking.ledger.BookingCancelled;
+import com.eventbooking.ledger.PaymentCompleted;
+import com.eventbooking.ledger.PaymentFailed;
+import com.eventbooking.ledger.Projection;
+import com.eventbooking.ledger.TicketLine;
+import com.eventbooking.ledger.TicketsReserved;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tickets held per event: reserved and paid ones, minus anything failed or cancelled
+ */
+public class EventManifestProjection implements Projection {
+    
+    private static final Comparator<ManifestEntry> BY_SEAT = Comparator
+            .comparing((ManifestEntry entry) -> entry.getTicket().getTicketTypeName())
+            .thenComparing(entry -> entry.getTicket().getSeatNumber());
+    
+    // Event ID -> booking ID -> that booking's tickets
+    private final Map<String, Map<String, List<ManifestEntry>>> manifests = new ConcurrentHashMap<>();
+    
+    @Override
+    public void onTicketsReserved(TicketsReserved event) {
+        List<ManifestEntry> entries = new ArrayList<>(event.getTickets().size());
+        for (TicketLine ticket : event.getTickets()) {
+            entries.add(new ManifestEntry(event.getBookingId(), event.getUserId(), ticket, false));
+        }
+        manifests.computeIfAbsent(event.getEventId(), id -> new ConcurrentHashMap<>())
+                 .put(event.getBookingId(), Collections.unmodifiableList(entries));
+    }
+    
+    @Override
+    public void onPaymentCompleted(PaymentCompleted event) {
+        Map<String, List<ManifestEntry>> manifest = manifests.get(event.getEventId());
+        if (manifest != null) {
+            manifest.computeIfPresent(event.getBookingId(), (id, entries) -> {
+                List<ManifestEntry> paid = new ArrayList<>(entries.size());
+                entries.forEach(entry -> paid.add(entry.markPaid()));
+                return Collections.unmodifiableList(paid);
+            });
+        }
+    }
+    
+    @Override
+    public void onPaymentFailed(PaymentFailed event) {
+        remove(event.getEventId(), event.getBookingId());
+    }
+    
+    @Override
+    public void onBookingCancelled(BookingCancelled event) {
+        remove(event.getEventId(), event.getBookingId());
+    }
+    
+    @Override
+    public void reset() {
+        manifests.clear();
+    }
+    
+    /**
+     * Every ticket held for an event, ordered by ticket type and seat
+     */
+    public List<ManifestEntry> getManifest(String eventId) {
+        Map<String, List<ManifestEntry>> manifest = manifests.get(eventId);
+        if (manifest == null) {
+            return new ArrayList<>();
+        }
+        List<ManifestEntry> entries = new ArrayList<>();
+        manifest.values().forEach(entries::addAll);
+        entries.sort(BY_SEAT);
+        return entries;
+    }
+    
+    /**
+     * Number of tickets held for an event, without building the manifest
+     */
+    public int getHeldTicketCount(String eventId) {
+        Map<String, List<ManifestEntry>> manifest = manifests.get(eventId);
+        if (manifest == null) {
+            return 0;
+        }
+        return manifest.values().stream().mapToInt(List::size).sum();
+    }
+    
+    private void remove(String eventId, String bookingId) {
+        Map<String, List<ManifestEntry>> manifest = manifests.get(eventId);
+        if (manifest != null) {
+            manifest.remove(bookingId);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.eventbooking.ledger.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Sales and refunds of one event, or of all events together
+ */
+public final class EventRevenue {
+    private final String eventId;
+    private final int ticketsSold;
+    private final int ticketsRefunded;
+    private final BigDecimal grossSales;
+    private final BigDecimal refunds;
+    
+    EventRevenue(String eventId, int ticketsSold, int ticketsRefunded,
+                 BigDecimal grossSales, BigDecimal refunds) {
+        this.eventId = eventId;
+        this.ticketsSold = ticketsSold;
+        this.ticketsRefunded = ticketsRefunded;
+        this.grossSales = grossSales;
+        this.refunds = refunds;
+    }
+    
+    static EventRevenue empty(String eventId) {
+        return new EventRevenue(eventId, 0, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+    
+    EventRevenue plusSale(int tickets, BigDecimal amount) {
+        return new EventRevenue(eventId, ticketsSold + tickets, ticketsRefunded,
+                                grossSales.add(amount), refunds);
+    }
+    
+    EventRevenue plusRefund(int tickets, BigDecimal amount) {
+        return new EventRevenue(eventId, ticketsSold, ticketsRefunded + tickets,
+                                grossSales, refunds.add(amount));
+    }
+    
+    EventRevenue plus(EventRevenue other) {
+        return new EventRevenue(eventId, ticketsSold + other.ticketsSold,
+                                ticketsRefunded + other.ticketsRefunded,
+                                grossSales.add(other.grossSales), refunds.add(other.refunds));
+    }
+    
+    /**
+     * Event the figures belong to; null for a total across events
+     */
+    public String getEventId() {
+        return eventId;
+    }
+    
+    public int getTicketsSold() {
+        return ticketsSold;
+    }
+    
+    public int getTicketsRefunded() {
+        return ticketsRefunded;
+    }
+    
+    public BigDecimal getGrossSales() {
+        return grossSales;
+    }
+    
+    public BigDecimal getRefunds() {
+        return refunds;
+    }
+    
+    public BigDecimal getNetRevenue() {
+        return grossSales.subtract(refunds);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("EventRevenue{event='%s', sold=%d, refunded=%d, gross=%s, net=%s}",
+                eventId, ticketsSold, ticketsRefunded, grossSales, getNetRevenue());
+    }
+}
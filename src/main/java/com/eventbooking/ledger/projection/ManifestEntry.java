@@ -0,0 +1,49 @@
+package com.eventbooking.ledger.projection;
+
+import com.eventbooking.ledger.TicketLine;
+
+/**
+ * One ticket currently held for an event, as listed on the event manifest
+ */
+public final class ManifestEntry {
+    private final String bookingId;
+    private final String userId;
+    private final TicketLine ticket;
+    private final boolean paid;
+    
+    ManifestEntry(String bookingId, String userId, TicketLine ticket, boolean paid) {
+        this.bookingId = bookingId;
+        this.userId = userId;
+        this.ticket = ticket;
+        this.paid = paid;
+    }
+    
+    ManifestEntry markPaid() {
+        return new ManifestEntry(bookingId, userId, ticket, true);
+    }
+    
+    public String getBookingId() {
+        return bookingId;
+    }
+    
+    public String getUserId() {
+        return userId;
+    }
+    
+    public TicketLine getTicket() {
+        return ticket;
+    }
+    
+    /**
+     * False while the booking is still awaiting payment
+     */
+    public boolean isPaid() {
+        return paid;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ManifestEntry{booking='%s', seat='%s', type='%s', paid=%s}",
+                bookingId, ticket.getSeatNumber(), ticket.getTicketTypeName(), paid);
+    }
+}
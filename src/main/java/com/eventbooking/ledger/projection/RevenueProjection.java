@@ -0,0 +1,50 @@
+package com.eventbooking.ledger.projection;
+
+import com.eventbooking.ledger.PaymentCompleted;
+import com.eventbooking.ledger.Projection;
+import com.eventbooking.ledger.Refunded;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revenue per event from completed payments and refunds
+ */
+public class RevenueProjection implements Projection {
+    
+    private final Map<String, EventRevenue> revenueByEvent = new ConcurrentHashMap<>();
+    
+    @Override
+    public void onPaymentCompleted(PaymentCompleted event) {
+        revenueByEvent.merge(event.getEventId(),
+                EventRevenue.empty(event.getEventId()).plusSale(event.getTicketCount(), event.getAmount()),
+                EventRevenue::plus);
+    }
+    
+    @Override
+    public void onRefunded(Refunded event) {
+        revenueByEvent.merge(event.getEventId(),
+                EventRevenue.empty(event.getEventId()).plusRefund(event.getTicketCount(), event.getAmount()),
+                EventRevenue::plus);
+    }
+    
+    @Override
+    public void reset() {
+        revenueByEvent.clear();
+    }
+    
+    public EventRevenue getEventRevenue(String eventId) {
+        return revenueByEvent.getOrDefault(eventId, EventRevenue.empty(eventId));
+    }
+    
+    /**
+     * Figures summed over every event
+     */
+    public EventRevenue getTotalRevenue() {
+        EventRevenue total = EventRevenue.empty(null);
+        for (EventRevenue revenue : revenueByEvent.values()) {
+            total = total.plus(revenue);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,96 @@
+package com.eventbooking.ledger.projection;
+
+import com.eventbooking.ledger.BookingCancelled;
+import com.eventbooking.ledger.PaymentCompleted;
+import com.eventbooking.ledger.PaymentFailed;
+import com.eventbooking.ledger.Projection;
+import com.eventbooking.ledger.Refunded;
+import com.eventbooking.ledger.TicketsReserved;
+import com.eventbooking.model.BookingStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Each user's bookings in the order they were made
+ * A user's history is an immutable list of booking IDs replaced on every
+ * new booking, so readers never see it half-updated.
+ */
+public class UserHistoryProjection implements Projection {
+    
+    private final Map<String, BookingSummary> bookings = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> bookingIdsByUser = new ConcurrentHashMap<>();
+    
+    @Override
+    public void onTicketsReserved(TicketsReserved event) {
+        bookings.put(event.getBookingId(), new BookingSummary(
+                event.getBookingId(), event.getUserId(), event.getEventId(), event.getOccurredAt(),
+                event.getTickets().size(), event.getTotalAmount(), BookingStatus.PENDING));
+        bookingIdsByUser.compute(event.getUserId(), (userId, ids) -> {
+            List<String> next = ids == null ? new ArrayList<>(1) : new ArrayList<>(ids);
+            next.add(event.getBookingId());
+            return Collections.unmodifiableList(next);
+        });
+    }
+    
+    @Override
+    public void onPaymentCompleted(PaymentCompleted event) {
+        changeStatus(event.getBookingId(), BookingStatus.CONFIRMED);
+    }
+    
+    @Override
+    public void onPaymentFailed(PaymentFailed event) {
+        changeStatus(event.getBookingId(), BookingStatus.FAILED);
+    }
+    
+    @Override
+    public void onBookingCancelled(BookingCancelled event) {
+        changeStatus(event.getBookingId(), BookingStatus.CANCELLED);
+    }
+    
+    @Override
+    public void onRefunded(Refunded event) {
+        changeStatus(event.getBookingId(), BookingStatus.REFUNDED);
+    }
+    
+    @Override
+    public void reset() {
+        bookingIdsByUser.clear();
+        bookings.clear();
+    }
+    
+    /**
+     * A user's bookings, oldest first
+     */
+    public List<BookingSummary> getHistory(String userId) {
+        List<String> ids = bookingIdsByUser.getOrDefault(userId, Collections.emptyList());
+        List<BookingSummary> history = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            BookingSummary summary = bookings.get(id);
+            if (summary != null) {
+                history.add(summary);
+            }
+        }
+        return history;
+    }
+    
+    /**
+     * A user's bookings currently in the given status, oldest first
+     */
+    public List<BookingSummary> getHistory(String userId, BookingStatus status) {
+        List<BookingSummary> history = getHistory(userId);
+        history.removeIf(summary -> summary.getStatus() != status);
+        return history;
+    }
+    
+    public BookingSummary getBooking(String bookingId) {
+        return bookings.get(bookingId);
+    }
+    
+    private void changeStatus(String bookingId, BookingStatus status) {
+        bookings.computeIfPresent(bookingId, (id, summary) -> summary.withStatus(status));
+    }
+}
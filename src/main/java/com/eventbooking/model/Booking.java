@@ -1,37 +1,53 @@
 package com.eventbooking.model;
 
+import com.eventbooking.ticketstore.CompactTicketList;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents a booking made by a user
  * Aggregates multiple tickets in a single transaction
  */
-public class Booking {
+public class Booking implements Versioned {
     private final String bookingId;
     private final User user;
     private final Event event;
     private final List<Ticket> tickets;
-    private BookingStatus status;
+    private volatile BookingStatus status;
     private final LocalDateTime bookingDateTime;
     private BigDecimal totalAmount;
     private Payment payment;
+    private final CopyOnWriteArrayList<BookingStatusListener> statusListeners;
+    private volatile long version;
     
     public Booking(User user, Event event) {
-        this.bookingId = generateBookingReference();
+        this(generateBookingReference(), user, event, BookingStatus.PENDING, LocalDateTime.now(), 0);
+    }
+    
+    /**
+     * Rebuild a stored booking, e.g. when replaying the journal
+     * Tickets and payment are added afterwards through addTicket and setPayment
+     */
+    public Booking(String bookingId, User user, Event event, BookingStatus status,
+                   LocalDateTime bookingDateTime, long version) {
+        this.bookingId = bookingId;
         this.user = user;
         this.event = event;
-        this.tickets = new ArrayList<>();
-        this.status = BookingStatus.PENDING;
-        this.bookingDateTime = LocalDateTime.now();
+        this.tickets = new CompactTicketList();
+        this.status = status;
+        this.bookingDateTime = bookingDateTime;
         this.totalAmount = BigDecimal.ZERO;
+        this.statusListeners = new CopyOnWriteArrayList<>();
+        this.version = version;
     }
     
-    private String generateBookingReference() {
+    private static String generateBookingReference() {
         return "BKG-" + LocalDateTime.now().getYear() + "-" + 
                UUID.randomUUID().toString().substring(0, 8).toUpperCase();
     }
@@ -43,15 +59,36 @@ public class Booking {
     
     public void confirm() {
         if (payment != null && payment.getStatus() == PaymentStatus.COMPLETED) {
-            this.status = BookingStatus.CONFIRMED;
+            changeStatus(BookingStatus.CONFIRMED);
         }
     }
     
     public void cancel() {
-        this.status = BookingStatus.CANCELLED;
+        changeStatus(BookingStatus.CANCELLED);
         tickets.forEach(Ticket::cancel);
     }
     
+    /**
+     * Register an observer of status changes; registering twice has no effect
+     */
+    public void addStatusListener(BookingStatusListener listener) {
+        statusListeners.addIfAbsent(listener);
+    }
+    
+    public void removeStatusListener(BookingStatusListener listener) {
+        statusListeners.remove(listener);
+    }
+    
+    private synchronized void changeStatus(BookingStatus newStatus) {
+        BookingStatus oldStatus = this.status;
+        this.status = newStatus;
+        if (oldStatus != newStatus) {
+            for (BookingStatusListener listener : statusListeners) {
+                listener.onStatusChanged(this, oldStatus, newStatus);
+            }
+        }
+    }
+    
     public int getTotalTickets() {
         return tickets.size();
     }
@@ -83,7 +120,7 @@ public class Booking {
     }
     
     public void setStatus(BookingStatus status) {
-        this.status = status;
+        changeStatus(status);
     }
     
     public LocalDateTime getBookingDateTime() {
@@ -102,6 +139,16 @@ public class Booking {
         this.payment = payment;
     }
     
+    @Override
+    public long getVersion() {
+        return version;
+    }
+    
+    @Override
+    public synchronized void incrementVersion() {
+        version++;
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,11 @@
+package com.eventbooking.model;
+
+/**
+ * Observer notified whenever a booking changes status
+ * Called while the booking's monitor is held, so implementations must be quick
+ */
+@FunctionalInterface
+public interface BookingStatusListener {
+    
+    void onStatusChanged(Booking booking, BookingStatus oldStatus, BookingStatus newStatus);
+}
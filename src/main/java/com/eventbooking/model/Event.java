@@ -1,41 +1,136 @@
 package com.eventbooking.model;
 
+import com.eventbooking.ticketstore.ColumnarTicketStore;
+
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents an Event in the booking system
  * Encapsulates all event-related information
  */
-public class Event {
+public class Event implements Versioned {
     private final String eventId;
-    private String name;
-    private String description;
-    private LocalDateTime eventDateTime;
-    private Venue venue;
-    private EventCategory category;
-    private EventStatus status;
+    private volatile String name;
+    private volatile String description;
+    private volatile LocalDateTime eventDateTime;
+    private volatile Venue venue;
+    private volatile EventCategory category;
+    private volatile EventStatus status;
     private final List<TicketType> ticketTypes;
-    private int totalCapacity;
+    private volatile boolean singleWriter;
+    private volatile int totalCapacity;
+    // Maintained on every reserve and release so availability is a single read
+    private final AtomicInteger availableCapacity;
+    // Bookings beyond capacity after a shrink; releases pay it off before restocking
+    private final AtomicInteger capacityDeficit = new AtomicInteger();
+    private final CopyOnWriteArrayList<EventChangeListener> changeListeners;
+    // Created with the first ticket of a large event
+    private volatile ColumnarTicketStore ticketStore;
+    private volatile long version;
     
     public Event(String name, String description, LocalDateTime eventDateTime, 
                  Venue venue, EventCategory category, int totalCapacity) {
-        this.eventId = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), name, description, eventDateTime, venue, category,
+             EventStatus.UPCOMING, totalCapacity, 0);
+    }
+    
+    /**
+     * Rebuild a stored event, e.g. when replaying the journal
+     * Starts with full availability; sold tickets are reserved again from their bookings
+     */
+    public Event(String eventId, String name, String description, LocalDateTime eventDateTime,
+                 Venue venue, EventCategory category, EventStatus status, int totalCapacity, long version) {
+        this.eventId = eventId;
         this.name = name;
         this.description = description;
         this.eventDateTime = eventDateTime;
         this.venue = venue;
         this.category = category;
-        this.status = EventStatus.UPCOMING;
-        this.ticketTypes = new ArrayList<>();
+        this.status = status;
+        this.ticketTypes = new CopyOnWriteArrayList<>();
         this.totalCapacity = totalCapacity;
+        this.availableCapacity = new AtomicInteger(totalCapacity);
+        this.changeListeners = new CopyOnWriteArrayList<>();
+        this.version = version;
     }
     
     public void addTicketType(TicketType ticketType) {
         this.ticketTypes.add(ticketType);
+        // Read after adding, so either this or ownInventory() collapses it
+        if (singleWriter) {
+            ticketType.collapseInventoryStripes();
+        }
+    }
+    
+    /**
+     * Hand the inventory to an owner that applies every booking command on one thread
+     * Tiers, including ones added later, keep their tickets in one pool,
+     * so the owner's reservations never fall back to a lock. Calling it
+     * again does nothing.
+     */
+    public void ownInventory() {
+        if (singleWriter) {
+            return;
+        }
+        singleWriter = true;
+        for (TicketType ticketType : ticketTypes) {
+            ticketType.collapseInventoryStripes();
+        }
+    }
+    
+    public Optional<TicketType> findTicketType(String ticketTypeId) {
+        for (TicketType ticketType : ticketTypes) {
+            if (ticketType.getTicketTypeId().equals(ticketTypeId)) {
+                return Optional.of(ticketType);
+            }
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * Issue a new ticket for this event
+     * Events of CAPACITY_THRESHOLD seats or more keep their tickets off-heap
+     */
+    public Ticket issueTicket(TicketType ticketType, String seatNumber, BigDecimal pricePaid) {
+        ColumnarTicketStore store = ticketStore();
+        Ticket ticket = store != null ? store.issue(ticketType, seatNumber, pricePaid) : null;
+        return ticket != null ? ticket : new Ticket(this, ticketType, seatNumber, pricePaid);
+    }
+    
+    /**
+     * Rebuild a stored ticket of this event, e.g. when replaying the journal
+     */
+    public Ticket restoreTicket(String ticketId, TicketType ticketType, String seatNumber,
+                                TicketStatus status, LocalDateTime issuedAt, BigDecimal pricePaid) {
+        ColumnarTicketStore store = ticketStore();
+        Ticket ticket = store != null
+                ? store.add(ticketId, ticketType, seatNumber, status, issuedAt, pricePaid) : null;
+        return ticket != null ? ticket
+                : new Ticket(ticketId, this, ticketType, seatNumber, status, issuedAt, pricePaid);
+    }
+    
+    private ColumnarTicketStore ticketStore() {
+        ColumnarTicketStore store = ticketStore;
+        if (store == null && totalCapacity >= ColumnarTicketStore.CAPACITY_THRESHOLD) {
+            synchronized (this) {
+                store = ticketStore;
+                if (store == null) {
+                    store = new ColumnarTicketStore(this);
+                    ticketStore = store;
+                }
+            }
+        }
+        return store;
     }
     
     public boolean isBookable() {
@@ -43,11 +138,64 @@ public class Event {
                LocalDateTime.now().isBefore(eventDateTime);
     }
     
+    /**
+     * Claim event-wide capacity with a CAS against totalCapacity
+     * @return false if the event cannot seat that many more attendees
+     */
+    public boolean reserveCapacity(int quantity) {
+        while (true) {
+            int current = availableCapacity.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (availableCapacity.compareAndSet(current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Return claimed capacity; after a shrink it first covers the bookings
+     * the smaller capacity no longer has room for
+     */
+    public void releaseCapacity(int quantity) {
+        int restocked = quantity - payCapacityDeficit(quantity);
+        if (restocked > 0) {
+            availableCapacity.getAndUpdate(current -> Math.min(totalCapacity, current + restocked));
+        }
+    }
+    
+    /**
+     * Seats left across all ticket types; a single read of the maintained counter
+     */
     public int getAvailableCapacity() {
-        int bookedTickets = ticketTypes.stream()
-            .mapToInt(TicketType::getBookedCount)
-            .sum();
-        return totalCapacity - bookedTickets;
+        return availableCapacity.get();
+    }
+    
+    public int getBookedCapacity() {
+        return totalCapacity - availableCapacity.get() + capacityDeficit.get();
+    }
+    
+    /**
+     * Snapshot of event-wide and per-tier availability for browse pages
+     */
+    public EventAvailability getAvailability() {
+        Map<String, Integer> byTicketType = new LinkedHashMap<>();
+        for (TicketType ticketType : ticketTypes) {
+            byTicketType.put(ticketType.getTicketTypeId(), ticketType.getAvailableQuantity());
+        }
+        return new EventAvailability(eventId, totalCapacity, availableCapacity.get(), byTicketType);
+    }
+    
+    /**
+     * Register an observer of indexed property changes; registering twice has no effect
+     */
+    public void addChangeListener(EventChangeListener listener) {
+        changeListeners.addIfAbsent(listener);
+    }
+    
+    public void removeChangeListener(EventChangeListener listener) {
+        changeListeners.remove(listener);
     }
     
     // Getters and Setters
@@ -59,48 +207,84 @@ public class Event {
         return name;
     }
     
-    public void setName(String name) {
+    public synchronized void setName(String name) {
+        String oldName = this.name;
         this.name = name;
+        if (!Objects.equals(oldName, name)) {
+            for (EventChangeListener listener : changeListeners) {
+                listener.onNameChanged(this, oldName, name);
+            }
+        }
     }
     
     public String getDescription() {
         return description;
     }
     
-    public void setDescription(String description) {
+    public synchronized void setDescription(String description) {
+        String oldDescription = this.description;
         this.description = description;
+        if (!Objects.equals(oldDescription, description)) {
+            for (EventChangeListener listener : changeListeners) {
+                listener.onDescriptionChanged(this, oldDescription, description);
+            }
+        }
     }
     
     public LocalDateTime getEventDateTime() {
         return eventDateTime;
     }
     
-    public void setEventDateTime(LocalDateTime eventDateTime) {
+    public synchronized void setEventDateTime(LocalDateTime eventDateTime) {
+        LocalDateTime oldDateTime = this.eventDateTime;
         this.eventDateTime = eventDateTime;
+        if (!Objects.equals(oldDateTime, eventDateTime)) {
+            for (EventChangeListener listener : changeListeners) {
+                listener.onDateTimeChanged(this, oldDateTime, eventDateTime);
+            }
+        }
     }
     
     public Venue getVenue() {
         return venue;
     }
     
-    public void setVenue(Venue venue) {
+    public synchronized void setVenue(Venue venue) {
+        Venue oldVenue = this.venue;
         this.venue = venue;
+        if (oldVenue != venue) {
+            for (EventChangeListener listener : changeListeners) {
+                listener.onVenueChanged(this, oldVenue, venue);
+            }
+        }
     }
     
     public EventCategory getCategory() {
         return category;
     }
     
-    public void setCategory(EventCategory category) {
+    public synchronized void setCategory(EventCategory category) {
+        EventCategory oldCategory = this.category;
         this.category = category;
+        if (oldCategory != category) {
+            for (EventChangeListener listener : changeListeners) {
+                listener.onCategoryChanged(this, oldCategory, category);
+            }
+        }
     }
     
     public EventStatus getStatus() {
         return status;
     }
     
-    public void setStatus(EventStatus status) {
+    public synchronized void setStatus(EventStatus status) {
+        EventStatus oldStatus = this.status;
         this.status = status;
+        if (oldStatus != status) {
+            for (EventChangeListener listener : changeListeners) {
+                listener.onStatusChanged(this, oldStatus, status);
+            }
+        }
     }
     
     public List<TicketType> getTicketTypes() {
@@ -111,8 +295,57 @@ public class Event {
         return totalCapacity;
     }
     
-    public void setTotalCapacity(int totalCapacity) {
+    /**
+     * Change capacity, keeping the seats already booked
+     * If bookings exceed the new capacity, availability drops to zero and
+     * the excess is absorbed by later releases, as in TicketInventory.
+     */
+    public synchronized void setTotalCapacity(int totalCapacity) {
+        int delta = totalCapacity - this.totalCapacity;
         this.totalCapacity = totalCapacity;
+        if (delta > 0) {
+            int restocked = delta - payCapacityDeficit(delta);
+            availableCapacity.addAndGet(restocked);
+            return;
+        }
+        int needed = -delta;
+        while (needed > 0) {
+            int current = availableCapacity.get();
+            int drained = Math.min(needed, current);
+            if (availableCapacity.compareAndSet(current, current - drained)) {
+                needed -= drained;
+                break;
+            }
+        }
+        if (needed > 0) {
+            capacityDeficit.addAndGet(needed);
+        }
+    }
+    
+    /**
+     * @return How much of the amount went to paying off the capacity deficit
+     */
+    private int payCapacityDeficit(int amount) {
+        while (true) {
+            int owed = capacityDeficit.get();
+            if (owed == 0) {
+                return 0;
+            }
+            int paid = Math.min(owed, amount);
+            if (capacityDeficit.compareAndSet(owed, owed - paid)) {
+                return paid;
+            }
+        }
+    }
+    
+    @Override
+    public long getVersion() {
+        return version;
+    }
+    
+    @Override
+    public synchronized void incrementVersion() {
+        version++;
     }
     
     @Override
@@ -0,0 +1,59 @@
+package com.eventbooking.model;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable availability snapshot for an event
+ * Holds the event-wide count plus the count left per ticket type
+ */
+public class EventAvailability {
+    private final String eventId;
+    private final int totalCapacity;
+    private final int availableCapacity;
+    private final Map<String, Integer> availableByTicketType;
+
+    public EventAvailability(String eventId, int totalCapacity, int availableCapacity,
+                             Map<String, Integer> availableByTicketType) {
+        this.eventId = eventId;
+        this.totalCapacity = totalCapacity;
+        this.availableCapacity = availableCapacity;
+        this.availableByTicketType = Collections.unmodifiableMap(availableByTicketType);
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public int getTotalCapacity() {
+        return totalCapacity;
+    }
+
+    public int getAvailableCapacity() {
+        return availableCapacity;
+    }
+
+    /**
+     * Tickets left for one ticket type, or 0 if the event has no such type
+     */
+    public int getAvailable(String ticketTypeId) {
+        return availableByTicketType.getOrDefault(ticketTypeId, 0);
+    }
+
+    /**
+     * Map of TicketType ID to tickets left
+     */
+    public Map<String, Integer> getAvailableByTicketType() {
+        return availableByTicketType;
+    }
+
+    public boolean isSoldOut() {
+        return availableCapacity <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EventAvailability{eventId='%s', available=%d/%d, byTicketType=%s}",
+                eventId, availableCapacity, totalCapacity, availableByTicketType);
+    }
+}
@@ -0,0 +1,28 @@
+package com.eventbooking.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Observer notified when indexed properties of an event change
+ * Called while the event's monitor is held, so implementations must be quick
+ */
+public interface EventChangeListener {
+    
+    default void onNameChanged(Event event, String oldName, String newName) {
+    }
+    
+    default void onDescriptionChanged(Event event, String oldDescription, String newDescription) {
+    }
+    
+    default void onDateTimeChanged(Event event, LocalDateTime oldDateTime, LocalDateTime newDateTime) {
+    }
+    
+    default void onCategoryChanged(Event event, EventCategory oldCategory, EventCategory newCategory) {
+    }
+    
+    default void onVenueChanged(Event event, Venue oldVenue, Venue newVenue) {
+    }
+    
+    default void onStatusChanged(Event event, EventStatus oldStatus, EventStatus newStatus) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.eventbooking.model;
+
+import java.util.Objects;
+
+/**
+ * Value Object representing a latitude/longitude position in degrees
+ * Immutable by design
+ */
+public class GeoPoint {
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    // Farthest any two points can be apart
+    public static final double HALF_CIRCUMFERENCE_KM = Math.PI * EARTH_RADIUS_KM;
+    
+    private final double latitude;
+    private final double longitude;
+    
+    public GeoPoint(double latitude, double longitude) {
+        if (latitude < -90 || latitude > 90) {
+            throw new IllegalArgumentException("Latitude must be between -90 and 90");
+        }
+        if (longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Longitude must be between -180 and 180");
+        }
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+    
+    /**
+     * Great-circle distance using the haversine formula
+     */
+    public double distanceKm(GeoPoint other) {
+        double dLat = Math.toRadians(other.latitude - latitude);
+        double dLon = Math.toRadians(other.longitude - longitude);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(other.latitude))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+    
+    /**
+     * Bring a longitude up to one turn past the antimeridian back into [-180, 180]
+     */
+    public static double wrapLongitude(double longitude) {
+        if (longitude < -180) {
+            return longitude + 360;
+        }
+        if (longitude > 180) {
+            return longitude - 360;
+        }
+        return longitude;
+    }
+    
+    public double getLatitude() {
+        return latitude;
+    }
+    
+    public double getLongitude() {
+        return longitude;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GeoPoint geoPoint = (GeoPoint) o;
+        return Double.compare(geoPoint.latitude, latitude) == 0 &&
+               Double.compare(geoPoint.longitude, longitude) == 0;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(latitude, longitude);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("(%.6f, %.6f)", latitude, longitude);
+    }
+}
@@ -19,12 +19,24 @@ public class Payment {
     private String transactionReference;
     
     public Payment(Booking booking, BigDecimal amount, PaymentMethod paymentMethod) {
-        this.paymentId = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), booking, amount, paymentMethod, PaymentStatus.PENDING,
+             LocalDateTime.now(), null, null);
+    }
+    
+    /**
+     * Rebuild a stored payment, e.g. when replaying the journal
+     */
+    public Payment(String paymentId, Booking booking, BigDecimal amount, PaymentMethod paymentMethod,
+                   PaymentStatus status, LocalDateTime createdAt, LocalDateTime completedAt,
+                   String transactionReference) {
+        this.paymentId = paymentId;
         this.booking = booking;
         this.amount = amount;
         this.paymentMethod = paymentMethod;
-        this.status = PaymentStatus.PENDING;
-        this.createdAt = LocalDateTime.now();
+        this.status = status;
+        this.createdAt = createdAt;
+        this.completedAt = completedAt;
+        this.transactionReference = transactionReference;
     }
     
     public void complete(String transactionReference) {
@@ -18,16 +18,25 @@ public class Ticket {
     private BigDecimal pricePaid;
     
     public Ticket(Event event, TicketType ticketType, String seatNumber, BigDecimal pricePaid) {
-        this.ticketId = generateTicketNumber();
+        this(generateTicketNumber(), event, ticketType, seatNumber, TicketStatus.ACTIVE,
+             LocalDateTime.now(), pricePaid);
+    }
+    
+    /**
+     * Rebuild a stored ticket, e.g. when replaying the journal
+     */
+    public Ticket(String ticketId, Event event, TicketType ticketType, String seatNumber,
+                  TicketStatus status, LocalDateTime issuedAt, BigDecimal pricePaid) {
+        this.ticketId = ticketId;
         this.event = event;
         this.ticketType = ticketType;
         this.seatNumber = seatNumber;
-        this.status = TicketStatus.ACTIVE;
-        this.issuedAt = LocalDateTime.now();
+        this.status = status;
+        this.issuedAt = issuedAt;
         this.pricePaid = pricePaid;
     }
     
-    private String generateTicketNumber() {
+    private static String generateTicketNumber() {
         return "TKT-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
     }
     
@@ -1,8 +1,13 @@
 package com.eventbooking.model;
 
+import com.eventbooking.inventory.SeatMap;
+import com.eventbooking.inventory.TicketInventory;
+import com.eventbooking.inventory.Waitlist;
+
 import java.math.BigDecimal;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a type/tier of ticket for an event (e.g., VIP, General, Early Bird)
@@ -12,39 +17,75 @@ public class TicketType {
     private String name;
     private String description;
     private BigDecimal price;
-    private int totalQuantity;
-    private int bookedCount;
+    private final TicketInventory inventory;
     private TicketTier tier;
+    private volatile SeatMap seatMap;
+    private final AtomicInteger admissionSequence;
+    private final Waitlist waitlist;
     
     public TicketType(String name, String description, BigDecimal price, 
                       int totalQuantity, TicketTier tier) {
-        this.ticketTypeId = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), name, description, price, totalQuantity, tier);
+    }
+    
+    /**
+     * Rebuild a stored ticket type with nothing sold, e.g. when replaying the journal
+     */
+    public TicketType(String ticketTypeId, String name, String description, BigDecimal price,
+                      int totalQuantity, TicketTier tier) {
+        this.ticketTypeId = ticketTypeId;
         this.name = name;
         this.description = description;
         this.price = price;
-        this.totalQuantity = totalQuantity;
-        this.bookedCount = 0;
+        this.inventory = new TicketInventory(totalQuantity);
         this.tier = tier;
+        this.admissionSequence = new AtomicInteger();
+        this.waitlist = new Waitlist();
     }
     
     public boolean isAvailable() {
-        return bookedCount < totalQuantity;
+        return inventory.getAvailable() > 0;
     }
     
     public int getAvailableQuantity() {
-        return totalQuantity - bookedCount;
+        return inventory.getAvailable();
     }
     
-    public synchronized boolean reserveTickets(int quantity) {
-        if (getAvailableQuantity() >= quantity) {
-            bookedCount += quantity;
-            return true;
-        }
-        return false;
+    /**
+     * Reserve tickets using a lock-free CAS on the inventory counter
+     * Event-wide capacity is not touched; book through TierReservation to keep both in step
+     */
+    public boolean reserveTickets(int quantity) {
+        return inventory.reserve(quantity);
+    }
+    
+    public void releaseTickets(int quantity) {
+        inventory.release(quantity);
+    }
+    
+    /**
+     * Keep the inventory in one pool from now on, for a single writer thread
+     */
+    public void collapseInventoryStripes() {
+        inventory.collapseStripes();
+    }
+    
+    /**
+     * Unique admission number for ticket types without assigned seating
+     */
+    public int nextAdmissionNumber() {
+        return admissionSequence.incrementAndGet();
+    }
+    
+    /**
+     * Make sure admission numbers issued from now on come after one already issued
+     */
+    public void advanceAdmissionNumber(int issued) {
+        admissionSequence.accumulateAndGet(issued, Math::max);
     }
     
-    public synchronized void releaseTickets(int quantity) {
-        bookedCount = Math.max(0, bookedCount - quantity);
+    public boolean hasAssignedSeating() {
+        return seatMap != null;
     }
     
     // Getters and Setters
@@ -77,15 +118,19 @@ public class TicketType {
     }
     
     public int getTotalQuantity() {
-        return totalQuantity;
+        return inventory.getCapacity();
     }
     
     public void setTotalQuantity(int totalQuantity) {
-        this.totalQuantity = totalQuantity;
+        SeatMap seats = seatMap;
+        if (seats != null && seats.getTotalSeats() != totalQuantity) {
+            throw new IllegalStateException("Assigned seating holds " + seats.getTotalSeats() + " seats");
+        }
+        inventory.resize(totalQuantity);
     }
     
     public int getBookedCount() {
-        return bookedCount;
+        return inventory.getBooked();
     }
     
     public TicketTier getTier() {
@@ -96,6 +141,18 @@ public class TicketType {
         this.tier = tier;
     }
     
+    public Waitlist getWaitlist() {
+        return waitlist;
+    }
+    
+    public SeatMap getSeatMap() {
+        return seatMap;
+    }
+    
+    public void setSeatMap(SeatMap seatMap) {
+        this.seatMap = seatMap;
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -112,6 +169,6 @@ public class TicketType {
     @Override
     public String toString() {
         return String.format("TicketType{name='%s', price=%s, available=%d/%d, tier=%s}",
-                name, price, getAvailableQuantity(), totalQuantity, tier);
+                name, price, getAvailableQuantity(), getTotalQuantity(), tier);
     }
 }
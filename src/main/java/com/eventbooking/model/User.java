@@ -9,7 +9,7 @@ import java.util.UUID;
 /**
  * Represents a User in the booking system
  */
-public class User {
+public class User implements Versioned {
     private final String userId;
     private String email;
     private String password; // In production, this would be hashed
@@ -20,29 +20,48 @@ public class User {
     private final LocalDateTime registeredAt;
     private final List<Booking> bookingHistory;
     private boolean isActive;
+    private volatile long version;
     
     public User(String email, String password, String firstName, 
                 String lastName, String phoneNumber, UserRole role) {
-        this.userId = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), email, password, firstName, lastName, phoneNumber, role,
+             LocalDateTime.now(), true, 0);
+    }
+    
+    /**
+     * Rebuild a stored user, e.g. when replaying the journal
+     * Booking history is not stored with the user and is re-added from its bookings
+     */
+    public User(String userId, String email, String password, String firstName, String lastName,
+                String phoneNumber, UserRole role, LocalDateTime registeredAt, boolean isActive, long version) {
+        this.userId = userId;
         this.email = email;
         this.password = password;
         this.firstName = firstName;
         this.lastName = lastName;
         this.phoneNumber = phoneNumber;
         this.role = role;
-        this.registeredAt = LocalDateTime.now();
+        this.registeredAt = registeredAt;
         this.bookingHistory = new ArrayList<>();
-        this.isActive = true;
+        this.isActive = isActive;
+        this.version = version;
     }
     
     public String getFullName() {
         return firstName + " " + lastName;
     }
     
-    public void addBooking(Booking booking) {
+    public synchronized void addBooking(Booking booking) {
         bookingHistory.add(booking);
     }
     
+    /**
+     * Drop a booking from the history held in memory, e.g. once it is archived
+     */
+    public synchronized void removeBooking(Booking booking) {
+        bookingHistory.remove(booking);
+    }
+    
     public void deactivate() {
         this.isActive = false;
     }
@@ -108,7 +127,7 @@ public class User {
         return registeredAt;
     }
     
-    public List<Booking> getBookingHistory() {
+    public synchronized List<Booking> getBookingHistory() {
         return new ArrayList<>(bookingHistory);
     }
     
@@ -116,6 +135,16 @@ public class User {
         return isActive;
     }
     
+    @Override
+    public long getVersion() {
+        return version;
+    }
+    
+    @Override
+    public synchronized void incrementVersion() {
+        version++;
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
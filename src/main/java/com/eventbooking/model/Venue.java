@@ -1,6 +1,9 @@
 package com.eventbooking.model;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -12,13 +15,45 @@ public class Venue {
     private Address address;
     private int capacity;
     private String facilities;
+    private GeoPoint location;
+    private final List<VenueSection> sections;
     
     public Venue(String name, Address address, int capacity, String facilities) {
-        this.venueId = UUID.randomUUID().toString();
+        this(name, address, capacity, facilities, null);
+    }
+    
+    public Venue(String name, Address address, int capacity, String facilities, GeoPoint location) {
+        this(UUID.randomUUID().toString(), name, address, capacity, facilities, location);
+    }
+    
+    /**
+     * Rebuild a stored venue, e.g. when replaying the journal
+     */
+    public Venue(String venueId, String name, Address address, int capacity, String facilities,
+                 GeoPoint location) {
+        this.venueId = venueId;
         this.name = name;
         this.address = address;
         this.capacity = capacity;
         this.facilities = facilities;
+        this.location = location;
+        this.sections = new ArrayList<>();
+    }
+    
+    /**
+     * Add a seating section; sections should be added best-first
+     */
+    public void addSection(VenueSection section) {
+        if (findSection(section.getName()).isPresent()) {
+            throw new IllegalArgumentException("Section already exists: " + section.getName());
+        }
+        sections.add(section);
+    }
+    
+    public Optional<VenueSection> findSection(String name) {
+        return sections.stream()
+                .filter(section -> section.getName().equals(name))
+                .findFirst();
     }
     
     // Getters and Setters
@@ -42,6 +77,20 @@ public class Venue {
         this.address = address;
     }
     
+    /**
+     * @return Coordinates of the venue, or null if not known
+     */
+    public GeoPoint getLocation() {
+        return location;
+    }
+    
+    /**
+     * Events already saved keep their indexed position until they are updated
+     */
+    public void setLocation(GeoPoint location) {
+        this.location = location;
+    }
+    
     public int getCapacity() {
         return capacity;
     }
@@ -58,6 +107,10 @@ public class Venue {
         this.facilities = facilities;
     }
     
+    public List<VenueSection> getSections() {
+        return new ArrayList<>(sections);
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,61 @@
+package com.eventbooking.model;
+
+import java.util.Objects;
+
+/**
+ * Value Object describing a seating section of a venue
+ * Sections are listed best-first; rows are numbered from the front
+ */
+public class VenueSection {
+    private final String name;
+    private final int rows;
+    private final int seatsPerRow;
+
+    public VenueSection(String name, int rows, int seatsPerRow) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Section name cannot be empty");
+        }
+        if (rows <= 0 || seatsPerRow <= 0) {
+            throw new IllegalArgumentException("Section must have at least one row and seat");
+        }
+        this.name = name;
+        this.rows = rows;
+        this.seatsPerRow = seatsPerRow;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    public int getCapacity() {
+        return rows * seatsPerRow;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        VenueSection that = (VenueSection) o;
+        return rows == that.rows && seatsPerRow == that.seatsPerRow &&
+               Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, rows, seatsPerRow);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("VenueSection{name='%s', rows=%d, seatsPerRow=%d}",
+                name, rows, seatsPerRow);
+    }
+}
@@ -0,0 +1,17 @@
+package com.eventbooking.model;
+
+/**
+ * An entity carrying a version number for optimistic concurrency
+ * Repositories bump the version on every stored write, so a caller can
+ * read an entity, decide on a change, and have the write rejected if
+ * anyone else stored a change to it in between.
+ */
+public interface Versioned {
+    
+    long getVersion();
+    
+    /**
+     * Called by repositories when a write is stored, on the entity's monitor
+     */
+    void incrementVersion();
+}
@@ -0,0 +1,54 @@
+package com.eventbooking.pipeline;
+
+import com.eventbooking.inventory.TierLines;
+import com.eventbooking.model.Booking;
+import com.eventbooking.model.Event;
+import com.eventbooking.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Preallocated ring buffer slot carrying one booking request through the stages
+ * Slots are reused for the lifetime of the pipeline; each stage only
+ * touches a slot after the previous stage has published past it.
+ */
+class BookingCommand {
+    String userId;
+    String eventId;
+    Map<String, Integer> ticketRequests;
+    BookingResultHandler resultHandler;
+
+    // Filled in by the stages
+    User user;
+    Event event;
+    Booking booking;
+    String failure;
+
+    // Reused by the reserve stage for every request that passes through this slot
+    final TierLines lines = new TierLines();
+    final List<String> seatNumbers = new ArrayList<>();
+
+    void set(String userId, String eventId, Map<String, Integer> ticketRequests,
+             BookingResultHandler resultHandler) {
+        this.userId = userId;
+        this.eventId = eventId;
+        this.ticketRequests = ticketRequests;
+        this.resultHandler = resultHandler;
+        this.user = null;
+        this.event = null;
+        this.booking = null;
+        this.failure = null;
+        lines.clear();
+        seatNumbers.clear();
+    }
+
+    void clear() {
+        set(null, null, null, null);
+    }
+
+    boolean isRejected() {
+        return failure != null;
+    }
+}
@@ -0,0 +1,325 @@
+package com.eventbooking.pipeline;
+
+import com.eventbooking.model.Booking;
+import com.eventbooking.service.BookingService;
+import com.eventbooking.service.EventService;
+import com.eventbooking.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * High-throughput booking ingestion path, in the style of the Disruptor
+ * Requests land in a preallocated ring buffer and flow through three
+ * single-threaded stages: validate (user and event lookup), reserve
+ * (inventory and seats) and persist (batched save). Each stage works on
+ * every sequence the previous stage has released, so the persist stage
+ * naturally commits larger batches under load. Sits beside the
+ * synchronous BookingService.createBooking path.
+ * Requests are accepted between start() and shutdown(). Shutting down
+ * drains the stages in order: each one stops once its upstream has
+ * stopped and it has processed everything the upstream released.
+ */
+public class BookingPipeline {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private static final System.Logger LOG = System.getLogger(BookingPipeline.class.getName());
+
+    private final BookingRingBuffer ringBuffer;
+    private final UserService userService;
+    private final EventService eventService;
+    private final BookingService bookingService;
+    private final Stage[] stages;
+    private final AtomicInteger submitting = new AtomicInteger();
+    private volatile State state = State.NEW;
+    // Last sequence the first stage has to process; known once shutdown stops new submits
+    private volatile long lastSequence = Long.MAX_VALUE;
+
+    private enum State { NEW, RUNNING, SHUT_DOWN }
+
+    public BookingPipeline(UserService userService, EventService eventService,
+                           BookingService bookingService) {
+        this(DEFAULT_BUFFER_SIZE, userService, eventService, bookingService);
+    }
+
+    /**
+     * @param bufferSize Number of preallocated slots; must be a power of two
+     */
+    public BookingPipeline(int bufferSize, UserService userService, EventService eventService,
+                           BookingService bookingService) {
+        this.ringBuffer = new BookingRingBuffer(bufferSize);
+        this.userService = userService;
+        this.eventService = eventService;
+        this.bookingService = bookingService;
+
+        Stage validate = new ValidateStage();
+        Stage reserve = new ReserveStage(validate);
+        Stage persist = new PersistStage(reserve);
+        this.stages = new Stage[] {validate, reserve, persist};
+        ringBuffer.setGatingSequence(persist.sequence);
+    }
+
+    public synchronized void start() {
+        if (state != State.NEW) {
+            throw new IllegalStateException("Booking pipeline was already started");
+        }
+        state = State.RUNNING;
+        for (Stage stage : stages) {
+            stage.thread.start();
+        }
+    }
+
+    /**
+     * Submit a booking request, waiting for a free slot if the buffer is full
+     * @throws IllegalStateException If the pipeline is not running
+     */
+    public void submit(String userId, String eventId, Map<String, Integer> ticketRequests,
+                       BookingResultHandler resultHandler) {
+        enter();
+        try {
+            // The stages keep running until this submit leaves, so a slot always frees up
+            publish(ringBuffer.next(), userId, eventId, ticketRequests, resultHandler);
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Submit a booking request without waiting
+     * @return false if the buffer is full and the request was not accepted
+     * @throws IllegalStateException If the pipeline is not running
+     */
+    public boolean trySubmit(String userId, String eventId, Map<String, Integer> ticketRequests,
+                             BookingResultHandler resultHandler) {
+        enter();
+        try {
+            long sequence = ringBuffer.tryNext();
+            if (sequence < 0) {
+                return false;
+            }
+            publish(sequence, userId, eventId, ticketRequests, resultHandler);
+            return true;
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stop accepting requests, finish every request already submitted, then
+     * stop the stage threads; does nothing more if never started
+     */
+    public synchronized void shutdown() {
+        State previous = state;
+        state = State.SHUT_DOWN;
+        if (previous != State.RUNNING) {
+            return;
+        }
+
+        // Submits that got in before the state changed still publish their slots
+        while (submitting.get() > 0) {
+            LockSupport.parkNanos(100_000);
+        }
+        lastSequence = ringBuffer.getCursor();
+        for (Stage stage : stages) {
+            try {
+                stage.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public int getBufferSize() {
+        return ringBuffer.getSize();
+    }
+
+    /**
+     * Count a submit in, unless the pipeline is not running
+     * Counting before reading the state means shutdown() either sees this
+     * submit and waits for it, or this submit sees the shutdown.
+     */
+    private void enter() {
+        submitting.incrementAndGet();
+        if (state != State.RUNNING) {
+            submitting.decrementAndGet();
+            throw new IllegalStateException("Booking pipeline is not running");
+        }
+    }
+
+    private void publish(long sequence, String userId, String eventId,
+                         Map<String, Integer> ticketRequests, BookingResultHandler resultHandler) {
+        ringBuffer.get(sequence).set(userId, eventId, ticketRequests, resultHandler);
+        ringBuffer.publish(sequence);
+    }
+
+    /**
+     * One consumer thread; processes everything between its own sequence and
+     * the highest sequence its upstream has released
+     */
+    private abstract class Stage implements Runnable {
+        final AtomicLong sequence = new AtomicLong(-1);
+        final Thread thread;
+        // Set once this stage has stopped; its sequence is final from then on
+        volatile boolean stopped;
+        private final Stage upstream;
+
+        Stage(String name, Stage upstream) {
+            this.upstream = upstream;
+            this.thread = new Thread(this, "booking-pipeline-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                int idleSpins = 0;
+                while (true) {
+                    long next = sequence.get() + 1;
+                    long available = upstream == null
+                            ? ringBuffer.highestPublished(next)
+                            : upstream.sequence.get();
+                    if (available < next) {
+                        if (isDrained()) {
+                            return;
+                        }
+                        idleSpins = idle(idleSpins);
+                        continue;
+                    }
+                    idleSpins = 0;
+                    process(next, available);
+                    sequence.set(available);
+                }
+            } finally {
+                // Even if this stage died, its downstream can drain what it did release
+                stopped = true;
+            }
+        }
+
+        abstract void process(long from, long to);
+
+        /**
+         * Whether nothing more can reach this stage
+         */
+        private boolean isDrained() {
+            if (upstream == null) {
+                return sequence.get() >= lastSequence;
+            }
+            // The upstream's sequence is final once it has stopped, so read the flag first
+            return upstream.stopped && sequence.get() >= upstream.sequence.get();
+        }
+
+        private int idle(int spins) {
+            if (spins < 100) {
+                Thread.onSpinWait();
+            } else if (spins < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(50_000);
+            }
+            return spins + 1;
+        }
+    }
+
+    private class ValidateStage extends Stage {
+        ValidateStage() {
+            super("validate", null);
+        }
+
+        @Override
+        void process(long from, long to) {
+            for (long s = from; s <= to; s++) {
+                BookingCommand command = ringBuffer.get(s);
+                try {
+                    command.user = userService.getUserById(command.userId);
+                    command.event = eventService.getEventById(command.eventId);
+                    if (!command.event.isBookable()) {
+                        command.failure = "Event is not available for booking";
+                    }
+                } catch (RuntimeException e) {
+                    command.failure = e.getMessage();
+                }
+            }
+        }
+    }
+
+    private class ReserveStage extends Stage {
+        ReserveStage(Stage upstream) {
+            super("reserve", upstream);
+        }
+
+        @Override
+        void process(long from, long to) {
+            for (long s = from; s <= to; s++) {
+                BookingCommand command = ringBuffer.get(s);
+                if (command.isRejected()) {
+                    continue;
+                }
+                try {
+                    command.booking = bookingService.reserveBooking(command.user, command.event,
+                        command.ticketRequests, command.lines, command.seatNumbers);
+                } catch (RuntimeException e) {
+                    command.failure = e.getMessage();
+                }
+            }
+        }
+    }
+
+    private class PersistStage extends Stage {
+        private final List<Booking> batch = new ArrayList<>();
+
+        PersistStage(Stage upstream) {
+            super("persist", upstream);
+        }
+
+        @Override
+        void process(long from, long to) {
+            batch.clear();
+            for (long s = from; s <= to; s++) {
+                BookingCommand command = ringBuffer.get(s);
+                if (!command.isRejected()) {
+                    batch.add(command.booking);
+                }
+            }
+
+            // A failed commit has already given the batch's tickets and seats back
+            String batchFailure = null;
+            try {
+                bookingService.commitBookings(batch);
+            } catch (RuntimeException e) {
+                batchFailure = e.getMessage();
+            }
+
+            for (long s = from; s <= to; s++) {
+                BookingCommand command = ringBuffer.get(s);
+                notify(command, batchFailure);
+                command.clear();
+            }
+            batch.clear();
+        }
+
+        private void notify(BookingCommand command, String batchFailure) {
+            BookingResultHandler handler = command.resultHandler;
+            if (handler == null) {
+                return;
+            }
+            try {
+                if (command.isRejected()) {
+                    handler.onRejected(command.userId, command.eventId, command.failure);
+                } else if (batchFailure != null) {
+                    handler.onRejected(command.userId, command.eventId, batchFailure);
+                } else {
+                    handler.onBooked(command.booking);
+                }
+            } catch (RuntimeException e) {
+                // Keep the stage running; the other commands' callers still need notifying
+                LOG.log(System.Logger.Level.ERROR, "Booking result handler failed", e);
+            }
+        }
+    }
+}
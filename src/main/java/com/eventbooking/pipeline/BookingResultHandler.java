@@ -0,0 +1,20 @@
+package com.eventbooking.pipeline;
+
+import com.eventbooking.model.Booking;
+
+/**
+ * Receives the outcome of a booking request submitted to the pipeline
+ * Called on the pipeline's persist thread, so implementations must be quick
+ */
+public interface BookingResultHandler {
+
+    /**
+     * The booking was reserved and saved as PENDING
+     */
+    void onBooked(Booking booking);
+
+    /**
+     * The request failed validation or inventory reservation
+     */
+    void onRejected(String userId, String eventId, String reason);
+}
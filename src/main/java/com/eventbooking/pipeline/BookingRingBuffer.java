@@ -0,0 +1,102 @@
+package com.eventbooking.pipeline;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Multi-producer ring buffer of preallocated booking commands
+ * Producers claim sequences with a CAS on the cursor and publish them by
+ * stamping the slot's lap number, so consumers can tell a filled slot from
+ * a claimed-but-unwritten one without locks. Claims wait while the slot is
+ * still owned by the slowest consumer.
+ */
+class BookingRingBuffer {
+
+    private final BookingCommand[] slots;
+    private final int mask;
+    private final int indexShift;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final AtomicIntegerArray published;
+    private volatile AtomicLong gatingSequence = new AtomicLong(Long.MAX_VALUE);
+
+    BookingRingBuffer(int size) {
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Ring buffer size must be a power of two");
+        }
+        this.slots = new BookingCommand[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new BookingCommand();
+        }
+        this.mask = size - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(size);
+        this.published = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Producers may not lap the consumer that owns this sequence
+     */
+    void setGatingSequence(AtomicLong gatingSequence) {
+        this.gatingSequence = gatingSequence;
+    }
+
+    /**
+     * Claim the next slot
+     * @return Claimed sequence, or -1 if the buffer is full
+     */
+    long tryNext() {
+        while (true) {
+            long current = cursor.get();
+            long next = current + 1;
+            if (next - slots.length > gatingSequence.get()) {
+                return -1;
+            }
+            if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Claim the next slot, waiting for consumers if the buffer is full
+     */
+    long next() {
+        long sequence;
+        while ((sequence = tryNext()) < 0) {
+            LockSupport.parkNanos(1_000);
+        }
+        return sequence;
+    }
+
+    BookingCommand get(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    void publish(long sequence) {
+        published.set((int) sequence & mask, (int) (sequence >>> indexShift));
+    }
+
+    /**
+     * Highest sequence from {@code from} onwards that is published without gaps
+     */
+    long highestPublished(long from) {
+        long claimed = cursor.get();
+        for (long sequence = from; sequence <= claimed; sequence++) {
+            if (published.get((int) sequence & mask) != (int) (sequence >>> indexShift)) {
+                return sequence - 1;
+            }
+        }
+        return claimed;
+    }
+
+    long getCursor() {
+        return cursor.get();
+    }
+
+    int getSize() {
+        return slots.length;
+    }
+}
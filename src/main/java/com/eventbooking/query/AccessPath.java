@@ -0,0 +1,54 @@
+package com.eventbooking.query;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * One way a repository can produce candidate rows for a query, usually an index
+ */
+@FunctionalInterface
+public interface AccessPath<T> {
+
+    /**
+     * @return How this path would serve the query, or null if it cannot help
+     */
+    Access<T> match(Query<T> query);
+
+    /**
+     * A costed way to read candidates for one query
+     */
+    final class Access<T> {
+        private final String name;
+        private final List<Condition<T>> covered;
+        private final long estimatedRows;
+        private final Supplier<Stream<T>> rows;
+
+        /**
+         * @param covered Conditions every produced row is guaranteed to satisfy
+         * @param estimatedRows Expected number of candidate rows, from index statistics
+         */
+        public Access(String name, List<Condition<T>> covered, long estimatedRows, Supplier<Stream<T>> rows) {
+            this.name = name;
+            this.covered = covered;
+            this.estimatedRows = estimatedRows;
+            this.rows = rows;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<Condition<T>> getCovered() {
+            return covered;
+        }
+
+        public long getEstimatedRows() {
+            return estimatedRows;
+        }
+
+        Stream<T> rows() {
+            return rows.get();
+        }
+    }
+}
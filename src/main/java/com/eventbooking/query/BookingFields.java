@@ -0,0 +1,26 @@
+package com.eventbooking.query;
+
+import com.eventbooking.model.Booking;
+import com.eventbooking.model.BookingStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Queryable fields of Booking
+ */
+public final class BookingFields {
+
+    public static final Field<Booking, String> BOOKING_ID = new Field<>("bookingId", Booking::getBookingId);
+    public static final Field<Booking, String> USER_ID = new Field<>("userId",
+            booking -> booking.getUser().getUserId());
+    public static final Field<Booking, String> EVENT_ID = new Field<>("eventId",
+            booking -> booking.getEvent().getEventId());
+    public static final Field<Booking, BookingStatus> STATUS = new Field<>("status", Booking::getStatus);
+    public static final Field<Booking, LocalDateTime> BOOKING_DATE_TIME = new Field<>("bookingDateTime",
+            Booking::getBookingDateTime);
+    public static final Field<Booking, BigDecimal> TOTAL_AMOUNT = new Field<>("totalAmount", Booking::getTotalAmount);
+
+    private BookingFields() {
+    }
+}
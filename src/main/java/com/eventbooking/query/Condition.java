@@ -0,0 +1,133 @@
+package com.eventbooking.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A single predicate on one field; a query requires all of its conditions
+ */
+public final class Condition<T> {
+
+    public enum Operator {
+        EQUALS,
+        IN,
+        BETWEEN,
+        CONTAINS
+    }
+
+    private final Field<T, ?> field;
+    private final Operator operator;
+    private final List<Object> values;
+
+    private Condition(Field<T, ?> field, Operator operator, List<Object> values) {
+        this.field = field;
+        this.operator = operator;
+        this.values = Collections.unmodifiableList(values);
+    }
+
+    public static <T, V> Condition<T> eq(Field<T, V> field, V value) {
+        return new Condition<>(field, Operator.EQUALS, normalized(field, Collections.singletonList(value)));
+    }
+
+    @SafeVarargs
+    public static <T, V> Condition<T> in(Field<T, V> field, V... values) {
+        // Copied element by element; handing the generic array on is what risks heap pollution
+        List<V> list = new ArrayList<>(values.length);
+        for (V value : values) {
+            list.add(value);
+        }
+        return in(field, list);
+    }
+
+    public static <T, V> Condition<T> in(Field<T, V> field, List<V> values) {
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("IN needs at least one value");
+        }
+        return new Condition<>(field, Operator.IN, normalized(field, values));
+    }
+
+    /**
+     * Inclusive range; either bound may be null for an open range
+     */
+    public static <T, V extends Comparable<? super V>> Condition<T> between(Field<T, V> field, V from, V to) {
+        if (from == null && to == null) {
+            throw new IllegalArgumentException("BETWEEN needs at least one bound");
+        }
+        return new Condition<>(field, Operator.BETWEEN, normalized(field, Arrays.asList(from, to)));
+    }
+
+    /**
+     * Case-insensitive substring match
+     */
+    public static <T> Condition<T> contains(Field<T, String> field, String text) {
+        return new Condition<>(field, Operator.CONTAINS, List.of(text.toLowerCase()));
+    }
+
+    private static <T, V> List<Object> normalized(Field<T, V> field, List<V> values) {
+        List<Object> result = new ArrayList<>(values.size());
+        for (V value : values) {
+            result.add(field.normalize(value));
+        }
+        return result;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public boolean test(T entity) {
+        Object value = field.get(entity);
+        switch (operator) {
+            case EQUALS:
+            case IN:
+                return values.contains(value);
+            case BETWEEN:
+                if (value == null) {
+                    return false;
+                }
+                Comparable comparable = (Comparable) value;
+                Object from = values.get(0);
+                Object to = values.get(1);
+                return (from == null || comparable.compareTo(from) >= 0)
+                        && (to == null || comparable.compareTo(to) <= 0);
+            case CONTAINS:
+                return value != null && value.toString().toLowerCase().contains((String) values.get(0));
+            default:
+                throw new IllegalStateException("Unknown operator: " + operator);
+        }
+    }
+
+    public Field<T, ?> getField() {
+        return field;
+    }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    /**
+     * Normalized operands; BETWEEN holds [from, to] with nulls for open bounds
+     */
+    public List<Object> getValues() {
+        return values;
+    }
+
+    public boolean isOn(Field<T, ?> other) {
+        return field == other;
+    }
+
+    @Override
+    public String toString() {
+        switch (operator) {
+            case EQUALS:
+                return field + " = " + values.get(0);
+            case IN:
+                return field + " IN " + values;
+            case BETWEEN:
+                return field + " BETWEEN " + Objects.toString(values.get(0), "-inf")
+                        + " AND " + Objects.toString(values.get(1), "+inf");
+            default:
+                return field + " CONTAINS '" + values.get(0) + "'";
+        }
+    }
+}
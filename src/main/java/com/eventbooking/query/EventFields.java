@@ -0,0 +1,31 @@
+package com.eventbooking.query;
+
+import com.eventbooking.model.Event;
+import com.eventbooking.model.EventCategory;
+import com.eventbooking.model.EventStatus;
+import com.eventbooking.model.Venue;
+
+import java.time.LocalDateTime;
+
+/**
+ * Queryable fields of Event
+ */
+public final class EventFields {
+
+    public static final Field<Event, String> EVENT_ID = new Field<>("eventId", Event::getEventId);
+    public static final Field<Event, String> NAME = new Field<>("name", Event::getName);
+    public static final Field<Event, EventCategory> CATEGORY = new Field<>("category", Event::getCategory);
+    public static final Field<Event, EventStatus> STATUS = new Field<>("status", Event::getStatus);
+    public static final Field<Event, LocalDateTime> DATE_TIME = new Field<>("eventDateTime", Event::getEventDateTime);
+    // Compared case-insensitively, like the city bitmap index
+    public static final Field<Event, String> CITY = new Field<>("city", EventFields::cityOf,
+            city -> city.trim().toLowerCase());
+
+    private EventFields() {
+    }
+
+    private static String cityOf(Event event) {
+        Venue venue = event.getVenue();
+        return venue != null && venue.getAddress() != null ? venue.getAddress().getCity() : null;
+    }
+}
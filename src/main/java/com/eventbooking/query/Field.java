@@ -0,0 +1,45 @@
+package com.eventbooking.query;
+
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * A named, typed attribute of an entity that queries can filter and sort on
+ * An optional normalizer is applied both to entity values and to the values
+ * in conditions, e.g. to compare cities case-insensitively.
+ */
+public final class Field<T, V> {
+    private final String name;
+    private final Function<T, V> getter;
+    private final UnaryOperator<V> normalizer;
+
+    public Field(String name, Function<T, V> getter) {
+        this(name, getter, UnaryOperator.identity());
+    }
+
+    public Field(String name, Function<T, V> getter, UnaryOperator<V> normalizer) {
+        this.name = name;
+        this.getter = getter;
+        this.normalizer = normalizer;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Normalized value of this field on an entity
+     */
+    public V get(T entity) {
+        return normalize(getter.apply(entity));
+    }
+
+    public V normalize(V value) {
+        return value == null ? null : normalizer.apply(value);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
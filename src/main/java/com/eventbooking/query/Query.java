@@ -0,0 +1,81 @@
+package com.eventbooking.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Typed criteria query: conditions (all required), an optional sort and an optional limit
+ */
+public class Query<T> {
+    private final List<Condition<T>> conditions = new ArrayList<>();
+    private Field<T, ? extends Comparable<?>> sortField;
+    private boolean descending;
+    private int limit;
+
+    public Query<T> where(Condition<T> condition) {
+        conditions.add(condition);
+        return this;
+    }
+
+    public Query<T> orderBy(Field<T, ? extends Comparable<?>> field) {
+        this.sortField = field;
+        this.descending = false;
+        return this;
+    }
+
+    public Query<T> orderByDescending(Field<T, ? extends Comparable<?>> field) {
+        this.sortField = field;
+        this.descending = true;
+        return this;
+    }
+
+    public Query<T> limit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public List<Condition<T>> getConditions() {
+        return Collections.unmodifiableList(conditions);
+    }
+
+    /**
+     * First condition on the field using one of the operators, or null; used by access paths
+     */
+    public Condition<T> findCondition(Field<T, ?> field, Condition.Operator... operators) {
+        for (Condition<T> condition : conditions) {
+            if (condition.isOn(field)) {
+                for (Condition.Operator operator : operators) {
+                    if (condition.getOperator() == operator) {
+                        return condition;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    public Field<T, ? extends Comparable<?>> getSortField() {
+        return sortField;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * @return Maximum number of results, or 0 for no limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Query{where=%s, orderBy=%s%s, limit=%d}",
+                conditions, sortField, descending ? " DESC" : "", limit);
+    }
+}
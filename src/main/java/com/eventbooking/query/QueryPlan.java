@@ -0,0 +1,78 @@
+package com.eventbooking.query;
+
+import java.util.List;
+
+/**
+ * How a query was, or would be, executed; returned by explain
+ */
+public class QueryPlan {
+    private final String accessPath;
+    private final List<String> indexConditions;
+    private final long estimatedRows;
+    private final List<String> residualConditions;
+    private final boolean parallel;
+    private final String sort;
+    private final int limit;
+
+    public QueryPlan(String accessPath, List<String> indexConditions, long estimatedRows,
+                     List<String> residualConditions, boolean parallel, String sort, int limit) {
+        this.accessPath = accessPath;
+        this.indexConditions = List.copyOf(indexConditions);
+        this.estimatedRows = estimatedRows;
+        this.residualConditions = List.copyOf(residualConditions);
+        this.parallel = parallel;
+        this.sort = sort;
+        this.limit = limit;
+    }
+
+    public String getAccessPath() {
+        return accessPath;
+    }
+
+    public List<String> getIndexConditions() {
+        return indexConditions;
+    }
+
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    public List<String> getResidualConditions() {
+        return residualConditions;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * @return Sort description, or null if results are unordered
+     */
+    public String getSort() {
+        return sort;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(parallel ? "ParallelScan " : "IndexScan ").append(accessPath);
+        if (!indexConditions.isEmpty()) {
+            sb.append(' ').append(indexConditions);
+        }
+        sb.append(" (est. ").append(estimatedRows).append(" rows)");
+        if (!residualConditions.isEmpty()) {
+            sb.append(" -> Filter ").append(residualConditions);
+        }
+        if (sort != null) {
+            sb.append(" -> Sort ").append(sort);
+        }
+        if (limit > 0) {
+            sb.append(" -> Limit ").append(limit);
+        }
+        return sb.toString();
+    }
+}
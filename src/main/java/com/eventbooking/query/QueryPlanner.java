@@ -0,0 +1,108 @@
+package com.eventbooking.query;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Picks the cheapest access path for a query
+ * Every registered path is asked how it would serve the query; the one with
+ * the smallest estimated row count wins and the conditions it does not
+ * cover are applied as a residual filter. When no path applies, the
+ * planner falls back to a full scan, run in parallel on large tables.
+ */
+public class QueryPlanner<T> {
+
+    public static final String FULL_SCAN = "full-scan";
+    private static final long PARALLEL_SCAN_THRESHOLD = 10_000;
+
+    private final List<AccessPath<T>> accessPaths;
+    private final Supplier<Stream<T>> fullScan;
+    private final LongSupplier tableSize;
+
+    public QueryPlanner(List<AccessPath<T>> accessPaths, Supplier<Stream<T>> fullScan, LongSupplier tableSize) {
+        this.accessPaths = List.copyOf(accessPaths);
+        this.fullScan = fullScan;
+        this.tableSize = tableSize;
+    }
+
+    public List<T> execute(Query<T> query) {
+        Plan<T> plan = plan(query);
+        Stream<T> rows = plan.access != null ? plan.access.rows() : fullScan.get();
+        if (plan.parallel) {
+            rows = rows.parallel();
+        }
+        for (Condition<T> condition : plan.residual) {
+            rows = rows.filter(condition::test);
+        }
+        Comparator<T> order = comparator(query);
+        if (order != null) {
+            rows = rows.sorted(order);
+        }
+        if (query.getLimit() > 0) {
+            rows = rows.limit(query.getLimit());
+        }
+        return rows.collect(Collectors.toList());
+    }
+
+    public QueryPlan explain(Query<T> query) {
+        Plan<T> plan = plan(query);
+        List<String> indexConditions = new ArrayList<>();
+        if (plan.access != null) {
+            plan.access.getCovered().forEach(condition -> indexConditions.add(condition.toString()));
+        }
+        List<String> residual = new ArrayList<>();
+        plan.residual.forEach(condition -> residual.add(condition.toString()));
+        String sort = query.getSortField() == null ? null
+                : query.getSortField() + (query.isDescending() ? " DESC" : " ASC");
+        return new QueryPlan(plan.access != null ? plan.access.getName() : FULL_SCAN, indexConditions,
+                plan.estimatedRows, residual, plan.parallel, sort, query.getLimit());
+    }
+
+    private Plan<T> plan(Query<T> query) {
+        AccessPath.Access<T> best = null;
+        for (AccessPath<T> path : accessPaths) {
+            AccessPath.Access<T> access = path.match(query);
+            if (access != null && (best == null || access.getEstimatedRows() < best.getEstimatedRows())) {
+                best = access;
+            }
+        }
+
+        List<Condition<T>> residual = new ArrayList<>(query.getConditions());
+        if (best != null) {
+            residual.removeAll(best.getCovered());
+            return new Plan<>(best, residual, best.getEstimatedRows(), false);
+        }
+        long rows = tableSize.getAsLong();
+        return new Plan<>(null, residual, rows, rows >= PARALLEL_SCAN_THRESHOLD);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Comparator<T> comparator(Query<T> query) {
+        Field<T, ? extends Comparable<?>> field = query.getSortField();
+        if (field == null) {
+            return null;
+        }
+        Comparator<T> order = Comparator.comparing(entity -> (Comparable) field.get(entity),
+                Comparator.nullsLast(Comparator.naturalOrder()));
+        return query.isDescending() ? order.reversed() : order;
+    }
+
+    private static final class Plan<T> {
+        private final AccessPath.Access<T> access;
+        private final List<Condition<T>> residual;
+        private final long estimatedRows;
+        private final boolean parallel;
+
+        Plan(AccessPath.Access<T> access, List<Condition<T>> residual, long estimatedRows, boolean parallel) {
+            this.access = access;
+            this.residual = residual;
+            this.estimatedRows = estimatedRows;
+            this.parallel = parallel;
+        }
+    }
+}
@@ -2,14 +2,22 @@ package com.eventbooking.repository;
 
 import com.eventbooking.model.Booking;
 import com.eventbooking.model.BookingStatus;
+import com.eventbooking.query.Query;
+import com.eventbooking.query.QueryPlan;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Booking entities
  */
 public interface BookingRepository extends Repository<Booking, String> {
     
+    /**
+     * Save several bookings in one call
+     */
+    List<Booking> saveAll(List<Booking> bookings);
+    
     /**
      * Find bookings by user ID
      */
@@ -25,6 +33,31 @@ public interface BookingRepository extends Repository<Booking, String> {
      */
     List<Booking> findByStatus(BookingStatus status);
     
+    /**
+     * Lazily stream bookings for an event from the index, without copying them
+     */
+    Stream<Booking> streamByEventId(String eventId);
+    
+    /**
+     * Lazily stream bookings for a user from the index, without copying them
+     */
+    Stream<Booking> streamByUserId(String userId);
+    
+    /**
+     * Lazily stream bookings in a status from the index, without copying them
+     */
+    Stream<Booking> streamByStatus(BookingStatus status);
+    
+    /**
+     * Run a criteria query through the index-aware planner
+     */
+    List<Booking> query(Query<Booking> query);
+    
+    /**
+     * Describe the plan the planner would use for a query
+     */
+    QueryPlan explain(Query<Booking> query);
+    
     /**
      * Find bookings by user and status
      */
@@ -0,0 +1,113 @@
+package com.eventbooking.repository;
+
+import com.eventbooking.model.Event;
+import com.eventbooking.model.EventCategory;
+import com.eventbooking.model.EventStatus;
+import com.eventbooking.model.Venue;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Combined filter over category, status, city and event date
+ * Values within one dimension are alternatives; dimensions are all required.
+ * Unset dimensions match every event.
+ */
+public class EventFilter {
+    private final Set<EventCategory> categories = EnumSet.noneOf(EventCategory.class);
+    private final Set<EventStatus> statuses = EnumSet.noneOf(EventStatus.class);
+    private final Set<String> cities = new LinkedHashSet<>();
+    private LocalDate fromDate;
+    private LocalDate toDate;
+
+    public EventFilter withCategory(EventCategory... categories) {
+        Collections.addAll(this.categories, categories);
+        return this;
+    }
+
+    public EventFilter withStatus(EventStatus... statuses) {
+        Collections.addAll(this.statuses, statuses);
+        return this;
+    }
+
+    public EventFilter withCity(String... cities) {
+        Collections.addAll(this.cities, cities);
+        return this;
+    }
+
+    /**
+     * Only events taking place on a day within [fromDate, toDate]
+     */
+    public EventFilter between(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate != null && toDate != null && toDate.isBefore(fromDate)) {
+            throw new IllegalArgumentException("End date is before start date");
+        }
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        return this;
+    }
+
+    /**
+     * Check a single event against the filter, for callers that already have candidates
+     */
+    public boolean matches(Event event) {
+        if (!categories.isEmpty() && !categories.contains(event.getCategory())) {
+            return false;
+        }
+        if (!statuses.isEmpty() && !statuses.contains(event.getStatus())) {
+            return false;
+        }
+        if (!cities.isEmpty()) {
+            Venue venue = event.getVenue();
+            String city = venue != null && venue.getAddress() != null ? venue.getAddress().getCity() : null;
+            if (city == null || cities.stream().noneMatch(c -> c.trim().equalsIgnoreCase(city.trim()))) {
+                return false;
+            }
+        }
+        if (hasDateRange()) {
+            if (event.getEventDateTime() == null) {
+                return false;
+            }
+            LocalDate day = event.getEventDateTime().toLocalDate();
+            return (fromDate == null || !day.isBefore(fromDate)) && (toDate == null || !day.isAfter(toDate));
+        }
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return categories.isEmpty() && statuses.isEmpty() && cities.isEmpty() && !hasDateRange();
+    }
+
+    public Set<EventCategory> getCategories() {
+        return Collections.unmodifiableSet(categories);
+    }
+
+    public Set<EventStatus> getStatuses() {
+        return Collections.unmodifiableSet(statuses);
+    }
+
+    public Set<String> getCities() {
+        return Collections.unmodifiableSet(cities);
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    public boolean hasDateRange() {
+        return fromDate != null || toDate != null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EventFilter{categories=%s, statuses=%s, cities=%s, from=%s, to=%s}",
+                categories, statuses, cities, fromDate, toDate);
+    }
+}
@@ -3,9 +3,13 @@ package com.eventbooking.repository;
 import com.eventbooking.model.Event;
 import com.eventbooking.model.EventCategory;
 import com.eventbooking.model.EventStatus;
+import com.eventbooking.model.GeoPoint;
+import com.eventbooking.query.Query;
+import com.eventbooking.query.QueryPlan;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Event entities
@@ -23,17 +27,70 @@ public interface EventRepository extends Repository<Event, String> {
     List<Event> findByStatus(EventStatus status);
     
     /**
-     * Find events by date range
+     * Find events matching every dimension of a combined filter
+     */
+    List<Event> findByFilter(EventFilter filter);
+    
+    /**
+     * Run a criteria query through the index-aware planner
+     */
+    List<Event> query(Query<Event> query);
+    
+    /**
+     * Describe the plan the planner would use for a query
+     */
+    QueryPlan explain(Query<Event> query);
+    
+    /**
+     * Find events by date range, ordered by date
      */
     List<Event> findByDateRange(LocalDateTime startDate, LocalDateTime endDate);
     
     /**
-     * Find upcoming events
+     * Lazily stream events in a date range from the index, ordered by date
+     */
+    Stream<Event> streamByDateRange(LocalDateTime startDate, LocalDateTime endDate);
+    
+    /**
+     * Find upcoming events, ordered by date
      */
     List<Event> findUpcomingEvents();
     
+    /**
+     * Find the next upcoming events, ordered by date
+     */
+    List<Event> findUpcomingEvents(int limit);
+    
     /**
      * Search events by name
      */
     List<Event> searchByName(String name);
+    
+    /**
+     * Best matches for free text across names and descriptions
+     */
+    List<Event> search(String text, int limit);
+    
+    /**
+     * Suggest words from event names that start with a prefix
+     */
+    List<String> autocomplete(String prefix, int limit);
+    
+    /**
+     * Events whose venue lies within a radius of a point, nearest first
+     * @param filter Additional filter, or null for none
+     */
+    List<Event> findNear(GeoPoint center, double radiusKm, EventFilter filter);
+    
+    /**
+     * Events whose venue lies within a bounding box, unordered
+     * @param filter Additional filter, or null for none
+     */
+    List<Event> findWithinBox(GeoPoint southWest, GeoPoint northEast, EventFilter filter);
+    
+    /**
+     * The k events with venues nearest to a point, nearest first
+     * @param filter Additional filter, or null for none
+     */
+    List<Event> findNearest(GeoPoint center, int k, EventFilter filter);
 }
@@ -0,0 +1,38 @@
+package com.eventbooking.repository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated read
+ * Pass the next cursor back as the "after" argument to fetch the following page;
+ * pages stay stable while entities are added or removed elsewhere in the table.
+ */
+public class Page<T, ID> {
+    private final List<T> items;
+    private final ID nextCursor;
+
+    public Page(List<T> items, ID nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return Cursor for the following page, or null if this is the last page
+     */
+    public ID getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public int size() {
+        return items.size();
+    }
+}
@@ -2,6 +2,8 @@ package com.eventbooking.repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Generic Repository interface
@@ -27,11 +29,29 @@ public interface Repository<T, ID> {
      */
     List<T> findAll();
     
+    /**
+     * Find a page of entities in ID order
+     * @param after ID of the last entity on the previous page, or null for the first page
+     */
+    Page<T, ID> findPage(ID after, int limit);
+    
+    /**
+     * Lazily stream all entities straight from the store, without copying them
+     */
+    Stream<T> stream();
+    
     /**
      * Update an entity
      */
     T update(T entity);
     
+    /**
+     * Apply a change and store it only if the entity is still at the expected version
+     * The change runs at most once, and only after the version check passes.
+     * @throws com.eventbooking.exception.OptimisticLockException if another write got there first
+     */
+    T compareAndUpdate(ID id, long expectedVersion, Consumer<? super T> change);
+    
     /**
      * Delete entity by ID
      */
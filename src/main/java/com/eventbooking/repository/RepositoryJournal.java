@@ -0,0 +1,52 @@
+package com.eventbooking.repository;
+
+import java.util.Collection;
+
+/**
+ * Receives every write a repository stores, so it can be made durable
+ * Repositories call it right after publishing the write in memory, so a
+ * snapshot taken meanwhile sees it; each call returns once the write is
+ * durable. If a call throws, the repository takes the write back out of
+ * memory, since a restart would not bring it back either.
+ * 
+ * @param <T> The entity type
+ * @param <ID> The ID type
+ */
+public interface RepositoryJournal<T, ID> {
+    
+    /**
+     * An entity was saved or updated
+     */
+    void written(T entity);
+    
+    /**
+     * Several entities were saved together; implementations may make them durable as one batch
+     */
+    default void writtenAll(Collection<? extends T> entities) {
+        entities.forEach(this::written);
+    }
+    
+    /**
+     * An entity was deleted
+     */
+    void deleted(ID id);
+    
+    /**
+     * Journal for repositories that only live in memory
+     */
+    static <T, ID> RepositoryJournal<T, ID> none() {
+        return new RepositoryJournal<>() {
+            @Override
+            public void written(T entity) {
+            }
+            
+            @Override
+            public void writtenAll(Collection<? extends T> entities) {
+            }
+            
+            @Override
+            public void deleted(ID id) {
+            }
+        };
+    }
+}
@@ -2,83 +2,378 @@ package com.eventbooking.repository.impl;
 
 import com.eventbooking.model.Booking;
 import com.eventbooking.model.BookingStatus;
+import com.eventbooking.model.BookingStatusListener;
+import com.eventbooking.query.AccessPath;
+import com.eventbooking.query.BookingFields;
+import com.eventbooking.query.Condition;
+import com.eventbooking.query.Field;
+import com.eventbooking.query.Query;
+import com.eventbooking.query.QueryPlan;
+import com.eventbooking.query.QueryPlanner;
 import com.eventbooking.repository.BookingRepository;
+import com.eventbooking.repository.Page;
+import com.eventbooking.repository.RepositoryJournal;
+import com.eventbooking.tiering.ColdStorage;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * In-memory implementation of BookingRepository
+ * Keeps concurrent secondary indexes by user, event and status so every
+ * finder costs O(result size). Status buckets follow Booking status
+ * changes through a BookingStatusListener. With cold storage, lookups by
+ * ID, user and event also find archived bookings; the other finders cover
+ * live bookings only.
  */
 public class BookingRepositoryImpl implements BookingRepository {
-    
+
     private final Map<String, Booking> bookings = new ConcurrentHashMap<>();
-    
+    // ID-ordered view for keyset pagination
+    private final NavigableMap<String, Booking> bookingsById = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<Booking>> bookingsByUser = new ConcurrentHashMap<>();
+    private final Map<String, Set<Booking>> bookingsByEvent = new ConcurrentHashMap<>();
+    private final Map<BookingStatus, Set<Booking>> bookingsByStatus = new EnumMap<>(BookingStatus.class);
+    private final BookingStatusListener statusIndexer = this::moveStatusBucket;
+    private final QueryPlanner<Booking> planner = new QueryPlanner<>(
+        List.of(this::primaryKeyAccess,
+                query -> indexAccess(query, "user-index", BookingFields.USER_ID, bookingsByUser::get),
+                query -> indexAccess(query, "event-index", BookingFields.EVENT_ID, bookingsByEvent::get),
+                query -> indexAccess(query, "status-index", BookingFields.STATUS, bookingsByStatus::get)),
+        this::stream, bookings::size);
+
+    private final RepositoryJournal<Booking, String> journal;
+    private final ColdStorage coldStorage;
+
+    public BookingRepositoryImpl() {
+        this(RepositoryJournal.none());
+    }
+
+    /**
+     * @param journal Receives every stored write, e.g. to make it durable
+     */
+    public BookingRepositoryImpl(RepositoryJournal<Booking, String> journal) {
+        this(journal, null);
+    }
+
+    /**
+     * @param coldStorage Archived bookings to fall back to, or null for none
+     */
+    public BookingRepositoryImpl(RepositoryJournal<Booking, String> journal, ColdStorage coldStorage) {
+        this.journal = journal;
+        this.coldStorage = coldStorage;
+        for (BookingStatus status : BookingStatus.values()) {
+            bookingsByStatus.put(status, ConcurrentHashMap.newKeySet());
+        }
+    }
+
     @Override
     public Booking save(Booking booking) {
         if (booking == null) {
             throw new IllegalArgumentException("Booking cannot be null");
         }
-        bookings.put(booking.getBookingId(), booking);
+        store(booking);
+        journalWrite(booking);
         return booking;
     }
-    
+
+    @Override
+    public List<Booking> saveAll(List<Booking> bookingsToSave) {
+        for (Booking booking : bookingsToSave) {
+            if (booking == null) {
+                throw new IllegalArgumentException("Booking cannot be null");
+            }
+        }
+        bookingsToSave.forEach(this::store);
+        try {
+            journal.writtenAll(bookingsToSave);
+        } catch (RuntimeException e) {
+            bookingsToSave.forEach(this::evictIfStored);
+            throw e;
+        }
+        return bookingsToSave;
+    }
+
     @Override
     public Optional<Booking> findById(String id) {
-        return Optional.ofNullable(bookings.get(id));
+        Booking booking = bookings.get(id);
+        if (booking == null && coldStorage != null) {
+            return coldStorage.findBooking(id);
+        }
+        return Optional.ofNullable(booking);
     }
-    
+
     @Override
     public List<Booking> findAll() {
         return new ArrayList<>(bookings.values());
     }
     
+    @Override
+    public Page<Booking, String> findPage(String after, int limit) {
+        return KeysetPager.page(bookingsById, after, limit);
+    }
+    
+    @Override
+    public Stream<Booking> stream() {
+        return bookings.values().stream();
+    }
+
     @Override
     public Booking update(Booking booking) {
         if (booking == null || !bookings.containsKey(booking.getBookingId())) {
             throw new IllegalArgumentException("Booking not found");
         }
-        bookings.put(booking.getBookingId(), booking);
+        booking.incrementVersion();
+        store(booking);
+        journalWrite(booking);
         return booking;
     }
     
+    @Override
+    public Booking compareAndUpdate(String id, long expectedVersion, Consumer<? super Booking> change) {
+        Booking booking = bookings.get(id);
+        if (booking == null) {
+            throw new IllegalArgumentException("Booking not found");
+        }
+        VersionedUpdate.apply(booking, id, expectedVersion, change);
+        store(booking);
+        journalWrite(booking);
+        return booking;
+    }
+
     @Override
     public boolean deleteById(String id) {
-        return bookings.remove(id) != null;
+        Booking booking = evict(id);
+        if (booking == null) {
+            return false;
+        }
+        try {
+            journal.deleted(id);
+        } catch (RuntimeException e) {
+            // Still on disk, so still served unless saved again meanwhile
+            if (bookings.putIfAbsent(id, booking) == null) {
+                store(booking);
+            }
+            throw e;
+        }
+        return true;
     }
-    
+
     @Override
     public boolean existsById(String id) {
-        return bookings.containsKey(id);
+        return bookings.containsKey(id) || coldStorage != null && coldStorage.containsBooking(id);
     }
-    
+
     @Override
     public List<Booking> findByUserId(String userId) {
-        return bookings.values().stream()
-                .filter(booking -> booking.getUser().getUserId().equals(userId))
-                .collect(Collectors.toList());
+        List<Booking> result = new ArrayList<>(bookingsByUser.getOrDefault(userId, Collections.emptySet()));
+        if (coldStorage != null) {
+            addArchived(result, coldStorage.findBookingsByUser(userId));
+        }
+        return result;
     }
-    
+
     @Override
     public List<Booking> findByEventId(String eventId) {
-        return bookings.values().stream()
-                .filter(booking -> booking.getEvent().getEventId().equals(eventId))
-                .collect(Collectors.toList());
+        List<Booking> result = new ArrayList<>(bookingsByEvent.getOrDefault(eventId, Collections.emptySet()));
+        if (coldStorage != null) {
+            addArchived(result, coldStorage.findBookingsByEvent(eventId));
+        }
+        return result;
     }
-    
+
     @Override
     public List<Booking> findByStatus(BookingStatus status) {
-        return bookings.values().stream()
-                .filter(booking -> booking.getStatus() == status)
-                .collect(Collectors.toList());
+        return new ArrayList<>(bookingsByStatus.get(status));
+    }
+
+    @Override
+    public Stream<Booking> streamByEventId(String eventId) {
+        Stream<Booking> live = bookingsByEvent.getOrDefault(eventId, Collections.emptySet()).stream();
+        if (coldStorage == null || !coldStorage.containsEvent(eventId)) {
+            return live;
+        }
+        return Stream.concat(live, Stream.of(eventId)
+                .flatMap(id -> coldStorage.findBookingsByEvent(id).stream())
+                .filter(booking -> !bookings.containsKey(booking.getBookingId())));
+    }
+    
+    @Override
+    public Stream<Booking> streamByUserId(String userId) {
+        Stream<Booking> live = bookingsByUser.getOrDefault(userId, Collections.emptySet()).stream();
+        if (coldStorage == null) {
+            return live;
+        }
+        return Stream.concat(live, Stream.of(userId)
+                .flatMap(id -> coldStorage.findBookingsByUser(id).stream())
+                .filter(booking -> !bookings.containsKey(booking.getBookingId())));
+    }
+    
+    @Override
+    public Stream<Booking> streamByStatus(BookingStatus status) {
+        return bookingsByStatus.get(status).stream();
+    }
+    
+    @Override
+    public List<Booking> query(Query<Booking> query) {
+        return planner.execute(query);
+    }
+    
+    @Override
+    public QueryPlan explain(Query<Booking> query) {
+        return planner.explain(query);
     }
     
     @Override
     public List<Booking> findByUserIdAndStatus(String userId, BookingStatus status) {
-        return bookings.values().stream()
-                .filter(booking -> booking.getUser().getUserId().equals(userId) &&
-                                 booking.getStatus() == status)
-                .collect(Collectors.toList());
+        List<Booking> result = new ArrayList<>();
+        for (Booking booking : bookingsByUser.getOrDefault(userId, Collections.emptySet())) {
+            if (booking.getStatus() == status) {
+                result.add(booking);
+            }
+        }
+        if (coldStorage != null) {
+            List<Booking> archived = new ArrayList<>();
+            for (Booking booking : coldStorage.findBookingsByUser(userId)) {
+                if (booking.getStatus() == status) {
+                    archived.add(booking);
+                }
+            }
+            addArchived(result, archived);
+        }
+        return result;
+    }
+
+    /**
+     * Archived copies of bookings that are also live are left out; the live ones win
+     */
+    private void addArchived(List<Booking> result, List<Booking> archived) {
+        for (Booking booking : archived) {
+            if (!bookings.containsKey(booking.getBookingId())) {
+                result.add(booking);
+            }
+        }
+    }
+
+    private void store(Booking booking) {
+        Booking previous = bookings.put(booking.getBookingId(), booking);
+        bookingsById.put(booking.getBookingId(), booking);
+        if (previous != null && previous != booking) {
+            unindex(previous);
+        }
+        addTo(bookingsByUser, booking.getUser().getUserId(), booking);
+        addTo(bookingsByEvent, booking.getEvent().getEventId(), booking);
+
+        // Status changes are serialized on the booking's monitor
+        synchronized (booking) {
+            booking.addStatusListener(statusIndexer);
+            bookingsByStatus.get(booking.getStatus()).add(booking);
+        }
+    }
+
+    /**
+     * Make a published write durable, or take it back out of memory
+     * A new booking is simply removed again. A stored one was changed in
+     * place, which cannot be reverted, so it is dropped from memory rather
+     * than served in a state the journal does not have; a restart brings
+     * back its last durable state.
+     */
+    private void journalWrite(Booking booking) {
+        try {
+            journal.written(booking);
+        } catch (RuntimeException e) {
+            evictIfStored(booking);
+            throw e;
+        }
+    }
+
+    private void evictIfStored(Booking booking) {
+        if (bookings.get(booking.getBookingId()) == booking) {
+            evict(booking.getBookingId());
+        }
+    }
+
+    /**
+     * @return The booking dropped, or null if none was stored
+     */
+    private Booking evict(String id) {
+        Booking booking = bookings.remove(id);
+        if (booking != null) {
+            bookingsById.remove(id);
+            unindex(booking);
+        }
+        return booking;
+    }
+
+    private void unindex(Booking booking) {
+        removeFrom(bookingsByUser, booking.getUser().getUserId(), booking);
+        removeFrom(bookingsByEvent, booking.getEvent().getEventId(), booking);
+        synchronized (booking) {
+            booking.removeStatusListener(statusIndexer);
+            bookingsByStatus.get(booking.getStatus()).remove(booking);
+        }
+    }
+
+    private void moveStatusBucket(Booking booking, BookingStatus oldStatus, BookingStatus newStatus) {
+        if (bookingsByStatus.get(oldStatus).remove(booking)) {
+            bookingsByStatus.get(newStatus).add(booking);
+        }
+    }
+
+    private AccessPath.Access<Booking> primaryKeyAccess(Query<Booking> query) {
+        Condition<Booking> byId = query.findCondition(BookingFields.BOOKING_ID,
+            Condition.Operator.EQUALS, Condition.Operator.IN);
+        if (byId == null) {
+            return null;
+        }
+        return new AccessPath.Access<>("primary-key", List.of(byId), byId.getValues().size(),
+            () -> byId.getValues().stream().distinct().map(bookings::get).filter(Objects::nonNull));
+    }
+    
+    /**
+     * Equality or IN on an indexed field; set sizes serve as the row estimate
+     */
+    @SuppressWarnings("unchecked")
+    private <K> AccessPath.Access<Booking> indexAccess(Query<Booking> query, String name,
+                                                       Field<Booking, K> field,
+                                                       Function<K, Set<Booking>> index) {
+        Condition<Booking> condition = query.findCondition(field,
+            Condition.Operator.EQUALS, Condition.Operator.IN);
+        if (condition == null) {
+            return null;
+        }
+        List<Set<Booking>> sets = new ArrayList<>();
+        long estimate = 0;
+        for (Object value : new LinkedHashSet<>(condition.getValues())) {
+            Set<Booking> set = value == null ? null : index.apply((K) value);
+            if (set != null) {
+                sets.add(set);
+                estimate += set.size();
+            }
+        }
+        return new AccessPath.Access<>(name, List.of(condition), estimate,
+            () -> sets.stream().flatMap(Set::stream));
+    }
+    
+    /**
+     * Add inside compute, so a concurrent removeFrom cannot drop the set being added to
+     */
+    private static void addTo(Map<String, Set<Booking>> index, String key, Booking booking) {
+        index.compute(key, (k, set) -> {
+            Set<Booking> members = set != null ? set : ConcurrentHashMap.newKeySet();
+            members.add(booking);
+            return members;
+        });
+    }
+    
+    private static void removeFrom(Map<String, Set<Booking>> index, String key, Booking booking) {
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(booking);
+            return set.isEmpty() ? null : set;
+        });
     }
 }
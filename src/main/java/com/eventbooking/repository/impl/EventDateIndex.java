@@ -0,0 +1,150 @@
+package com.eventbooking.repository.impl;
+
+import com.eventbooking.model.Event;
+import com.eventbooking.model.EventChangeListener;
+import com.eventbooking.model.EventStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Time-ordered index over events, keyed by (eventDateTime, eventId)
+ * Backed by concurrent skip lists, so date-range and next-N-upcoming
+ * queries cost O(log n + k) and come back already sorted. A second skip
+ * list holds only UPCOMING events so browse pages never step over
+ * cancelled or completed ones. Follows date and status changes through
+ * EventChangeListener.
+ */
+class EventDateIndex implements EventChangeListener {
+
+    private final ConcurrentSkipListMap<DateKey, Event> byDate = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<DateKey, Event> upcomingByDate = new ConcurrentSkipListMap<>();
+
+    void add(Event event) {
+        // Date and status changes are serialized on the event's monitor
+        synchronized (event) {
+            event.addChangeListener(this);
+            DateKey key = new DateKey(event.getEventDateTime(), event.getEventId());
+            byDate.put(key, event);
+            if (event.getStatus() == EventStatus.UPCOMING) {
+                upcomingByDate.put(key, event);
+            }
+        }
+    }
+
+    void remove(Event event) {
+        synchronized (event) {
+            event.removeChangeListener(this);
+            DateKey key = new DateKey(event.getEventDateTime(), event.getEventId());
+            byDate.remove(key);
+            upcomingByDate.remove(key);
+        }
+    }
+
+    /**
+     * Events dated within [start, end], ordered by date
+     */
+    List<Event> findBetween(LocalDateTime start, LocalDateTime end) {
+        return new ArrayList<>(between(start, end).values());
+    }
+
+    /**
+     * Lazy, weakly consistent view of the same range
+     */
+    Stream<Event> streamBetween(LocalDateTime start, LocalDateTime end) {
+        return between(start, end).values().stream();
+    }
+
+    private NavigableMap<DateKey, Event> between(LocalDateTime start, LocalDateTime end) {
+        if (end.isBefore(start)) {
+            return Collections.emptyNavigableMap();
+        }
+        if (end.equals(LocalDateTime.MAX)) {
+            return byDate.tailMap(DateKey.lowest(start), true);
+        }
+        return byDate.subMap(DateKey.lowest(start), true, DateKey.lowest(end.plusNanos(1)), false);
+    }
+
+    /**
+     * UPCOMING events dated after the given instant, ordered by date
+     * @param limit Maximum number of results; non-positive means no limit
+     */
+    List<Event> findUpcomingAfter(LocalDateTime after, int limit) {
+        Collection<Event> upcoming = upcomingByDate.tailMap(DateKey.lowest(after.plusNanos(1))).values();
+        if (limit <= 0) {
+            return new ArrayList<>(upcoming);
+        }
+        List<Event> result = new ArrayList<>(Math.min(limit, 64));
+        for (Event event : upcoming) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(event);
+        }
+        return result;
+    }
+
+    @Override
+    public void onDateTimeChanged(Event event, LocalDateTime oldDateTime, LocalDateTime newDateTime) {
+        DateKey oldKey = new DateKey(oldDateTime, event.getEventId());
+        DateKey newKey = new DateKey(newDateTime, event.getEventId());
+        if (byDate.remove(oldKey) != null) {
+            byDate.put(newKey, event);
+        }
+        if (upcomingByDate.remove(oldKey) != null) {
+            upcomingByDate.put(newKey, event);
+        }
+    }
+
+    @Override
+    public void onStatusChanged(Event event, EventStatus oldStatus, EventStatus newStatus) {
+        DateKey key = new DateKey(event.getEventDateTime(), event.getEventId());
+        if (newStatus == EventStatus.UPCOMING) {
+            upcomingByDate.put(key, event);
+        } else if (oldStatus == EventStatus.UPCOMING) {
+            upcomingByDate.remove(key);
+        }
+    }
+
+    private static final class DateKey implements Comparable<DateKey> {
+        private final LocalDateTime dateTime;
+        private final String eventId;
+
+        DateKey(LocalDateTime dateTime, String eventId) {
+            this.dateTime = dateTime;
+            this.eventId = eventId;
+        }
+
+        /**
+         * Sorts before every real event at the same instant
+         */
+        static DateKey lowest(LocalDateTime dateTime) {
+            return new DateKey(dateTime, "");
+        }
+
+        @Override
+        public int compareTo(DateKey other) {
+            int byTime = dateTime.compareTo(other.dateTime);
+            return byTime != 0 ? byTime : eventId.compareTo(other.eventId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof DateKey)) return false;
+            DateKey other = (DateKey) o;
+            return dateTime.equals(other.dateTime) && eventId.equals(other.eventId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * dateTime.hashCode() + eventId.hashCode();
+        }
+    }
+}
@@ -1,35 +1,94 @@
 package com.eventbooking.repository.impl;
 
+import com.eventbooking.index.EventBitmapIndex;
+import com.eventbooking.index.EventGeoIndex;
 import com.eventbooking.model.Event;
 import com.eventbooking.model.EventCategory;
 import com.eventbooking.model.EventStatus;
+import com.eventbooking.model.GeoPoint;
+import com.eventbooking.query.AccessPath;
+import com.eventbooking.query.Condition;
+import com.eventbooking.query.EventFields;
+import com.eventbooking.query.Query;
+import com.eventbooking.query.QueryPlan;
+import com.eventbooking.query.QueryPlanner;
+import com.eventbooking.repository.EventFilter;
 import com.eventbooking.repository.EventRepository;
+import com.eventbooking.repository.Page;
+import com.eventbooking.repository.RepositoryJournal;
+import com.eventbooking.search.EventSearchIndex;
+import com.eventbooking.tiering.ColdStorage;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * In-memory implementation of EventRepository
- * Thread-safe using ConcurrentHashMap
+ * Thread-safe using ConcurrentHashMap; date queries go through a skip-list
+ * index, text queries through an EventSearchIndex and attribute filters
+ * through an EventBitmapIndex, and location queries through an EventGeoIndex.
+ * With cold storage, lookups by ID also find archived events; every other
+ * finder covers live events only.
  */
 public class EventRepositoryImpl implements EventRepository {
     
+    private static final int GEO_SCAN_THRESHOLD = 1000;
+    
     private final Map<String, Event> events = new ConcurrentHashMap<>();
+    // ID-ordered view for keyset pagination
+    private final NavigableMap<String, Event> eventsById = new ConcurrentSkipListMap<>();
+    private final EventDateIndex dateIndex = new EventDateIndex();
+    private final EventSearchIndex searchIndex = new EventSearchIndex();
+    private final EventBitmapIndex bitmapIndex = new EventBitmapIndex();
+    private final EventGeoIndex geoIndex = new EventGeoIndex();
+    private final QueryPlanner<Event> planner = new QueryPlanner<>(
+        List.of(this::primaryKeyAccess, this::bitmapAccess, this::dateAccess, this::nameAccess),
+        this::stream, events::size);
+    private final RepositoryJournal<Event, String> journal;
+    private final ColdStorage coldStorage;
+    
+    public EventRepositoryImpl() {
+        this(RepositoryJournal.none());
+    }
+    
+    /**
+     * @param journal Receives every stored write, e.g. to make it durable
+     */
+    public EventRepositoryImpl(RepositoryJournal<Event, String> journal) {
+        this(journal, null);
+    }
+    
+    /**
+     * @param coldStorage Archived events to fall back to, or null for none
+     */
+    public EventRepositoryImpl(RepositoryJournal<Event, String> journal, ColdStorage coldStorage) {
+        this.journal = journal;
+        this.coldStorage = coldStorage;
+    }
     
     @Override
     public Event save(Event event) {
         if (event == null) {
             throw new IllegalArgumentException("Event cannot be null");
         }
-        events.put(event.getEventId(), event);
+        store(event);
+        journalWrite(event);
         return event;
     }
     
     @Override
     public Optional<Event> findById(String id) {
-        return Optional.ofNullable(events.get(id));
+        Event event = events.get(id);
+        if (event == null && coldStorage != null) {
+            return coldStorage.findEvent(id);
+        }
+        return Optional.ofNullable(event);
     }
     
     @Override
@@ -37,62 +96,310 @@ public class EventRepositoryImpl implements EventRepository {
         return new ArrayList<>(events.values());
     }
     
+    @Override
+    public Page<Event, String> findPage(String after, int limit) {
+        return KeysetPager.page(eventsById, after, limit);
+    }
+    
+    @Override
+    public Stream<Event> stream() {
+        return events.values().stream();
+    }
+    
     @Override
     public Event update(Event event) {
         if (event == null || !events.containsKey(event.getEventId())) {
             throw new IllegalArgumentException("Event not found");
         }
-        events.put(event.getEventId(), event);
+        event.incrementVersion();
+        store(event);
+        journalWrite(event);
+        return event;
+    }
+    
+    @Override
+    public Event compareAndUpdate(String id, long expectedVersion, Consumer<? super Event> change) {
+        Event event = events.get(id);
+        if (event == null) {
+            throw new IllegalArgumentException("Event not found");
+        }
+        VersionedUpdate.apply(event, id, expectedVersion, change);
+        store(event);
+        journalWrite(event);
         return event;
     }
     
     @Override
     public boolean deleteById(String id) {
-        return events.remove(id) != null;
+        Event event = evict(id);
+        if (event == null) {
+            return false;
+        }
+        try {
+            journal.deleted(id);
+        } catch (RuntimeException e) {
+            // Still on disk, so still served unless saved again meanwhile
+            if (events.putIfAbsent(id, event) == null) {
+                store(event);
+            }
+            throw e;
+        }
+        return true;
     }
     
     @Override
     public boolean existsById(String id) {
-        return events.containsKey(id);
+        return events.containsKey(id) || coldStorage != null && coldStorage.containsEvent(id);
     }
     
     @Override
     public List<Event> findByCategory(EventCategory category) {
-        return events.values().stream()
-                .filter(event -> event.getCategory() == category)
-                .collect(Collectors.toList());
+        return bitmapIndex.findByCategory(category);
     }
     
     @Override
     public List<Event> findByStatus(EventStatus status) {
-        return events.values().stream()
-                .filter(event -> event.getStatus() == status)
-                .collect(Collectors.toList());
+        return bitmapIndex.findByStatus(status);
+    }
+    
+    @Override
+    public List<Event> findByFilter(EventFilter filter) {
+        return bitmapIndex.find(filter);
+    }
+    
+    @Override
+    public List<Event> query(Query<Event> query) {
+        return planner.execute(query);
+    }
+    
+    @Override
+    public QueryPlan explain(Query<Event> query) {
+        return planner.explain(query);
     }
     
     @Override
     public List<Event> findByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return events.values().stream()
-                .filter(event -> !event.getEventDateTime().isBefore(startDate) &&
-                               !event.getEventDateTime().isAfter(endDate))
-                .collect(Collectors.toList());
+        return dateIndex.findBetween(startDate, endDate);
+    }
+    
+    @Override
+    public Stream<Event> streamByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        return dateIndex.streamBetween(startDate, endDate);
     }
     
     @Override
     public List<Event> findUpcomingEvents() {
-        LocalDateTime now = LocalDateTime.now();
-        return events.values().stream()
-                .filter(event -> event.getEventDateTime().isAfter(now) &&
-                               event.getStatus() == EventStatus.UPCOMING)
-                .sorted(Comparator.comparing(Event::getEventDateTime))
-                .collect(Collectors.toList());
+        return dateIndex.findUpcomingAfter(LocalDateTime.now(), 0);
+    }
+    
+    @Override
+    public List<Event> findUpcomingEvents(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return dateIndex.findUpcomingAfter(LocalDateTime.now(), limit);
     }
     
     @Override
     public List<Event> searchByName(String name) {
-        String searchTerm = name.toLowerCase();
-        return events.values().stream()
-                .filter(event -> event.getName().toLowerCase().contains(searchTerm))
-                .collect(Collectors.toList());
+        return searchIndex.search(name);
+    }
+    
+    @Override
+    public List<Event> search(String text, int limit) {
+        return searchIndex.search(text, limit);
+    }
+    
+    @Override
+    public List<String> autocomplete(String prefix, int limit) {
+        return searchIndex.autocomplete(prefix, limit);
+    }
+    
+    @Override
+    public List<Event> findNear(GeoPoint center, double radiusKm, EventFilter filter) {
+        if (radiusKm >= 0 && isSelective(filter)) {
+            return byDistance(center, bitmapIndex.find(filter), radiusKm, Integer.MAX_VALUE);
+        }
+        return geoIndex.findWithinRadius(center, radiusKm, asPredicate(filter));
+    }
+    
+    @Override
+    public List<Event> findWithinBox(GeoPoint southWest, GeoPoint northEast, EventFilter filter) {
+        return geoIndex.findWithinBox(southWest, northEast, asPredicate(filter));
+    }
+    
+    @Override
+    public List<Event> findNearest(GeoPoint center, int k, EventFilter filter) {
+        if (k > 0 && isSelective(filter)) {
+            return byDistance(center, bitmapIndex.find(filter), Double.MAX_VALUE, k);
+        }
+        return geoIndex.findNearest(center, k, asPredicate(filter));
+    }
+    
+    private static Predicate<Event> asPredicate(EventFilter filter) {
+        return filter == null || filter.isEmpty() ? null : filter::matches;
+    }
+    
+    /**
+     * Few enough filter matches that measuring each beats growing a geo search around them
+     */
+    private boolean isSelective(EventFilter filter) {
+        return filter != null && !filter.isEmpty() && bitmapIndex.count(filter) <= GEO_SCAN_THRESHOLD;
+    }
+    
+    private static List<Event> byDistance(GeoPoint center, List<Event> candidates, double radiusKm, int limit) {
+        List<Map.Entry<Event, Double>> hits = new ArrayList<>();
+        for (Event event : candidates) {
+            GeoPoint location = event.getVenue() != null ? event.getVenue().getLocation() : null;
+            if (location != null) {
+                double distanceKm = location.distanceKm(center);
+                if (distanceKm <= radiusKm) {
+                    hits.add(Map.entry(event, distanceKm));
+                }
+            }
+        }
+        hits.sort(Map.Entry.comparingByValue());
+        return hits.stream().limit(limit).map(Map.Entry::getKey).toList();
+    }
+    
+    private void store(Event event) {
+        Event previous = events.put(event.getEventId(), event);
+        eventsById.put(event.getEventId(), event);
+        if (previous == event) {
+            // Already indexed; the indexes follow its changes as its listeners
+            return;
+        }
+        if (previous != null) {
+            dateIndex.remove(previous);
+            searchIndex.remove(previous);
+            bitmapIndex.remove(previous);
+            geoIndex.remove(previous);
+        }
+        dateIndex.add(event);
+        searchIndex.add(event);
+        bitmapIndex.add(event);
+        geoIndex.add(event);
+    }
+    
+    /**
+     * Make a published write durable, or take it back out of memory
+     * A new event is simply removed again. A stored one was changed in
+     * place, which cannot be reverted, so it is dropped from memory rather
+     * than served in a state the journal does not have; a restart brings
+     * back its last durable state.
+     */
+    private void journalWrite(Event event) {
+        try {
+            journal.written(event);
+        } catch (RuntimeException e) {
+            if (events.get(event.getEventId()) == event) {
+                evict(event.getEventId());
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * @return The event dropped, or null if none was stored
+     */
+    private Event evict(String id) {
+        Event event = events.remove(id);
+        if (event != null) {
+            eventsById.remove(id);
+            dateIndex.remove(event);
+            searchIndex.remove(event);
+            bitmapIndex.remove(event);
+            geoIndex.remove(event);
+        }
+        return event;
+    }
+    
+    private AccessPath.Access<Event> primaryKeyAccess(Query<Event> query) {
+        Condition<Event> byId = query.findCondition(EventFields.EVENT_ID,
+            Condition.Operator.EQUALS, Condition.Operator.IN);
+        if (byId == null) {
+            return null;
+        }
+        return new AccessPath.Access<>("primary-key", List.of(byId), byId.getValues().size(),
+            () -> byId.getValues().stream().distinct().map(events::get).filter(Objects::nonNull));
+    }
+    
+    /**
+     * Category, status and city are answered exactly by the bitmaps; a date
+     * range only narrows by day, so it stays in the residual filter
+     */
+    private AccessPath.Access<Event> bitmapAccess(Query<Event> query) {
+        EventFilter filter = new EventFilter();
+        List<Condition<Event>> covered = new ArrayList<>();
+        Condition<Event> category = query.findCondition(EventFields.CATEGORY,
+            Condition.Operator.EQUALS, Condition.Operator.IN);
+        if (category != null) {
+            category.getValues().forEach(value -> filter.withCategory((EventCategory) value));
+            covered.add(category);
+        }
+        Condition<Event> status = query.findCondition(EventFields.STATUS,
+            Condition.Operator.EQUALS, Condition.Operator.IN);
+        if (status != null) {
+            status.getValues().forEach(value -> filter.withStatus((EventStatus) value));
+            covered.add(status);
+        }
+        Condition<Event> city = query.findCondition(EventFields.CITY,
+            Condition.Operator.EQUALS, Condition.Operator.IN);
+        if (city != null) {
+            city.getValues().forEach(value -> filter.withCity((String) value));
+            covered.add(city);
+        }
+        if (covered.isEmpty()) {
+            return null;
+        }
+        Condition<Event> dateRange = query.findCondition(EventFields.DATE_TIME, Condition.Operator.BETWEEN);
+        if (dateRange != null) {
+            if (isReversed(dateRange)) {
+                return new AccessPath.Access<>("bitmap", covered, 0, Stream::empty);
+            }
+            filter.between(toDay(dateRange.getValues().get(0)), toDay(dateRange.getValues().get(1)));
+        }
+        return new AccessPath.Access<>("bitmap", covered, bitmapIndex.count(filter),
+            () -> bitmapIndex.find(filter).stream());
+    }
+    
+    private AccessPath.Access<Event> dateAccess(Query<Event> query) {
+        Condition<Event> dateRange = query.findCondition(EventFields.DATE_TIME, Condition.Operator.BETWEEN);
+        if (dateRange == null) {
+            return null;
+        }
+        if (isReversed(dateRange)) {
+            return new AccessPath.Access<>("date-skiplist", List.of(dateRange), 0, Stream::empty);
+        }
+        LocalDateTime from = (LocalDateTime) dateRange.getValues().get(0);
+        LocalDateTime to = (LocalDateTime) dateRange.getValues().get(1);
+        // Day buckets of the bitmap index double as range statistics
+        int estimate = bitmapIndex.count(new EventFilter().between(toDay(from), toDay(to)));
+        return new AccessPath.Access<>("date-skiplist", List.of(dateRange), estimate,
+            () -> dateIndex.streamBetween(from != null ? from : LocalDateTime.MIN,
+                                          to != null ? to : LocalDateTime.MAX));
+    }
+    
+    private AccessPath.Access<Event> nameAccess(Query<Event> query) {
+        Condition<Event> name = query.findCondition(EventFields.NAME, Condition.Operator.CONTAINS);
+        if (name == null) {
+            return null;
+        }
+        String text = (String) name.getValues().get(0);
+        return new AccessPath.Access<>("name-trigram", List.of(name), searchIndex.estimateNameMatches(text),
+            () -> searchIndex.search(text).stream());
+    }
+    
+    private static LocalDate toDay(Object dateTime) {
+        return dateTime == null ? null : ((LocalDateTime) dateTime).toLocalDate();
+    }
+    
+    /**
+     * A BETWEEN whose end is before its start is valid and matches nothing
+     */
+    private static boolean isReversed(Condition<Event> dateRange) {
+        LocalDateTime from = (LocalDateTime) dateRange.getValues().get(0);
+        LocalDateTime to = (LocalDateTime) dateRange.getValues().get(1);
+        return from != null && to != null && to.isBefore(from);
     }
 }
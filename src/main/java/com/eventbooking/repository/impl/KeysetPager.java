@@ -0,0 +1,36 @@
+package com.eventbooking.repository.impl;
+
+import com.eventbooking.repository.Page;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Keyset pagination over an ID-ordered view of a repository
+ * Each page is a seek past the cursor plus limit steps, so deep pages cost
+ * the same as the first one and nothing beyond the page is copied.
+ */
+final class KeysetPager {
+
+    private KeysetPager() {
+    }
+
+    static <T> Page<T, String> page(NavigableMap<String, T> byId, String after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        NavigableMap<String, T> remaining = after == null ? byId : byId.tailMap(after, false);
+        List<T> items = new ArrayList<>(Math.min(limit, 256));
+        String lastId = null;
+        for (Map.Entry<String, T> entry : remaining.entrySet()) {
+            if (items.size() == limit) {
+                return new Page<>(items, lastId);
+            }
+            items.add(entry.getValue());
+            lastId = entry.getKey();
+        }
+        return new Page<>(items, null);
+    }
+}
@@ -1,10 +1,15 @@
 package com.eventbooking.repository.impl;
 
 import com.eventbooking.model.User;
+import com.eventbooking.repository.Page;
+import com.eventbooking.repository.RepositoryJournal;
 import com.eventbooking.repository.UserRepository;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * In-memory implementation of UserRepository
@@ -13,14 +18,28 @@ public class UserRepositoryImpl implements UserRepository {
     
     private final Map<String, User> users = new ConcurrentHashMap<>();
     private final Map<String, String> emailToIdMap = new ConcurrentHashMap<>();
+    // ID-ordered view for keyset pagination
+    private final NavigableMap<String, User> usersById = new ConcurrentSkipListMap<>();
+    private final RepositoryJournal<User, String> journal;
+    
+    public UserRepositoryImpl() {
+        this(RepositoryJournal.none());
+    }
+    
+    /**
+     * @param journal Receives every stored write, e.g. to make it durable
+     */
+    public UserRepositoryImpl(RepositoryJournal<User, String> journal) {
+        this.journal = journal;
+    }
     
     @Override
     public User save(User user) {
         if (user == null) {
             throw new IllegalArgumentException("User cannot be null");
         }
-        users.put(user.getUserId(), user);
-        emailToIdMap.put(user.getEmail().toLowerCase(), user.getUserId());
+        store(user);
+        journalWrite(user);
         return user;
     }
     
@@ -34,24 +53,60 @@ public class UserRepositoryImpl implements UserRepository {
         return new ArrayList<>(users.values());
     }
     
+    @Override
+    public Page<User, String> findPage(String after, int limit) {
+        return KeysetPager.page(usersById, after, limit);
+    }
+    
+    @Override
+    public Stream<User> stream() {
+        return users.values().stream();
+    }
+    
     @Override
     public User update(User user) {
         if (user == null || !users.containsKey(user.getUserId())) {
             throw new IllegalArgumentException("User not found");
         }
-        users.put(user.getUserId(), user);
-        emailToIdMap.put(user.getEmail().toLowerCase(), user.getUserId());
+        user.incrementVersion();
+        store(user);
+        journalWrite(user);
+        return user;
+    }
+    
+    @Override
+    public User compareAndUpdate(String id, long expectedVersion, Consumer<? super User> change) {
+        User user = users.get(id);
+        if (user == null) {
+            throw new IllegalArgumentException("User not found");
+        }
+        // Still current if the version check passes, since nothing else was stored in between
+        String oldEmail = user.getEmail();
+        VersionedUpdate.apply(user, id, expectedVersion, change);
+        if (!oldEmail.equalsIgnoreCase(user.getEmail())) {
+            emailToIdMap.remove(oldEmail.toLowerCase(), id);
+        }
+        emailToIdMap.put(user.getEmail().toLowerCase(), id);
+        journalWrite(user);
         return user;
     }
     
     @Override
     public boolean deleteById(String id) {
-        User user = users.remove(id);
-        if (user != null) {
-            emailToIdMap.remove(user.getEmail().toLowerCase());
-            return true;
+        User user = evict(id);
+        if (user == null) {
+            return false;
         }
-        return false;
+        try {
+            journal.deleted(id);
+        } catch (RuntimeException e) {
+            // Still on disk, so still served unless saved again meanwhile
+            if (users.putIfAbsent(id, user) == null) {
+                store(user);
+            }
+            throw e;
+        }
+        return true;
     }
     
     @Override
@@ -69,4 +124,40 @@ public class UserRepositoryImpl implements UserRepository {
     public boolean existsByEmail(String email) {
         return emailToIdMap.containsKey(email.toLowerCase());
     }
+    
+    private void store(User user) {
+        users.put(user.getUserId(), user);
+        usersById.put(user.getUserId(), user);
+        emailToIdMap.put(user.getEmail().toLowerCase(), user.getUserId());
+    }
+    
+    /**
+     * Make a published write durable, or take it back out of memory
+     * A new user is simply removed again. A stored one was changed in
+     * place, which cannot be reverted, so it is dropped from memory rather
+     * than served in a state the journal does not have; a restart brings
+     * back its last durable state.
+     */
+    private void journalWrite(User user) {
+        try {
+            journal.written(user);
+        } catch (RuntimeException e) {
+            if (users.get(user.getUserId()) == user) {
+                evict(user.getUserId());
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * @return The user dropped, or null if none was stored
+     */
+    private User evict(String id) {
+        User user = users.remove(id);
+        if (user != null) {
+            usersById.remove(id);
+            emailToIdMap.remove(user.getEmail().toLowerCase(), id);
+        }
+        return user;
+    }
 }
@@ -0,0 +1,29 @@
+package com.eventbooking.repository.impl;
+
+import com.eventbooking.exception.OptimisticLockException;
+import com.eventbooking.model.Versioned;
+
+import java.util.function.Consumer;
+
+/**
+ * Version check shared by the in-memory and JDBC repositories
+ * Runs on the entity's monitor, which setters and status changes already
+ * use, so checking the version, applying the change and bumping the
+ * version happen as one step. Nothing is held while callers read and decide.
+ */
+public final class VersionedUpdate {
+    
+    private VersionedUpdate() {
+    }
+    
+    public static <T extends Versioned> void apply(T entity, String entityId, long expectedVersion,
+                                            Consumer<? super T> change) {
+        synchronized (entity) {
+            if (entity.getVersion() != expectedVersion) {
+                throw new OptimisticLockException(entityId, expectedVersion, entity.getVersion());
+            }
+            change.accept(entity);
+            entity.incrementVersion();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.eventbooking.repository.jdbc;
+
+import com.eventbooking.exception.DataAccessException;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-size pool of JDBC connections, each with its own prepared-statement cache
+ * Connections are opened on demand up to the pool size and then reused;
+ * a borrower first takes one of pool-size permits, so a connection that
+ * is returned or discarded frees a waiter at once. Every unit of work
+ * runs in one transaction on one connection: it is committed when the
+ * work returns and rolled back if it throws. A connection that fails with
+ * a connection-level error is discarded rather than returned to the pool.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    public static final int DEFAULT_POOL_SIZE = 8;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+    private static final long BORROW_TIMEOUT_SECONDS = 30;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int statementCacheSize;
+    private final BlockingQueue<PooledConnection> idle;
+    // One per connection that may be lent out; idle connections hold none
+    private final Semaphore permits;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password) {
+        this(url, user, password, DEFAULT_POOL_SIZE, DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    /**
+     * @param size Maximum number of open connections
+     * @param statementCacheSize Prepared statements kept open per connection
+     */
+    public ConnectionPool(String url, String user, String password, int size, int statementCacheSize) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.permits = new Semaphore(size, true);
+        this.statementCacheSize = statementCacheSize;
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * Run work in a transaction on a pooled connection
+     * @throws DataAccessException wrapping any SQLException
+     */
+    public <R> R execute(Work<R> work) {
+        PooledConnection connection = borrow();
+        boolean reusable = true;
+        try {
+            R result = work.run(connection);
+            connection.connection().commit();
+            return result;
+        } catch (SQLException e) {
+            reusable = rollback(connection) && !isConnectionError(e);
+            throw new DataAccessException("Database operation failed: " + e.getMessage(), e);
+        } catch (RuntimeException | Error e) {
+            reusable = rollback(connection);
+            throw e;
+        } finally {
+            release(connection, reusable);
+        }
+    }
+
+    /**
+     * Run work that returns nothing in a transaction on a pooled connection
+     */
+    public void run(VoidWork work) {
+        execute(connection -> {
+            work.run(connection);
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        List<PooledConnection> drained = new ArrayList<>();
+        idle.drainTo(drained);
+        drained.forEach(PooledConnection::close);
+    }
+
+    private PooledConnection borrow() {
+        if (closed) {
+            throw new IllegalStateException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new DataAccessException("No database connection free after "
+                        + BORROW_TIMEOUT_SECONDS + " seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted waiting for a database connection");
+        }
+        PooledConnection connection = idle.poll();
+        if (connection != null) {
+            return connection;
+        }
+        try {
+            return open();
+        } catch (SQLException e) {
+            permits.release();
+            throw new DataAccessException("Cannot connect to " + url, e);
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection connection = user != null
+                ? DriverManager.getConnection(url, user, password)
+                : DriverManager.getConnection(url);
+        connection.setAutoCommit(false);
+        return new PooledConnection(connection, statementCacheSize);
+    }
+
+    private void release(PooledConnection connection, boolean reusable) {
+        if (!reusable || closed || !idle.offer(connection)) {
+            connection.close();
+        }
+        permits.release();
+    }
+
+    private static boolean rollback(PooledConnection connection) {
+        try {
+            connection.connection().rollback();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * SQLState class 08 is a connection exception
+     */
+    private static boolean isConnectionError(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+
+    @FunctionalInterface
+    public interface Work<R> {
+        R run(PooledConnection connection) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface VoidWork {
+        void run(PooledConnection connection) throws SQLException;
+    }
+}
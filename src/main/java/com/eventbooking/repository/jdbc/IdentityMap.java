@@ -0,0 +1,72 @@
+package com.eventbooking.repository.jdbc;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loaded entities by ID, held only while something else still uses them
+ * Every reader of an ID gets the same instance as long as any caller,
+ * booking or service keeps it; once none does it is collected and the
+ * next read builds it again from its rows, as after a restart. The map
+ * thus grows with the working set rather than with the table. Entries
+ * of collected instances are purged on later writes.
+ */
+final class IdentityMap<V> {
+
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<V> collected = new ReferenceQueue<>();
+
+    /**
+     * The loaded instance, or null if none is in use
+     */
+    V get(String id) {
+        Entry<V> entry = entries.get(id);
+        return entry != null ? entry.get() : null;
+    }
+
+    void put(String id, V value) {
+        purge();
+        entries.put(id, new Entry<>(id, value, collected));
+    }
+
+    /**
+     * Keep the value unless an instance of the ID is already in use
+     * @return The instance in use, or null if the value was kept
+     */
+    V putIfAbsent(String id, V value) {
+        purge();
+        while (true) {
+            Entry<V> current = entries.get(id);
+            V held = current != null ? current.get() : null;
+            if (held != null) {
+                return held;
+            }
+            Entry<V> entry = new Entry<>(id, value, collected);
+            if (current == null ? entries.putIfAbsent(id, entry) == null : entries.replace(id, current, entry)) {
+                return null;
+            }
+        }
+    }
+
+    void remove(String id) {
+        entries.remove(id);
+    }
+
+    private void purge() {
+        for (Object reference; (reference = collected.poll()) != null; ) {
+            Entry<?> entry = (Entry<?>) reference;
+            entries.remove(entry.id, entry);
+        }
+    }
+
+    private static final class Entry<V> extends WeakReference<V> {
+        private final String id;
+
+        Entry(String id, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package com.eventbooking.repository.jdbc;
+
+import com.eventbooking.model.Booking;
+import com.eventbooking.model.BookingStatus;
+import com.eventbooking.model.Event;
+import com.eventbooking.model.Payment;
+import com.eventbooking.model.PaymentMethod;
+import com.eventbooking.model.PaymentStatus;
+import com.eventbooking.model.Ticket;
+import com.eventbooking.model.TicketStatus;
+import com.eventbooking.model.TicketType;
+import com.eventbooking.model.User;
+import com.eventbooking.query.AccessPath;
+import com.eventbooking.query.BookingFields;
+import com.eventbooking.query.Condition;
+import com.eventbooking.query.Field;
+import com.eventbooking.query.Query;
+import com.eventbooking.query.QueryPlan;
+import com.eventbooking.query.QueryPlanner;
+import com.eventbooking.repository.BookingRepository;
+import com.eventbooking.repository.EventRepository;
+import com.eventbooking.repository.Page;
+import com.eventbooking.repository.UserRepository;
+import com.eventbooking.repository.impl.VersionedUpdate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * JDBC implementation of BookingRepository
+ * A booking is one row with its payment inline plus one row per ticket,
+ * keyed by its position in the booking. Each table's rows are written
+ * with one multi-row upsert sized to them, so a booking of up to
+ * MAX_ROWS_PER_STATEMENT tickets costs one statement per table and the
+ * commit; larger writes batch full statements and send the rest as one
+ * more. Finders read bookings joined to their tickets in one indexed query
+ * and resolve rows through an identity map; users and events are resolved
+ * through their repositories.
+ */
+public class JdbcBookingRepository implements BookingRepository {
+
+    private static final String BOOKING_COLUMNS = "booking_id, user_id, event_id, status, booked_at, version, "
+            + "payment_id, payment_amount, payment_method, payment_status, payment_created_at, "
+            + "payment_completed_at, transaction_reference";
+    private static final String TICKET_COLUMNS = "booking_id, position, ticket_id, ticket_type_id, seat_number, "
+            + "status, issued_at, price_paid";
+    private static final int BOOKING_COLUMN_COUNT = BOOKING_COLUMNS.split(", ").length;
+    private static final int TICKET_COLUMN_COUNT = TICKET_COLUMNS.split(", ").length;
+    // Keeps a statement under SQLite's historical 999-parameter limit
+    private static final int MAX_ROWS_PER_STATEMENT = 64;
+
+    private final ConnectionPool pool;
+    private final UserRepository userRepository;
+    private final EventRepository eventRepository;
+    // Indexed by row count
+    private final String[] upsertBookings = new String[MAX_ROWS_PER_STATEMENT + 1];
+    private final String[] upsertTickets = new String[MAX_ROWS_PER_STATEMENT + 1];
+    private final IdentityMap<Booking> loaded = new IdentityMap<>();
+    private final QueryPlanner<Booking> planner = new QueryPlanner<>(
+        List.of(query -> indexAccess(query, "primary-key", BookingFields.BOOKING_ID, "booking_id"),
+                query -> indexAccess(query, "user-index", BookingFields.USER_ID, "user_id"),
+                query -> indexAccess(query, "event-index", BookingFields.EVENT_ID, "event_id"),
+                query -> indexAccess(query, "status-index", BookingFields.STATUS, "status")),
+        this::stream, () -> count("SELECT COUNT(*) FROM bookings"));
+
+    /**
+     * @param userRepository Resolves the user of each booking read
+     * @param eventRepository Resolves the event and ticket types of each booking read
+     */
+    public JdbcBookingRepository(ConnectionPool pool, SqlDialect dialect,
+                                 UserRepository userRepository, EventRepository eventRepository) {
+        this.pool = pool;
+        this.userRepository = userRepository;
+        this.eventRepository = eventRepository;
+        for (int rows = 1; rows <= MAX_ROWS_PER_STATEMENT; rows++) {
+            upsertBookings[rows] = dialect.upsert("bookings", new String[] {"booking_id"}, rows,
+                    BOOKING_COLUMNS.split(", "));
+            upsertTickets[rows] = dialect.upsert("tickets", new String[] {"booking_id", "position"}, rows,
+                    TICKET_COLUMNS.split(", "));
+        }
+    }
+
+    @Override
+    public Booking save(Booking booking) {
+        if (booking == null) {
+            throw new IllegalArgumentException("Booking cannot be null");
+        }
+        write(List.of(booking));
+        loaded.put(booking.getBookingId(), booking);
+        return booking;
+    }
+
+    @Override
+    public List<Booking> saveAll(List<Booking> bookingsToSave) {
+        for (Booking booking : bookingsToSave) {
+            if (booking == null) {
+                throw new IllegalArgumentException("Booking cannot be null");
+            }
+        }
+        if (!bookingsToSave.isEmpty()) {
+            write(bookingsToSave);
+            bookingsToSave.forEach(booking -> loaded.put(booking.getBookingId(), booking));
+        }
+        return bookingsToSave;
+    }
+
+    @Override
+    public Optional<Booking> findById(String id) {
+        Booking booking = loaded.get(id);
+        if (booking != null) {
+            return Optional.of(booking);
+        }
+        List<Booking> bookings = select("booking_id = ?", false, id);
+        return bookings.isEmpty() ? Optional.empty() : Optional.of(bookings.get(0));
+    }
+
+    @Override
+    public List<Booking> findAll() {
+        return select(null, false);
+    }
+
+    @Override
+    public Page<Booking, String> findPage(String after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        // One extra row tells whether another page follows
+        List<Booking> bookings = after == null
+                ? select(null, true, limit + 1)
+                : select("booking_id > ?", true, after, limit + 1);
+        if (bookings.size() <= limit) {
+            return new Page<>(bookings, null);
+        }
+        List<Booking> items = new ArrayList<>(bookings.subList(0, limit));
+        return new Page<>(items, items.get(limit - 1).getBookingId());
+    }
+
+    @Override
+    public Stream<Booking> stream() {
+        return streamWhere(null);
+    }
+
+    @Override
+    public Booking update(Booking booking) {
+        if (booking == null || !existsById(booking.getBookingId())) {
+            throw new IllegalArgumentException("Booking not found");
+        }
+        booking.incrementVersion();
+        write(List.of(booking));
+        loaded.put(booking.getBookingId(), booking);
+        return booking;
+    }
+
+    @Override
+    public Booking compareAndUpdate(String id, long expectedVersion, Consumer<? super Booking> change) {
+        Booking booking = findById(id).orElseThrow(() -> new IllegalArgumentException("Booking not found"));
+        VersionedUpdate.apply(booking, id, expectedVersion, change);
+        write(List.of(booking));
+        return booking;
+    }
+
+    @Override
+    public boolean deleteById(String id) {
+        int deleted = pool.execute(connection -> {
+            PreparedStatement tickets = connection.prepare("DELETE FROM tickets WHERE booking_id = ?");
+            tickets.setString(1, id);
+            tickets.executeUpdate();
+            PreparedStatement statement = connection.prepare("DELETE FROM bookings WHERE booking_id = ?");
+            statement.setString(1, id);
+            return statement.executeUpdate();
+        });
+        loaded.remove(id);
+        return deleted > 0;
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return loaded.get(id) != null || count("SELECT COUNT(*) FROM bookings WHERE booking_id = ?", id) > 0;
+    }
+
+    @Override
+    public List<Booking> findByUserId(String userId) {
+        return select("user_id = ?", false, userId);
+    }
+
+    @Override
+    public List<Booking> findByEventId(String eventId) {
+        return select("event_id = ?", false, eventId);
+    }
+
+    @Override
+    public List<Booking> findByStatus(BookingStatus status) {
+        return select("status = ?", false, status);
+    }
+
+    @Override
+    public Stream<Booking> streamByEventId(String eventId) {
+        return streamWhere("event_id = ?", eventId);
+    }
+
+    @Override
+    public Stream<Booking> streamByUserId(String userId) {
+        return streamWhere("user_id = ?", userId);
+    }
+
+    @Override
+    public Stream<Booking> streamByStatus(BookingStatus status) {
+        return streamWhere("status = ?", status);
+    }
+
+    @Override
+    public List<Booking> query(Query<Booking> query) {
+        return planner.execute(query);
+    }
+
+    @Override
+    public QueryPlan explain(Query<Booking> query) {
+        return planner.explain(query);
+    }
+
+    @Override
+    public List<Booking> findByUserIdAndStatus(String userId, BookingStatus status) {
+        return select("user_id = ? AND status = ?", false, userId, status);
+    }
+
+    /**
+     * Rows are copied first, each booking under its monitor so a concurrent
+     * status change cannot tear them; all statements run in one transaction,
+     * so a booking is never stored without its tickets
+     */
+    private void write(List<Booking> bookings) {
+        Map<String, BookingRow> rows = new LinkedHashMap<>();
+        List<TicketRow> tickets = new ArrayList<>();
+        for (Booking booking : bookings) {
+            BookingRow row;
+            synchronized (booking) {
+                row = new BookingRow(booking);
+            }
+            // A booking passed twice is written once, as it last was
+            BookingRow replaced = rows.put(row.bookingId, row);
+            if (replaced != null) {
+                tickets.removeAll(replaced.tickets);
+            }
+            tickets.addAll(row.tickets);
+        }
+        pool.run(connection -> {
+            upsertRows(connection, upsertBookings, new ArrayList<>(rows.values()), BOOKING_COLUMN_COUNT,
+                    BookingRow::bind);
+            upsertRows(connection, upsertTickets, tickets, TICKET_COLUMN_COUNT, TicketRow::bind);
+        });
+    }
+
+    /**
+     * One statement sized to the rows; past MAX_ROWS_PER_STATEMENT, full
+     * statements go as one batch and the remainder as one more statement
+     * @param statements Upsert text by row count
+     */
+    private static <T> void upsertRows(PooledConnection connection, String[] statements, List<T> rows,
+                                       int columns, RowBinder<T> binder) throws SQLException {
+        int full = rows.size() / MAX_ROWS_PER_STATEMENT;
+        if (full > 0) {
+            PreparedStatement statement = connection.prepare(statements[MAX_ROWS_PER_STATEMENT]);
+            for (int chunk = 0; chunk < full; chunk++) {
+                for (int i = 0; i < MAX_ROWS_PER_STATEMENT; i++) {
+                    binder.bind(rows.get(chunk * MAX_ROWS_PER_STATEMENT + i), statement, i * columns);
+                }
+                if (full > 1) {
+                    statement.addBatch();
+                }
+            }
+            if (full > 1) {
+                statement.executeBatch();
+            } else {
+                statement.executeUpdate();
+            }
+        }
+        int offset = full * MAX_ROWS_PER_STATEMENT;
+        int remainder = rows.size() - offset;
+        if (remainder > 0) {
+            PreparedStatement statement = connection.prepare(statements[remainder]);
+            for (int i = 0; i < remainder; i++) {
+                binder.bind(rows.get(offset + i), statement, i * columns);
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Bookings matching a condition on the bookings table, with their tickets, in ID order
+     * @param condition SQL condition, or null for every booking
+     * @param limited Whether the last parameter is a limit on the number of bookings
+     */
+    private List<Booking> select(String condition, boolean limited, Object... parameters) {
+        String bookings = "SELECT " + BOOKING_COLUMNS + " FROM bookings"
+                + (condition != null ? " WHERE " + condition : "")
+                + (limited ? " ORDER BY booking_id LIMIT ?" : "");
+        String sql = "SELECT b.*, t.position, t.ticket_id, t.ticket_type_id, t.seat_number, "
+                + "t.status AS ticket_status, t.issued_at, t.price_paid FROM (" + bookings + ") b "
+                + "LEFT JOIN tickets t ON t.booking_id = b.booking_id ORDER BY b.booking_id, t.position";
+        List<BookingRow> rows = pool.execute(connection -> {
+            PreparedStatement statement = connection.prepare(sql);
+            JdbcValues.bind(statement, parameters);
+            List<BookingRow> result = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                BookingRow current = null;
+                while (resultSet.next()) {
+                    String bookingId = resultSet.getString("booking_id");
+                    if (current == null || !current.bookingId.equals(bookingId)) {
+                        current = new BookingRow(resultSet);
+                        result.add(current);
+                    }
+                    if (resultSet.getString("ticket_id") != null) {
+                        current.tickets.add(new TicketRow(resultSet));
+                    }
+                }
+            }
+            return result;
+        });
+        // Users and events load outside the transaction so no connection is held while they do
+        List<Booking> result = new ArrayList<>(rows.size());
+        for (BookingRow row : rows) {
+            result.add(resolve(row));
+        }
+        return result;
+    }
+
+    private Stream<Booking> streamWhere(String condition, Object... parameters) {
+        return KeysetStream.of(after -> {
+            List<Object> page = new ArrayList<>(Arrays.asList(parameters));
+            String where = condition;
+            if (after != null) {
+                where = where != null ? where + " AND booking_id > ?" : "booking_id > ?";
+                page.add(after);
+            }
+            page.add(KeysetStream.PAGE_SIZE);
+            return select(where, true, page.toArray());
+        }, Booking::getBookingId);
+    }
+
+    private long count(String sql, Object... parameters) {
+        return pool.execute(connection -> {
+            PreparedStatement statement = connection.prepare(sql);
+            JdbcValues.bind(statement, parameters);
+            try (ResultSet rows = statement.executeQuery()) {
+                rows.next();
+                return rows.getLong(1);
+            }
+        });
+    }
+
+    /**
+     * The loaded instance for the row's ID, or a new one built from the rows
+     */
+    private Booking resolve(BookingRow row) {
+        Booking booking = loaded.get(row.bookingId);
+        if (booking != null) {
+            return booking;
+        }
+        User user = userRepository.findById(row.userId).orElseThrow(() -> new IllegalStateException(
+                "Booking " + row.bookingId + " refers to missing user " + row.userId));
+        Event event = eventRepository.findById(row.eventId).orElseThrow(() -> new IllegalStateException(
+                "Booking " + row.bookingId + " refers to missing event " + row.eventId));
+        booking = new Booking(row.bookingId, user, event, row.status, row.bookedAt, row.version);
+        for (TicketRow ticket : row.tickets) {
+            TicketType ticketType = event.findTicketType(ticket.ticketTypeId).orElseThrow(
+                    () -> new IllegalStateException("Booking " + row.bookingId
+                            + " refers to missing ticket type " + ticket.ticketTypeId));
+            booking.addTicket(event.restoreTicket(ticket.ticketId, ticketType, ticket.seatNumber,
+                    ticket.status, ticket.issuedAt, ticket.pricePaid));
+        }
+        if (row.paymentId != null) {
+            booking.setPayment(new Payment(row.paymentId, booking, row.paymentAmount, row.paymentMethod,
+                    row.paymentStatus, row.paymentCreatedAt, row.paymentCompletedAt, row.transactionReference));
+        }
+        Booking raced = loaded.putIfAbsent(row.bookingId, booking);
+        return raced != null ? raced : booking;
+    }
+
+    /**
+     * Equality or IN on an indexed column; a count over the index serves as the row estimate
+     */
+    private AccessPath.Access<Booking> indexAccess(Query<Booking> query, String name,
+                                                   Field<Booking, ?> field, String column) {
+        Condition<Booking> condition = query.findCondition(field,
+            Condition.Operator.EQUALS, Condition.Operator.IN);
+        if (condition == null) {
+            return null;
+        }
+        Object[] values = new LinkedHashSet<>(condition.getValues()).stream()
+                .filter(Objects::nonNull).toArray();
+        if (values.length == 0) {
+            return new AccessPath.Access<>(name, List.of(condition), 0, Stream::empty);
+        }
+        String in = column + " IN (" + SqlDialect.placeholders(values.length) + ")";
+        return new AccessPath.Access<>(name, List.of(condition),
+            count("SELECT COUNT(*) FROM bookings WHERE " + in, values),
+            () -> select(in, false, values).stream());
+    }
+
+    private static final class BookingRow {
+        private final String bookingId;
+        private final String userId;
+        private final String eventId;
+        private final BookingStatus status;
+        private final LocalDateTime bookedAt;
+        private final long version;
+        private final String paymentId;
+        private final BigDecimal paymentAmount;
+        private final PaymentMethod paymentMethod;
+        private final PaymentStatus paymentStatus;
+        private final LocalDateTime paymentCreatedAt;
+        private final LocalDateTime paymentCompletedAt;
+        private final String transactionReference;
+        private final List<TicketRow> tickets = new ArrayList<>();
+
+        BookingRow(Booking booking) {
+            Payment payment = booking.getPayment();
+            this.bookingId = booking.getBookingId();
+            this.userId = booking.getUser().getUserId();
+            this.eventId = booking.getEvent().getEventId();
+            this.status = booking.getStatus();
+            this.bookedAt = booking.getBookingDateTime();
+            this.version = booking.getVersion();
+            this.paymentId = payment != null ? payment.getPaymentId() : null;
+            this.paymentAmount = payment != null ? payment.getAmount() : null;
+            this.paymentMethod = payment != null ? payment.getPaymentMethod() : null;
+            this.paymentStatus = payment != null ? payment.getStatus() : null;
+            this.paymentCreatedAt = payment != null ? payment.getCreatedAt() : null;
+            this.paymentCompletedAt = payment != null ? payment.getCompletedAt() : null;
+            this.transactionReference = payment != null ? payment.getTransactionReference() : null;
+            List<Ticket> bookingTickets = booking.getTickets();
+            for (int i = 0; i < bookingTickets.size(); i++) {
+                tickets.add(new TicketRow(bookingId, i, bookingTickets.get(i)));
+            }
+        }
+
+        BookingRow(ResultSet rows) throws SQLException {
+            this.bookingId = rows.getString("booking_id");
+            this.userId = rows.getString("user_id");
+            this.eventId = rows.getString("event_id");
+            this.status = JdbcValues.getEnum(rows, "status", BookingStatus.values());
+            this.bookedAt = JdbcValues.getDateTime(rows, "booked_at");
+            this.version = rows.getLong("version");
+            this.paymentId = rows.getString("payment_id");
+            this.paymentAmount = JdbcValues.getDecimal(rows, "payment_amount");
+            this.paymentMethod = JdbcValues.getEnum(rows, "payment_method", PaymentMethod.values());
+            this.paymentStatus = JdbcValues.getEnum(rows, "payment_status", PaymentStatus.values());
+            this.paymentCreatedAt = JdbcValues.getDateTime(rows, "payment_created_at");
+            this.paymentCompletedAt = JdbcValues.getDateTime(rows, "payment_completed_at");
+            this.transactionReference = rows.getString("transaction_reference");
+        }
+
+        void bind(PreparedStatement statement, int offset) throws SQLException {
+            statement.setString(offset + 1, bookingId);
+            statement.setString(offset + 2, userId);
+            statement.setString(offset + 3, eventId);
+            JdbcValues.setEnum(statement, offset + 4, status);
+            JdbcValues.setDateTime(statement, offset + 5, bookedAt);
+            statement.setLong(offset + 6, version);
+            JdbcValues.setString(statement, offset + 7, paymentId);
+            JdbcValues.setDecimal(statement, offset + 8, paymentAmount);
+            JdbcValues.setEnum(statement, offset + 9, paymentMethod);
+            JdbcValues.setEnum(statement, offset + 10, paymentStatus);
+            JdbcValues.setDateTime(statement, offset + 11, paymentCreatedAt);
+            JdbcValues.setDateTime(statement, offset + 12, paymentCompletedAt);
+            JdbcValues.setString(statement, offset + 13, transactionReference);
+        }
+    }
+
+    private static final class TicketRow {
+        private final String bookingId;
+        private final int position;
+        private final String ticketId;
+        private final String ticketTypeId;
+        private final String seatNumber;
+        private final TicketStatus status;
+        private final LocalDateTime issuedAt;
+        private final BigDecimal pricePaid;
+
+        TicketRow(String bookingId, int position, Ticket ticket) {
+            this.bookingId = bookingId;
+            this.position = position;
+            this.ticketId = ticket.getTicketId();
+            this.ticketTypeId = ticket.getTicketType().getTicketTypeId();
+            this.seatNumber = ticket.getSeatNumber();
+            this.status = ticket.getStatus();
+            this.issuedAt = ticket.getIssuedAt();
+            this.pricePaid = ticket.getPricePaid();
+        }
+
+        TicketRow(ResultSet rows) throws SQLException {
+            this.bookingId = rows.getString("booking_id");
+            this.position = rows.getInt("position");
+            this.ticketId = rows.getString("ticket_id");
+            this.ticketTypeId = rows.getString("ticket_type_id");
+            this.seatNumber = rows.getString("seat_number");
+            this.status = JdbcValues.getEnum(rows, "ticket_status", TicketStatus.values());
+            this.issuedAt = JdbcValues.getDateTime(rows, "issued_at");
+            this.pricePaid = JdbcValues.getDecimal(rows, "price_paid");
+        }
+
+        void bind(PreparedStatement statement, int offset) throws SQLException {
+            statement.setString(offset + 1, bookingId);
+            statement.setInt(offset + 2, position);
+            statement.setString(offset + 3, ticketId);
+            statement.setString(offset + 4, ticketTypeId);
+            JdbcValues.setString(statement, offset + 5, seatNumber);
+            JdbcValues.setEnum(statement, offset + 6, status);
+            JdbcValues.setDateTime(statement, offset + 7, issuedAt);
+            JdbcValues.setDecimal(statement, offset + 8, pricePaid);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowBinder<T> {
+        void bind(T row, PreparedStatement statement, int offset) throws SQLException;
+    }
+}
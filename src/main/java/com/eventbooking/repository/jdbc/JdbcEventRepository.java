@@ -0,0 +1,815 @@
+package com.eventbooking.repository.jdbc;
+
+import com.eventbooking.codec.EpochMicros;
+import com.eventbooking.inventory.RestoredInventory;
+import com.eventbooking.inventory.SeatMap;
+import com.eventbooking.model.Address;
+import com.eventbooking.model.BookingStatus;
+import com.eventbooking.model.Event;
+import com.eventbooking.model.EventCategory;
+import com.eventbooking.model.EventStatus;
+import com.eventbooking.model.GeoPoint;
+import com.eventbooking.model.TicketStatus;
+import com.eventbooking.model.TicketTier;
+import com.eventbooking.model.TicketType;
+import com.eventbooking.model.Venue;
+import com.eventbooking.model.VenueSection;
+import com.eventbooking.query.AccessPath;
+import com.eventbooking.query.Condition;
+import com.eventbooking.query.EventFields;
+import com.eventbooking.query.Query;
+import com.eventbooking.query.QueryPlan;
+import com.eventbooking.query.QueryPlanner;
+import com.eventbooking.repository.EventFilter;
+import com.eventbooking.repository.EventRepository;
+import com.eventbooking.repository.Page;
+import com.eventbooking.repository.impl.VersionedUpdate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * JDBC implementation of EventRepository
+ * Every finder is one indexed query; rows resolve through an identity map,
+ * so a loaded event keeps its live seat maps, waitlists and inventory
+ * counters. An event's inventory is rebuilt once, when it first loads,
+ * from the tickets of the bookings holding it. Unlike users and bookings,
+ * events stay loaded until deleted, since their waitlists are not stored.
+ * Full-text search runs on an inverted table of the lowercase words in
+ * each name and description.
+ */
+public class JdbcEventRepository implements EventRepository {
+
+    private static final double INITIAL_NEAREST_RADIUS_KM = 10;
+
+    private static final String COLUMNS = "event_id, name, name_lower, description, event_date, category, "
+            + "status, total_capacity, venue_id, city_lower, latitude, longitude, version";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM events";
+    private static final String VENUE_COLUMNS = "venue_id, name, has_address, street, city, state, zip_code, "
+            + "country, capacity, facilities, latitude, longitude";
+    private static final String TICKET_TYPE_COLUMNS = "ticket_type_id, event_id, position, name, description, "
+            + "price, total_quantity, tier, seated, sections";
+    // Section names are joined on a character no name is expected to contain
+    private static final String SECTION_SEPARATOR = "\n";
+
+    private final ConnectionPool pool;
+    private final String upsertEvent;
+    private final String upsertVenue;
+    private final String upsertTicketType;
+    private final Map<String, Event> loaded = new ConcurrentHashMap<>();
+    // Events at one venue share its instance, as they do in memory
+    private final Map<String, Venue> venues = new ConcurrentHashMap<>();
+    private final QueryPlanner<Event> planner = new QueryPlanner<>(
+        List.of(this::primaryKeyAccess, this::attributeAccess, this::dateAccess, this::nameAccess),
+        this::stream, () -> count("SELECT COUNT(*) FROM events"));
+
+    public JdbcEventRepository(ConnectionPool pool, SqlDialect dialect) {
+        this.pool = pool;
+        this.upsertEvent = dialect.upsert("events", new String[] {"event_id"}, COLUMNS.split(", "));
+        this.upsertVenue = dialect.upsert("venues", new String[] {"venue_id"}, VENUE_COLUMNS.split(", "));
+        this.upsertTicketType = dialect.upsert("ticket_types", new String[] {"ticket_type_id"},
+                TICKET_TYPE_COLUMNS.split(", "));
+    }
+
+    @Override
+    public Event save(Event event) {
+        if (event == null) {
+            throw new IllegalArgumentException("Event cannot be null");
+        }
+        write(event);
+        loaded.put(event.getEventId(), event);
+        return event;
+    }
+
+    @Override
+    public Optional<Event> findById(String id) {
+        Event event = loaded.get(id);
+        if (event != null) {
+            return Optional.of(event);
+        }
+        List<Event> events = select(SELECT + " WHERE event_id = ?", id);
+        return events.isEmpty() ? Optional.empty() : Optional.of(events.get(0));
+    }
+
+    @Override
+    public List<Event> findAll() {
+        return select(SELECT + " ORDER BY event_id");
+    }
+
+    @Override
+    public Page<Event, String> findPage(String after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        // One extra row tells whether another page follows
+        List<Event> events = after == null
+                ? select(SELECT + " ORDER BY event_id LIMIT ?", limit + 1)
+                : select(SELECT + " WHERE event_id > ? ORDER BY event_id LIMIT ?", after, limit + 1);
+        if (events.size() <= limit) {
+            return new Page<>(events, null);
+        }
+        List<Event> items = new ArrayList<>(events.subList(0, limit));
+        return new Page<>(items, items.get(limit - 1).getEventId());
+    }
+
+    @Override
+    public Stream<Event> stream() {
+        return KeysetStream.of(after -> after == null
+                        ? select(SELECT + " ORDER BY event_id LIMIT ?", KeysetStream.PAGE_SIZE)
+                        : select(SELECT + " WHERE event_id > ? ORDER BY event_id LIMIT ?",
+                                 after, KeysetStream.PAGE_SIZE),
+                Event::getEventId);
+    }
+
+    @Override
+    public Event update(Event event) {
+        if (event == null || !existsById(event.getEventId())) {
+            throw new IllegalArgumentException("Event not found");
+        }
+        event.incrementVersion();
+        write(event);
+        loaded.put(event.getEventId(), event);
+        return event;
+    }
+
+    @Override
+    public Event compareAndUpdate(String id, long expectedVersion, Consumer<? super Event> change) {
+        Event event = findById(id).orElseThrow(() -> new IllegalArgumentException("Event not found"));
+        VersionedUpdate.apply(event, id, expectedVersion, change);
+        write(event);
+        return event;
+    }
+
+    @Override
+    public boolean deleteById(String id) {
+        int deleted = pool.execute(connection -> {
+            deleteChildren(connection, id);
+            PreparedStatement statement = connection.prepare("DELETE FROM events WHERE event_id = ?");
+            statement.setString(1, id);
+            return statement.executeUpdate();
+        });
+        loaded.remove(id);
+        return deleted > 0;
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return loaded.containsKey(id) || count("SELECT COUNT(*) FROM events WHERE event_id = ?", id) > 0;
+    }
+
+    @Override
+    public List<Event> findByCategory(EventCategory category) {
+        return select(SELECT + " WHERE category = ? ORDER BY event_date, event_id", category);
+    }
+
+    @Override
+    public List<Event> findByStatus(EventStatus status) {
+        return select(SELECT + " WHERE status = ? ORDER BY event_date, event_id", status);
+    }
+
+    @Override
+    public List<Event> findByFilter(EventFilter filter) {
+        Where where = new Where();
+        where.filter(filter);
+        return select(SELECT + where + " ORDER BY event_date, event_id", where.parameters());
+    }
+
+    @Override
+    public List<Event> query(Query<Event> query) {
+        return planner.execute(query);
+    }
+
+    @Override
+    public QueryPlan explain(Query<Event> query) {
+        return planner.explain(query);
+    }
+
+    @Override
+    public List<Event> findByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        if (endDate.isBefore(startDate)) {
+            return new ArrayList<>();
+        }
+        return select(SELECT + " WHERE event_date >= ? AND event_date <= ? ORDER BY event_date, event_id",
+                EpochMicros.toBoundMicros(startDate), EpochMicros.toBoundMicros(endDate));
+    }
+
+    @Override
+    public Stream<Event> streamByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        if (endDate.isBefore(startDate)) {
+            return Stream.empty();
+        }
+        long from = EpochMicros.toBoundMicros(startDate);
+        long to = EpochMicros.toBoundMicros(endDate);
+        String range = SELECT + " WHERE event_date >= ? AND event_date <= ?";
+        // Keyset on (event_date, event_id), which the date index is ordered by
+        return KeysetStream.<Event, Event>of(after -> after == null
+                        ? select(range + " ORDER BY event_date, event_id LIMIT ?",
+                                 from, to, KeysetStream.PAGE_SIZE)
+                        : select(range + " AND (event_date > ? OR (event_date = ? AND event_id > ?))"
+                                         + " ORDER BY event_date, event_id LIMIT ?",
+                                 from, to, after.getEventDateTime(), after.getEventDateTime(),
+                                 after.getEventId(), KeysetStream.PAGE_SIZE),
+                event -> event);
+    }
+
+    @Override
+    public List<Event> findUpcomingEvents() {
+        return select(SELECT + " WHERE status = ? AND event_date > ? ORDER BY event_date, event_id",
+                EventStatus.UPCOMING, LocalDateTime.now());
+    }
+
+    @Override
+    public List<Event> findUpcomingEvents(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return select(SELECT + " WHERE status = ? AND event_date > ? ORDER BY event_date, event_id LIMIT ?",
+                EventStatus.UPCOMING, LocalDateTime.now(), limit);
+    }
+
+    @Override
+    public List<Event> searchByName(String name) {
+        return select(SELECT + " WHERE name_lower LIKE ? ESCAPE '!' ORDER BY event_date, event_id",
+                JdbcValues.containsPattern(normalize(name)));
+    }
+
+    /**
+     * Events whose name contains the text rank first, then events with every
+     * word of the text in their name or description; each group by date
+     */
+    @Override
+    public List<Event> search(String text, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        String query = normalize(text);
+        String pattern = JdbcValues.containsPattern(query);
+        List<String> terms = new ArrayList<>(tokenize(query).keySet());
+        List<Object> parameters = new ArrayList<>(List.of(pattern));
+        StringBuilder sql = new StringBuilder(SELECT).append(" WHERE name_lower LIKE ? ESCAPE '!'");
+        if (!terms.isEmpty()) {
+            sql.append(" OR event_id IN (SELECT event_id FROM event_terms WHERE term IN (")
+               .append(SqlDialect.placeholders(terms.size()))
+               .append(") GROUP BY event_id HAVING COUNT(*) = ?)");
+            parameters.addAll(terms);
+            parameters.add(terms.size());
+        }
+        sql.append(" ORDER BY CASE WHEN name_lower LIKE ? ESCAPE '!' THEN 0 ELSE 1 END, event_date, event_id")
+           .append(" LIMIT ?");
+        parameters.add(pattern);
+        parameters.add(limit);
+        return select(sql.toString(), parameters.toArray());
+    }
+
+    @Override
+    public List<String> autocomplete(String prefix, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        String normalized = normalize(prefix).trim();
+        return pool.execute(connection -> {
+            PreparedStatement statement = connection.prepare("SELECT term FROM event_terms "
+                    + "WHERE in_name = 1 AND term >= ? AND term < ? "
+                    + "GROUP BY term ORDER BY COUNT(*) DESC, term LIMIT ?");
+            JdbcValues.bind(statement, normalized, normalized + '\uffff', limit);
+            List<String> words = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    words.add(rows.getString(1));
+                }
+            }
+            return words;
+        });
+    }
+
+    @Override
+    public List<Event> findNear(GeoPoint center, double radiusKm, EventFilter filter) {
+        if (radiusKm < 0) {
+            throw new IllegalArgumentException("Radius must not be negative");
+        }
+        return byDistance(center, withinRadius(center, radiusKm, filter), radiusKm, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Event> findWithinBox(GeoPoint southWest, GeoPoint northEast, EventFilter filter) {
+        return withinBox(southWest.getLatitude(), southWest.getLongitude(),
+                northEast.getLatitude(), northEast.getLongitude(), filter);
+    }
+
+    @Override
+    public List<Event> findNearest(GeoPoint center, int k, EventFilter filter) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        double radiusKm = INITIAL_NEAREST_RADIUS_KM;
+        while (true) {
+            List<Event> candidates = withinRadius(center, radiusKm, filter);
+            List<Event> nearest = byDistance(center, candidates, radiusKm, k);
+            if (nearest.size() >= k || radiusKm >= GeoPoint.HALF_CIRCUMFERENCE_KM) {
+                return nearest;
+            }
+            radiusKm = Math.min(GeoPoint.HALF_CIRCUMFERENCE_KM, radiusKm * 4);
+        }
+    }
+
+    /**
+     * Candidates in the box enclosing the circle; distances are checked by the caller
+     */
+    private List<Event> withinRadius(GeoPoint center, double radiusKm, EventFilter filter) {
+        double latDelta = Math.toDegrees(radiusKm / GeoPoint.EARTH_RADIUS_KM);
+        double minLat = center.getLatitude() - latDelta;
+        double maxLat = center.getLatitude() + latDelta;
+        double lonDelta = Math.toDegrees(Math.asin(
+                Math.sin(radiusKm / GeoPoint.EARTH_RADIUS_KM) / Math.cos(Math.toRadians(center.getLatitude()))));
+        if (minLat <= -90 || maxLat >= 90 || radiusKm >= GeoPoint.HALF_CIRCUMFERENCE_KM / 2
+                || Double.isNaN(lonDelta)) {
+            // Reaches a pole: every longitude is in range
+            return withinBox(Math.max(-90, minLat), -180, Math.min(90, maxLat), 180, filter);
+        }
+        return withinBox(minLat, GeoPoint.wrapLongitude(center.getLongitude() - lonDelta),
+                maxLat, GeoPoint.wrapLongitude(center.getLongitude() + lonDelta), filter);
+    }
+
+    /**
+     * A west edge east of the east edge crosses the antimeridian
+     */
+    private List<Event> withinBox(double minLat, double minLon, double maxLat, double maxLon, EventFilter filter) {
+        Where where = new Where();
+        where.add("latitude BETWEEN ? AND ?", minLat, maxLat);
+        if (minLon <= maxLon) {
+            where.add("longitude BETWEEN ? AND ?", minLon, maxLon);
+        } else {
+            where.add("(longitude >= ? OR longitude <= ?)", minLon, maxLon);
+        }
+        where.filter(filter);
+        return select(SELECT + where, where.parameters());
+    }
+
+    private static List<Event> byDistance(GeoPoint center, List<Event> candidates, double radiusKm, int limit) {
+        List<Map.Entry<Event, Double>> hits = new ArrayList<>();
+        for (Event event : candidates) {
+            GeoPoint location = event.getVenue() != null ? event.getVenue().getLocation() : null;
+            if (location != null) {
+                double distanceKm = location.distanceKm(center);
+                if (distanceKm <= radiusKm) {
+                    hits.add(Map.entry(event, distanceKm));
+                }
+            }
+        }
+        hits.sort(Map.Entry.comparingByValue());
+        return hits.stream().limit(limit).map(Map.Entry::getKey).toList();
+    }
+
+    private void write(Event event) {
+        pool.run(connection -> {
+            // The monitor keeps a concurrent in-place change from tearing the rows
+            synchronized (event) {
+                Venue venue = event.getVenue();
+                if (venue != null) {
+                    writeVenue(connection, venue);
+                    venues.put(venue.getVenueId(), venue);
+                }
+                PreparedStatement statement = connection.prepare(upsertEvent);
+                bindEvent(statement, event);
+                statement.executeUpdate();
+                deleteChildren(connection, event.getEventId());
+                writeTicketTypes(connection, event);
+                writeTerms(connection, event);
+            }
+        });
+    }
+
+    private void writeVenue(PooledConnection connection, Venue venue) throws SQLException {
+        PreparedStatement statement = connection.prepare(upsertVenue);
+        Address address = venue.getAddress();
+        GeoPoint location = venue.getLocation();
+        statement.setString(1, venue.getVenueId());
+        JdbcValues.setString(statement, 2, venue.getName());
+        statement.setInt(3, address != null ? 1 : 0);
+        JdbcValues.setString(statement, 4, address != null ? address.getStreet() : null);
+        JdbcValues.setString(statement, 5, address != null ? address.getCity() : null);
+        JdbcValues.setString(statement, 6, address != null ? address.getState() : null);
+        JdbcValues.setString(statement, 7, address != null ? address.getZipCode() : null);
+        JdbcValues.setString(statement, 8, address != null ? address.getCountry() : null);
+        statement.setInt(9, venue.getCapacity());
+        JdbcValues.setString(statement, 10, venue.getFacilities());
+        JdbcValues.setDouble(statement, 11, location != null ? location.getLatitude() : null);
+        JdbcValues.setDouble(statement, 12, location != null ? location.getLongitude() : null);
+        statement.executeUpdate();
+
+        PreparedStatement delete = connection.prepare("DELETE FROM venue_sections WHERE venue_id = ?");
+        delete.setString(1, venue.getVenueId());
+        delete.executeUpdate();
+        List<VenueSection> sections = venue.getSections();
+        if (!sections.isEmpty()) {
+            PreparedStatement insert = connection.prepare("INSERT INTO venue_sections "
+                    + "(venue_id, position, name, seat_rows, seats_per_row) VALUES (?, ?, ?, ?, ?)");
+            for (int i = 0; i < sections.size(); i++) {
+                VenueSection section = sections.get(i);
+                JdbcValues.bind(insert, venue.getVenueId(), i, section.getName(),
+                        section.getRows(), section.getSeatsPerRow());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static void bindEvent(PreparedStatement statement, Event event) throws SQLException {
+        Venue venue = event.getVenue();
+        Address address = venue != null ? venue.getAddress() : null;
+        GeoPoint location = venue != null ? venue.getLocation() : null;
+        String city = address != null && address.getCity() != null ? address.getCity().trim().toLowerCase() : null;
+        statement.setString(1, event.getEventId());
+        JdbcValues.setString(statement, 2, event.getName());
+        JdbcValues.setString(statement, 3, event.getName() != null ? event.getName().toLowerCase() : null);
+        JdbcValues.setString(statement, 4, event.getDescription());
+        JdbcValues.setDateTime(statement, 5, event.getEventDateTime());
+        JdbcValues.setEnum(statement, 6, event.getCategory());
+        JdbcValues.setEnum(statement, 7, event.getStatus());
+        statement.setInt(8, event.getTotalCapacity());
+        JdbcValues.setString(statement, 9, venue != null ? venue.getVenueId() : null);
+        JdbcValues.setString(statement, 10, city);
+        JdbcValues.setDouble(statement, 11, location != null ? location.getLatitude() : null);
+        JdbcValues.setDouble(statement, 12, location != null ? location.getLongitude() : null);
+        statement.setLong(13, event.getVersion());
+    }
+
+    private void writeTicketTypes(PooledConnection connection, Event event) throws SQLException {
+        List<TicketType> ticketTypes = event.getTicketTypes();
+        if (ticketTypes.isEmpty()) {
+            return;
+        }
+        PreparedStatement statement = connection.prepare(upsertTicketType);
+        for (int i = 0; i < ticketTypes.size(); i++) {
+            TicketType ticketType = ticketTypes.get(i);
+            SeatMap seatMap = ticketType.getSeatMap();
+            statement.setString(1, ticketType.getTicketTypeId());
+            statement.setString(2, event.getEventId());
+            statement.setInt(3, i);
+            JdbcValues.setString(statement, 4, ticketType.getName());
+            JdbcValues.setString(statement, 5, ticketType.getDescription());
+            JdbcValues.setDecimal(statement, 6, ticketType.getPrice());
+            statement.setInt(7, ticketType.getTotalQuantity());
+            JdbcValues.setEnum(statement, 8, ticketType.getTier());
+            statement.setInt(9, seatMap != null ? 1 : 0);
+            JdbcValues.setString(statement, 10, seatMap != null
+                    ? String.join(SECTION_SEPARATOR, seatMap.getSectionNames()) : null);
+            statement.addBatch();
+        }
+        statement.executeBatch();
+    }
+
+    private static void writeTerms(PooledConnection connection, Event event) throws SQLException {
+        Map<String, Boolean> terms = tokenize(normalize(event.getName()));
+        terms.replaceAll((term, inName) -> true);
+        tokenize(normalize(event.getDescription())).keySet().forEach(term -> terms.putIfAbsent(term, false));
+        if (terms.isEmpty()) {
+            return;
+        }
+        PreparedStatement statement = connection.prepare(
+                "INSERT INTO event_terms (term, event_id, in_name) VALUES (?, ?, ?)");
+        for (Map.Entry<String, Boolean> term : terms.entrySet()) {
+            JdbcValues.bind(statement, term.getKey(), event.getEventId(), term.getValue() ? 1 : 0);
+            statement.addBatch();
+        }
+        statement.executeBatch();
+    }
+
+    /**
+     * Ticket types and search terms are rewritten whole on every event write
+     */
+    private static void deleteChildren(PooledConnection connection, String eventId) throws SQLException {
+        for (String sql : List.of("DELETE FROM ticket_types WHERE event_id = ?",
+                                  "DELETE FROM event_terms WHERE event_id = ?")) {
+            PreparedStatement statement = connection.prepare(sql);
+            statement.setString(1, eventId);
+            statement.executeUpdate();
+        }
+    }
+
+    private List<Event> select(String sql, Object... parameters) {
+        List<EventRow> rows = pool.execute(connection -> {
+            PreparedStatement statement = connection.prepare(sql);
+            JdbcValues.bind(statement, parameters);
+            List<EventRow> result = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    result.add(new EventRow(resultSet));
+                }
+            }
+            return result;
+        });
+        List<Event> events = new ArrayList<>(rows.size());
+        for (EventRow row : rows) {
+            events.add(resolve(row));
+        }
+        return events;
+    }
+
+    private long count(String sql, Object... parameters) {
+        return pool.execute(connection -> {
+            PreparedStatement statement = connection.prepare(sql);
+            JdbcValues.bind(statement, parameters);
+            try (ResultSet rows = statement.executeQuery()) {
+                rows.next();
+                return rows.getLong(1);
+            }
+        });
+    }
+
+    /**
+     * The loaded instance for the row's ID, or a new one built from the row,
+     * its venue and ticket types, with inventory held by stored bookings
+     */
+    private Event resolve(EventRow row) {
+        Event event = loaded.get(row.eventId);
+        if (event != null) {
+            return event;
+        }
+        event = pool.execute(connection -> {
+            Venue venue = row.venueId != null ? loadVenue(connection, row.venueId) : null;
+            Event built = new Event(row.eventId, row.name, row.description, row.dateTime, venue,
+                    row.category, row.status, row.totalCapacity, row.version);
+            loadTicketTypes(connection, built);
+            reserveInventory(connection, built);
+            return built;
+        });
+        Event raced = loaded.putIfAbsent(row.eventId, event);
+        return raced != null ? raced : event;
+    }
+
+    private Venue loadVenue(PooledConnection connection, String venueId) throws SQLException {
+        Venue venue = venues.get(venueId);
+        if (venue != null) {
+            return venue;
+        }
+        PreparedStatement statement = connection.prepare(
+                "SELECT " + VENUE_COLUMNS + " FROM venues WHERE venue_id = ?");
+        statement.setString(1, venueId);
+        try (ResultSet rows = statement.executeQuery()) {
+            if (!rows.next()) {
+                return null;
+            }
+            Address address = rows.getInt("has_address") != 0
+                    ? new Address(rows.getString("street"), rows.getString("city"), rows.getString("state"),
+                                  rows.getString("zip_code"), rows.getString("country"))
+                    : null;
+            Double latitude = JdbcValues.getDouble(rows, "latitude");
+            Double longitude = JdbcValues.getDouble(rows, "longitude");
+            GeoPoint location = latitude != null && longitude != null ? new GeoPoint(latitude, longitude) : null;
+            venue = new Venue(venueId, rows.getString("name"), address, rows.getInt("capacity"),
+                    rows.getString("facilities"), location);
+        }
+        PreparedStatement sections = connection.prepare("SELECT name, seat_rows, seats_per_row "
+                + "FROM venue_sections WHERE venue_id = ? ORDER BY position");
+        sections.setString(1, venueId);
+        try (ResultSet rows = sections.executeQuery()) {
+            while (rows.next()) {
+                venue.addSection(new VenueSection(rows.getString(1), rows.getInt(2), rows.getInt(3)));
+            }
+        }
+        Venue raced = venues.putIfAbsent(venueId, venue);
+        return raced != null ? raced : venue;
+    }
+
+    private static void loadTicketTypes(PooledConnection connection, Event event) throws SQLException {
+        PreparedStatement statement = connection.prepare("SELECT " + TICKET_TYPE_COLUMNS
+                + " FROM ticket_types WHERE event_id = ? ORDER BY position");
+        statement.setString(1, event.getEventId());
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                TicketType ticketType = new TicketType(rows.getString("ticket_type_id"), rows.getString("name"),
+                        rows.getString("description"), JdbcValues.getDecimal(rows, "price"),
+                        rows.getInt("total_quantity"), JdbcValues.getEnum(rows, "tier", TicketTier.values()));
+                if (rows.getInt("seated") != 0) {
+                    ticketType.setSeatMap(new SeatMap(sectionsOf(event, rows.getString("sections"))));
+                }
+                event.addTicketType(ticketType);
+            }
+        }
+    }
+
+    private static List<VenueSection> sectionsOf(Event event, String joined) {
+        List<VenueSection> layout = new ArrayList<>();
+        if (joined == null || joined.isEmpty()) {
+            return layout;
+        }
+        for (String name : joined.split(SECTION_SEPARATOR)) {
+            Venue venue = event.getVenue();
+            layout.add((venue != null ? venue.findSection(name) : Optional.<VenueSection>empty())
+                    .orElseThrow(() -> new IllegalStateException("Seat map uses unknown section " + name
+                            + " of event " + event.getEventId())));
+        }
+        return layout;
+    }
+
+    private static void reserveInventory(PooledConnection connection, Event event) throws SQLException {
+        PreparedStatement statement = connection.prepare("SELECT t.ticket_type_id, t.seat_number, "
+                + "t.status AS ticket_status, b.status AS booking_status FROM tickets t "
+                + "JOIN bookings b ON b.booking_id = t.booking_id WHERE b.event_id = ?");
+        statement.setString(1, event.getEventId());
+        RestoredInventory inventory = new RestoredInventory(event);
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                TicketType ticketType = event.findTicketType(rows.getString("ticket_type_id")).orElse(null);
+                if (ticketType != null) {
+                    inventory.add(ticketType, rows.getString("seat_number"),
+                            JdbcValues.getEnum(rows, "booking_status", BookingStatus.values()),
+                            JdbcValues.getEnum(rows, "ticket_status", TicketStatus.values()));
+                }
+            }
+        }
+        inventory.reserve();
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase();
+    }
+
+    /**
+     * Words of letters and digits, each mapped to false
+     */
+    private static Map<String, Boolean> tokenize(String text) {
+        Map<String, Boolean> terms = new LinkedHashMap<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.put(text.substring(start, i), false);
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private AccessPath.Access<Event> primaryKeyAccess(Query<Event> query) {
+        Condition<Event> byId = query.findCondition(EventFields.EVENT_ID,
+            Condition.Operator.EQUALS, Condition.Operator.IN);
+        if (byId == null) {
+            return null;
+        }
+        return new AccessPath.Access<>("primary-key", List.of(byId), byId.getValues().size(),
+            () -> byId.getValues().stream().distinct()
+                    .map(id -> findById((String) id).orElse(null)).filter(Objects::nonNull));
+    }
+
+    /**
+     * Category, status and city are answered exactly by the attribute
+     * indexes; a date range only narrows by day, so it stays in the residual filter
+     */
+    private AccessPath.Access<Event> attributeAccess(Query<Event> query) {
+        EventFilter filter = new EventFilter();
+        List<Condition<Event>> covered = new ArrayList<>();
+        Condition<Event> category = query.findCondition(EventFields.CATEGORY,
+            Condition.Operator.EQUALS, Condition.Operator.IN);
+        if (category != null) {
+            category.getValues().forEach(value -> filter.withCategory((EventCategory) value));
+            covered.add(category);
+        }
+        Condition<Event> status = query.findCondition(EventFields.STATUS,
+            Condition.Operator.EQUALS, Condition.Operator.IN);
+        if (status != null) {
+            status.getValues().forEach(value -> filter.withStatus((EventStatus) value));
+            covered.add(status);
+        }
+        Condition<Event> city = query.findCondition(EventFields.CITY,
+            Condition.Operator.EQUALS, Condition.Operator.IN);
+        if (city != null) {
+            city.getValues().forEach(value -> filter.withCity((String) value));
+            covered.add(city);
+        }
+        if (covered.isEmpty()) {
+            return null;
+        }
+        Condition<Event> dateRange = query.findCondition(EventFields.DATE_TIME, Condition.Operator.BETWEEN);
+        if (dateRange != null) {
+            if (isReversed(dateRange)) {
+                return new AccessPath.Access<>("attribute-index", covered, 0, Stream::empty);
+            }
+            filter.between(toDay(dateRange.getValues().get(0)), toDay(dateRange.getValues().get(1)));
+        }
+        Where where = new Where();
+        where.filter(filter);
+        return new AccessPath.Access<>("attribute-index", covered,
+            count("SELECT COUNT(*) FROM events" + where, where.parameters()),
+            () -> findByFilter(filter).stream());
+    }
+
+    private AccessPath.Access<Event> dateAccess(Query<Event> query) {
+        Condition<Event> dateRange = query.findCondition(EventFields.DATE_TIME, Condition.Operator.BETWEEN);
+        if (dateRange == null) {
+            return null;
+        }
+        LocalDateTime from = (LocalDateTime) dateRange.getValues().get(0);
+        LocalDateTime to = (LocalDateTime) dateRange.getValues().get(1);
+        LocalDateTime start = from != null ? from : LocalDateTime.MIN;
+        LocalDateTime end = to != null ? to : LocalDateTime.MAX;
+        long estimate = end.isBefore(start) ? 0 : count("SELECT COUNT(*) FROM events "
+                + "WHERE event_date >= ? AND event_date <= ?",
+                EpochMicros.toBoundMicros(start), EpochMicros.toBoundMicros(end));
+        return new AccessPath.Access<>("date-index", List.of(dateRange), estimate,
+            () -> streamByDateRange(start, end));
+    }
+
+    private AccessPath.Access<Event> nameAccess(Query<Event> query) {
+        Condition<Event> name = query.findCondition(EventFields.NAME, Condition.Operator.CONTAINS);
+        if (name == null) {
+            return null;
+        }
+        String text = (String) name.getValues().get(0);
+        // A leading wildcard cannot use an index, so this scans the names
+        return new AccessPath.Access<>("name-scan", List.of(name),
+            count("SELECT COUNT(*) FROM events WHERE name_lower LIKE ? ESCAPE '!'",
+                  JdbcValues.containsPattern(normalize(text))),
+            () -> searchByName(text).stream());
+    }
+
+    private static LocalDate toDay(Object dateTime) {
+        return dateTime == null ? null : ((LocalDateTime) dateTime).toLocalDate();
+    }
+
+    /**
+     * A BETWEEN whose end is before its start is valid and matches nothing
+     */
+    private static boolean isReversed(Condition<Event> dateRange) {
+        LocalDateTime from = (LocalDateTime) dateRange.getValues().get(0);
+        LocalDateTime to = (LocalDateTime) dateRange.getValues().get(1);
+        return from != null && to != null && to.isBefore(from);
+    }
+
+    /**
+     * WHERE clause built from conditions and their parameters
+     */
+    private static final class Where {
+        private final List<String> clauses = new ArrayList<>();
+        private final List<Object> parameters = new ArrayList<>();
+
+        void add(String clause, Object... values) {
+            clauses.add(clause);
+            Collections.addAll(parameters, values);
+        }
+
+        void filter(EventFilter filter) {
+            if (filter == null) {
+                return;
+            }
+            in("category", new ArrayList<>(filter.getCategories()));
+            in("status", new ArrayList<>(filter.getStatuses()));
+            in("city_lower", filter.getCities().stream().map(city -> city.trim().toLowerCase()).toList());
+            if (filter.getFromDate() != null) {
+                add("event_date >= ?", filter.getFromDate().atStartOfDay());
+            }
+            if (filter.getToDate() != null) {
+                add("event_date < ?", filter.getToDate().plusDays(1).atStartOfDay());
+            }
+        }
+
+        private void in(String column, List<?> values) {
+            if (!values.isEmpty()) {
+                add(column + " IN (" + SqlDialect.placeholders(values.size()) + ")", values.toArray());
+            }
+        }
+
+        Object[] parameters() {
+            return parameters.toArray();
+        }
+
+        @Override
+        public String toString() {
+            return clauses.isEmpty() ? "" : " WHERE " + String.join(" AND ", clauses);
+        }
+    }
+
+    private static final class EventRow {
+        private final String eventId;
+        private final String name;
+        private final String description;
+        private final LocalDateTime dateTime;
+        private final EventCategory category;
+        private final EventStatus status;
+        private final int totalCapacity;
+        private final String venueId;
+        private final long version;
+
+        EventRow(ResultSet rows) throws SQLException {
+            this.eventId = rows.getString("event_id");
+            this.name = rows.getString("name");
+            this.description = rows.getString("description");
+            this.dateTime = JdbcValues.getDateTime(rows, "event_date");
+            this.category = JdbcValues.getEnum(rows, "category", EventCategory.values());
+            this.status = JdbcValues.getEnum(rows, "status", EventStatus.values());
+            this.totalCapacity = rows.getInt("total_capacity");
+            this.venueId = rows.getString("venue_id");
+            this.version = rows.getLong("version");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.eventbooking.repository.jdbc;
+
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Tables and indexes of the JDBC repositories
+ * Every finder has an index to run on. Dates are stored as epoch
+ * microseconds in UTC and enums as ordinals, so range scans compare plain
+ * integers; money is stored as decimal text to keep its scale exactly on
+ * every database. Events carry copies of their venue's city and location
+ * so combined and geographic filters need no join. Tickets are keyed by
+ * booking and position, as ticket numbers are short random values that
+ * can repeat. Ticket inventory is not stored: it is rebuilt from the
+ * tickets that hold it when an event loads.
+ */
+public final class JdbcSchema {
+
+    private static final List<String> STATEMENTS = List.of(
+            "CREATE TABLE IF NOT EXISTS users ("
+                    + "user_id VARCHAR(64) PRIMARY KEY, email VARCHAR(255) NOT NULL, "
+                    + "email_lower VARCHAR(255) NOT NULL, password VARCHAR(255), "
+                    + "first_name VARCHAR(255), last_name VARCHAR(255), phone_number VARCHAR(64), "
+                    + "role SMALLINT, registered_at BIGINT, active SMALLINT NOT NULL, version BIGINT NOT NULL)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS users_email ON users (email_lower)",
+
+            "CREATE TABLE IF NOT EXISTS venues ("
+                    + "venue_id VARCHAR(64) PRIMARY KEY, name VARCHAR(255), has_address SMALLINT NOT NULL, "
+                    + "street VARCHAR(255), city VARCHAR(255), state VARCHAR(255), zip_code VARCHAR(32), "
+                    + "country VARCHAR(255), capacity INTEGER NOT NULL, facilities VARCHAR(1024), "
+                    + "latitude DOUBLE, longitude DOUBLE)",
+            "CREATE TABLE IF NOT EXISTS venue_sections ("
+                    + "venue_id VARCHAR(64) NOT NULL, position INTEGER NOT NULL, name VARCHAR(255) NOT NULL, "
+                    + "seat_rows INTEGER NOT NULL, seats_per_row INTEGER NOT NULL, "
+                    + "PRIMARY KEY (venue_id, position))",
+
+            "CREATE TABLE IF NOT EXISTS events ("
+                    + "event_id VARCHAR(64) PRIMARY KEY, name VARCHAR(255), name_lower VARCHAR(255), "
+                    + "description VARCHAR(4000), event_date BIGINT, category SMALLINT, status SMALLINT, "
+                    + "total_capacity INTEGER NOT NULL, venue_id VARCHAR(64), city_lower VARCHAR(255), "
+                    + "latitude DOUBLE, longitude DOUBLE, version BIGINT NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS events_date ON events (event_date, event_id)",
+            "CREATE INDEX IF NOT EXISTS events_status_date ON events (status, event_date)",
+            "CREATE INDEX IF NOT EXISTS events_category_date ON events (category, event_date)",
+            "CREATE INDEX IF NOT EXISTS events_city ON events (city_lower)",
+            "CREATE INDEX IF NOT EXISTS events_location ON events (latitude, longitude)",
+            "CREATE TABLE IF NOT EXISTS event_terms ("
+                    + "term VARCHAR(255) NOT NULL, event_id VARCHAR(64) NOT NULL, in_name SMALLINT NOT NULL, "
+                    + "PRIMARY KEY (term, event_id))",
+            "CREATE INDEX IF NOT EXISTS event_terms_event ON event_terms (event_id)",
+            "CREATE TABLE IF NOT EXISTS ticket_types ("
+                    + "ticket_type_id VARCHAR(64) PRIMARY KEY, event_id VARCHAR(64) NOT NULL, "
+                    + "position INTEGER NOT NULL, name VARCHAR(255), description VARCHAR(1024), "
+                    + "price VARCHAR(64), total_quantity INTEGER NOT NULL, tier SMALLINT, "
+                    + "seated SMALLINT NOT NULL, sections VARCHAR(1024))",
+            "CREATE INDEX IF NOT EXISTS ticket_types_event ON ticket_types (event_id, position)",
+
+            "CREATE TABLE IF NOT EXISTS bookings ("
+                    + "booking_id VARCHAR(64) PRIMARY KEY, user_id VARCHAR(64) NOT NULL, "
+                    + "event_id VARCHAR(64) NOT NULL, status SMALLINT NOT NULL, booked_at BIGINT, "
+                    + "version BIGINT NOT NULL, payment_id VARCHAR(64), payment_amount VARCHAR(64), "
+                    + "payment_method SMALLINT, payment_status SMALLINT, payment_created_at BIGINT, "
+                    + "payment_completed_at BIGINT, transaction_reference VARCHAR(255))",
+            "CREATE INDEX IF NOT EXISTS bookings_user_status ON bookings (user_id, status)",
+            "CREATE INDEX IF NOT EXISTS bookings_event ON bookings (event_id)",
+            "CREATE INDEX IF NOT EXISTS bookings_status ON bookings (status, booking_id)",
+            "CREATE TABLE IF NOT EXISTS tickets ("
+                    + "booking_id VARCHAR(64) NOT NULL, position INTEGER NOT NULL, "
+                    + "ticket_id VARCHAR(64) NOT NULL, ticket_type_id VARCHAR(64) NOT NULL, "
+                    + "seat_number VARCHAR(64), status SMALLINT, issued_at BIGINT, price_paid VARCHAR(64), "
+                    + "PRIMARY KEY (booking_id, position))");
+
+    private JdbcSchema() {
+    }
+
+    /**
+     * Create whatever tables and indexes do not exist yet
+     */
+    public static void create(ConnectionPool pool) {
+        pool.run(connection -> {
+            try (Statement statement = connection.connection().createStatement()) {
+                for (String sql : STATEMENTS) {
+                    statement.execute(sql);
+                }
+            }
+        });
+    }
+}
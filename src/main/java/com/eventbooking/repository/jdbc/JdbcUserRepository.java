@@ -0,0 +1,205 @@
+package com.eventbooking.repository.jdbc;
+
+import com.eventbooking.model.User;
+import com.eventbooking.model.UserRole;
+import com.eventbooking.repository.Page;
+import com.eventbooking.repository.UserRepository;
+import com.eventbooking.repository.impl.VersionedUpdate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * JDBC implementation of UserRepository
+ * Rows are the system of record. Users read from them are kept in an
+ * identity map, so every lookup of an ID returns the same instance while
+ * it is in use and changes made to it in place are what update() writes
+ * back.
+ */
+public class JdbcUserRepository implements UserRepository {
+
+    private static final String COLUMNS = "user_id, email, email_lower, password, first_name, last_name, "
+            + "phone_number, role, registered_at, active, version";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM users";
+
+    private final ConnectionPool pool;
+    private final String upsert;
+    private final IdentityMap<User> loaded = new IdentityMap<>();
+
+    public JdbcUserRepository(ConnectionPool pool, SqlDialect dialect) {
+        this.pool = pool;
+        this.upsert = dialect.upsert("users", new String[] {"user_id"}, COLUMNS.split(", "));
+    }
+
+    @Override
+    public User save(User user) {
+        if (user == null) {
+            throw new IllegalArgumentException("User cannot be null");
+        }
+        write(user);
+        loaded.put(user.getUserId(), user);
+        return user;
+    }
+
+    @Override
+    public Optional<User> findById(String id) {
+        User user = loaded.get(id);
+        if (user != null) {
+            return Optional.of(user);
+        }
+        return selectOne(SELECT + " WHERE user_id = ?", id);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return select(SELECT + " ORDER BY user_id");
+    }
+
+    @Override
+    public Page<User, String> findPage(String after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        // One extra row tells whether another page follows
+        List<User> users = after == null
+                ? select(SELECT + " ORDER BY user_id LIMIT ?", limit + 1)
+                : select(SELECT + " WHERE user_id > ? ORDER BY user_id LIMIT ?", after, limit + 1);
+        if (users.size() <= limit) {
+            return new Page<>(users, null);
+        }
+        List<User> items = new ArrayList<>(users.subList(0, limit));
+        return new Page<>(items, items.get(limit - 1).getUserId());
+    }
+
+    @Override
+    public Stream<User> stream() {
+        return KeysetStream.of(after -> after == null
+                        ? select(SELECT + " ORDER BY user_id LIMIT ?", KeysetStream.PAGE_SIZE)
+                        : select(SELECT + " WHERE user_id > ? ORDER BY user_id LIMIT ?",
+                                 after, KeysetStream.PAGE_SIZE),
+                User::getUserId);
+    }
+
+    @Override
+    public User update(User user) {
+        if (user == null || !existsById(user.getUserId())) {
+            throw new IllegalArgumentException("User not found");
+        }
+        user.incrementVersion();
+        write(user);
+        loaded.put(user.getUserId(), user);
+        return user;
+    }
+
+    @Override
+    public User compareAndUpdate(String id, long expectedVersion, Consumer<? super User> change) {
+        User user = findById(id).orElseThrow(() -> new IllegalArgumentException("User not found"));
+        VersionedUpdate.apply(user, id, expectedVersion, change);
+        write(user);
+        return user;
+    }
+
+    @Override
+    public boolean deleteById(String id) {
+        int deleted = pool.execute(connection -> {
+            PreparedStatement statement = connection.prepare("DELETE FROM users WHERE user_id = ?");
+            statement.setString(1, id);
+            return statement.executeUpdate();
+        });
+        loaded.remove(id);
+        return deleted > 0;
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return loaded.get(id) != null || exists("SELECT 1 FROM users WHERE user_id = ?", id);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return selectOne(SELECT + " WHERE email_lower = ?", email.toLowerCase());
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return exists("SELECT 1 FROM users WHERE email_lower = ?", email.toLowerCase());
+    }
+
+    private void write(User user) {
+        pool.run(connection -> {
+            PreparedStatement statement = connection.prepare(upsert);
+            // The monitor keeps a concurrent in-place change from tearing the row
+            synchronized (user) {
+                bind(statement, user);
+            }
+            statement.executeUpdate();
+        });
+    }
+
+    private static void bind(PreparedStatement statement, User user) throws SQLException {
+        statement.setString(1, user.getUserId());
+        statement.setString(2, user.getEmail());
+        statement.setString(3, user.getEmail().toLowerCase());
+        JdbcValues.setString(statement, 4, user.getPassword());
+        JdbcValues.setString(statement, 5, user.getFirstName());
+        JdbcValues.setString(statement, 6, user.getLastName());
+        JdbcValues.setString(statement, 7, user.getPhoneNumber());
+        JdbcValues.setEnum(statement, 8, user.getRole());
+        JdbcValues.setDateTime(statement, 9, user.getRegisteredAt());
+        statement.setInt(10, user.isActive() ? 1 : 0);
+        statement.setLong(11, user.getVersion());
+    }
+
+    private Optional<User> selectOne(String sql, Object... parameters) {
+        List<User> users = select(sql, parameters);
+        return users.isEmpty() ? Optional.empty() : Optional.of(users.get(0));
+    }
+
+    private List<User> select(String sql, Object... parameters) {
+        return pool.execute(connection -> {
+            PreparedStatement statement = connection.prepare(sql);
+            JdbcValues.bind(statement, parameters);
+            List<User> users = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    users.add(resolve(rows));
+                }
+            }
+            return users;
+        });
+    }
+
+    private boolean exists(String sql, String parameter) {
+        return pool.execute(connection -> {
+            PreparedStatement statement = connection.prepare(sql);
+            statement.setString(1, parameter);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next();
+            }
+        });
+    }
+
+    /**
+     * The loaded instance for the row's ID, or a new one read from the row
+     */
+    private User resolve(ResultSet rows) throws SQLException {
+        String userId = rows.getString("user_id");
+        User user = loaded.get(userId);
+        if (user != null) {
+            return user;
+        }
+        user = new User(userId, rows.getString("email"), rows.getString("password"),
+                rows.getString("first_name"), rows.getString("last_name"), rows.getString("phone_number"),
+                JdbcValues.getEnum(rows, "role", UserRole.values()),
+                JdbcValues.getDateTime(rows, "registered_at"), rows.getInt("active") != 0,
+                rows.getLong("version"));
+        User raced = loaded.putIfAbsent(userId, user);
+        return raced != null ? raced : user;
+    }
+}
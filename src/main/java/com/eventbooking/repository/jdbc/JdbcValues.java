@@ -0,0 +1,99 @@
+package com.eventbooking.repository.jdbc;
+
+import com.eventbooking.codec.EpochMicros;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+
+/**
+ * Column conversions shared by the JDBC repositories
+ * Null-safe in both directions; see JdbcSchema for the stored forms.
+ */
+final class JdbcValues {
+
+    private JdbcValues() {
+    }
+
+    /**
+     * Bind query parameters in their stored forms
+     */
+    static void bind(PreparedStatement statement, Object... parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            Object value = parameters[i];
+            if (value instanceof Enum<?> constant) {
+                statement.setInt(i + 1, constant.ordinal());
+            } else if (value instanceof LocalDateTime dateTime) {
+                statement.setLong(i + 1, EpochMicros.toMicros(dateTime));
+            } else {
+                statement.setObject(i + 1, value);
+            }
+        }
+    }
+
+    static void setString(PreparedStatement statement, int index, String value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.VARCHAR);
+        } else {
+            statement.setString(index, value);
+        }
+    }
+
+    static void setDateTime(PreparedStatement statement, int index, LocalDateTime value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, EpochMicros.toMicros(value));
+        }
+    }
+
+    static void setEnum(PreparedStatement statement, int index, Enum<?> value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.SMALLINT);
+        } else {
+            statement.setInt(index, value.ordinal());
+        }
+    }
+
+    static void setDecimal(PreparedStatement statement, int index, BigDecimal value) throws SQLException {
+        setString(statement, index, value != null ? value.toPlainString() : null);
+    }
+
+    static void setDouble(PreparedStatement statement, int index, Double value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.DOUBLE);
+        } else {
+            statement.setDouble(index, value);
+        }
+    }
+
+    static LocalDateTime getDateTime(ResultSet rows, String column) throws SQLException {
+        long micros = rows.getLong(column);
+        return rows.wasNull() ? null : EpochMicros.fromMicros(micros);
+    }
+
+    static <E extends Enum<E>> E getEnum(ResultSet rows, String column, E[] values) throws SQLException {
+        int ordinal = rows.getInt(column);
+        return rows.wasNull() ? null : values[ordinal];
+    }
+
+    static BigDecimal getDecimal(ResultSet rows, String column) throws SQLException {
+        String value = rows.getString(column);
+        return value != null ? new BigDecimal(value) : null;
+    }
+
+    static Double getDouble(ResultSet rows, String column) throws SQLException {
+        double value = rows.getDouble(column);
+        return rows.wasNull() ? null : value;
+    }
+
+    /**
+     * LIKE pattern matching the text anywhere, with wildcards in the text escaped by '!'
+     */
+    static String containsPattern(String text) {
+        return "%" + text.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+}
@@ -0,0 +1,61 @@
+package com.eventbooking.repository.jdbc;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy stream over a table read one keyset page at a time
+ * No connection is held between pages, so a stream consumed slowly or
+ * abandoned halfway ties up nothing; rows written meanwhile may or may not
+ * be seen, as with the in-memory repositories' weakly consistent streams.
+ */
+final class KeysetStream {
+
+    static final int PAGE_SIZE = 500;
+
+    private KeysetStream() {
+    }
+
+    /**
+     * @param page Reads up to PAGE_SIZE rows after a cursor, or from the start for a null cursor
+     * @param cursorOf Cursor of a row, passed back to read the page after it
+     */
+    static <T, C> Stream<T> of(Function<C, List<T>> page, Function<T, C> cursorOf) {
+        Iterator<T> rows = new Iterator<>() {
+            private List<T> current;
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                if (current == null) {
+                    current = page.apply(null);
+                }
+                if (next < current.size()) {
+                    return true;
+                }
+                if (current.size() < PAGE_SIZE) {
+                    return false;
+                }
+                current = page.apply(cursorOf.apply(current.get(current.size() - 1)));
+                next = 0;
+                return !current.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.get(next++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
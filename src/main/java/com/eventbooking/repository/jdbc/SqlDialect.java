@@ -0,0 +1,59 @@
+package com.eventbooking.repository.jdbc;
+
+import java.util.Collections;
+
+/**
+ * The few statements that differ between the supported embedded databases
+ * Everything else the JDBC repositories issue is plain SQL both accept.
+ */
+public enum SqlDialect {
+    H2 {
+        @Override
+        String upsert(String table, String[] keys, int rows, String... columns) {
+            return "MERGE INTO " + table + " (" + String.join(", ", columns) + ") KEY ("
+                    + String.join(", ", keys) + ") VALUES " + rowPlaceholders(rows, columns.length);
+        }
+    },
+    SQLITE {
+        @Override
+        String upsert(String table, String[] keys, int rows, String... columns) {
+            return "INSERT OR REPLACE INTO " + table + " (" + String.join(", ", columns) + ") VALUES "
+                    + rowPlaceholders(rows, columns.length);
+        }
+    };
+
+    /**
+     * Pick the dialect from a JDBC URL such as jdbc:h2:./data/bookings or jdbc:sqlite:bookings.db
+     */
+    public static SqlDialect forUrl(String url) {
+        if (url.startsWith("jdbc:h2:")) {
+            return H2;
+        }
+        if (url.startsWith("jdbc:sqlite:")) {
+            return SQLITE;
+        }
+        throw new IllegalArgumentException("Unsupported JDBC URL " + url + "; expected H2 or SQLite");
+    }
+
+    /**
+     * Insert-or-replace of one row identified by its key columns
+     * Keys must be among the columns; parameters follow the column order.
+     */
+    String upsert(String table, String[] keys, String... columns) {
+        return upsert(table, keys, 1, columns);
+    }
+
+    /**
+     * Insert-or-replace of several rows in one statement
+     * Parameters are each row's columns in order, row after row.
+     */
+    abstract String upsert(String table, String[] keys, int rows, String... columns);
+
+    static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static String rowPlaceholders(int rows, int columns) {
+        return String.join(", ", Collections.nCopies(rows, "(" + placeholders(columns) + ")"));
+    }
+}
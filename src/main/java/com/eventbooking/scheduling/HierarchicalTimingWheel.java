@@ -0,0 +1,264 @@
+package com.eventbooking.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for large numbers of cancellable timeouts
+ * Scheduling and cancelling are O(1): callers only enqueue, and a single
+ * worker thread links timeouts into wheel buckets, cascades coarse levels
+ * into finer ones and hands each tick's expirations over as one batch.
+ *
+ * @param <T> The item carried by each timeout
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final System.Logger LOG = System.getLogger(HierarchicalTimingWheel.class.getName());
+
+    private final long tickNanos;
+    private final Bucket<T>[][] wheels;
+    private final Queue<Timeout<T>> pendingAdds = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout<T>> pendingCancels = new ConcurrentLinkedQueue<>();
+    private final Consumer<List<T>> expiryHandler;
+    private final Thread worker;
+    private final long startNanos;
+    private volatile boolean running;
+    private long currentTick;
+
+    /**
+     * @param tickDuration Resolution of the wheel
+     * @param expiryHandler Receives every batch of expired items on the worker thread
+     * @param threadName Name of the worker thread
+     */
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickDuration, TimeUnit unit,
+                                   Consumer<List<T>> expiryHandler, String threadName) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.expiryHandler = expiryHandler;
+        this.wheels = (Bucket<T>[][]) new Bucket<?>[LEVELS][WHEEL_SIZE];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                wheels[level][slot] = new Bucket<>();
+            }
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        worker.start();
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * Schedule an item to expire after the given delay
+     */
+    public Timeout<T> schedule(T item, long delay, TimeUnit unit) {
+        long deadlineNanos = System.nanoTime() - startNanos + unit.toNanos(delay);
+        long deadlineTick = (deadlineNanos + tickNanos - 1) / tickNanos;
+        Timeout<T> timeout = new Timeout<>(this, item, deadlineTick);
+        pendingAdds.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (running) {
+            long targetTick = (System.nanoTime() - startNanos) / tickNanos;
+            if (targetTick <= currentTick) {
+                long sleepNanos = startNanos + (currentTick + 1) * tickNanos - System.nanoTime();
+                try {
+                    TimeUnit.NANOSECONDS.sleep(Math.max(1, sleepNanos));
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                }
+                continue;
+            }
+
+            List<T> expired = new ArrayList<>();
+            drainCancels();
+            drainAdds(expired);
+            while (currentTick < targetTick) {
+                currentTick++;
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    long span = 1L << (WHEEL_BITS * level);
+                    if ((currentTick & (span - 1)) == 0) {
+                        int slot = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+                        wheels[level][slot].drain(timeout -> place(timeout, expired));
+                    }
+                }
+                wheels[0][(int) (currentTick & WHEEL_MASK)].drain(timeout -> expire(timeout, expired));
+            }
+
+            if (!expired.isEmpty()) {
+                try {
+                    expiryHandler.accept(expired);
+                } catch (RuntimeException e) {
+                    // The worker must outlive a failing handler, or no later timeout would fire
+                    LOG.log(System.Logger.Level.ERROR, "Timing wheel expiry handler failed", e);
+                }
+            }
+        }
+    }
+
+    private void drainAdds(List<T> expired) {
+        Timeout<T> timeout;
+        while ((timeout = pendingAdds.poll()) != null) {
+            if (timeout.state.get() == Timeout.PENDING) {
+                place(timeout, expired);
+            }
+        }
+    }
+
+    private void drainCancels() {
+        Timeout<T> timeout;
+        while ((timeout = pendingCancels.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void place(Timeout<T> timeout, List<T> expired) {
+        long delta = timeout.deadlineTick - currentTick;
+        if (delta <= 0) {
+            expire(timeout, expired);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (WHEEL_BITS * (level + 1))) {
+                int slot = (int) ((timeout.deadlineTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+                wheels[level][slot].add(timeout);
+                return;
+            }
+        }
+        // Beyond the wheel's horizon: park in the top level and re-place on cascade
+        long parkedTick = currentTick + (1L << (WHEEL_BITS * LEVELS)) - 1;
+        int slot = (int) ((parkedTick >>> (WHEEL_BITS * (LEVELS - 1))) & WHEEL_MASK);
+        wheels[LEVELS - 1][slot].add(timeout);
+    }
+
+    private void expire(Timeout<T> timeout, List<T> expired) {
+        if (timeout.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) {
+            expired.add(timeout.item);
+        }
+    }
+
+    /**
+     * Handle to a scheduled item
+     */
+    public static final class Timeout<T> {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final HierarchicalTimingWheel<T> wheel;
+        private final T item;
+        private final long deadlineTick;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // Owned by the worker thread
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(HierarchicalTimingWheel<T> wheel, T item, long deadlineTick) {
+            this.wheel = wheel;
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Cancel the timeout
+         * @return false if it already expired or was cancelled
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                wheel.pendingCancels.add(this);
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        public T getItem() {
+            return item;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list of timeouts sharing a slot
+     */
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+        private Timeout<T> tail;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        void drain(Consumer<Timeout<T>> action) {
+            Timeout<T> timeout = head;
+            head = null;
+            tail = null;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.bucket = null;
+                timeout.prev = null;
+                timeout.next = null;
+                action.accept(timeout);
+                timeout = next;
+            }
+        }
+    }
+}
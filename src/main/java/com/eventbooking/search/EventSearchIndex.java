@@ -0,0 +1,462 @@
+package com.eventbooking.search;
+
+import com.eventbooking.model.Event;
+import com.eventbooking.model.EventChangeListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory full-text index over events
+ * Names are indexed by trigram for case-insensitive substring search, and
+ * names and descriptions are tokenized into inverted indexes for ranked
+ * search. Name tokens also feed a prefix trie for autocomplete. Each
+ * version of an event gets a fresh ordinal; postings of replaced versions
+ * are skipped at query time and dropped when the index compacts.
+ * Readers share a read lock, updates take the write lock.
+ */
+public class EventSearchIndex implements EventChangeListener {
+
+    private static final char BOUNDARY = '\u0001';
+    private static final int COMPACTION_THRESHOLD = 1 << 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final Map<String, PostingList> trigrams = new HashMap<>();
+    // Unigrams and bigrams mapped to the trigrams that contain them, for short queries
+    private final Map<String, Set<String>> trigramsByFragment = new HashMap<>();
+    private final Map<String, PostingList> nameTerms = new HashMap<>();
+    private final Map<String, PostingList> descriptionTerms = new HashMap<>();
+    private final PrefixTrie completions = new PrefixTrie();
+    private int deleted;
+
+    public void add(Event event) {
+        // Name and description changes are serialized on the event's monitor
+        synchronized (event) {
+            event.addChangeListener(this);
+            lock.writeLock().lock();
+            try {
+                unindex(event.getEventId());
+                index(event);
+                compactIfNeeded();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public void remove(Event event) {
+        synchronized (event) {
+            event.removeChangeListener(this);
+            lock.writeLock().lock();
+            try {
+                unindex(event.getEventId());
+                compactIfNeeded();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Every event whose name contains the text, ignoring case
+     * Ordered by relevance, then by date
+     */
+    public List<Event> search(String text) {
+        String query = normalize(text);
+        lock.readLock().lock();
+        try {
+            List<Match> matches = new ArrayList<>();
+            forEachNameMatch(query, ordinal -> matches.add(match(ordinal, query, Collections.emptyList())));
+            matches.sort(Match.RANKING);
+            List<Event> result = new ArrayList<>(matches.size());
+            for (Match match : matches) {
+                result.add(match.event);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Best matches for free text: events whose name contains the text, plus
+     * events with every word of the text in their name or description
+     * @param limit Maximum number of results
+     */
+    public List<Event> search(String text, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        String query = normalize(text);
+        List<String> queryTerms = new ArrayList<>(tokenize(query));
+        lock.readLock().lock();
+        try {
+            BitSet candidates = matchingAllTerms(queryTerms);
+            forEachNameMatch(query, candidates::set);
+
+            // Bounded heap with the weakest of the current best on top
+            PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, Match.RANKING.reversed());
+            for (int ordinal = candidates.nextSetBit(0); ordinal >= 0;
+                 ordinal = candidates.nextSetBit(ordinal + 1)) {
+                best.add(match(ordinal, query, queryTerms));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+
+            List<Event> result = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                result.add(best.poll().event);
+            }
+            Collections.reverse(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Words from event names starting with the prefix, most common first
+     */
+    public List<String> autocomplete(String prefix, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        String normalized = normalize(prefix).trim();
+        lock.readLock().lock();
+        try {
+            return completions.complete(normalized, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Upper bound on the number of events whose name contains the text, from posting list sizes
+     */
+    public int estimateNameMatches(String text) {
+        String query = normalize(text);
+        lock.readLock().lock();
+        try {
+            if (query.length() < 3) {
+                return ordinals.size();
+            }
+            int estimate = ordinals.size();
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                PostingList postings = trigrams.get(query.substring(i, i + 3));
+                if (postings == null) {
+                    return 0;
+                }
+                estimate = Math.min(estimate, postings.size());
+            }
+            return estimate;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onNameChanged(Event event, String oldName, String newName) {
+        reindex(event);
+    }
+
+    @Override
+    public void onDescriptionChanged(Event event, String oldDescription, String newDescription) {
+        reindex(event);
+    }
+
+    private void reindex(Event event) {
+        lock.writeLock().lock();
+        try {
+            if (unindex(event.getEventId())) {
+                index(event);
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Event event) {
+        int ordinal = documents.size();
+        Document document = new Document(event, normalize(event.getName()), normalize(event.getDescription()));
+        documents.add(document);
+        ordinals.put(event.getEventId(), ordinal);
+
+        for (String trigram : trigramsOf(document.name)) {
+            trigrams.computeIfAbsent(trigram, this::newTrigram).add(ordinal);
+        }
+        for (String term : tokenize(document.name)) {
+            nameTerms.computeIfAbsent(term, t -> new PostingList()).add(ordinal);
+            completions.add(term);
+        }
+        for (String term : tokenize(document.description)) {
+            descriptionTerms.computeIfAbsent(term, t -> new PostingList()).add(ordinal);
+        }
+    }
+
+    /**
+     * @return false if the event was not indexed
+     */
+    private boolean unindex(String eventId) {
+        Integer ordinal = ordinals.remove(eventId);
+        if (ordinal == null) {
+            return false;
+        }
+        Document document = documents.set(ordinal, null);
+        for (String term : tokenize(document.name)) {
+            completions.remove(term);
+        }
+        deleted++;
+        return true;
+    }
+
+    private PostingList newTrigram(String trigram) {
+        for (int length = 1; length <= 2; length++) {
+            for (int start = 0; start + length <= trigram.length(); start++) {
+                String fragment = trigram.substring(start, start + length);
+                if (fragment.indexOf(BOUNDARY) < 0) {
+                    trigramsByFragment.computeIfAbsent(fragment, f -> new HashSet<>()).add(trigram);
+                }
+            }
+        }
+        return new PostingList();
+    }
+
+    /**
+     * Rebuild postings once more than half the ordinals belong to replaced versions
+     */
+    private void compactIfNeeded() {
+        if (deleted < COMPACTION_THRESHOLD || deleted < ordinals.size()) {
+            return;
+        }
+        List<Document> live = new ArrayList<>(ordinals.size());
+        for (Document document : documents) {
+            if (document != null) {
+                live.add(document);
+            }
+        }
+        documents.clear();
+        ordinals.clear();
+        trigrams.clear();
+        trigramsByFragment.clear();
+        nameTerms.clear();
+        descriptionTerms.clear();
+        for (Document document : live) {
+            for (String term : tokenize(document.name)) {
+                completions.remove(term);
+            }
+            index(document.event);
+        }
+        deleted = 0;
+    }
+
+    private void forEachNameMatch(String query, OrdinalConsumer consumer) {
+        if (query.isEmpty()) {
+            for (int ordinal = 0; ordinal < documents.size(); ordinal++) {
+                if (documents.get(ordinal) != null) {
+                    consumer.accept(ordinal);
+                }
+            }
+            return;
+        }
+
+        if (query.length() < 3) {
+            Set<String> containing = trigramsByFragment.get(query);
+            if (containing == null) {
+                return;
+            }
+            BitSet union = new BitSet(documents.size());
+            for (String trigram : containing) {
+                addLive(trigrams.get(trigram), union);
+            }
+            union.stream().forEach(consumer::accept);
+            return;
+        }
+
+        List<PostingList> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            PostingList postings = trigrams.get(query.substring(i, i + 3));
+            if (postings == null) {
+                return;
+            }
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        // Intersect from the rarest trigram up, then verify the survivors
+        PostingList rarest = lists.get(0);
+        int[] candidates = new int[rarest.size()];
+        int count = rarest.size();
+        for (int i = 0; i < count; i++) {
+            candidates[i] = rarest.get(i);
+        }
+        for (int list = 1; list < lists.size() && count > 0; list++) {
+            PostingList postings = lists.get(list);
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (postings.contains(candidates[i])) {
+                    candidates[kept++] = candidates[i];
+                }
+            }
+            count = kept;
+        }
+        for (int i = 0; i < count; i++) {
+            Document document = documents.get(candidates[i]);
+            if (document != null && document.name.contains(query)) {
+                consumer.accept(candidates[i]);
+            }
+        }
+    }
+
+    private BitSet matchingAllTerms(List<String> terms) {
+        BitSet matches = new BitSet(documents.size());
+        if (terms.isEmpty()) {
+            return matches;
+        }
+        List<String> byRarity = new ArrayList<>(terms);
+        byRarity.sort(Comparator.comparingInt(this::termFrequency));
+        String rarest = byRarity.get(0);
+        addLive(nameTerms.get(rarest), matches);
+        addLive(descriptionTerms.get(rarest), matches);
+        for (int t = 1; t < byRarity.size() && !matches.isEmpty(); t++) {
+            PostingList inName = nameTerms.get(byRarity.get(t));
+            PostingList inDescription = descriptionTerms.get(byRarity.get(t));
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+                if ((inName == null || !inName.contains(ordinal))
+                        && (inDescription == null || !inDescription.contains(ordinal))) {
+                    matches.clear(ordinal);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private int termFrequency(String term) {
+        PostingList inName = nameTerms.get(term);
+        PostingList inDescription = descriptionTerms.get(term);
+        return (inName == null ? 0 : inName.size()) + (inDescription == null ? 0 : inDescription.size());
+    }
+
+    private void addLive(PostingList postings, BitSet target) {
+        if (postings == null) {
+            return;
+        }
+        for (int i = 0; i < postings.size(); i++) {
+            int ordinal = postings.get(i);
+            if (documents.get(ordinal) != null) {
+                target.set(ordinal);
+            }
+        }
+    }
+
+    private Match match(int ordinal, String query, List<String> queryTerms) {
+        Document document = documents.get(ordinal);
+        int score = 0;
+        if (!query.isEmpty()) {
+            int position = document.name.indexOf(query);
+            if (document.name.equals(query)) {
+                score += 100;
+            } else if (position == 0) {
+                score += 50;
+            } else if (position > 0) {
+                score += Character.isLetterOrDigit(document.name.charAt(position - 1)) ? 20 : 30;
+            }
+        }
+        for (String term : queryTerms) {
+            PostingList inName = nameTerms.get(term);
+            if (inName != null && inName.contains(ordinal)) {
+                score += 5;
+            }
+            PostingList inDescription = descriptionTerms.get(term);
+            if (inDescription != null && inDescription.contains(ordinal)) {
+                score += 2;
+            }
+        }
+        return new Match(document.event, score);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase();
+    }
+
+    private static Set<String> trigramsOf(String name) {
+        String padded = BOUNDARY + name + BOUNDARY;
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    @FunctionalInterface
+    private interface OrdinalConsumer {
+        void accept(int ordinal);
+    }
+
+    private static final class Match {
+        // Higher scores first; among equal scores, sooner events first
+        static final Comparator<Match> RANKING = Comparator.comparingInt((Match match) -> -match.score)
+                .thenComparing(match -> match.dateTime, Comparator.nullsLast(Comparator.naturalOrder()));
+
+        private final Event event;
+        private final int score;
+        private final LocalDateTime dateTime;
+
+        Match(Event event, int score) {
+            this.event = event;
+            this.score = score;
+            this.dateTime = event.getEventDateTime();
+        }
+    }
+
+    private static final class Document {
+        private final Event event;
+        private final String name;
+        private final String description;
+
+        Document(Event event, String name, String description) {
+            this.event = event;
+            this.name = name;
+            this.description = description;
+        }
+    }
+}
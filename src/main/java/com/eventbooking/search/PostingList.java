@@ -0,0 +1,33 @@
+package com.eventbooking.search;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of document ordinals for one term or trigram
+ * Ordinals are only ever appended in increasing order, so the list stays
+ * sorted and membership is a binary search.
+ */
+final class PostingList {
+
+    private int[] ordinals = new int[4];
+    private int size;
+
+    void add(int ordinal) {
+        if (size == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, size * 2);
+        }
+        ordinals[size++] = ordinal;
+    }
+
+    int get(int index) {
+        return ordinals[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int ordinal) {
+        return Arrays.binarySearch(ordinals, 0, size, ordinal) >= 0;
+    }
+}
@@ -0,0 +1,168 @@
+package com.eventbooking.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Counted prefix trie for autocomplete
+ * Every node tracks the highest term count in its subtree, so completions
+ * come out most-frequent first from a best-first walk that only visits
+ * the branches that can still contribute to the top results.
+ */
+final class PrefixTrie {
+
+    private final Node root = new Node();
+
+    void add(String term) {
+        Node[] path = new Node[term.length() + 1];
+        Node node = root;
+        path[0] = node;
+        for (int i = 0; i < term.length(); i++) {
+            node = node.childOrCreate(term.charAt(i));
+            path[i + 1] = node;
+        }
+        node.term = term;
+        node.count++;
+        for (Node onPath : path) {
+            onPath.maxCount = Math.max(onPath.maxCount, node.count);
+        }
+    }
+
+    void remove(String term) {
+        Node[] path = new Node[term.length() + 1];
+        Node node = root;
+        path[0] = node;
+        for (int i = 0; i < term.length(); i++) {
+            node = node.child(term.charAt(i));
+            if (node == null) {
+                return;
+            }
+            path[i + 1] = node;
+        }
+        if (node.count == 0) {
+            return;
+        }
+        node.count--;
+        for (int i = term.length(); i >= 0; i--) {
+            Node onPath = path[i];
+            onPath.recomputeMax();
+            if (i > 0 && onPath.maxCount == 0) {
+                path[i - 1].removeChild(term.charAt(i - 1));
+            }
+        }
+    }
+
+    /**
+     * @return Up to limit terms starting with prefix, most frequent first
+     */
+    List<String> complete(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node == null || node.maxCount == 0) {
+            return result;
+        }
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(node, false));
+        while (!queue.isEmpty() && result.size() < limit) {
+            Candidate candidate = queue.poll();
+            if (candidate.termOnly) {
+                result.add(candidate.node.term);
+                continue;
+            }
+            if (candidate.node.count > 0) {
+                queue.add(new Candidate(candidate.node, true));
+            }
+            for (int i = 0; i < candidate.node.childCount; i++) {
+                queue.add(new Candidate(candidate.node.children[i], false));
+            }
+        }
+        return result;
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int childCount;
+        private String term;
+        private int count;
+        private int maxCount;
+
+        Node child(char key) {
+            int index = indexOf(key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char key) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            if (childCount == keys.length) {
+                int capacity = Math.max(2, childCount * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(keys, insertAt, keys, insertAt + 1, childCount - insertAt);
+            System.arraycopy(children, insertAt, children, insertAt + 1, childCount - insertAt);
+            Node child = new Node();
+            keys[insertAt] = key;
+            children[insertAt] = child;
+            childCount++;
+            return child;
+        }
+
+        void removeChild(char key) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(keys, index + 1, keys, index, childCount - index - 1);
+            System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+            childCount--;
+            children[childCount] = null;
+        }
+
+        void recomputeMax() {
+            int max = count;
+            for (int i = 0; i < childCount; i++) {
+                max = Math.max(max, children[i].maxCount);
+            }
+            maxCount = max;
+        }
+
+        private int indexOf(char key) {
+            return Arrays.binarySearch(keys, 0, childCount, key);
+        }
+    }
+
+    private static final class Candidate implements Comparable<Candidate> {
+        private final Node node;
+        private final boolean termOnly;
+
+        Candidate(Node node, boolean termOnly) {
+            this.node = node;
+            this.termOnly = termOnly;
+        }
+
+        private int priority() {
+            return termOnly ? node.count : node.maxCount;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int byPriority = Integer.compare(other.priority(), priority());
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            // Emit a term before descending into a subtree of equal weight
+            return Boolean.compare(other.termOnly, termOnly);
+        }
+    }
+}
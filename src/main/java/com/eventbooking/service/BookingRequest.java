@@ -0,0 +1,40 @@
+package com.eventbooking.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A single booking request within a batch
+ */
+public class BookingRequest {
+    private final String userId;
+    private final String eventId;
+    private final Map<String, Integer> ticketRequests;
+
+    /**
+     * @param ticketRequests Map of TicketType ID to quantity
+     */
+    public BookingRequest(String userId, String eventId, Map<String, Integer> ticketRequests) {
+        this.userId = userId;
+        this.eventId = eventId;
+        this.ticketRequests = new HashMap<>(ticketRequests);
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public Map<String, Integer> getTicketRequests() {
+        return new HashMap<>(ticketRequests);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BookingRequest{userId='%s', eventId='%s', tickets=%s}",
+                userId, eventId, ticketRequests);
+    }
+}
@@ -0,0 +1,52 @@
+package com.eventbooking.service;
+
+import com.eventbooking.model.Booking;
+
+/**
+ * Outcome of one request in a batch booking
+ */
+public class BookingResult {
+    private final BookingRequest request;
+    private final Booking booking;
+    private final String failureReason;
+
+    private BookingResult(BookingRequest request, Booking booking, String failureReason) {
+        this.request = request;
+        this.booking = booking;
+        this.failureReason = failureReason;
+    }
+
+    public static BookingResult success(BookingRequest request, Booking booking) {
+        return new BookingResult(request, booking, null);
+    }
+
+    public static BookingResult failure(BookingRequest request, String failureReason) {
+        return new BookingResult(request, null, failureReason);
+    }
+
+    public boolean isSuccessful() {
+        return booking != null;
+    }
+
+    public BookingRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * The created booking, or null if the request failed
+     */
+    public Booking getBooking() {
+        return booking;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    @Override
+    public String toString() {
+        return isSuccessful()
+                ? String.format("BookingResult{booking='%s'}", booking.getBookingId())
+                : String.format("BookingResult{failed='%s'}", failureReason);
+    }
+}
@@ -1,12 +1,37 @@
 package com.eventbooking.service;
 
+import com.eventbooking.inventory.SeatBlock;
+import com.eventbooking.inventory.SeatMap;
+import com.eventbooking.inventory.TierLines;
+import com.eventbooking.inventory.TierReservation;
+import com.eventbooking.inventory.WaitlistEntry;
+import com.eventbooking.ledger.BookingCancelled;
+import com.eventbooking.ledger.BookingLedger;
+import com.eventbooking.ledger.LedgerEvent;
+import com.eventbooking.ledger.PaymentCompleted;
+import com.eventbooking.ledger.PaymentFailed;
+import com.eventbooking.ledger.Refunded;
+import com.eventbooking.ledger.TicketsReserved;
 import com.eventbooking.model.*;
+import com.eventbooking.query.Query;
+import com.eventbooking.query.QueryPlan;
 import com.eventbooking.repository.BookingRepository;
+import com.eventbooking.repository.Page;
+import com.eventbooking.scheduling.HierarchicalTimingWheel;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Service layer for Booking-related business logic
@@ -18,15 +43,56 @@ public class BookingService {
     private final EventService eventService;
     private final UserService userService;
     private final PaymentService paymentService;
+    private final BookingLedger ledger;
+    
+    /** How long a PENDING booking holds its tickets while awaiting payment */
+    public static final Duration DEFAULT_HOLD_TIMEOUT = Duration.ofMinutes(15);
+    
+    private final Duration holdTimeout;
+    private final HierarchicalTimingWheel<Booking> holdTimer;
+    private final Map<String, HierarchicalTimingWheel.Timeout<Booking>> holds = new ConcurrentHashMap<>();
+    private static final BiConsumer<String, Runnable> EXPIRE_INLINE = (eventId, task) -> task.run();
+    private volatile BiConsumer<String, Runnable> holdExpiryDispatcher = EXPIRE_INLINE;
     
     public BookingService(BookingRepository bookingRepository, 
                          EventService eventService,
                          UserService userService,
                          PaymentService paymentService) {
+        this(bookingRepository, eventService, userService, paymentService, DEFAULT_HOLD_TIMEOUT);
+    }
+    
+    public BookingService(BookingRepository bookingRepository, 
+                         EventService eventService,
+                         UserService userService,
+                         PaymentService paymentService,
+                         Duration holdTimeout) {
+        this(bookingRepository, eventService, userService, paymentService, holdTimeout, null);
+    }
+    
+    /**
+     * @param ledger Event-sourced write path: every booking state change is
+     *               appended to it as a domain event before it is applied to
+     *               the booking and stored, so the repository only ever holds
+     *               state the ledger has recorded. May be null
+     */
+    public BookingService(BookingRepository bookingRepository, 
+                         EventService eventService,
+                         UserService userService,
+                         PaymentService paymentService,
+                         Duration holdTimeout,
+                         BookingLedger ledger) {
+        if (holdTimeout == null || holdTimeout.isNegative() || holdTimeout.isZero()) {
+            throw new IllegalArgumentException("Hold timeout must be positive");
+        }
         this.bookingRepository = bookingRepository;
         this.eventService = eventService;
         this.userService = userService;
         this.paymentService = paymentService;
+        this.holdTimeout = holdTimeout;
+        this.ledger = ledger;
+        this.holdTimer = new HierarchicalTimingWheel<>(
+            100, TimeUnit.MILLISECONDS, this::expireHolds, "booking-hold-expiry");
+        this.holdTimer.start();
     }
     
     /**
@@ -42,90 +108,405 @@ public class BookingService {
         User user = userService.getUserById(userId);
         Event event = eventService.getEventById(eventId);
         
+        Booking booking = reserveBooking(user, event, ticketRequests);
+        return commitBooking(booking);
+    }
+    
+    /**
+     * Reserve inventory and seats and build the booking, without saving it
+     * Used directly by pipelines that validate and persist in their own stages
+     * @return Unsaved PENDING booking holding the reserved tickets
+     */
+    public Booking reserveBooking(User user, Event event, Map<String, Integer> ticketRequests) {
         if (!event.isBookable()) {
             throw new IllegalStateException("Event is not available for booking");
         }
         
-        // Create booking
-        Booking booking = new Booking(user, event);
+        // Resolve ticket types before touching inventory
+        Map<TicketType, Integer> quantities = resolveTicketTypes(ticketRequests,
+                ticketTypeId -> event.findTicketType(ticketTypeId).orElse(null));
+        
+        // Reserve all tiers and event capacity as a single unit
+        TierReservation reservation = TierReservation.reserve(event, quantities);
+        if (!reservation.isSuccessful()) {
+            if (reservation.isCapacityExceeded()) {
+                throw new IllegalStateException(
+                    "Insufficient capacity available for " + event.getName());
+            }
+            throw new IllegalStateException(
+                "Insufficient tickets available for " + reservation.getShortfall().getName());
+        }
+        
+        return buildBooking(user, event, reservation.getQuantities());
+    }
+    
+    /**
+     * Reserve like reserveBooking(User, Event, Map), reusing the caller's buffers
+     * Apart from the booking and its tickets, which outlive the call, a
+     * successful reservation allocates nothing of its own per request.
+     * @param lines Cleared, then filled with the resolved ticket quantities
+     * @param seatNumbers Cleared, then holds the assigned seats until every tier is seated
+     */
+    public Booking reserveBooking(User user, Event event, Map<String, Integer> ticketRequests,
+                                  TierLines lines, List<String> seatNumbers) {
+        if (!event.isBookable()) {
+            throw new IllegalStateException("Event is not available for booking");
+        }
         
-        // Process ticket requests
-        List<Ticket> tickets = new ArrayList<>();
+        lines.clear();
         for (Map.Entry<String, Integer> request : ticketRequests.entrySet()) {
-            String ticketTypeId = request.getKey();
-            int quantity = request.getValue();
-            
-            TicketType ticketType = findTicketType(event, ticketTypeId);
-            
-            if (!ticketType.reserveTickets(quantity)) {
-                // Rollback previous reservations
-                rollbackReservations(tickets);
+            TicketType ticketType = event.findTicketType(request.getKey()).orElse(null);
+            if (ticketType == null) {
+                throw new IllegalArgumentException("Ticket type not found");
+            }
+            if (request.getValue() != null) {
+                lines.add(ticketType, request.getValue());
+            }
+        }
+        
+        if (!TierReservation.reserve(event, lines)) {
+            if (lines.isCapacityExceeded()) {
                 throw new IllegalStateException(
-                    "Insufficient tickets available for " + ticketType.getName());
+                    "Insufficient capacity available for " + event.getName());
             }
-            
-            // Create tickets
-            for (int i = 0; i < quantity; i++) {
-                String seatNumber = generateSeatNumber(event, ticketType);
-                Ticket ticket = new Ticket(event, ticketType, seatNumber, ticketType.getPrice());
-                tickets.add(ticket);
-                booking.addTicket(ticket);
+            throw new IllegalStateException(
+                "Insufficient tickets available for " + lines.getShortfall().getName());
+        }
+        
+        // Seat every tier before issuing, so a party that cannot be seated leaves no tickets behind
+        seatNumbers.clear();
+        for (int i = 0; i < lines.size(); i++) {
+            TicketType ticketType = lines.getTicketType(i);
+            if (!assignSeats(ticketType, lines.getQuantity(i), seatNumbers)) {
+                int seated = 0;
+                for (int line = 0; line < i; line++) {
+                    int quantity = lines.getQuantity(line);
+                    releaseSeats(lines.getTicketType(line), seatNumbers.subList(seated, seated + quantity));
+                    seated += quantity;
+                }
+                seatNumbers.clear();
+                TierReservation.release(event, lines);
+                throw new IllegalStateException(
+                    "Insufficient seats available for " + ticketType.getName());
             }
         }
         
-        // Save booking
-        Booking savedBooking = bookingRepository.save(booking);
-        user.addBooking(savedBooking);
+        Booking booking = new Booking(user, event);
+        int seat = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            TicketType ticketType = lines.getTicketType(i);
+            for (int ticket = 0; ticket < lines.getQuantity(i); ticket++) {
+                booking.addTicket(event.issueTicket(ticketType, seatNumbers.get(seat++), ticketType.getPrice()));
+            }
+        }
+        seatNumbers.clear();
+        return booking;
+    }
+    
+    /**
+     * Create many bookings at once
+     * Requests are grouped by event; users, events and ticket types are
+     * resolved once per batch, each event's combined demand is reserved in
+     * one pass per ticket type, and all bookings are saved together.
+     * A failing request does not affect the others, but if saving fails
+     * every request fails and nothing stays reserved.
+     * @return One result per request, in request order
+     */
+    public List<BookingResult> createBookings(List<BookingRequest> requests) {
+        BookingResult[] results = new BookingResult[requests.size()];
+        Map<String, List<Integer>> requestsByEvent = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            requestsByEvent.computeIfAbsent(requests.get(i).getEventId(), id -> new ArrayList<>()).add(i);
+        }
+        
+        Map<String, User> users = new HashMap<>();
+        List<Booking> reserved = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> group : requestsByEvent.entrySet()) {
+            reserveEventGroup(group.getKey(), group.getValue(), requests, users, results, reserved);
+        }
         
+        try {
+            commitBookings(reserved);
+        } catch (RuntimeException e) {
+            // Nothing was kept; every booking that had reserved now fails with the save
+            for (int i = 0; i < results.length; i++) {
+                if (results[i].isSuccessful()) {
+                    results[i] = BookingResult.failure(requests.get(i), e.getMessage());
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+    
+    /**
+     * Save reserved bookings and start their payment holds
+     * If saving fails the bookings are cancelled and their tickets and seats
+     * given back before the exception is rethrown.
+     */
+    public void commitBookings(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+        recordAll(bookings, TicketsReserved::of);
+        try {
+            bookingRepository.saveAll(bookings);
+        } catch (RuntimeException e) {
+            abandonBookings(bookings);
+            throw e;
+        }
+        for (Booking booking : bookings) {
+            startHold(booking);
+        }
+    }
+    
+    private Booking commitBooking(Booking booking) {
+        recordAll(List.of(booking), TicketsReserved::of);
+        
+        // Save booking
+        Booking savedBooking;
+        try {
+            savedBooking = bookingRepository.save(booking);
+        } catch (RuntimeException e) {
+            abandonBookings(List.of(booking));
+            throw e;
+        }
+        startHold(savedBooking);
         return savedBooking;
     }
     
     /**
-     * Process payment for a booking
+     * Append an event for each booking about to be saved, giving their
+     * tickets and seats back if the ledger refuses them
      */
-    public void processPayment(String bookingId, PaymentMethod paymentMethod) {
-        Booking booking = getBookingById(bookingId);
+    private void recordAll(List<Booking> bookings, Function<Booking, ? extends LedgerEvent> event) {
+        if (ledger == null) {
+            return;
+        }
+        List<LedgerEvent> events = new ArrayList<>(bookings.size());
+        bookings.forEach(booking -> events.add(event.apply(booking)));
+        try {
+            ledger.appendAll(events);
+        } catch (RuntimeException e) {
+            releaseAbandoned(bookings);
+            throw e;
+        }
+    }
+    
+    /**
+     * Give back what reserved bookings hold when they could not be saved
+     * Their reservation is already in the ledger, so their cancellation is
+     * recorded too.
+     */
+    private void abandonBookings(List<Booking> bookings) {
+        if (ledger != null) {
+            List<LedgerEvent> cancelled = new ArrayList<>(bookings.size());
+            bookings.forEach(booking -> cancelled.add(
+                BookingCancelled.of(booking, BookingCancelled.Reason.ABANDONED)));
+            ledger.appendAll(cancelled);
+        }
+        releaseAbandoned(bookings);
+    }
+    
+    /**
+     * Cancelled first, so a copy a partial save left behind cannot be paid for
+     */
+    private void releaseAbandoned(List<Booking> bookings) {
+        for (Booking booking : bookings) {
+            synchronized (booking) {
+                booking.cancel();
+                releaseTickets(booking);
+            }
+        }
+    }
+    
+    private void startHold(Booking booking) {
+        booking.getUser().addBooking(booking);
         
-        if (booking.getStatus() != BookingStatus.PENDING) {
-            throw new IllegalStateException("Booking is not in pending state");
+        // Hold the tickets only until the payment window closes
+        holds.put(booking.getBookingId(),
+                  holdTimer.schedule(booking, holdTimeout.toMillis(), TimeUnit.MILLISECONDS));
+    }
+    
+    private void reserveEventGroup(String eventId, List<Integer> indexes, List<BookingRequest> requests,
+                                   Map<String, User> users, BookingResult[] results,
+                                   List<Booking> reserved) {
+        Event event;
+        try {
+            event = eventService.getEventById(eventId);
+        } catch (RuntimeException e) {
+            indexes.forEach(i -> results[i] = BookingResult.failure(requests.get(i), e.getMessage()));
+            return;
+        }
+        if (!event.isBookable()) {
+            indexes.forEach(i -> results[i] = BookingResult.failure(
+                requests.get(i), "Event is not available for booking"));
+            return;
         }
         
-        Payment payment = paymentService.processPayment(booking, paymentMethod);
-        booking.setPayment(payment);
+        // Resolve everything once for the whole group
+        Map<String, TicketType> ticketTypes = new HashMap<>();
+        event.getTicketTypes().forEach(tt -> ticketTypes.put(tt.getTicketTypeId(), tt));
+        Map<Integer, User> requestUsers = new HashMap<>();
+        Map<Integer, Map<TicketType, Integer>> requestQuantities = new LinkedHashMap<>();
+        Map<TicketType, Integer> combined = new HashMap<>();
+        for (int i : indexes) {
+            BookingRequest request = requests.get(i);
+            try {
+                User user = users.computeIfAbsent(request.getUserId(), userService::getUserById);
+                Map<TicketType, Integer> quantities =
+                    resolveTicketTypes(request.getTicketRequests(), ticketTypes::get);
+                requestUsers.put(i, user);
+                requestQuantities.put(i, quantities);
+                quantities.forEach((tt, quantity) -> combined.merge(tt, quantity, Integer::sum));
+            } catch (RuntimeException e) {
+                results[i] = BookingResult.failure(request, e.getMessage());
+            }
+        }
         
-        if (payment.getStatus() == PaymentStatus.COMPLETED) {
-            booking.confirm();
-            bookingRepository.update(booking);
-        } else {
-            booking.setStatus(BookingStatus.FAILED);
-            releaseTickets(booking);
-            bookingRepository.update(booking);
-            throw new IllegalStateException("Payment failed");
+        // Fast path: the whole group fits, one CAS per ticket type
+        boolean groupReserved = TierReservation.reserve(event, combined).isSuccessful();
+        for (Map.Entry<Integer, Map<TicketType, Integer>> line : requestQuantities.entrySet()) {
+            int i = line.getKey();
+            BookingRequest request = requests.get(i);
+            try {
+                Booking booking;
+                if (groupReserved) {
+                    booking = buildBooking(requestUsers.get(i), event, line.getValue());
+                } else {
+                    booking = reserveBooking(requestUsers.get(i), event, request.getTicketRequests());
+                }
+                reserved.add(booking);
+                results[i] = BookingResult.success(request, booking);
+            } catch (RuntimeException e) {
+                results[i] = BookingResult.failure(request, e.getMessage());
+            }
+        }
+    }
+    
+    private Map<TicketType, Integer> resolveTicketTypes(Map<String, Integer> ticketRequests,
+                                                        Function<String, TicketType> lookup) {
+        Map<TicketType, Integer> quantities = new HashMap<>();
+        for (Map.Entry<String, Integer> request : ticketRequests.entrySet()) {
+            TicketType ticketType = lookup.apply(request.getKey());
+            if (ticketType == null) {
+                throw new IllegalArgumentException("Ticket type not found");
+            }
+            if (request.getValue() == null || request.getValue() <= 0) {
+                continue;
+            }
+            quantities.merge(ticketType, request.getValue(), Integer::sum);
         }
+        return quantities;
     }
     
     /**
-     * Cancel a booking
+     * Seat already-reserved tickets and build the booking
+     * Gives the reservation back if the party cannot be seated
      */
-    public void cancelBooking(String bookingId) {
+    private Booking buildBooking(User user, Event event, Map<TicketType, Integer> quantities) {
+        // Assign seats, keeping each party together where the seat map allows
+        Map<TicketType, List<String>> seats = new HashMap<>();
+        for (Map.Entry<TicketType, Integer> line : quantities.entrySet()) {
+            List<String> seatNumbers = new ArrayList<>(line.getValue());
+            if (!assignSeats(line.getKey(), line.getValue(), seatNumbers)) {
+                seats.forEach(this::releaseSeats);
+                TierReservation.release(event, quantities);
+                throw new IllegalStateException(
+                    "Insufficient seats available for " + line.getKey().getName());
+            }
+            seats.put(line.getKey(), seatNumbers);
+        }
+        
+        // Create booking
+        Booking booking = new Booking(user, event);
+        for (Map.Entry<TicketType, List<String>> line : seats.entrySet()) {
+            TicketType ticketType = line.getKey();
+            for (String seatNumber : line.getValue()) {
+                booking.addTicket(event.issueTicket(ticketType, seatNumber, ticketType.getPrice()));
+            }
+        }
+        return booking;
+    }
+    
+    /**
+     * Process payment for a booking
+     */
+    public void processPayment(String bookingId, PaymentMethod paymentMethod) {
         Booking booking = getBookingById(bookingId);
         
-        if (!booking.canBeCancelled()) {
-            throw new IllegalStateException(
-                "Booking cannot be cancelled (must be at least 24h before event)");
+        // Serialize with hold expiry so a booking is never both paid and expired
+        synchronized (booking) {
+            if (booking.getStatus() != BookingStatus.PENDING) {
+                throw new IllegalStateException("Booking is not in pending state");
+            }
+            cancelHold(booking);
+            
+            Payment payment = paymentService.processPayment(booking, paymentMethod);
+            
+            if (payment.getStatus() == PaymentStatus.COMPLETED) {
+                record(booking, paid -> PaymentCompleted.of(paid, payment));
+                booking.setPayment(payment);
+                booking.confirm();
+                bookingRepository.update(booking);
+            } else {
+                record(booking, declined -> PaymentFailed.of(declined, payment));
+                booking.setPayment(payment);
+                booking.setStatus(BookingStatus.FAILED);
+                releaseTickets(booking);
+                bookingRepository.update(booking);
+                throw new IllegalStateException("Payment failed");
+            }
+        }
+    }
+    
+    /**
+     * Cancel a booking
+     */
+    public void cancelBooking(String bookingId) {
+        // Checked against the version read, so a racing payment or expiry forces a re-check
+        OptimisticRetry.update(bookingRepository, bookingId,
+                () -> getBookingById(bookingId), booking -> {
+            if (!booking.canBeCancelled()) {
+                throw new IllegalStateException(
+                    "Booking cannot be cancelled (must be at least 24h before event)");
+            }
+            return this::cancelAndRefund;
+        });
+    }
+    
+    private void cancelAndRefund(Booking booking) {
+        // Refund first, so a declined refund leaves the booking as it was
+        boolean refund = booking.getPayment() != null &&
+            booking.getPayment().getStatus() == PaymentStatus.COMPLETED;
+        if (refund) {
+            paymentService.refundPayment(booking.getPayment());
+        }
+        record(booking, cancelled -> BookingCancelled.of(cancelled, BookingCancelled.Reason.CUSTOMER));
+        if (refund) {
+            record(booking, Refunded::of);
         }
         
+        cancelHold(booking);
         booking.cancel();
         releaseTickets(booking);
-        
-        // Process refund if payment was made
-        if (booking.getPayment() != null && 
-            booking.getPayment().getStatus() == PaymentStatus.COMPLETED) {
-            paymentService.refundPayment(booking.getPayment());
+        if (refund) {
             booking.setStatus(BookingStatus.REFUNDED);
         }
+    }
+    
+    /**
+     * Join a ticket type's waitlist
+     * The user is promoted straight away if tickets are already free
+     */
+    public WaitlistEntry joinWaitlist(String userId, String eventId, String ticketTypeId, int quantity) {
+        userService.getUserById(userId);
+        Event event = eventService.getEventById(eventId);
+        TicketType ticketType = event.findTicketType(ticketTypeId)
+                .orElseThrow(() -> new IllegalArgumentException("Ticket type not found"));
         
-        bookingRepository.update(booking);
+        WaitlistEntry entry = ticketType.getWaitlist().join(userId, quantity);
+        promoteWaitlist(event, ticketType);
+        return entry;
     }
     
     /**
@@ -143,6 +524,17 @@ public class BookingService {
         return bookingRepository.findByUserId(userId);
     }
     
+    /**
+     * Get bookings by ID, in the given order, skipping IDs with no stored booking
+     */
+    public List<Booking> getBookingsById(List<String> bookingIds) {
+        List<Booking> bookings = new ArrayList<>(bookingIds.size());
+        for (String bookingId : bookingIds) {
+            bookingRepository.findById(bookingId).ifPresent(bookings::add);
+        }
+        return bookings;
+    }
+    
     /**
      * Get all bookings for an event
      */
@@ -150,6 +542,34 @@ public class BookingService {
         return bookingRepository.findByEventId(eventId);
     }
     
+    /**
+     * Stream an event's bookings without copying them, for exports
+     */
+    public Stream<Booking> streamEventBookings(String eventId) {
+        return bookingRepository.streamByEventId(eventId);
+    }
+    
+    /**
+     * Run a criteria query over bookings
+     */
+    public List<Booking> queryBookings(Query<Booking> query) {
+        return bookingRepository.query(query);
+    }
+    
+    /**
+     * Show the plan chosen for a booking query
+     */
+    public QueryPlan explainBookingQuery(Query<Booking> query) {
+        return bookingRepository.explain(query);
+    }
+    
+    /**
+     * Get one page of all bookings in ID order
+     */
+    public Page<Booking, String> getBookingsPage(String after, int limit) {
+        return bookingRepository.findPage(after, limit);
+    }
+    
     /**
      * Get confirmed bookings for a user
      */
@@ -157,30 +577,158 @@ public class BookingService {
         return bookingRepository.findByUserIdAndStatus(userId, BookingStatus.CONFIRMED);
     }
     
-    private TicketType findTicketType(Event event, String ticketTypeId) {
-        return event.getTicketTypes().stream()
-                .filter(tt -> tt.getTicketTypeId().equals(ticketTypeId))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Ticket type not found"));
+    /**
+     * Restart payment holds for PENDING bookings restored from durable storage
+     * Each restored hold gets a full hold timeout from now
+     */
+    public void resumeHolds() {
+        try (Stream<Booking> pending = bookingRepository.streamByStatus(BookingStatus.PENDING)) {
+            pending.forEach(booking -> holds.computeIfAbsent(booking.getBookingId(), id ->
+                holdTimer.schedule(booking, holdTimeout.toMillis(), TimeUnit.MILLISECONDS)));
+        }
+    }
+    
+    /**
+     * Stop the hold expiry thread
+     */
+    public void shutdown() {
+        holdTimer.stop();
+    }
+    
+    /**
+     * Number of PENDING bookings currently holding tickets
+     */
+    public int getActiveHoldCount() {
+        return holds.size();
+    }
+    
+    private void cancelHold(Booking booking) {
+        HierarchicalTimingWheel.Timeout<Booking> hold = holds.remove(booking.getBookingId());
+        if (hold != null) {
+            hold.cancel();
+        }
+    }
+    
+    /**
+     * Called on the timing wheel thread with every hold that timed out in one tick
+     */
+    private void expireHolds(List<Booking> expired) {
+        for (Booking booking : expired) {
+            holds.remove(booking.getBookingId());
+            holdExpiryDispatcher.accept(booking.getEvent().getEventId(), () -> expireHold(booking));
+        }
+    }
+    
+    private void expireHold(Booking booking) {
+        synchronized (booking) {
+            if (booking.getStatus() == BookingStatus.PENDING) {
+                record(booking, expired -> BookingCancelled.of(expired, BookingCancelled.Reason.HOLD_EXPIRED));
+                booking.cancel();
+                releaseTickets(booking);
+                bookingRepository.update(booking);
+            }
+        }
     }
     
-    private void rollbackReservations(List<Ticket> tickets) {
-        for (Ticket ticket : tickets) {
-            ticket.getTicketType().releaseTickets(1);
+    /**
+     * Append a booking's state change to the ledger, if there is one
+     * Runs before the change is applied and stored: in event-sourced mode
+     * the ledger is the write path, and a change it refused never happens.
+     */
+    private void record(Booking booking, Function<Booking, ? extends LedgerEvent> event) {
+        if (ledger != null) {
+            ledger.append(event.apply(booking));
         }
     }
     
+    /**
+     * Run hold expiries wherever the event's other commands run
+     * Used by ShardedBookingService to order expiries with the event's commands
+     * @param dispatcher Null to run expiries on the timer thread again
+     */
+    void dispatchHoldExpiry(BiConsumer<String, Runnable> dispatcher) {
+        this.holdExpiryDispatcher = dispatcher != null ? dispatcher : EXPIRE_INLINE;
+    }
+    
     private void releaseTickets(Booking booking) {
+        Map<TicketType, Integer> quantities = new HashMap<>();
         for (Ticket ticket : booking.getTickets()) {
             if (ticket.getStatus() != TicketStatus.USED) {
-                ticket.getTicketType().releaseTickets(1);
+                quantities.merge(ticket.getTicketType(), 1, Integer::sum);
+                SeatMap seatMap = ticket.getTicketType().getSeatMap();
+                if (seatMap != null) {
+                    seatMap.release(ticket.getSeatNumber());
+                }
             }
         }
+        TierReservation.release(booking.getEvent(), quantities);
+        
+        // Hand the released tickets straight to anyone waiting for them
+        for (TicketType ticketType : quantities.keySet()) {
+            promoteWaitlist(booking.getEvent(), ticketType);
+        }
     }
     
-    private String generateSeatNumber(Event event, TicketType ticketType) {
-        // Simplified seat number generation
-        return ticketType.getTier().name() + "-" + 
-               (ticketType.getBookedCount() + 1);
+    /**
+     * Serve a ticket type's waitlist from the head while inventory lasts
+     * Each promoted user gets a PENDING booking with a normal payment hold
+     */
+    private void promoteWaitlist(Event event, TicketType ticketType) {
+        ticketType.getWaitlist().promote(entry -> {
+            if (!event.isBookable()) {
+                return false;
+            }
+            User user;
+            try {
+                user = userService.getUserById(entry.getUserId());
+            } catch (RuntimeException e) {
+                entry.cancel();
+                return true;
+            }
+            
+            Map<TicketType, Integer> quantities = Map.of(ticketType, entry.getQuantity());
+            TierReservation reservation = TierReservation.reserve(event, quantities);
+            if (!reservation.isSuccessful()) {
+                return false;
+            }
+            if (!entry.claim()) {
+                reservation.release();
+                return true;
+            }
+            try {
+                entry.complete(commitBooking(buildBooking(user, event, quantities)));
+            } catch (RuntimeException e) {
+                entry.fail();
+            }
+            return true;
+        });
+    }
+    
+    /**
+     * Hold seats from the ticket type's seat map, or issue admission numbers
+     * for unassigned seating, adding them to seatNumbers
+     * @return False, with nothing added, if the seat map cannot seat the party
+     */
+    private boolean assignSeats(TicketType ticketType, int quantity, List<String> seatNumbers) {
+        SeatMap seatMap = ticketType.getSeatMap();
+        if (seatMap == null) {
+            for (int i = 0; i < quantity; i++) {
+                seatNumbers.add(ticketType.getTier().name() + "-" + ticketType.nextAdmissionNumber());
+            }
+            return true;
+        }
+        Optional<List<SeatBlock>> blocks = seatMap.holdSeats(quantity);
+        if (blocks.isEmpty()) {
+            return false;
+        }
+        blocks.get().forEach(block -> seatNumbers.addAll(block.getSeatLabels()));
+        return true;
+    }
+    
+    private void releaseSeats(TicketType ticketType, List<String> seatNumbers) {
+        SeatMap seatMap = ticketType.getSeatMap();
+        if (seatMap != null) {
+            seatNumbers.forEach(seatMap::release);
+        }
     }
 }
@@ -1,11 +1,21 @@
 package com.eventbooking.service;
 
 import com.eventbooking.exception.EventNotFoundException;
+import com.eventbooking.inventory.SeatMap;
+import com.eventbooking.inventory.SeatMapSnapshot;
 import com.eventbooking.model.*;
+import com.eventbooking.query.Query;
+import com.eventbooking.query.QueryPlan;
+import com.eventbooking.repository.EventFilter;
 import com.eventbooking.repository.EventRepository;
+import com.eventbooking.repository.Page;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Service layer for Event-related business logic
@@ -34,9 +44,57 @@ public class EventService {
      * Add a ticket type to an event
      */
     public void addTicketType(String eventId, TicketType ticketType) {
-        Event event = getEventById(eventId);
-        event.addTicketType(ticketType);
-        eventRepository.update(event);
+        updateWithRetry(eventId, event -> e -> e.addTicketType(ticketType));
+    }
+    
+    /**
+     * Give a ticket type assigned seating from sections of the event's venue
+     * Sections are searched in the order given when picking best-available seats.
+     * The sections must hold exactly as many seats as the ticket type sells,
+     * and no section can be shared with another ticket type of the event.
+     */
+    public void assignSeating(String eventId, String ticketTypeId, List<String> sectionNames) {
+        // Re-checked against each fresh read, so two calls cannot both take a section
+        updateWithRetry(eventId, event -> {
+            TicketType ticketType = getTicketType(event, ticketTypeId);
+            if (ticketType.getBookedCount() > 0) {
+                throw new IllegalStateException("Cannot assign seating after tickets have been sold");
+            }
+            
+            List<VenueSection> sections = new ArrayList<>();
+            int seats = 0;
+            for (String sectionName : sectionNames) {
+                VenueSection section = event.getVenue().findSection(sectionName)
+                        .orElseThrow(() -> new IllegalArgumentException(
+                            "Venue has no section named " + sectionName));
+                for (TicketType other : event.getTicketTypes()) {
+                    if (!other.equals(ticketType) && other.hasAssignedSeating()
+                            && other.getSeatMap().getSectionNames().contains(sectionName)) {
+                        throw new IllegalArgumentException("Section " + sectionName +
+                            " is already assigned to " + other.getName());
+                    }
+                }
+                sections.add(section);
+                seats += section.getCapacity();
+            }
+            if (seats != ticketType.getTotalQuantity()) {
+                throw new IllegalArgumentException("Sections hold " + seats + " seats but " +
+                    ticketType.getName() + " sells " + ticketType.getTotalQuantity() + " tickets");
+            }
+            SeatMap seatMap = new SeatMap(sections);
+            return e -> getTicketType(e, ticketTypeId).setSeatMap(seatMap);
+        });
+    }
+    
+    /**
+     * Snapshot of a ticket type's seat map
+     */
+    public SeatMapSnapshot getSeatMap(String eventId, String ticketTypeId) {
+        TicketType ticketType = getTicketType(getEventById(eventId), ticketTypeId);
+        if (!ticketType.hasAssignedSeating()) {
+            throw new IllegalStateException("Ticket type has no assigned seating");
+        }
+        return ticketType.getSeatMap().snapshot();
     }
     
     /**
@@ -54,6 +112,20 @@ public class EventService {
         return eventRepository.findAll();
     }
     
+    /**
+     * Get one page of events in ID order
+     */
+    public Page<Event, String> getEventsPage(String after, int limit) {
+        return eventRepository.findPage(after, limit);
+    }
+    
+    /**
+     * Stream every event without materializing the catalog
+     */
+    public Stream<Event> streamAllEvents() {
+        return eventRepository.stream();
+    }
+    
     /**
      * Get upcoming events
      */
@@ -61,6 +133,13 @@ public class EventService {
         return eventRepository.findUpcomingEvents();
     }
     
+    /**
+     * Get the next upcoming events
+     */
+    public List<Event> getUpcomingEvents(int limit) {
+        return eventRepository.findUpcomingEvents(limit);
+    }
+    
     /**
      * Search events by name
      */
@@ -68,6 +147,20 @@ public class EventService {
         return eventRepository.searchByName(name);
     }
     
+    /**
+     * Search events by free text, best matches first
+     */
+    public List<Event> searchEvents(String text, int limit) {
+        return eventRepository.search(text, limit);
+    }
+    
+    /**
+     * Suggest completions for search-as-you-type
+     */
+    public List<String> suggestSearchTerms(String prefix, int limit) {
+        return eventRepository.autocomplete(prefix, limit);
+    }
+    
     /**
      * Get events by category
      */
@@ -75,6 +168,48 @@ public class EventService {
         return eventRepository.findByCategory(category);
     }
     
+    /**
+     * Get events matching a combined category, status, city and date filter
+     */
+    public List<Event> findEvents(EventFilter filter) {
+        return eventRepository.findByFilter(filter);
+    }
+    
+    /**
+     * Get events within a radius of a location, nearest first
+     */
+    public List<Event> findEventsNear(GeoPoint location, double radiusKm, EventFilter filter) {
+        return eventRepository.findNear(location, radiusKm, filter);
+    }
+    
+    /**
+     * Get events inside a map viewport
+     */
+    public List<Event> findEventsInArea(GeoPoint southWest, GeoPoint northEast, EventFilter filter) {
+        return eventRepository.findWithinBox(southWest, northEast, filter);
+    }
+    
+    /**
+     * Get the events closest to a location, nearest first
+     */
+    public List<Event> findNearestEvents(GeoPoint location, int limit, EventFilter filter) {
+        return eventRepository.findNearest(location, limit, filter);
+    }
+    
+    /**
+     * Run a criteria query over events
+     */
+    public List<Event> queryEvents(Query<Event> query) {
+        return eventRepository.query(query);
+    }
+    
+    /**
+     * Show the plan chosen for an event query
+     */
+    public QueryPlan explainEventQuery(Query<Event> query) {
+        return eventRepository.explain(query);
+    }
+    
     /**
      * Get events by date range
      */
@@ -86,9 +221,7 @@ public class EventService {
      * Cancel an event
      */
     public void cancelEvent(String eventId) {
-        Event event = getEventById(eventId);
-        event.setStatus(EventStatus.CANCELLED);
-        eventRepository.update(event);
+        updateWithRetry(eventId, event -> e -> e.setStatus(EventStatus.CANCELLED));
     }
     
     /**
@@ -101,6 +234,19 @@ public class EventService {
         return eventRepository.update(event);
     }
     
+    /**
+     * Apply an edit made against a version of the event read earlier
+     * @throws com.eventbooking.exception.OptimisticLockException if the event changed since
+     */
+    public Event updateEvent(String eventId, long expectedVersion, Consumer<? super Event> change) {
+        getEventById(eventId);
+        return eventRepository.compareAndUpdate(eventId, expectedVersion, change);
+    }
+    
+    private Event updateWithRetry(String eventId, Function<? super Event, Consumer<? super Event>> decide) {
+        return OptimisticRetry.update(eventRepository, eventId, () -> getEventById(eventId), decide);
+    }
+    
     /**
      * Check if event is bookable
      */
@@ -117,6 +263,18 @@ public class EventService {
         return event.getAvailableCapacity();
     }
     
+    /**
+     * Get event-wide and per-ticket-type availability
+     */
+    public EventAvailability getAvailability(String eventId) {
+        return getEventById(eventId).getAvailability();
+    }
+    
+    private TicketType getTicketType(Event event, String ticketTypeId) {
+        return event.findTicketType(ticketTypeId)
+                .orElseThrow(() -> new IllegalArgumentException("Ticket type not found"));
+    }
+    
     private void validateEventData(String name, LocalDateTime eventDateTime, int capacity) {
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Event name cannot be empty");
@@ -0,0 +1,49 @@
+package com.eventbooking.service;
+
+import com.eventbooking.exception.OptimisticLockException;
+import com.eventbooking.model.Versioned;
+import com.eventbooking.repository.Repository;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-decide-write loop over Repository.compareAndUpdate
+ * Each attempt reads the entity fresh and lets the caller validate it and
+ * choose a change, which is stored only if nobody else wrote in between.
+ * On a conflict the whole attempt is repeated after a short randomized
+ * backoff; the last conflict is rethrown once the attempts run out.
+ */
+final class OptimisticRetry {
+    
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_NANOS = 20_000;
+    
+    private OptimisticRetry() {
+    }
+    
+    /**
+     * @param load Reads the current entity, throwing if it does not exist
+     * @param decide Validates the entity and returns the change to apply to it
+     */
+    static <T extends Versioned, ID> T update(Repository<T, ID> repository, ID id, Supplier<T> load,
+                                             Function<? super T, Consumer<? super T>> decide) {
+        for (int attempt = 1; ; attempt++) {
+            T entity = load.get();
+            long version = entity.getVersion();
+            Consumer<? super T> change = decide.apply(entity);
+            try {
+                return repository.compareAndUpdate(id, version, change);
+            } catch (OptimisticLockException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                long ceiling = BASE_BACKOFF_NANOS << Math.min(attempt, 6);
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ceiling));
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.eventbooking.service;
+
+import com.eventbooking.exception.EventNotFoundException;
+import com.eventbooking.inventory.WaitlistEntry;
+import com.eventbooking.model.Booking;
+import com.eventbooking.model.Event;
+import com.eventbooking.model.PaymentMethod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Actor-style execution mode for BookingService
+ * Every command for an event is routed by eventId to one shard thread, so
+ * bookings, batch bookings, payments, cancellations, waitlist joins and
+ * hold expiries apply in arrival order and never contend with each other.
+ * Hot events no longer contend with each other either, and throughput
+ * grows with the number of shards across concurrent on-sales.
+ * The first command for an event hands its inventory to the shard, which
+ * keeps each tier in one pool; as the only writer, the shard then
+ * reserves with a single uncontended CAS and never takes a lock. Direct
+ * BookingService calls still work but bypass that ordering.
+ */
+public class ShardedBookingService {
+
+    private final BookingService bookingService;
+    private final EventService eventService;
+    private final ExecutorService[] shards;
+
+    public ShardedBookingService(BookingService bookingService, EventService eventService, int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        this.bookingService = bookingService;
+        this.eventService = eventService;
+        this.shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String threadName = "booking-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        bookingService.dispatchHoldExpiry((eventId, task) -> {
+            try {
+                shards[shardFor(eventId)].execute(task);
+            } catch (RejectedExecutionException e) {
+                // Raced with shutdown; expire inline rather than leak the hold
+                task.run();
+            }
+        });
+    }
+
+    /**
+     * Create a booking on the event's shard
+     */
+    public CompletableFuture<Booking> createBooking(String userId, String eventId,
+                                                    Map<String, Integer> ticketRequests) {
+        return submit(eventId, () -> bookingService.createBooking(userId, eventId, ticketRequests));
+    }
+
+    /**
+     * Create many bookings at once, each shard booking the requests for its own events
+     * The requests are split by shard and every part goes through
+     * BookingService.createBookings on its shard, so a failed save only
+     * fails the requests in that shard's part.
+     * @return One result per request, in request order
+     */
+    public CompletableFuture<List<BookingResult>> createBookings(List<BookingRequest> requests) {
+        List<List<Integer>> indexesByShard = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            indexesByShard.add(new ArrayList<>());
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            indexesByShard.get(shardFor(requests.get(i).getEventId())).add(i);
+        }
+
+        BookingResult[] results = new BookingResult[requests.size()];
+        List<CompletableFuture<Void>> parts = new ArrayList<>();
+        for (int shard = 0; shard < shards.length; shard++) {
+            List<Integer> indexes = indexesByShard.get(shard);
+            if (indexes.isEmpty()) {
+                continue;
+            }
+            List<BookingRequest> part = indexes.stream().map(requests::get).toList();
+            CompletableFuture<List<BookingResult>> booked = submit(shard, () -> {
+                part.forEach(request -> own(request.getEventId()));
+                return bookingService.createBookings(part);
+            });
+            parts.add(booked.thenAccept(partResults -> {
+                for (int i = 0; i < indexes.size(); i++) {
+                    results[indexes.get(i)] = partResults.get(i);
+                }
+            }));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> Arrays.asList(results));
+    }
+
+    /**
+     * Join a ticket type's waitlist on its event's shard, so promotion is
+     * ordered with the event's bookings and cancellations
+     */
+    public CompletableFuture<WaitlistEntry> joinWaitlist(String userId, String eventId,
+                                                         String ticketTypeId, int quantity) {
+        return submit(eventId, () -> bookingService.joinWaitlist(userId, eventId, ticketTypeId, quantity));
+    }
+
+    /**
+     * Pay for a booking on its event's shard
+     */
+    public CompletableFuture<Void> processPayment(String bookingId, PaymentMethod paymentMethod) {
+        return submitForBooking(bookingId, () -> {
+            bookingService.processPayment(bookingId, paymentMethod);
+            return null;
+        });
+    }
+
+    /**
+     * Cancel a booking on its event's shard
+     */
+    public CompletableFuture<Void> cancelBooking(String bookingId) {
+        return submitForBooking(bookingId, () -> {
+            bookingService.cancelBooking(bookingId);
+            return null;
+        });
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int shardFor(String eventId) {
+        return Math.floorMod(eventId.hashCode(), shards.length);
+    }
+
+    /**
+     * Stop accepting commands and wait for queued ones to finish
+     * Hold expiries go back to running on the timer thread, so holds that
+     * time out afterwards still return their inventory.
+     */
+    public void shutdown() {
+        bookingService.dispatchHoldExpiry(null);
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+        try {
+            for (ExecutorService shard : shards) {
+                shard.awaitTermination(30, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> CompletableFuture<T> submitForBooking(String bookingId, Supplier<T> command) {
+        Event event;
+        try {
+            event = bookingService.getBookingById(bookingId).getEvent();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return submit(shardFor(event.getEventId()), () -> {
+            event.ownInventory();
+            return command.get();
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(String eventId, Supplier<T> command) {
+        return submit(shardFor(eventId), () -> {
+            own(eventId);
+            return command.get();
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(int shard, Supplier<T> command) {
+        try {
+            return CompletableFuture.supplyAsync(command, shards[shard]);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Make the calling shard the event's inventory owner; runs before each
+     * of the event's commands, and costs one volatile read once owned
+     */
+    private void own(String eventId) {
+        try {
+            eventService.getEventById(eventId).ownInventory();
+        } catch (EventNotFoundException e) {
+            // The command itself reports the missing event
+        }
+    }
+}
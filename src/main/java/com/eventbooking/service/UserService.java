@@ -2,10 +2,14 @@ package com.eventbooking.service;
 
 import com.eventbooking.model.User;
 import com.eventbooking.model.UserRole;
+import com.eventbooking.repository.Page;
 import com.eventbooking.repository.UserRepository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Service layer for User-related business logic
@@ -71,6 +75,20 @@ public class UserService {
         return userRepository.findAll();
     }
     
+    /**
+     * Get one page of users in ID order
+     */
+    public Page<User, String> getUsersPage(String after, int limit) {
+        return userRepository.findPage(after, limit);
+    }
+    
+    /**
+     * Stream every user without materializing the table
+     */
+    public Stream<User> streamAllUsers() {
+        return userRepository.stream();
+    }
+    
     /**
      * Update user profile
      */
@@ -81,37 +99,47 @@ public class UserService {
         return userRepository.update(user);
     }
     
+    /**
+     * Apply a profile edit made against a version of the user read earlier
+     * @throws com.eventbooking.exception.OptimisticLockException if the user changed since
+     */
+    public User updateUser(String userId, long expectedVersion, Consumer<? super User> change) {
+        getUserById(userId);
+        return userRepository.compareAndUpdate(userId, expectedVersion, change);
+    }
+    
     /**
      * Change user password
      */
     public void changePassword(String userId, String oldPassword, String newPassword) {
-        User user = getUserById(userId);
-        
-        if (!verifyPassword(oldPassword, user.getPassword())) {
-            throw new IllegalArgumentException("Invalid old password");
-        }
-        
         validatePassword(newPassword);
-        user.setPassword(hashPassword(newPassword));
-        userRepository.update(user);
+        String hashed = hashPassword(newPassword);
+        
+        // Re-checked on every attempt so a concurrent change is never overwritten
+        updateWithRetry(userId, user -> {
+            if (!verifyPassword(oldPassword, user.getPassword())) {
+                throw new IllegalArgumentException("Invalid old password");
+            }
+            return u -> u.setPassword(hashed);
+        });
     }
     
     /**
      * Deactivate user account
      */
     public void deactivateUser(String userId) {
-        User user = getUserById(userId);
-        user.deactivate();
-        userRepository.update(user);
+        updateWithRetry(userId, user -> User::deactivate);
     }
     
     /**
      * Activate user account
      */
     public void activateUser(String userId) {
-        User user = getUserById(userId);
-        user.activate();
-        userRepository.update(user);
+        updateWithRetry(userId, user -> User::activate);
+    }
+    
+    private User updateWithRetry(String userId, Function<? super User, Consumer<? super User>> decide) {
+        return OptimisticRetry.update(userRepository, userId, () -> getUserById(userId), decide);
     }
     
     private void validateUserData(String email, String password, String firstName, String lastName) {
@@ -0,0 +1,308 @@
+package com.eventbooking.ticketstore;
+
+import com.eventbooking.codec.EpochMicros;
+import com.eventbooking.model.Event;
+import com.eventbooking.model.Ticket;
+import com.eventbooking.model.TicketStatus;
+import com.eventbooking.model.TicketType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Off-heap columnar storage for the tickets of one large event
+ * Each ticket is a row of fixed-width columns in direct buffers: the
+ * ticket number, the ticket type's position in the event, the seat as a
+ * dictionary prefix plus a number, a status byte, issued-at as epoch
+ * micros, and the price as an unscaled long with its scale. Rows are
+ * allocated in chunks, so the store grows without copying and a status
+ * written to a row is never lost to a resize. Callers see rows through
+ * TicketView flyweights, which hold only the store and a row number.
+ * Rows are appended and never reclaimed, as tickets are never removed
+ * from their bookings.
+ */
+public class ColumnarTicketStore {
+
+    /** Events with at least this total capacity keep their tickets here */
+    public static final int CAPACITY_THRESHOLD = 10_000;
+
+    static final String TICKET_PREFIX = "TKT-";
+    private static final int TICKET_NUMBER_DIGITS = 8;
+    private static final int CHUNK_SHIFT = 13;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int ROW_MASK = CHUNK_ROWS - 1;
+    private static final int NO_SEAT = -1;
+    private static final int NO_SEAT_NUMBER = -1;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final TicketStatus[] STATUSES = TicketStatus.values();
+
+    private final Event event;
+    // Ticket types are only ever appended to an event, so positions are stable
+    private volatile TicketType[] ticketTypes = new TicketType[0];
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int size;
+    // Seat labels share a few thousand SECTION-ROW prefixes even in a stadium
+    private volatile String[] seatPrefixes = new String[64];
+    private final Map<String, Integer> seatPrefixIds = new HashMap<>();
+
+    public ColumnarTicketStore(Event event) {
+        this.event = event;
+    }
+
+    /**
+     * Issue a new ticket with a fresh ticket number
+     * @return The stored ticket, or null if its values cannot be stored in columns
+     */
+    public Ticket issue(TicketType ticketType, String seatNumber, BigDecimal pricePaid) {
+        String ticketId = TICKET_PREFIX + hex(ThreadLocalRandom.current().nextInt());
+        return add(ticketId, ticketType, seatNumber, TicketStatus.ACTIVE, LocalDateTime.now(), pricePaid);
+    }
+
+    /**
+     * Store an existing ticket, e.g. when restoring a booking
+     * Ticket numbers must look like TKT-XXXXXXXX, as generated ones do.
+     * @return The stored ticket, or null if its values cannot be stored in columns
+     */
+    public synchronized Ticket add(String ticketId, TicketType ticketType, String seatNumber,
+                                   TicketStatus status, LocalDateTime issuedAt, BigDecimal pricePaid) {
+        int ticketNumber;
+        int typeIndex = typeIndex(ticketType);
+        long unscaledPrice;
+        int priceScale;
+        long issuedMicros;
+        try {
+            ticketNumber = parseTicketNumber(ticketId);
+            if (typeIndex < 0 || typeIndex > Byte.MAX_VALUE) {
+                return null;
+            }
+            if (pricePaid == null) {
+                unscaledPrice = NULL_LONG;
+                priceScale = 0;
+            } else {
+                BigInteger unscaled = pricePaid.unscaledValue();
+                if (unscaled.bitLength() >= Long.SIZE || unscaled.longValue() == NULL_LONG
+                        || pricePaid.scale() < Byte.MIN_VALUE
+                        || pricePaid.scale() > Byte.MAX_VALUE) {
+                    return null;
+                }
+                unscaledPrice = unscaled.longValue();
+                priceScale = pricePaid.scale();
+            }
+            issuedMicros = issuedAt == null ? NULL_LONG : EpochMicros.toMicros(issuedAt);
+        } catch (NumberFormatException | ArithmeticException e) {
+            return null;
+        }
+
+        int row = size;
+        Chunk chunk = chunkForAppend(row);
+        int slot = row & ROW_MASK;
+        chunk.ticketNumbers.putInt(slot * Integer.BYTES, ticketNumber);
+        chunk.types.put(slot, (byte) typeIndex);
+        putSeat(chunk, slot, seatNumber);
+        chunk.statuses.put(slot, (byte) (status != null ? status.ordinal() : -1));
+        chunk.issuedAt.putLong(slot * Long.BYTES, issuedMicros);
+        chunk.prices.putLong(slot * Long.BYTES, unscaledPrice);
+        chunk.priceScales.put(slot, (byte) priceScale);
+        // Publishes the row's columns to readers
+        size = row + 1;
+        return new TicketView(this, row);
+    }
+
+    /**
+     * Flyweight over a stored row
+     */
+    public Ticket view(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("No ticket row " + row);
+        }
+        return new TicketView(this, row);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Direct memory held by the columns
+     */
+    public long offHeapBytes() {
+        return (long) chunks.length * CHUNK_ROWS * Chunk.BYTES_PER_ROW;
+    }
+
+    public Event getEvent() {
+        return event;
+    }
+
+    String ticketId(int row) {
+        return TICKET_PREFIX + hex(chunk(row).ticketNumbers.getInt((row & ROW_MASK) * Integer.BYTES));
+    }
+
+    TicketType ticketType(int row) {
+        return ticketTypes[chunk(row).types.get(row & ROW_MASK)];
+    }
+
+    String seatNumber(int row) {
+        Chunk chunk = chunk(row);
+        int slot = row & ROW_MASK;
+        int prefixId = chunk.seatPrefixes.getInt(slot * Integer.BYTES);
+        if (prefixId == NO_SEAT) {
+            return null;
+        }
+        String prefix = seatPrefixes[prefixId];
+        int number = chunk.seatNumbers.getInt(slot * Integer.BYTES);
+        return number == NO_SEAT_NUMBER ? prefix : prefix + "-" + number;
+    }
+
+    TicketStatus status(int row) {
+        int ordinal = chunk(row).statuses.get(row & ROW_MASK);
+        return ordinal >= 0 ? STATUSES[ordinal] : null;
+    }
+
+    void setStatus(int row, TicketStatus status) {
+        chunk(row).statuses.put(row & ROW_MASK, (byte) status.ordinal());
+    }
+
+    LocalDateTime issuedAt(int row) {
+        long micros = chunk(row).issuedAt.getLong((row & ROW_MASK) * Long.BYTES);
+        if (micros == NULL_LONG) {
+            return null;
+        }
+        return EpochMicros.fromMicros(micros);
+    }
+
+    BigDecimal pricePaid(int row) {
+        Chunk chunk = chunk(row);
+        int slot = row & ROW_MASK;
+        long unscaled = chunk.prices.getLong(slot * Long.BYTES);
+        return unscaled == NULL_LONG ? null : BigDecimal.valueOf(unscaled, chunk.priceScales.get(slot));
+    }
+
+    private Chunk chunk(int row) {
+        return chunks[row >>> CHUNK_SHIFT];
+    }
+
+    private Chunk chunkForAppend(int row) {
+        Chunk[] current = chunks;
+        int index = row >>> CHUNK_SHIFT;
+        if (index < current.length) {
+            return current[index];
+        }
+        Chunk[] grown = Arrays.copyOf(current, index + 1);
+        grown[index] = new Chunk();
+        chunks = grown;
+        return grown[index];
+    }
+
+    private int typeIndex(TicketType ticketType) {
+        if (ticketType == null) {
+            return -1;
+        }
+        TicketType[] types = ticketTypes;
+        for (int i = 0; i < types.length; i++) {
+            if (ticketType.equals(types[i])) {
+                return i;
+            }
+        }
+        types = event.getTicketTypes().toArray(new TicketType[0]);
+        ticketTypes = types;
+        for (int i = 0; i < types.length; i++) {
+            if (ticketType.equals(types[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A trailing run of digits that prints back unchanged is kept as a
+     * number; the rest of the label goes into the prefix dictionary
+     */
+    private void putSeat(Chunk chunk, int slot, String seatNumber) {
+        int prefixId = NO_SEAT;
+        int number = NO_SEAT_NUMBER;
+        if (seatNumber != null) {
+            String prefix = seatNumber;
+            int dash = seatNumber.lastIndexOf('-');
+            if (dash > 0 && isCanonicalNumber(seatNumber, dash + 1)) {
+                prefix = seatNumber.substring(0, dash);
+                number = Integer.parseInt(seatNumber, dash + 1, seatNumber.length(), 10);
+            }
+            prefixId = seatPrefixId(prefix);
+        }
+        chunk.seatPrefixes.putInt(slot * Integer.BYTES, prefixId);
+        chunk.seatNumbers.putInt(slot * Integer.BYTES, number);
+    }
+
+    private int seatPrefixId(String prefix) {
+        Integer id = seatPrefixIds.get(prefix);
+        if (id != null) {
+            return id;
+        }
+        int next = seatPrefixIds.size();
+        String[] prefixes = seatPrefixes;
+        if (next == prefixes.length) {
+            prefixes = Arrays.copyOf(prefixes, prefixes.length * 2);
+        }
+        prefixes[next] = prefix;
+        // Readers only look up IDs already written to a published row
+        seatPrefixes = prefixes;
+        seatPrefixIds.put(prefix, next);
+        return next;
+    }
+
+    private static boolean isCanonicalNumber(String text, int start) {
+        int length = text.length() - start;
+        if (length < 1 || length > 9 || (text.charAt(start) == '0' && length > 1)) {
+            return false;
+        }
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int parseTicketNumber(String ticketId) {
+        if (ticketId == null || ticketId.length() != TICKET_PREFIX.length() + TICKET_NUMBER_DIGITS
+                || !ticketId.startsWith(TICKET_PREFIX)) {
+            throw new NumberFormatException("Not a generated ticket number: " + ticketId);
+        }
+        for (int i = TICKET_PREFIX.length(); i < ticketId.length(); i++) {
+            char c = ticketId.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'A' && c <= 'F')) {
+                throw new NumberFormatException("Not a generated ticket number: " + ticketId);
+            }
+        }
+        return Integer.parseUnsignedInt(ticketId, TICKET_PREFIX.length(), ticketId.length(), 16);
+    }
+
+    private static String hex(int number) {
+        String digits = Integer.toHexString(number).toUpperCase();
+        return "0".repeat(TICKET_NUMBER_DIGITS - digits.length()) + digits;
+    }
+
+    /**
+     * CHUNK_ROWS rows of every column
+     */
+    private static final class Chunk {
+        static final int BYTES_PER_ROW = Integer.BYTES + 1 + Integer.BYTES + Integer.BYTES + 1
+                + Long.BYTES + Long.BYTES + 1;
+
+        final ByteBuffer ticketNumbers = ByteBuffer.allocateDirect(CHUNK_ROWS * Integer.BYTES);
+        final ByteBuffer types = ByteBuffer.allocateDirect(CHUNK_ROWS);
+        final ByteBuffer seatPrefixes = ByteBuffer.allocateDirect(CHUNK_ROWS * Integer.BYTES);
+        final ByteBuffer seatNumbers = ByteBuffer.allocateDirect(CHUNK_ROWS * Integer.BYTES);
+        final ByteBuffer statuses = ByteBuffer.allocateDirect(CHUNK_ROWS);
+        final ByteBuffer issuedAt = ByteBuffer.allocateDirect(CHUNK_ROWS * Long.BYTES);
+        final ByteBuffer prices = ByteBuffer.allocateDirect(CHUNK_ROWS * Long.BYTES);
+        final ByteBuffer priceScales = ByteBuffer.allocateDirect(CHUNK_ROWS);
+    }
+}
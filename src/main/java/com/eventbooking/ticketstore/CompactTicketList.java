@@ -0,0 +1,61 @@
+package com.eventbooking.ticketstore;
+
+import com.eventbooking.model.Ticket;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ticket list that keeps columnar tickets as row numbers
+ * Tickets from one columnar store cost four bytes each; views are created
+ * on access. Any other ticket is held as is, and the list keeps insertion
+ * order across both kinds. Like ArrayList, it is not thread-safe.
+ */
+public final class CompactTicketList extends AbstractList<Ticket> {
+    private static final int[] EMPTY = new int[0];
+
+    private ColumnarTicketStore store;
+    // A row number, or -(index + 1) into heapTickets
+    private int[] entries = EMPTY;
+    private List<Ticket> heapTickets;
+    private int size;
+
+    @Override
+    public boolean add(Ticket ticket) {
+        int entry;
+        if (ticket instanceof TicketView
+                && (store == null || store == ((TicketView) ticket).store())) {
+            TicketView view = (TicketView) ticket;
+            store = view.store();
+            entry = view.row();
+        } else {
+            if (heapTickets == null) {
+                heapTickets = new ArrayList<>(1);
+            }
+            heapTickets.add(ticket);
+            entry = -heapTickets.size();
+        }
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(4, size + (size >> 1)));
+        }
+        entries[size++] = entry;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public Ticket get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        int entry = entries[index];
+        return entry >= 0 ? new TicketView(store, entry) : heapTickets.get(-entry - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,107 @@
+package com.eventbooking.ticketstore;
+
+import com.eventbooking.model.Event;
+import com.eventbooking.model.Ticket;
+import com.eventbooking.model.TicketStatus;
+import com.eventbooking.model.TicketType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Flyweight ticket over one row of a columnar store
+ * Every accessor reads the columns, so views are cheap to create and
+ * discard, and any number of views of a row see the same status.
+ */
+final class TicketView extends Ticket {
+    private final ColumnarTicketStore store;
+    private final int row;
+
+    TicketView(ColumnarTicketStore store, int row) {
+        super(null, null, null, null, null, null, null);
+        this.store = store;
+        this.row = row;
+    }
+
+    ColumnarTicketStore store() {
+        return store;
+    }
+
+    int row() {
+        return row;
+    }
+
+    @Override
+    public void cancel() {
+        store.setStatus(row, TicketStatus.CANCELLED);
+    }
+
+    @Override
+    public void use() {
+        synchronized (store) {
+            if (store.status(row) == TicketStatus.ACTIVE) {
+                store.setStatus(row, TicketStatus.USED);
+            }
+        }
+    }
+
+    @Override
+    public boolean isValid() {
+        return store.status(row) == TicketStatus.ACTIVE &&
+               LocalDateTime.now().isBefore(store.getEvent().getEventDateTime());
+    }
+
+    @Override
+    public String getTicketId() {
+        return store.ticketId(row);
+    }
+
+    @Override
+    public Event getEvent() {
+        return store.getEvent();
+    }
+
+    @Override
+    public TicketType getTicketType() {
+        return store.ticketType(row);
+    }
+
+    @Override
+    public String getSeatNumber() {
+        return store.seatNumber(row);
+    }
+
+    @Override
+    public TicketStatus getStatus() {
+        return store.status(row);
+    }
+
+    @Override
+    public LocalDateTime getIssuedAt() {
+        return store.issuedAt(row);
+    }
+
+    @Override
+    public BigDecimal getPricePaid() {
+        return store.pricePaid(row);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TicketView)) return false;
+        TicketView view = (TicketView) o;
+        return store == view.store && row == view.row;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(store) + row;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Ticket{id='%s', event='%s', type='%s', seat='%s', status=%s}",
+                getTicketId(), getEvent().getName(), getTicketType().getName(), getSeatNumber(), getStatus());
+    }
+}
@@ -0,0 +1,279 @@
+package com.eventbooking.tiering;
+
+import com.eventbooking.journal.DirectorySync;
+import com.eventbooking.model.Booking;
+import com.eventbooking.model.Event;
+import com.eventbooking.repository.UserRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Compressed on-disk tier for events that are over, with their bookings
+ * Each archived event is one SegmentFile. Only the segments' indexes are
+ * kept on heap: which segment holds each event and booking, and which
+ * segments hold each user's bookings. Records are decoded a segment at a
+ * time on first access and kept in an LRU cache bounded by the number of
+ * records it holds, each segment counting its event and its bookings, so
+ * segments of events without bookings are bounded too. Archived records are read-only copies; changing one
+ * does not change what is stored.
+ */
+public class ColdStorage {
+
+    public static final int DEFAULT_CACHED_RECORDS = 10_000;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final UserRepository userRepository;
+    private final int cachedRecords;
+    private final Map<String, Segment> segmentsByEvent = new ConcurrentHashMap<>();
+    private final Map<String, Segment> segmentsByBooking = new ConcurrentHashMap<>();
+    private final Map<String, Set<Segment>> segmentsByUser = new ConcurrentHashMap<>();
+    // Access-ordered; guarded by itself
+    private final LinkedHashMap<Segment, SegmentFile.Contents> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private int cachedRecordCount;
+    private long nextSegment;
+
+    public ColdStorage(Path directory, UserRepository userRepository) {
+        this(directory, userRepository, DEFAULT_CACHED_RECORDS);
+    }
+
+    /**
+     * Open or create the directory and read the index of every segment in it
+     * @param userRepository Resolves the users of archived bookings
+     * @param cachedRecords Most decoded events and bookings to keep in
+     *                      memory; the segment being read is kept even if larger
+     */
+    public ColdStorage(Path directory, UserRepository userRepository, int cachedRecords) {
+        if (cachedRecords < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative");
+        }
+        this.directory = directory;
+        this.userRepository = userRepository;
+        this.cachedRecords = cachedRecords;
+        try {
+            Files.createDirectories(directory);
+            List<Long> numbers = new ArrayList<>();
+            try (Stream<Path> entries = Files.list(directory)) {
+                entries.forEach(entry -> {
+                    String name = entry.getFileName().toString();
+                    if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(TEMP_SUFFIX)) {
+                        deleteQuietly(entry);
+                    } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                        try {
+                            numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                                    name.length() - SEGMENT_SUFFIX.length())));
+                        } catch (NumberFormatException ignored) {
+                            // Not one of ours
+                        }
+                    }
+                });
+            }
+            Collections.sort(numbers);
+            // A later segment of the same event replaces an earlier one
+            for (Long number : numbers) {
+                register(new Segment(number, segmentPath(number)), SegmentFile.readIndex(segmentPath(number)));
+                nextSegment = number + 1;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open cold storage directory " + directory, e);
+        }
+    }
+
+    /**
+     * Write an event and its bookings to a new segment and index it
+     * Returns once the segment is durable. Archiving an event again
+     * replaces its previous segment.
+     */
+    public synchronized void archive(Event event, List<Booking> bookings) {
+        long number = nextSegment++;
+        Path target = segmentPath(number);
+        Path temp = directory.resolve(target.getFileName() + TEMP_SUFFIX);
+        try {
+            Files.deleteIfExists(temp);
+            SegmentFile.write(temp, event, bookings);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            DirectorySync.sync(directory);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException("Cannot write cold storage segment " + target, e);
+        }
+        String[] bookingIds = new String[bookings.size()];
+        String[] userIds = new String[bookings.size()];
+        for (int i = 0; i < bookings.size(); i++) {
+            bookingIds[i] = bookings.get(i).getBookingId();
+            userIds[i] = bookings.get(i).getUser().getUserId();
+        }
+        register(new Segment(number, target), new SegmentFile.Index(event.getEventId(), bookingIds, userIds));
+    }
+
+    public boolean containsEvent(String eventId) {
+        return segmentsByEvent.containsKey(eventId);
+    }
+
+    public boolean containsBooking(String bookingId) {
+        return segmentsByBooking.containsKey(bookingId);
+    }
+
+    public Optional<Event> findEvent(String eventId) {
+        Segment segment = segmentsByEvent.get(eventId);
+        return segment == null ? Optional.empty() : Optional.of(load(segment).event);
+    }
+
+    public Optional<Booking> findBooking(String bookingId) {
+        Segment segment = segmentsByBooking.get(bookingId);
+        return segment == null ? Optional.empty() : Optional.ofNullable(load(segment).bookings.get(bookingId));
+    }
+
+    /**
+     * Archived bookings of an event, in the order they were archived
+     */
+    public List<Booking> findBookingsByEvent(String eventId) {
+        Segment segment = segmentsByEvent.get(eventId);
+        return segment == null ? new ArrayList<>() : new ArrayList<>(load(segment).bookings.values());
+    }
+
+    /**
+     * Archived bookings of a user, loading each segment that holds one
+     */
+    public List<Booking> findBookingsByUser(String userId) {
+        List<Booking> result = new ArrayList<>();
+        for (Segment segment : segmentsByUser.getOrDefault(userId, Collections.emptySet())) {
+            for (Booking booking : load(segment).bookings.values()) {
+                if (booking.getUser().getUserId().equals(userId)) {
+                    result.add(booking);
+                }
+            }
+        }
+        return result;
+    }
+
+    public int getArchivedEventCount() {
+        return segmentsByEvent.size();
+    }
+
+    public int getArchivedBookingCount() {
+        return segmentsByBooking.size();
+    }
+
+    /**
+     * Number of decoded events and bookings currently held in memory
+     */
+    public int getCachedRecordCount() {
+        synchronized (cache) {
+            return cachedRecordCount;
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private void register(Segment segment, SegmentFile.Index index) {
+        Segment replaced = segmentsByEvent.put(index.eventId, segment);
+        if (replaced != null) {
+            unregister(replaced);
+        }
+        for (int i = 0; i < index.bookingIds.length; i++) {
+            segmentsByBooking.put(index.bookingIds[i], segment);
+            segmentsByUser.computeIfAbsent(index.userIds[i], id -> ConcurrentHashMap.newKeySet()).add(segment);
+        }
+    }
+
+    private void unregister(Segment segment) {
+        segmentsByBooking.values().removeIf(segment::equals);
+        for (Iterator<Set<Segment>> sets = segmentsByUser.values().iterator(); sets.hasNext(); ) {
+            Set<Segment> set = sets.next();
+            if (set.remove(segment) && set.isEmpty()) {
+                sets.remove();
+            }
+        }
+        synchronized (cache) {
+            SegmentFile.Contents evicted = cache.remove(segment);
+            if (evicted != null) {
+                cachedRecordCount -= records(evicted);
+            }
+        }
+        deleteQuietly(segment.file);
+    }
+
+    private SegmentFile.Contents load(Segment segment) {
+        synchronized (cache) {
+            SegmentFile.Contents cached = cache.get(segment);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // Decoded outside the lock; two readers may both decode a segment, and one copy is kept
+        SegmentFile.Contents contents = SegmentFile.read(segment.file,
+                id -> userRepository.findById(id).orElse(null));
+        synchronized (cache) {
+            SegmentFile.Contents raced = cache.get(segment);
+            if (raced != null) {
+                return raced;
+            }
+            cache.put(segment, contents);
+            cachedRecordCount += records(contents);
+            Iterator<Map.Entry<Segment, SegmentFile.Contents>> eldest = cache.entrySet().iterator();
+            while (cachedRecordCount > cachedRecords && cache.size() > 1) {
+                SegmentFile.Contents evicted = eldest.next().getValue();
+                eldest.remove();
+                cachedRecordCount -= records(evicted);
+            }
+        }
+        return contents;
+    }
+
+    /**
+     * Cache weight of a segment: its event and each of its bookings
+     */
+    private static int records(SegmentFile.Contents contents) {
+        return 1 + contents.bookings.size();
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // Left behind; the index no longer refers to it
+        }
+    }
+
+    /**
+     * Identity of one segment file; the on-heap index holds these, not records
+     */
+    private static final class Segment {
+        final long number;
+        final Path file;
+
+        Segment(long number, Path file) {
+            this.number = number;
+            this.file = file;
+        }
+
+        @Override
+        public String toString() {
+            return "Segment{" + number + "}";
+        }
+    }
+}
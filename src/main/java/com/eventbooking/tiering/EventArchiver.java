@@ -0,0 +1,135 @@
+package com.eventbooking.tiering;
+
+import com.eventbooking.model.Booking;
+import com.eventbooking.model.BookingStatus;
+import com.eventbooking.model.Event;
+import com.eventbooking.model.EventStatus;
+import com.eventbooking.repository.BookingRepository;
+import com.eventbooking.repository.EventRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves events that ended more than a retention period ago to cold storage
+ * An event is eligible once it is COMPLETED or CANCELLED, its date is past
+ * the retention horizon and none of its bookings is still PENDING. Its
+ * bookings are written to a segment first and only then deleted from the
+ * live repositories, event last, so a crash part-way leaves the event
+ * live and the next pass archives it again, merging what was already
+ * archived. Closing waits for a pass in progress, so the repositories can
+ * be closed right after.
+ */
+public class EventArchiver implements AutoCloseable {
+
+    private static final System.Logger LOG = System.getLogger(EventArchiver.class.getName());
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final EventRepository eventRepository;
+    private final BookingRepository bookingRepository;
+    private final ColdStorage coldStorage;
+    private final Duration retention;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param bookingRepository Should fall back to the same cold storage, so
+     *                          bookings archived by an interrupted pass are kept
+     * @param retention How long after its date an ended event stays live
+     */
+    public EventArchiver(EventRepository eventRepository, BookingRepository bookingRepository,
+                         ColdStorage coldStorage, Duration retention) {
+        if (retention == null || retention.isNegative()) {
+            throw new IllegalArgumentException("Retention cannot be negative");
+        }
+        this.eventRepository = eventRepository;
+        this.bookingRepository = bookingRepository;
+        this.coldStorage = coldStorage;
+        this.retention = retention;
+    }
+
+    /**
+     * Archive every event that is eligible now
+     * @return Number of events archived
+     */
+    public synchronized int archiveExpired() {
+        LocalDateTime horizon = LocalDateTime.now().minus(retention);
+        List<Event> candidates = new ArrayList<>(eventRepository.findByStatus(EventStatus.COMPLETED));
+        candidates.addAll(eventRepository.findByStatus(EventStatus.CANCELLED));
+        int archived = 0;
+        for (Event event : candidates) {
+            if (event.getEventDateTime().isBefore(horizon) && archive(event)) {
+                archived++;
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Archive one event with its bookings, whatever its date
+     * @return false if a booking of the event is still holding tickets
+     */
+    public synchronized boolean archive(Event event) {
+        List<Booking> bookings = bookingRepository.findByEventId(event.getEventId());
+        for (Booking booking : bookings) {
+            if (booking.getStatus() == BookingStatus.PENDING) {
+                return false;
+            }
+        }
+        coldStorage.archive(event, bookings);
+        for (Booking booking : bookings) {
+            bookingRepository.deleteById(booking.getBookingId());
+            booking.getUser().removeBooking(booking);
+        }
+        eventRepository.deleteById(event.getEventId());
+        return true;
+    }
+
+    /**
+     * Run archiveExpired every interval on a background thread until closed
+     */
+    public synchronized void scheduleArchiving(Duration interval) {
+        if (interval == null || interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("Archiving interval must be positive");
+        }
+        if (scheduler != null) {
+            throw new IllegalStateException("Archiving is already scheduled");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "cold-storage-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archiveExpired();
+            } catch (RuntimeException e) {
+                // Keep the schedule; whatever was not archived is still live
+                LOG.log(System.Logger.Level.ERROR, "Cold storage archiving failed", e);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = scheduler;
+            scheduler = null;
+        }
+        if (running == null) {
+            return;
+        }
+        running.shutdown();
+        try {
+            running.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.eventbooking.tiering;
+
+import com.eventbooking.codec.DomainCodec;
+import com.eventbooking.model.Booking;
+import com.eventbooking.model.Event;
+import com.eventbooking.model.User;
+import com.eventbooking.model.Venue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * One archived event with its bookings, in a single compressed file
+ * Layout is a fixed header [magic][format][index length][index crc32]
+ * [body length][body crc32], then the index and the body. The index is
+ * uncompressed and lists the event ID and each booking's ID and user ID,
+ * so opening cold storage reads only indexes. The body is deflated
+ * DomainCodec records framed as [length][record]: the users the bookings
+ * refer to, then the event, then the bookings with their tickets and
+ * payments. Users are carried so a segment still decodes after a user is
+ * deleted, but live users are preferred when they exist.
+ */
+final class SegmentFile {
+
+    private static final int MAGIC = 0x45424353;
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int INITIAL_RECORD_BYTES = 4096;
+
+    private SegmentFile() {
+    }
+
+    /**
+     * IDs held by one segment, as listed in its index
+     */
+    static final class Index {
+        final String eventId;
+        final String[] bookingIds;
+        final String[] userIds;
+
+        Index(String eventId, String[] bookingIds, String[] userIds) {
+            this.eventId = eventId;
+            this.bookingIds = bookingIds;
+            this.userIds = userIds;
+        }
+    }
+
+    /**
+     * A segment's decoded records
+     */
+    static final class Contents {
+        final Event event;
+        final Map<String, Booking> bookings;
+
+        Contents(Event event, Map<String, Booking> bookings) {
+            this.event = event;
+            this.bookings = bookings;
+        }
+    }
+
+    /**
+     * Write a new segment file and sync it to disk
+     * Each entity is encoded under its own monitor, as the journal does.
+     */
+    static void write(Path file, Event event, List<Booking> bookings) {
+        Map<String, User> users = new LinkedHashMap<>();
+        for (Booking booking : bookings) {
+            users.putIfAbsent(booking.getUser().getUserId(), booking.getUser());
+        }
+        try {
+            ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+            DataOutputStream index = new DataOutputStream(indexBytes);
+            index.writeUTF(event.getEventId());
+            index.writeInt(bookings.size());
+            for (Booking booking : bookings) {
+                index.writeUTF(booking.getBookingId());
+                index.writeUTF(booking.getUser().getUserId());
+            }
+            index.flush();
+
+            ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                DataOutputStream body = new DataOutputStream(new DeflaterOutputStream(bodyBytes, deflater));
+                ByteBuffer buffer = ByteBuffer.allocate(INITIAL_RECORD_BYTES);
+                body.writeInt(users.size());
+                for (User user : users.values()) {
+                    buffer = writeRecord(body, buffer, user, DomainCodec::encodeUser);
+                }
+                buffer = writeRecord(body, buffer, event, DomainCodec::encodeEvent);
+                body.writeInt(bookings.size());
+                for (Booking booking : bookings) {
+                    buffer = writeRecord(body, buffer, booking, DomainCodec::encodeBooking);
+                }
+                body.close();
+            } finally {
+                deflater.end();
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(FORMAT);
+            header.putInt(indexBytes.size()).putInt(crc(indexBytes.toByteArray()));
+            header.putInt(bodyBytes.size()).putInt(crc(bodyBytes.toByteArray()));
+            header.flip();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                writeFully(channel, header);
+                writeFully(channel, ByteBuffer.wrap(indexBytes.toByteArray()));
+                writeFully(channel, ByteBuffer.wrap(bodyBytes.toByteArray()));
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write cold storage segment " + file, e);
+        }
+    }
+
+    /**
+     * Read only a segment's index
+     * @throws IllegalStateException if the file is not a complete segment
+     */
+    static Index readIndex(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel, file);
+            int indexLength = header.getInt(8);
+            byte[] bytes = readBytes(channel, HEADER_BYTES, indexLength, header.getInt(12), file);
+            DataInputStream index = new DataInputStream(new ByteArrayInputStream(bytes));
+            String eventId = index.readUTF();
+            int count = index.readInt();
+            if (count < 0) {
+                throw new IllegalStateException("Corrupt cold storage segment " + file);
+            }
+            String[] bookingIds = new String[count];
+            String[] userIds = new String[count];
+            for (int i = 0; i < count; i++) {
+                bookingIds[i] = index.readUTF();
+                userIds[i] = index.readUTF();
+            }
+            return new Index(eventId, bookingIds, userIds);
+        } catch (EOFException e) {
+            throw new IllegalStateException("Corrupt cold storage segment " + file, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read cold storage segment " + file, e);
+        }
+    }
+
+    /**
+     * Decode a segment's event and bookings
+     * @param users Live users by ID; users it does not know are decoded from the segment
+     */
+    static Contents read(Path file, Function<String, User> users) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel, file);
+            long bodyStart = HEADER_BYTES + (long) header.getInt(8);
+            byte[] bytes = readBytes(channel, bodyStart, header.getInt(16), header.getInt(20), file);
+            try (DataInputStream body = new DataInputStream(
+                    new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+                Map<String, User> archivedUsers = new HashMap<>();
+                int userCount = body.readInt();
+                for (int i = 0; i < userCount; i++) {
+                    User user = DomainCodec.decodeUser(readRecord(body, file));
+                    archivedUsers.put(user.getUserId(), user);
+                }
+                Event event = DomainCodec.decodeEvent(readRecord(body, file), new HashMap<String, Venue>());
+                Function<String, User> userLookup = id -> {
+                    User live = users.apply(id);
+                    return live != null ? live : archivedUsers.get(id);
+                };
+                Function<String, Event> eventLookup = id -> id.equals(event.getEventId()) ? event : null;
+                int bookingCount = body.readInt();
+                Map<String, Booking> bookings = new LinkedHashMap<>();
+                for (int i = 0; i < bookingCount; i++) {
+                    Booking booking = DomainCodec.decodeBooking(readRecord(body, file), userLookup, eventLookup);
+                    bookings.put(booking.getBookingId(), booking);
+                }
+                return new Contents(event, bookings);
+            }
+        } catch (EOFException e) {
+            throw new IllegalStateException("Corrupt cold storage segment " + file, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read cold storage segment " + file, e);
+        }
+    }
+
+    private interface Encoder<T> {
+        void encode(T entity, ByteBuffer buffer);
+    }
+
+    /**
+     * Encode under the entity's monitor, growing the scratch buffer until the record fits
+     * @return The scratch buffer to use for the next record
+     */
+    private static <T> ByteBuffer writeRecord(DataOutputStream out, ByteBuffer buffer, T entity,
+                                              Encoder<T> encoder) throws IOException {
+        while (true) {
+            buffer.clear();
+            try {
+                synchronized (entity) {
+                    encoder.encode(entity, buffer);
+                }
+                break;
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+        out.writeInt(buffer.position());
+        out.write(buffer.array(), 0, buffer.position());
+        return buffer;
+    }
+
+    private static ByteBuffer readRecord(DataInputStream in, Path file) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IllegalStateException("Corrupt cold storage segment " + file);
+        }
+        byte[] record = new byte[length];
+        in.readFully(record);
+        return ByteBuffer.wrap(record);
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, 0, file);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT) {
+            throw new IllegalStateException("Not a cold storage segment: " + file);
+        }
+        if (header.getInt(8) < 0 || header.getInt(16) < 0
+                || channel.size() != HEADER_BYTES + (long) header.getInt(8) + header.getInt(16)) {
+            throw new IllegalStateException("Truncated cold storage segment " + file);
+        }
+        return header;
+    }
+
+    private static byte[] readBytes(FileChannel channel, long position, int length, int checksum, Path file)
+            throws IOException {
+        byte[] bytes = new byte[length];
+        readFully(channel, ByteBuffer.wrap(bytes), position, file);
+        if (crc(bytes) != checksum) {
+            throw new IllegalStateException("Corrupt cold storage segment " + file);
+        }
+        return bytes;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, Path file)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IllegalStateException("Truncated cold storage segment " + file);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}